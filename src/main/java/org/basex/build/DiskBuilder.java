@@ -7,14 +7,17 @@ import org.basex.core.cmd.DropDB;
 import org.basex.data.Data;
 import org.basex.data.DiskData;
 import org.basex.data.MetaData;
+import org.basex.data.TextDictionary;
 import org.basex.io.DataInput;
 import org.basex.io.DataOutput;
 import org.basex.io.IO;
 import org.basex.io.TableAccess;
+import org.basex.io.TableColumnAccess;
+import org.basex.io.TableColumnOutput;
 import org.basex.io.TableDiskAccess;
 import org.basex.io.TableOutput;
-import org.basex.util.Compress;
-import org.basex.util.Token;
+import org.basex.util.SymbolCompress;
+import org.basex.util.TextCodec;
 import org.basex.util.Util;
 
 /**
@@ -39,8 +42,14 @@ public final class DiskBuilder extends Builder {
   /** Attribute value pointer. */
   private long vallen;
 
-  /** Text compressor. */
-  private final Compress comp;
+  /** Text codec. */
+  private TextCodec txtcodec;
+  /** Attribute value codec. */
+  private TextCodec atvcodec;
+  /** Text dictionary ({@code null} if values are not dictionary-encoded). */
+  private TextDictionary txtdict;
+  /** Attribute value dictionary. */
+  private TextDictionary atvdict;
 
   /**
    * Constructor.
@@ -49,7 +58,6 @@ public final class DiskBuilder extends Builder {
    */
   public DiskBuilder(final Parser parse, final Prop pr) {
     super(parse, pr);
-    comp = new Compress();
   }
 
   @Override
@@ -69,16 +77,25 @@ public final class DiskBuilder extends Builder {
         rt.maxMemory() - rt.freeMemory() >> 2));
     bs = Math.max(IO.BLOCKSIZE, bs - bs % IO.BLOCKSIZE);
 
-    tout = new DataOutput(new TableOutput(meta, DATATBL));
+    tout = new DataOutput(meta.tablecols ?
+        new TableColumnOutput(meta, DATATBL) : new TableOutput(meta, DATATBL));
     xout = new DataOutput(meta.file(DATATXT), bs);
     vout = new DataOutput(meta.file(DATAATV), bs);
     sout = new DataOutput(meta.file(DATATMP), bs);
+    if(meta.valuedict) {
+      txtdict = new TextDictionary();
+      atvdict = new TextDictionary();
+    }
+    txtcodec = meta.codec(true);
+    atvcodec = meta.codec(false);
 
     parse(name);
     close();
 
     // copy temporary values into database table
-    final TableAccess ta = new TableDiskAccess(meta, DATATBL);
+    final TableAccess ta = meta.tablecols ?
+        new TableColumnAccess(meta, DATATBL) :
+        new TableDiskAccess(meta, DATATBL);
     final DataInput in = new DataInput(meta.file(DATATMP));
     for(; spos < ssize; ++spos) ta.write4(in.readNum(), 8, in.readNum());
     ta.close();
@@ -105,10 +122,35 @@ public final class DiskBuilder extends Builder {
     if(xout != null) xout.close();
     if(vout != null) vout.close();
     if(sout != null) sout.close();
+    if(txtdict != null) txtdict.write(meta.file(DATATXTDICT));
+    if(atvdict != null) atvdict.write(meta.file(DATAATVDICT));
+    write(txtcodec, DATATXTCODEC);
+    write(atvcodec, DATAATVCODEC);
     tout = null;
     xout = null;
     vout = null;
     sout = null;
+    txtdict = null;
+    atvdict = null;
+    txtcodec = null;
+    atvcodec = null;
+  }
+
+  /**
+   * Writes the symbol table of a codec to disk.
+   * @param codec codec
+   * @param fn filename
+   * @throws IOException I/O exception
+   */
+  private void write(final TextCodec codec, final String fn)
+      throws IOException {
+    if(!(codec instanceof SymbolCompress)) return;
+    final DataOutput out = new DataOutput(meta.file(fn));
+    try {
+      ((SymbolCompress) codec).write(out);
+    } finally {
+      out.close();
+    }
   }
 
   @Override
@@ -169,19 +211,30 @@ public final class DiskBuilder extends Builder {
    * @throws IOException I/O exception
    */
   private long textOff(final byte[] val, final boolean txt) throws IOException {
-    // inline integer values...
-    long v = Token.toSimpleInt(val);
-    if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
+    // inline integer values and short texts
+    long v = DiskData.inline(val);
+    if(v != -1) return v;
+
+    // reference recurring values
+    final TextDictionary td = txt ? txtdict : atvdict;
+    if(td != null) {
+      v = td.get(val);
+      if(v != -1) return v;
+    }
 
     // compress text
-    final byte[] cpr = comp.pack(val);
-    if(txt) {
-      v = txtlen;
-      txtlen += xout.writeToken(cpr);
-    } else {
-      v = vallen;
-      vallen += vout.writeToken(cpr);
+    final byte[] cpr = (txt ? txtcodec : atvcodec).pack(val);
+    v = txt ? txtlen : vallen;
+    // the upper bits of the reference are reserved for flags
+    if(v >= IO.OFFDICT) throw new BuildException(BuildText.LIMITRANGE,
+        parser.detail());
+    if(txt) txtlen += xout.writeToken(cpr);
+    else vallen += vout.writeToken(cpr);
+    if(cpr != val) v |= IO.OFFCOMP;
+    if(td != null && td.accept(val)) {
+      v |= IO.OFFDICT;
+      td.add(val, v);
     }
-    return cpr != val ? v | IO.OFFCOMP : v;
+    return v;
   }
 }
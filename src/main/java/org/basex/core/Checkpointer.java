@@ -0,0 +1,125 @@
+package org.basex.core;
+
+import java.util.ArrayList;
+import org.basex.data.Data;
+import org.basex.data.DiskData;
+import org.basex.io.BufferPool;
+import org.basex.util.Util;
+
+/**
+ * This class writes committed updates of databases with a redo log
+ * to the database files in the background (see {@link Prop#WAL}).
+ * Updates are written if the interval specified by {@link Prop#CHECKPOINT}
+ * has passed, or if the number of pending buffers exceeds
+ * {@link Prop#PENDING}. Updates are written with a read lock, so that
+ * other readers are not blocked.
+ *
+ * The checkpointer is started after updates, and it is stopped if no more
+ * updates are pending.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class Checkpointer implements Runnable {
+  /** Polling interval in milliseconds. */
+  private static final int POLL = 100;
+
+  /** Number of checkpoints. */
+  private static long count;
+  /** Total time spent for checkpoints, in nanoseconds. */
+  private static long total;
+  /** Maximum time spent for a checkpoint, in nanoseconds. */
+  private static long max;
+
+  /** Database context. */
+  private final Context ctx;
+  /** Checkpointer thread ({@code null} if it is not running). */
+  private Thread thread;
+  /** Time of the last checkpoint. */
+  private long last = System.nanoTime();
+
+  /**
+   * Constructor.
+   * @param c database context
+   */
+  Checkpointer(final Context c) {
+    ctx = c;
+  }
+
+  /**
+   * Returns the checkpoint statistics: number of checkpoints, and the
+   * average and maximum time spent for a checkpoint, in nanoseconds.
+   * @return statistics
+   */
+  public static synchronized long[] stats() {
+    return new long[] { count, count == 0 ? 0 : total / count, max };
+  }
+
+  /**
+   * Starts the checkpointer if it is not running yet.
+   */
+  synchronized void start() {
+    if(thread != null) return;
+    thread = new Thread(this, Util.name(this));
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops the checkpointer.
+   */
+  synchronized void stop() {
+    if(thread != null) thread.interrupt();
+    thread = null;
+  }
+
+  @Override
+  public void run() {
+    try {
+      while(true) {
+        Thread.sleep(POLL);
+        final ArrayList<DiskData> pending = new ArrayList<DiskData>();
+        synchronized(this) {
+          if(thread != Thread.currentThread()) return;
+          for(final Data d : ctx.datas.all()) {
+            if(d instanceof DiskData && ((DiskData) d).pending())
+              pending.add((DiskData) d);
+          }
+          // stop the thread if no updates are pending
+          if(pending.isEmpty()) {
+            thread = null;
+            return;
+          }
+        }
+        final Prop prop = ctx.prop;
+        if(System.nanoTime() - last >= prop.num(Prop.CHECKPOINT) * 1000000L ||
+            BufferPool.logged() >= prop.num(Prop.PENDING)) write(pending);
+      }
+    } catch(final InterruptedException ex) {
+      // thread has been stopped
+    }
+  }
+
+  /**
+   * Writes the committed updates of the specified databases.
+   * @param pending databases with pending updates
+   */
+  private void write(final ArrayList<DiskData> pending) {
+    ctx.register(false);
+    try {
+      for(final DiskData d : pending) {
+        final long t = System.nanoTime();
+        if(!d.writeBack()) continue;
+        final long e = System.nanoTime() - t;
+        synchronized(Checkpointer.class) {
+          ++count;
+          total += e;
+          max = Math.max(max, e);
+        }
+      }
+    } finally {
+      ctx.unregister(false);
+    }
+    last = System.nanoTime();
+  }
+}
@@ -11,6 +11,7 @@ import org.basex.io.ArrayOutput;
 import org.basex.io.NullOutput;
 import org.basex.io.PrintOutput;
 import org.basex.util.Performance;
+import org.basex.util.StringList;
 import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
 
@@ -117,6 +118,29 @@ public abstract class Command extends Progress {
     return (flags & (User.CREATE | User.WRITE)) != 0;
   }
 
+  /**
+   * Checks if the command only reads databases until it calls
+   * {@link Context#exclusive}, so that readers need not be blocked before.
+   * @return result of check
+   */
+  protected boolean shared() {
+    return false;
+  }
+
+  /**
+   * Returns the names of the databases that are accessed by the command.
+   * By default, commands that need a data reference access the currently
+   * opened database, and all other commands access all databases.
+   * @param ctx context reference
+   * @return names, or {@code null} for all databases
+   */
+  public StringList databases(final Context ctx) {
+    if((flags & DATAREF) == 0 || ctx.data == null) return null;
+    final StringList sl = new StringList();
+    sl.add(ctx.data.meta.name);
+    return sl;
+  }
+
   /**
    * Checks if the command updates the data reference.
    * @return result of check
@@ -270,7 +294,7 @@ public abstract class Command extends Progress {
     // check concurrency of commands
     boolean ok = false;
     final boolean writing = updating(ctx);
-    ctx.register(writing);
+    ctx.register(writing, shared(), databases(ctx));
     ok = run(ctx, os);
     ctx.unregister(writing);
     return ok;
@@ -18,6 +18,7 @@ import org.basex.core.cmd.AlterUser;
 import org.basex.core.cmd.Backup;
 import org.basex.core.cmd.Check;
 import org.basex.core.cmd.Close;
+import org.basex.core.cmd.Compact;
 import org.basex.core.cmd.Copy;
 import org.basex.core.cmd.CreateDB;
 import org.basex.core.cmd.CreateIndex;
@@ -201,7 +202,8 @@ public final class CommandParser extends InputParser {
         }
         break;
       case OPTIMIZE:
-        return key(ALL, null) ? new OptimizeAll() : new Optimize();
+        return key(ALL, null) ? new OptimizeAll() :
+          key(COMPACT, null) ? new Compact() : new Optimize();
       case EXPORT:
         return new Export(string(cmd));
       case XQUERY:
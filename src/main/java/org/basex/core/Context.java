@@ -7,6 +7,7 @@ import org.basex.data.Nodes;
 import org.basex.io.IO;
 import org.basex.server.ServerProcess;
 import org.basex.server.Sessions;
+import org.basex.util.StringList;
 
 /**
  * This class serves as a central database context.
@@ -47,16 +48,19 @@ public final class Context {
 
   /** Process locking. */
   private final Lock lock;
+  /** Background checkpointer. */
+  private final Checkpointer checkpointer;
 
   /**
    * Constructor.
    */
   public Context() {
     prop = new Prop(true);
-    datas = new DataPool();
+    datas = new DataPool(prop);
     triggers = new TriggerPool();
     sessions = new Sessions();
     lock = new Lock(this);
+    checkpointer = new Checkpointer(this);
     users = new Users(true);
     user = users.get(ADMIN);
   }
@@ -71,6 +75,7 @@ public final class Context {
     triggers = ctx.triggers;
     sessions = ctx.sessions;
     lock = ctx.lock;
+    checkpointer = ctx.checkpointer;
     users = ctx.users;
   }
 
@@ -79,6 +84,7 @@ public final class Context {
    */
   public synchronized void close() {
     while(sessions.size() > 0) sessions.get(0).exit();
+    checkpointer.stop();
     datas.close();
   }
 
@@ -179,7 +185,28 @@ public final class Context {
    * @param w writing flag
    */
   public void register(final boolean w) {
-    lock.lock(w);
+    register(w, false, null);
+  }
+
+  /**
+   * Registers a process, which only locks the specified databases.
+   * A shared writer only reads databases until it calls {@link #exclusive};
+   * until then, readers will not be blocked.
+   * @param w writing flag
+   * @param s shared flag
+   * @param db names of the accessed databases ({@code null}: all databases)
+   */
+  public void register(final boolean w, final boolean s,
+      final StringList db) {
+    lock.lock(w, s, db);
+  }
+
+  /**
+   * Waits until a shared writer is the only active process.
+   * Must be called before a shared writer modifies a database.
+   */
+  public void exclusive() {
+    lock.exclusive();
   }
 
   /**
@@ -187,7 +214,18 @@ public final class Context {
    * @param w writing flag
    */
   public void unregister(final boolean w) {
-    lock.unlock(w);
+    unregister(w, Thread.currentThread());
+  }
+
+  /**
+   * Unregisters a process that has been registered by the specified thread.
+   * @param w writing flag
+   * @param t thread that registered the process
+   */
+  public void unregister(final boolean w, final Thread t) {
+    lock.unlock(w, t);
+    // committed updates are written to disk in the background
+    if(w && prop.is(Prop.WAL)) checkpointer.start();
   }
 
   /**
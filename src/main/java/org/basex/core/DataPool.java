@@ -6,19 +6,44 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.basex.data.Data;
+import org.basex.data.DiskData;
+import org.basex.util.Performance;
 import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
 
 /**
  * This class organizes all currently opened database.
+ * Databases that are not used anymore are kept open for a while
+ * (see {@link Prop#KEEPWARM}), so that they need not be reopened if
+ * they are requested again. A background thread closes them when
+ * they have expired.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Andreas Weiler
  */
 public final class DataPool {
+  /** Polling interval of the sweeper in milliseconds. */
+  private static final int POLL = 1000;
+
   /** List for data and pins. */
   private final List<PData> list =
     Collections.synchronizedList(new ArrayList<PData>());
+  /** Database properties. */
+  private final Prop prop;
+  /** Number of requests for unused databases that have been kept open. */
+  private long hits;
+  /** Number of requests for databases that are not opened. */
+  private long misses;
+  /** Sweeper thread ({@code null} if it is not running). */
+  private Thread sweeper;
+
+  /**
+   * Constructor.
+   * @param pr database properties
+   */
+  DataPool(final Prop pr) {
+    prop = pr;
+  }
 
   /**
    * Pins and returns an existing data reference for the specified database, or
@@ -27,39 +52,54 @@ public final class DataPool {
    * @return data reference
    */
   synchronized Data pin(final String db) {
+    clean();
     for(final PData d : list) {
       if(d.data.meta.name.equals(db)) {
-        d.pins++;
+        if(d.pins++ == 0) ++hits;
         return d.data;
       }
     }
+    ++misses;
     return null;
   }
 
   /**
-   * Unpins a data reference.
+   * Unpins a data reference. Unused databases are kept open if possible.
    * @param data data reference
    * @return true if reference was removed from the pool
    */
   synchronized boolean unpin(final Data data) {
     for(final PData d : list) {
       if(d.data == data) {
-        final boolean close = --d.pins == 0;
-        if(close) list.remove(d);
-        return close;
+        if(--d.pins != 0) return false;
+        if(data instanceof DiskData && prop.num(Prop.KEEPWARM) > 0) {
+          d.time = System.nanoTime();
+          clean();
+          sweep();
+          return false;
+        }
+        list.remove(d);
+        return true;
       }
     }
     return false;
   }
 
   /**
-   * Checks if the specified database is pinned.
+   * Checks if the specified database is pinned. If the database is not used
+   * anymore, but has been kept open, it is closed, as it will be modified
+   * or deleted by the caller.
    * @param db name of the database
    * @return result of check
    */
   synchronized boolean pinned(final String db) {
-    for(final PData d : list)
-      if(d.data.meta.name.equals(db)) return true;
+    for(final PData d : list) {
+      if(d.data.meta.name.equals(db)) {
+        if(d.pins != 0) return true;
+        close(d);
+        return false;
+      }
+    }
     return false;
   }
 
@@ -71,17 +111,30 @@ public final class DataPool {
     list.add(new PData(d));
   }
 
+  /**
+   * Returns all data references.
+   * @return data references
+   */
+  synchronized Data[] all() {
+    final Data[] d = new Data[list.size()];
+    for(int i = 0; i < d.length; ++i) d[i] = list.get(i).data;
+    return d;
+  }
+
   /**
    * Returns information on the opened database instances.
    * @return data reference
    */
-  public String info() {
+  public synchronized String info() {
+    int idle = 0;
+    for(final PData d : list) if(d.pins == 0) ++idle;
     final TokenBuilder tb = new TokenBuilder();
     tb.addExt(SRVDATABASES, list.size());
     tb.add(list.size() != 0 ? COL : DOT);
     for(final PData d : list) {
       tb.add(NL + LI + d.data.meta.name + " (" + d.pins + "x)");
     }
+    tb.add(NL).addExt(SRVKEEPWARM, idle, hits, misses);
     return tb.toString();
   }
 
@@ -89,6 +142,8 @@ public final class DataPool {
    * Closes all data references.
    */
   synchronized void close() {
+    if(sweeper != null) sweeper.interrupt();
+    sweeper = null;
     try {
       for(final PData d : list) d.data.close();
     } catch(final IOException ex) {
@@ -110,15 +165,107 @@ public final class DataPool {
     return 0;
   }
 
+  /**
+   * Returns the number of requests for unused databases that have been kept
+   * open, and the number of requests for databases that had to be opened.
+   * @return hits and misses
+   */
+  public synchronized long[] stats() {
+    return new long[] { hits, misses };
+  }
+
+  /**
+   * Closes unused databases that have not been requested for the time
+   * specified by {@link Prop#KEEPWARMTIME}, and the least recently used
+   * ones if more than {@link Prop#KEEPWARM} databases are unused.
+   * All unused databases are closed if more than three quarters of the
+   * available memory are occupied.
+   */
+  private void clean() {
+    final ArrayList<PData> idle = new ArrayList<PData>();
+    for(final PData d : list) if(d.pins == 0) idle.add(d);
+    if(idle.isEmpty()) return;
+
+    final long min = System.nanoTime() -
+        prop.num(Prop.KEEPWARMTIME) * 1000000000L;
+    final boolean full = Performance.mem() >
+        Runtime.getRuntime().maxMemory() / 4 * 3;
+    int keep = full ? 0 : prop.num(Prop.KEEPWARM);
+    // idle databases are sorted by the time they have been unpinned
+    Collections.sort(idle);
+    for(int i = idle.size() - 1; i >= 0; --i) {
+      final PData d = idle.get(i);
+      if(keep > 0 && d.time - min > 0) --keep;
+      else close(d);
+    }
+  }
+
+  /**
+   * Starts the sweeper thread if it is not running yet.
+   */
+  private void sweep() {
+    if(sweeper != null) return;
+    sweeper = new Sweeper();
+    sweeper.setDaemon(true);
+    sweeper.start();
+  }
+
+  /**
+   * Closes an unused database and removes it from the pool.
+   * @param d database to be closed
+   */
+  private void close(final PData d) {
+    list.remove(d);
+    try {
+      d.data.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Thread that closes expired databases. It stops if no more databases
+   * are unused.
+   */
+  private final class Sweeper extends Thread {
+    /** Constructor. */
+    Sweeper() {
+      super(Util.name(Sweeper.class));
+    }
+
+    @Override
+    public void run() {
+      try {
+        while(true) {
+          Thread.sleep(POLL);
+          synchronized(DataPool.this) {
+            if(sweeper != this) return;
+            clean();
+            boolean idle = false;
+            for(final PData d : list) idle |= d.pins == 0;
+            if(!idle) {
+              sweeper = null;
+              return;
+            }
+          }
+        }
+      } catch(final InterruptedException ex) {
+        // thread has been stopped
+      }
+    }
+  }
+
   /**
    * Inner class for a data object in the pool.
    *
    * @author BaseX Team 2005-11, BSD License
    * @author Andreas Weiler
    */
-  private static final class PData {
+  private static final class PData implements Comparable<PData> {
     /** Number of current database users. */
     int pins = 1;
+    /** Time when the database was unpinned the last time. */
+    long time;
     /** Data reference. */
     Data data;
 
@@ -129,5 +276,11 @@ public final class DataPool {
     PData(final Data d) {
       data = d;
     }
+
+    @Override
+    public int compareTo(final PData d) {
+      final long t = time - d.time;
+      return t < 0 ? -1 : t > 0 ? 1 : 0;
+    }
   }
 }
@@ -1,19 +1,31 @@
 package org.basex.core;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import org.basex.util.StringList;
 import org.basex.util.Util;
 
 /**
  * Management of executing read/write processes.
+ * Processes lock the databases they access (readers/writer locks).
  * Supports multiple readers, limited by {@link Prop#PARALLEL},
- * and single writers (readers/writer lock).
+ * and single writers per database. Processes that do not specify their
+ * databases lock all databases.
+ * Writers can be registered as shared: in this case, readers will not be
+ * blocked until the writer calls {@link #exclusive} to apply its updates.
+ *
+ * All locks of a process are acquired at once, so that no deadlocks can
+ * occur. A process waits as long as it conflicts with an active process
+ * or with a process that has been queued before.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
 final class Lock {
   /** Queue for all waiting processes. */
-  private final LinkedList<Object> queue = new LinkedList<Object>();
+  private final LinkedList<Request> queue = new LinkedList<Request>();
+  /** Active processes. */
+  private final ArrayList<Request> active = new ArrayList<Request>();
   /** Mutex object. */
   private final Object mutex = new Object();
   /** Database context. */
@@ -21,8 +33,6 @@ final class Lock {
 
   /** Number of active readers. */
   private int readers;
-  /** Writer flag. */
-  private boolean writer;
 
   /**
    * Default constructor.
@@ -35,47 +45,135 @@ final class Lock {
   /**
    * Modifications before executing a command.
    * @param w writing flag
+   * @param s shared flag: a writer will not block readers
+   *   until {@link #exclusive} is called
+   * @param db names of the accessed databases ({@code null}: all databases)
    */
-  void lock(final boolean w) {
+  void lock(final boolean w, final boolean s, final StringList db) {
     synchronized(mutex) {
-      final Object o = new Object();
-      queue.add(o);
+      final Request r = new Request(w, s, db);
+      queue.add(r);
+
+      try {
+        while(!ready(r)) mutex.wait();
+      } catch(final InterruptedException ex) {
+        Util.stack(ex);
+      }
+
+      queue.remove(r);
+      active.add(r);
+      if(!w) ++readers;
+    }
+  }
 
+  /**
+   * Blocks new readers and waits until all active readers of the same
+   * databases have finished. Must be called by a shared writer before
+   * it modifies a database.
+   */
+  void exclusive() {
+    synchronized(mutex) {
+      final Request r = find(true, Thread.currentThread());
+      if(r == null || !r.shared) return;
+      r.shared = false;
       try {
         while(true) {
-          if(o == queue.get(0) && !writer) {
-            if(w) {
-              if(readers == 0) {
-                writer = true;
-                break;
-              }
-            } else if(readers < Math.max(ctx.prop.num(Prop.PARALLEL), 1)) {
-              ++readers;
-              break;
-            }
-          }
+          boolean wait = false;
+          for(final Request a : active) wait |= a != r && r.conflicts(a);
+          if(!wait) break;
           mutex.wait();
         }
       } catch(final InterruptedException ex) {
         Util.stack(ex);
       }
-
-      queue.remove(0);
     }
   }
 
   /**
    * Modifications after executing a command.
    * @param w writing flag
+   * @param t thread that registered the process
    */
-  synchronized void unlock(final boolean w) {
+  void unlock(final boolean w, final Thread t) {
     synchronized(mutex) {
-      if(w) {
-        writer = false;
-      } else {
-        --readers;
-      }
+      final Request r = find(w, t);
+      if(r == null) throw Util.notexpected(
+          "No " + (w ? "writer" : "reader") + " registered for " + t);
+      active.remove(r);
+      if(!w) --readers;
       mutex.notifyAll();
     }
   }
+
+  /**
+   * Checks if the specified process can be started.
+   * @param r request
+   * @return result of check
+   */
+  private boolean ready(final Request r) {
+    if(!r.write && readers >= Math.max(ctx.prop.num(Prop.PARALLEL), 1))
+      return false;
+    for(final Request a : active) if(r.conflicts(a)) return false;
+    // processes that have been queued before have precedence
+    for(final Request q : queue) {
+      if(q == r) break;
+      if(r.conflicts(q)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the most recent active process of the specified thread with the
+   * specified writing flag.
+   * @param w writing flag
+   * @param t thread
+   * @return request or {@code null}
+   */
+  private Request find(final boolean w, final Thread t) {
+    for(int a = active.size() - 1; a >= 0; --a) {
+      final Request r = active.get(a);
+      if(r.write == w && r.thread == t) return r;
+    }
+    return null;
+  }
+
+  /** Lock request of a single process. */
+  private static final class Request {
+    /** Writing flag. */
+    final boolean write;
+    /** Names of the accessed databases ({@code null}: all databases). */
+    final StringList dbs;
+    /** Thread of the process. */
+    final Thread thread = Thread.currentThread();
+    /** Flag for a writer that does not block readers yet. */
+    boolean shared;
+
+    /**
+     * Constructor.
+     * @param w writing flag
+     * @param s shared flag
+     * @param db names of the accessed databases
+     */
+    Request(final boolean w, final boolean s, final StringList db) {
+      write = w;
+      shared = w && s;
+      dbs = db;
+    }
+
+    /**
+     * Checks if this process conflicts with the specified process.
+     * @param r other request
+     * @return result of check
+     */
+    boolean conflicts(final Request r) {
+      // readers do not conflict with readers and shared writers
+      if(!write && (!r.write || r.shared)) return false;
+      if(!r.write && shared) return false;
+      // check if the processes access the same databases
+      if(dbs == null) return r.dbs == null || r.dbs.size() != 0;
+      if(r.dbs == null) return dbs.size() != 0;
+      for(final String db : dbs) if(r.dbs.contains(db)) return true;
+      return false;
+    }
+  }
 }
@@ -1,6 +1,7 @@
 package org.basex.core;
 
 import java.io.File;
+import org.basex.io.BufferPool;
 import org.basex.util.Util;
 
 /**
@@ -67,6 +68,23 @@ public final class Prop extends AProp {
   /** Server timeout in seconds; deactivated if set to 0. */
   public static final Object[] TIMEOUT = { "TIMEOUT", 0 };
 
+  /** Size of the buffer pool, shared by all databases, in megabytes. */
+  public static final Object[] BUFFERPOOL = { "BUFFERPOOL", 16 };
+  /** Number of blocks that are prefetched if files are read sequentially. */
+  public static final Object[] READAHEAD = { "READAHEAD", 8 };
+  /** Interval for writing logged updates to disk, in milliseconds. */
+  public static final Object[] CHECKPOINT = { "CHECKPOINT", 1000 };
+  /** Number of logged buffers after which updates are written to disk. */
+  public static final Object[] PENDING = { "PENDING", 1024 };
+  /** Maximum number of unused databases that are kept open (0: none). */
+  public static final Object[] KEEPWARM = { "KEEPWARM", 0 };
+  /** Time in seconds after which unused databases are closed. */
+  public static final Object[] KEEPWARMTIME = { "KEEPWARMTIME", 60 };
+  /** Number of updated nodes after which index updates are merged. */
+  public static final Object[] INDEXMERGE = { "INDEXMERGE", 10000 };
+  /** Number of threads for building indexes (0: number of processors). */
+  public static final Object[] INDEXTHREADS = { "INDEXTHREADS", 1 };
+
   // TRANSIENT OPTIONS ========================================================
 
   /** The following options are not saved to disk; don't remove this flag. */
@@ -104,6 +122,9 @@ public final class Prop extends AProp {
   public static final Object[] CACHEQUERY = { "CACHEQUERY", false };
   /** Writes original files back after updates. */
   public static final Object[] WRITEBACK = { "WRITEBACK", false };
+  /** Flag for committing updates to a redo log
+   * (not supported for compressed and main memory tables). */
+  public static final Object[] WAL = { "WAL", false };
   /** Forces database creation for unknown documents. */
   public static final Object[] FORCECREATE = { "FORCECREATE", false };
   /** Default XQuery version. */
@@ -143,6 +164,18 @@ public final class Prop extends AProp {
 
   /** Flag for creating a main memory database table. */
   public static final Object[] TABLEMEM = { "TABLEMEM", false };
+  /** Flag for storing a main memory database table outside the Java heap. */
+  public static final Object[] TABLEDIRECT = { "TABLEDIRECT", false };
+  /** Flag for reading the database table via memory mapping. */
+  public static final Object[] TABLEMAP = { "TABLEMAP", false };
+  /** Flag for compressing the blocks of the database table. */
+  public static final Object[] TABLECOMP = { "TABLECOMP", false };
+  /** Flag for storing the database table in separate columns. */
+  public static final Object[] TABLECOLS = { "TABLECOLS", false };
+  /** Flag for storing recurring texts and attribute values only once. */
+  public static final Object[] VALUEDICT = { "VALUEDICT", false };
+  /** Codec for texts and attribute values ("symbols": trained symbol table). */
+  public static final Object[] TEXTCODEC = { "TEXTCODEC", "" };
   /** Flag for creating a main memory database. */
   public static final Object[] MAINMEM = { "MAINMEM", false };
   /** Path for filtering XML Documents. */
@@ -218,5 +251,7 @@ public final class Prop extends AProp {
     Prop.language = get(Prop.LANG);
     Prop.langkeys = is(Prop.LANGKEYS);
     Util.debug = is(Prop.DEBUG);
+    BufferPool.size(num(Prop.BUFFERPOOL));
+    BufferPool.readAhead(num(Prop.READAHEAD));
   }
 }
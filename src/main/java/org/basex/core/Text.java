@@ -170,6 +170,8 @@ public interface Text {
   /** Command keyword. */
   String ALL = "ALL";
   /** Command keyword. */
+  String COMPACT = "COMPACT";
+  /** Command keyword. */
   String TO = "TO";
   /** Command keyword. */
   String ON = "ON";
@@ -277,7 +279,9 @@ public interface Text {
   };
   /** Command help. */
   String[] HELPOPTIMIZE = {
-    "(" + ALL + ")", lang("ch_optimize1"), lang("ch_optimize2")
+    "(" + ALL + "|" + COMPACT + ")", lang("ch_optimize1"),
+    lang("ch_optimize2") + NL +
+    LI + COMPACT + ":" + NL + "  " + lang("ch_optimize3")
   };
 
   /** Command help. */
@@ -412,6 +416,8 @@ public interface Text {
   String PROGINDEX = lang("pc_index");
   /** Database update. */
   String DBUPDATE = lang("pc_update");
+  /** Write-ahead logging is not supported. */
+  String NOWAL = lang("pc_nowal");
   /** Index update. */
   String INDUPDATE = lang("pc_indupdate");
   /** Builder error. */
@@ -595,6 +601,8 @@ public interface Text {
 
   /** Show databases. */
   String SRVDATABASES = lang("ad_databases");
+  /** Show databases: kept open. */
+  String SRVKEEPWARM = lang("ad_keepwarm");
   /** Show sessions. */
   String SRVSESSIONS = lang("ad_sessions");
   /** Permission needed. */
@@ -726,6 +734,24 @@ public interface Text {
   String INFOERROR = lang("info_error") + COLS;
   /** Error info. */
   String INFOENTRIES = "(" + lang("info_entries") + ")";
+  /** Buffer pool information. */
+  String INFOBUFFERS = lang("info_buffers");
+  /** Used buffers. */
+  String INFOBUFUSED = lang("info_bufused");
+  /** Buffer hits. */
+  String INFOHITS = lang("info_hits");
+  /** Buffer misses. */
+  String INFOMISSES = lang("info_misses");
+  /** Prefetched buffers. */
+  String INFOPREFETCHED = lang("info_prefetched");
+  /** Buffer evictions. */
+  String INFOEVICTIONS = lang("info_evictions");
+  /** Pending buffers. */
+  String INFOPENDING = lang("info_pending");
+  /** Checkpoints. */
+  String INFOCHECKPOINTS = lang("info_checkpoints");
+  /** Checkpoint time. */
+  String INFOCPTIME = lang("info_cptime");
 
   // MENU ENTRIES =============================================================
 
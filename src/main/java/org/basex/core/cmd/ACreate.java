@@ -2,6 +2,11 @@ package org.basex.core.cmd;
 
 import static org.basex.core.Text.*;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.basex.build.Builder;
 import org.basex.build.DiskBuilder;
 import org.basex.build.MemBuilder;
@@ -13,10 +18,12 @@ import org.basex.core.User;
 import org.basex.data.Data;
 import org.basex.data.MemData;
 import org.basex.index.FTBuilder;
+import org.basex.index.Index;
 import org.basex.index.IndexBuilder;
 import org.basex.index.IndexToken.IndexType;
 import org.basex.index.PathBuilder;
 import org.basex.index.ValueBuilder;
+import org.basex.util.Performance;
 import org.basex.util.Util;
 
 /**
@@ -90,10 +97,8 @@ abstract class ACreate extends Command {
         d.close();
         if(!run(new Open(db))) return false;
 
-        final Data data = context.data;
-        if(prop.is(Prop.TEXTINDEX)) index(IndexType.TEXT, data);
-        if(prop.is(Prop.ATTRINDEX)) index(IndexType.ATTRIBUTE, data);
-        if(prop.is(Prop.FTINDEX))   index(IndexType.FULLTEXT, data);
+        index(context.data, prop.is(Prop.TEXTINDEX), prop.is(Prop.ATTRINDEX),
+            prop.is(Prop.FTINDEX));
       }
       return info(DBCREATED, db, perf);
     } catch(final ProgressException ex) {
@@ -133,19 +138,102 @@ abstract class ACreate extends Command {
       throws IOException {
 
     if(d instanceof MemData) return;
-    IndexBuilder b = null;
-    switch(i) {
-      case TEXT: b = new ValueBuilder(d, true); break;
-      case ATTRIBUTE: b = new ValueBuilder(d, false); break;
-      case FULLTEXT: b = FTBuilder.get(d); break;
-      case PATH: b = new PathBuilder(d); break;
-      default: throw Util.notexpected();
-    }
+    final IndexBuilder b = builder(i, d);
     d.closeIndex(i);
     d.meta.dirty = true;
     d.setIndex(i, progress(b).build());
   }
 
+  /**
+   * Builds the text, attribute value and full-text indexes. If several
+   * threads are available, the indexes are built in parallel.
+   * @param d data reference
+   * @param txt build text index
+   * @param atv build attribute value index
+   * @param ftx build full-text index
+   * @throws IOException I/O exception
+   */
+  protected final void index(final Data d, final boolean txt,
+      final boolean atv, final boolean ftx) throws IOException {
+
+    final ArrayList<IndexType> types = new ArrayList<IndexType>();
+    if(txt) types.add(IndexType.TEXT);
+    if(atv) types.add(IndexType.ATTRIBUTE);
+    if(ftx) types.add(IndexType.FULLTEXT);
+    if(types.size() < 2 || IndexBuilder.threads(prop) < 2) {
+      for(final IndexType t : types) index(t, d);
+      return;
+    }
+    if(d instanceof MemData) return;
+
+    final int ts = types.size();
+    final IndexBuilder[] bs = new IndexBuilder[ts];
+    for(int t = 0; t < ts; ++t) {
+      bs[t] = builder(types.get(t), d);
+      d.closeIndex(types.get(t));
+    }
+    d.meta.dirty = true;
+    progress(bs[ts - 1]);
+
+    final ExecutorService es = Executors.newFixedThreadPool(ts);
+    try {
+      final ArrayList<Future<Index>> tasks = new ArrayList<Future<Index>>();
+      for(final IndexBuilder b : bs) {
+        tasks.add(es.submit(new Callable<Index>() {
+          @Override
+          public Index call() throws IOException {
+            boolean ok = false;
+            try {
+              final Index index = b.build();
+              ok = true;
+              return index;
+            } finally {
+              // stop the other builders if this build has failed
+              if(!ok) for(final IndexBuilder ib : bs) ib.stop();
+            }
+          }
+        }));
+      }
+      // pass on stop requests, and wait until all builds have finished
+      for(final Future<Index> task : tasks) {
+        while(!task.isDone()) {
+          if(stopped) for(final IndexBuilder b : bs) b.stop();
+          Performance.sleep(10);
+        }
+      }
+      // interruptions are reported if no other error has occurred
+      ProgressException pe = null;
+      for(int t = 0; t < ts; ++t) {
+        try {
+          d.setIndex(types.get(t), IndexBuilder.result(tasks.get(t)));
+        } catch(final ProgressException ex) {
+          pe = ex;
+        }
+      }
+      if(pe != null) throw pe;
+    } finally {
+      es.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns a builder for the specified index.
+   * @param i index type
+   * @param d data reference
+   * @return builder
+   * @throws IOException I/O exception
+   */
+  private static IndexBuilder builder(final IndexType i, final Data d)
+      throws IOException {
+    switch(i) {
+      case TEXT: return new ValueBuilder(d, true);
+      case ATTRIBUTE: return new ValueBuilder(d, false);
+      case FULLTEXT: return FTBuilder.get(d);
+      case PATH: return new PathBuilder(d);
+      default: throw Util.notexpected();
+    }
+  }
+
   /**
    * Normalizes the database path.
    * Removes duplicate, leading and trailing slashes
@@ -19,6 +19,7 @@ import org.basex.query.QueryProcessor;
 import org.basex.query.item.Item;
 import org.basex.query.iter.Iter;
 import org.basex.util.Performance;
+import org.basex.util.StringList;
 import org.basex.util.Util;
 
 /**
@@ -33,6 +34,10 @@ abstract class AQuery extends Command {
 
   /** Query processor. */
   private QueryProcessor qp;
+  /** Query that has been parsed before the command is executed. */
+  private String parsed;
+  /** Processor of the parsed query ({@code null} if parsing failed). */
+  private QueryProcessor pqp;
   /** Parsing time. */
   private long pars;
   /** Compilation time. */
@@ -66,7 +71,11 @@ abstract class AQuery extends Command {
       for(int i = 0; i < runs; ++i) {
         final Performance per = new Performance();
 
-        qp = progress(new QueryProcessor(query, context));
+        // reuse the processor that has been parsed for locking
+        qp = progress(i == 0 && pqp != null && query.equals(parsed) ? pqp :
+          new QueryProcessor(query, context));
+        pqp = null;
+        parsed = null;
 
         qp.parse();
         pars += per.getTime();
@@ -129,6 +138,12 @@ abstract class AQuery extends Command {
     return false;
   }
 
+  @Override
+  protected boolean shared() {
+    // updates are applied at the end of the query evaluation
+    return true;
+  }
+
   /**
    * Checks if the query performs updates.
    * @param ctx context reference
@@ -136,7 +151,43 @@ abstract class AQuery extends Command {
    * @return result of check
    */
   protected final boolean updating(final Context ctx, final String qu) {
-    return QueryProcessor.updating(ctx, qu);
+    final QueryProcessor p = parse(ctx, qu);
+    return p != null ? p.ctx.updating : QueryProcessor.updating(ctx, qu);
+  }
+
+  /**
+   * Returns the names of the databases that are accessed by the query.
+   * @param ctx context reference
+   * @param qu query
+   * @return names, or {@code null} for all databases
+   */
+  protected final StringList databases(final Context ctx, final String qu) {
+    final QueryProcessor p = parse(ctx, qu);
+    try {
+      return p != null ? p.databases() : null;
+    } catch(final QueryException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Parses the query before the command is executed. The processor is
+   * cached, so that the query is parsed only once.
+   * @param ctx context reference
+   * @param qu query
+   * @return query processor, or {@code null} if the query cannot be parsed
+   */
+  private QueryProcessor parse(final Context ctx, final String qu) {
+    if(!qu.equals(parsed)) {
+      parsed = qu;
+      pqp = new QueryProcessor(qu, ctx);
+      try {
+        pqp.parse();
+      } catch(final QueryException ex) {
+        pqp = null;
+      }
+    }
+    return pqp;
   }
 
   /**
@@ -0,0 +1,54 @@
+package org.basex.core.cmd;
+
+import static org.basex.core.Text.*;
+import org.basex.core.Command;
+import org.basex.core.CommandBuilder;
+import org.basex.core.User;
+import org.basex.core.Commands.Cmd;
+import org.basex.data.Compactor;
+import org.basex.data.DiskData;
+
+/**
+ * Evaluates the 'optimize compact' command and compacts the text and
+ * attribute value files of the currently opened database. Values are moved
+ * to unused extents, and the files are truncated. The command can be
+ * interrupted; all values that have been moved so far will be kept.
+ * As values are moved in place, the command requires the exclusive write
+ * lock: other readers and writers are blocked until it is finished or
+ * stopped.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class Compact extends Command {
+  /**
+   * Default constructor.
+   */
+  public Compact() {
+    super(DATAREF | User.WRITE);
+  }
+
+  @Override
+  protected boolean run() {
+    if(!(context.data instanceof DiskData)) return error(PROCMM);
+
+    final DiskData d = (DiskData) context.data;
+    progress(new Compactor(d)).compact();
+    return info(DBOPTIMIZED, d.meta.name, perf);
+  }
+
+  @Override
+  public boolean supportsProg() {
+    return true;
+  }
+
+  @Override
+  public boolean stoppable() {
+    return true;
+  }
+
+  @Override
+  public void build(final CommandBuilder cb) {
+    cb.init(Cmd.OPTIMIZE + " " + COMPACT);
+  }
+}
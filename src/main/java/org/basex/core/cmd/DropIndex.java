@@ -49,7 +49,7 @@ public final class DropIndex extends ACreate {
       case PATH:
         if(data.meta.pathindex) {
           data.meta.pathindex = false;
-          data.pthindex.root = null;
+          data.pthindex.init();
           data.flush();
         }
         return info(INDDROP, perf);
@@ -4,15 +4,19 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
+import org.basex.core.Checkpointer;
 import org.basex.core.CommandBuilder;
 import org.basex.core.User;
 import org.basex.core.Commands.Cmd;
 import org.basex.core.Commands.CmdInfo;
 import org.basex.data.Data;
 import org.basex.data.Nodes;
+import org.basex.io.BufferPool;
+import org.basex.util.Performance;
 import org.basex.util.Table;
 import org.basex.util.TokenBuilder;
 import org.basex.util.TokenList;
+import org.basex.util.Util;
 
 /**
  * Evaluates the 'info storage' command and returns the table representation
@@ -63,9 +67,32 @@ public final class InfoStorage extends AQuery {
       }
       out.print(table(data, ps, pe));
     }
+    out.print(buffers());
     return true;
   }
 
+  /**
+   * Returns statistics on the shared buffer pool.
+   * @return statistics
+   */
+  public static byte[] buffers() {
+    final long[] st = BufferPool.stats();
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(NL + INFOBUFFERS + NL);
+    AInfo.format(tb, INFODBSIZE, Performance.format(st[0] * st[1]) + " (" +
+        Util.info(INFOBUFUSED, st[2], st[1]) + ")");
+    AInfo.format(tb, INFOHITS, Long.toString(st[3]));
+    AInfo.format(tb, INFOMISSES, Long.toString(st[4]));
+    AInfo.format(tb, INFOPREFETCHED, Long.toString(st[5]));
+    AInfo.format(tb, INFOEVICTIONS, Long.toString(st[6]));
+    AInfo.format(tb, INFOPENDING, Long.toString(st[7]));
+    final long[] cp = Checkpointer.stats();
+    AInfo.format(tb, INFOCHECKPOINTS, Long.toString(cp[0]));
+    AInfo.format(tb, INFOCPTIME, Performance.getTimer(cp[1], 1) + " / " +
+        Performance.getTimer(cp[2], 1));
+    return tb.finish();
+  }
+
   /**
    * Prints the specified range of the table.
    * @param data data reference
@@ -6,7 +6,6 @@ import org.basex.core.Prop;
 import org.basex.core.User;
 import org.basex.data.Data;
 import org.basex.data.MetaData;
-import org.basex.index.IndexToken.IndexType;
 import org.basex.io.IO;
 import org.basex.util.Util;
 
@@ -82,9 +81,9 @@ public final class Optimize extends ACreate {
 
     try {
       // global property check can be skipped as soon as id/pre mapping exists
-      if(m.textindex || prop.is(Prop.TEXTINDEX)) index(IndexType.TEXT,      d);
-      if(m.attrindex || prop.is(Prop.ATTRINDEX)) index(IndexType.ATTRIBUTE, d);
-      if(m.ftindex   || prop.is(Prop.FTINDEX))   index(IndexType.FULLTEXT,  d);
+      index(d, m.textindex || prop.is(Prop.TEXTINDEX),
+          m.attrindex || prop.is(Prop.ATTRINDEX),
+          m.ftindex   || prop.is(Prop.FTINDEX));
     } catch(final IOException ex) {
       Util.debug(ex);
     }
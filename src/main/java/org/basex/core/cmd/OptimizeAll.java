@@ -14,7 +14,6 @@ import org.basex.data.DiskData;
 import org.basex.data.FTPos;
 import org.basex.data.MetaData;
 import org.basex.data.Serializer;
-import org.basex.index.IndexToken.IndexType;
 import org.basex.util.Atts;
 import org.basex.util.Util;
 
@@ -56,9 +55,9 @@ public final class OptimizeAll extends ACreate {
     final DiskBuilder builder = new DiskBuilder(new DBParser(), m.prop);
     try {
       final DiskData d = builder.build(tname);
-      if(m.textindex || prop.is(Prop.TEXTINDEX)) index(IndexType.TEXT,      d);
-      if(m.attrindex || prop.is(Prop.ATTRINDEX)) index(IndexType.ATTRIBUTE, d);
-      if(m.ftindex   || prop.is(Prop.FTINDEX))   index(IndexType.FULLTEXT,  d);
+      index(d, m.textindex || prop.is(Prop.TEXTINDEX),
+          m.attrindex || prop.is(Prop.ATTRINDEX),
+          m.ftindex   || prop.is(Prop.FTINDEX));
       d.meta.filesize = m.filesize;
       d.meta.users    = m.users;
       d.meta.dirty    = true;
@@ -6,6 +6,7 @@ import org.basex.core.CommandBuilder;
 import org.basex.core.Context;
 import org.basex.core.User;
 import org.basex.io.IO;
+import org.basex.util.StringList;
 import org.basex.util.Token;
 import org.basex.util.Util;
 
@@ -43,12 +44,33 @@ public final class Run extends AQuery {
   @Override
   public boolean updating(final Context ctx) {
     try {
-      return updating(ctx, Token.string(IO.get(args[0]).content()));
+      return updating(ctx, content(ctx));
     } catch(final IOException ex) {
       return true;
     }
   }
 
+  @Override
+  public StringList databases(final Context ctx) {
+    try {
+      return databases(ctx, content(ctx));
+    } catch(final IOException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Assigns the query file to the context and returns its content.
+   * The file must be known when the query is parsed in advance.
+   * @param ctx context reference
+   * @return query
+   * @throws IOException I/O exception
+   */
+  private String content(final Context ctx) throws IOException {
+    ctx.query = IO.get(args[0]);
+    return Token.string(ctx.query.content());
+  }
+
   @Override
   public void build(final CommandBuilder cb) {
     cb.init().arg(0);
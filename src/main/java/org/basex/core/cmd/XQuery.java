@@ -1,6 +1,7 @@
 package org.basex.core.cmd;
 
 import org.basex.core.Context;
+import org.basex.util.StringList;
 
 /**
  * Evaluates the 'xquery' command and processes an XQuery request.
@@ -26,4 +27,9 @@ public final class XQuery extends AQuery {
   public boolean updating(final Context ctx) {
     return super.updating(ctx) || updating(ctx, args[0]);
   }
+
+  @Override
+  public StringList databases(final Context ctx) {
+    return databases(ctx, args[0]);
+  }
 }
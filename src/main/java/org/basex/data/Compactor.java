@@ -0,0 +1,153 @@
+package org.basex.data;
+
+import java.util.Arrays;
+import org.basex.core.Progress;
+import org.basex.io.DataAccess;
+import org.basex.io.FreeSpace;
+import org.basex.io.IO;
+
+/**
+ * This class compacts the text and attribute value files of a database.
+ * The live entries are sorted by their file offsets, and the gaps between
+ * them are collected as free extents. Starting from the end of the file,
+ * entries are then moved to free extents with smaller offsets, and the file
+ * is truncated after the last entry. Dictionary entries are not moved.
+ *
+ * The process can be interrupted at any time: the entries that have been
+ * moved so far are written back to the table, as the old entries are not
+ * overwritten before the file is truncated.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class Compactor extends Progress {
+  /** Data reference. */
+  private final DiskData data;
+  /** Number of processed entries. */
+  private long count;
+  /** Total number of entries. */
+  private long total = 1;
+  /** Number of saved bytes. */
+  private long saved;
+
+  /**
+   * Constructor.
+   * @param d data reference
+   */
+  public Compactor(final DiskData d) {
+    data = d;
+  }
+
+  /**
+   * Compacts the text and attribute value files.
+   * @return number of saved bytes
+   */
+  public long compact() {
+    final long[][] offs = { offsets(true), offsets(false) };
+    total = Math.max(1, offs[0].length + offs[1].length);
+    compact(true, offs[0]);
+    compact(false, offs[1]);
+    data.meta.dirty = true;
+    data.flush();
+    return saved;
+  }
+
+  @Override
+  public double prog() {
+    return (double) count / total;
+  }
+
+  /**
+   * Returns the sorted offsets of all entries in the text or attribute value
+   * file. Dictionary entries are marked by setting the lowest bit.
+   * @param text text/attribute flag
+   * @return offsets
+   */
+  private long[] offsets(final boolean text) {
+    final int size = data.meta.size;
+    long[] offs = new long[16];
+    int c = 0;
+    for(int pre = 0; pre < size; ++pre) {
+      final int k = data.kind(pre);
+      if(k == Data.ELEM || (k == Data.ATTR) == text) continue;
+      final long o = data.textOff(pre);
+      // skip numbers and inlined texts
+      if((o & IO.OFFNUM) != 0) continue;
+      if(c == offs.length) offs = Arrays.copyOf(offs, c << 1);
+      offs[c++] = (o & IO.OFFDICT - 1) << 1 | (o & IO.OFFDICT) >>> 37;
+    }
+    offs = Arrays.copyOf(offs, c);
+    Arrays.sort(offs);
+    // remove duplicate dictionary references
+    int u = 0;
+    for(int i = 0; i < c; ++i) {
+      if(u == 0 || offs[u - 1] != offs[i]) offs[u++] = offs[i];
+    }
+    return Arrays.copyOf(offs, u);
+  }
+
+  /**
+   * Compacts the text or attribute value file.
+   * @param text text/attribute flag
+   * @param keys sorted offsets, as returned by {@link #offsets}
+   */
+  private void compact(final boolean text, final long[] keys) {
+    final DataAccess da = data.access(text);
+    final int n = keys.length;
+
+    // compute entry sizes, and collect gaps between entries as free extents
+    final FreeSpace fs = new FreeSpace();
+    final int[] sizes = new int[n];
+    final long[] moved = new long[n];
+    long end = 0, min = Long.MAX_VALUE;
+    for(int i = 0; i < n; ++i) {
+      final long o = keys[i] >>> 1;
+      final int l = da.readNum(o);
+      sizes[i] = (int) (da.pos() - o) + l;
+      moved[i] = o;
+      if(o > end) {
+        fs.add(end, (int) Math.min(o - end, Integer.MAX_VALUE));
+        min = Math.min(min, end);
+      }
+      end = Math.max(end, o + sizes[i]);
+    }
+    final long length = da.length();
+
+    // move entries from the end of the file to free extents
+    for(int i = n - 1; i >= 0 && !stopped; --i, ++count) {
+      final long o = moved[i];
+      if(o < min) break;
+      if((keys[i] & 1) != 0) continue;
+      final long f = fs.get(sizes[i]);
+      if(f == -1) continue;
+      if(f > o) {
+        fs.add(f, sizes[i]);
+        continue;
+      }
+      da.writeBytes(f, da.readToken(o));
+      moved[i] = f;
+    }
+
+    // release old entries and update table references
+    end = 0;
+    for(int i = 0; i < n; ++i) {
+      if(moved[i] != keys[i] >>> 1) fs.add(keys[i] >>> 1, sizes[i]);
+      end = Math.max(end, moved[i] + sizes[i]);
+    }
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; ++pre) {
+      final int k = data.kind(pre);
+      if(k == Data.ELEM || (k == Data.ATTR) == text) continue;
+      final long o = data.textOff(pre);
+      if((o & (IO.OFFNUM | IO.OFFDICT)) != 0) continue;
+      final int i = Arrays.binarySearch(keys, (o & IO.OFFDICT - 1) << 1);
+      if(moved[i] != keys[i] >>> 1) {
+        data.textOff(pre, o & IO.OFFCOMP | moved[i]);
+      }
+    }
+    fs.trim(end);
+    da.length(end);
+    data.free(text, fs);
+    saved += length - end;
+  }
+}
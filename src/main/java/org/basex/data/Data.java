@@ -18,6 +18,7 @@ import org.basex.index.Names;
 import org.basex.io.IO;
 import org.basex.io.TableAccess;
 import org.basex.util.Atts;
+import org.basex.util.IntList;
 import org.basex.util.TokenBuilder;
 import org.basex.util.TokenMap;
 
@@ -60,6 +61,14 @@ import org.basex.util.TokenMap;
  * - Byte  1- 2:  NAME: Namespace Flag (bit: 15), Name (bits: 14-0)
  * - Byte  3- 7:  TEXT: Attribute value reference
  * - Byte    11:  NURI: Namespace (bits: 7-3)
+ * TEXT REFERENCES:
+ * - Bit     39:  Inlined number (see {@link IO#OFFNUM})
+ * - Bit     38:  Compressed text (see {@link IO#OFFCOMP})
+ * - Bit     37:  Dictionary text (see {@link IO#OFFDICT})
+ * - Bits 36- 0:  Number or text offset (text files are limited to 128 GB)
+ * - Bits 39-38:  Inlined text, if both bits are set (see {@link IO#OFFINL})
+ * - Bits 34-32:  Length of inlined text
+ * - Bits 31- 0:  Bytes of inlined text
  * </pre>
  *
  * @author BaseX Team 2005-11, BSD License
@@ -78,6 +87,8 @@ public abstract class Data {
   public static final byte COMM = 0x04;
   /** Node kind: Processing Instruction. */
   public static final byte PI = 0x05;
+  /** Maximum number of pending distance updates. */
+  private static final int MAXDISTS = 1 << 6;
 
   /** Meta data. */
   public MetaData meta;
@@ -103,6 +114,15 @@ public abstract class Data {
   protected Index atvindex;
   /** Full-text index instance. */
   protected Index ftxindex;
+  /** ID/PRE mapping ({@code null} if it has not been requested yet). */
+  protected IdPreMap idmap;
+
+  /** Pending distance updates: pre values of the first shifted nodes. */
+  private final IntList distPre = new IntList();
+  /** Pending distance updates: shifts. */
+  private final IntList distShift = new IntList();
+  /** Smallest pre value that is affected by pending distance updates. */
+  private int distMin = Integer.MAX_VALUE;
 
   /**
    * Dissolves the references to often used tag names and attributes.
@@ -276,14 +296,25 @@ public abstract class Data {
    * @return pre value or -1 if id was not found
    */
   public final int pre(final int id) {
-    // find pre value in table
-    for(int p = Math.max(0, id); p < meta.size; ++p)
-      if(id == id(p)) return p;
-    for(int p = 0, ps = Math.min(meta.size, id); p < ps; ++p)
-      if(id == id(p)) return p;
-
-    // id not found
-    return -1;
+    return idmap().pre(id);
+  }
+
+  /**
+   * Returns the id/pre mapping. The mapping is created when it is
+   * requested first.
+   * @return mapping
+   */
+  protected final synchronized IdPreMap idmap() {
+    if(idmap == null) idmap = idPreMap();
+    return idmap;
+  }
+
+  /**
+   * Creates the id/pre mapping.
+   * @return mapping
+   */
+  protected IdPreMap idPreMap() {
+    return new IdPreMap(this);
   }
 
   /**
@@ -321,6 +352,18 @@ public abstract class Data {
    * @return distance
    */
   private int dist(final int pre, final int k) {
+    final int d = distance(pre, k);
+    return pre < distMin || k == ATTR || k == DOC ? d :
+      pendingDist(pre, d);
+  }
+
+  /**
+   * Returns the stored distance of the specified node.
+   * @param pre pre value
+   * @param k node kind
+   * @return distance
+   */
+  private int distance(final int pre, final int k) {
     switch(k) {
       case ELEM:
         return table.read4(pre, 4);
@@ -476,6 +519,16 @@ public abstract class Data {
    */
   public abstract int textLen(int pre, boolean text);
 
+  /**
+   * Checks if the texts (text, comment, pi) or attribute values of two nodes
+   * are equal. If possible, the text references will be compared.
+   * @param pre1 first pre value
+   * @param pre2 second pre value
+   * @param text text/attribute flag
+   * @return result of check
+   */
+  public abstract boolean sameText(int pre1, int pre2, boolean text);
+
   // UPDATE OPERATIONS ========================================================
 
   /**
@@ -518,7 +571,9 @@ public abstract class Data {
   public final void replace(final int pre, final int k, final byte[] val) {
     meta.update();
     final byte[] v = k == PI ? trim(concat(name(pre, k), SPACE, val)) : val;
+    updateIndexes(pre, 1, false);
     text(pre, v, k != ATTR);
+    updateIndexes(pre, 1, true);
   }
 
   /**
@@ -569,7 +624,12 @@ public abstract class Data {
       }
     }
 
+    // replaced entries must not be affected by pending distance updates
+    updateDists();
     final int rsize = size(rpre, rkind);
+    final IdPreMap ipm = idmap();
+    ipm.delete(rpre, id(rpre), -rsize);
+    ipm.insert(rpre, meta.lastid - dsize + 1, dsize);
     table.replace(rpre, buffer(), rsize);
     buffer(1);
 
@@ -585,10 +645,11 @@ public abstract class Data {
         size(p, k, size(p, k) + Math.abs(diff));
         p = parent(p, k);
       }
-      updateDist(rpre + dsize, diff);
+      updateDist(rpre + dsize, -diff);
     } else if(rsize > dsize) {
       // TODO combine with the upper
     }
+    updateIndexes(rpre, dsize, true);
   }
 
   /**
@@ -597,6 +658,8 @@ public abstract class Data {
    */
   public final void delete(final int pre) {
     meta.update();
+    // deleted nodes will not be found in the id/pre mapping anymore
+    updateIndexes(pre, 0, false);
 
     // size of the subtree to delete
     int k = kind(pre);
@@ -631,6 +694,7 @@ public abstract class Data {
     }
 
     // delete node from table structure and reduce document size
+    idmap().delete(pre, id(pre), empty ? -s - 1 : -s);
     table.delete(pre, s);
     updateDist(p, -s);
 
@@ -640,6 +704,7 @@ public abstract class Data {
     // restore empty document node
     if(empty) {
       doc(0, 1, EMPTY);
+      idmap.insert(0, meta.lastid, 1);
       table.set(0, buffer());
     }
   }
@@ -665,6 +730,8 @@ public abstract class Data {
    */
   public final void insert(final int ipre, final int ipar, final Data md) {
     meta.update();
+    // the mapping is updated when the new entries are added to the table
+    idmap();
 
     final int[] preStack = new int[IO.MAXHEIGHT];
     int l = 0;
@@ -813,24 +880,121 @@ public abstract class Data {
 
     // NSNodes have to be checked for pre value shifts after insert
     ns.updatePreValues(ipre, ms, true, newNodes);
+    updateIndexes(ipre, ms, true);
 
     // delete old empty root node
     if(size(0, DOC) == 1) delete(0);
   }
 
+  /**
+   * Updates the value and full-text indexes after nodes have been
+   * inserted, or before the values of nodes are replaced. If the size is
+   * {@code 0}, only a shift of pre values is registered. By default, the
+   * indexes are invalidated.
+   * @param pre pre value of the first node
+   * @param s number of nodes
+   * @param add add or remove the values of the nodes
+   */
+  protected void updateIndexes(final int pre, final int s, final boolean add) {
+    meta.textindex = false;
+    meta.attrindex = false;
+    meta.ftindex = false;
+  }
+
   /**
    * This method updates the distance values of the specified pre value
    * and the following siblings of all ancestor-or-self nodes.
+   * Only the distances of attributes are updated at once; all other updates
+   * are recorded and lazily applied by {@link #updateDists}.
    * @param pre root node
    * @param s size to be added/removed
    */
   private void updateDist(final int pre, final int s) {
-    int p = pre;
-    while(p < meta.size) {
-      final int k = kind(p);
-      dist(p, k, dist(p, k) + s);
-      p += size(p, kind(p));
+    for(int p = pre; p < meta.size && kind(p) == ATTR; ++p) {
+      dist(p, ATTR, distance(p, ATTR) + s);
+    }
+    distPre.add(pre);
+    distShift.add(s);
+    distMin = Math.min(distMin, pre - Math.max(s, 0));
+    if(distPre.size() == MAXDISTS) updateDists();
+  }
+
+  /**
+   * Returns the distance of a node, considering all pending distance updates.
+   * The pre values of the node and its parent are traced back to the time at
+   * which the distance was stored, and then shifted forward again.
+   * @param pre pre value
+   * @param d stored distance
+   * @return distance
+   */
+  private int pendingDist(final int pre, final int d) {
+    final int ds = distPre.size();
+    int u = ds, p = pre;
+    while(--u >= 0) {
+      final int a = distPre.get(u), s = distShift.get(u);
+      if(p >= a) p -= s;
+      // node was inserted by this update
+      else if(p >= a - s) break;
     }
+    int par = p - d;
+    while(++u < ds) {
+      final int b = distPre.get(u) - distShift.get(u);
+      if(par >= b) par += distShift.get(u);
+    }
+    return pre - par;
+  }
+
+  /**
+   * Applies all pending distance updates. Only the distances of the
+   * following siblings of the ancestor-or-self nodes of the update points
+   * can change: as the distances can be derived from the node sizes, the
+   * nodes are traversed, and all subtrees that contain no update point are
+   * skipped.
+   * @return number of visited nodes
+   */
+  public final int updateDists() {
+    final int ds = distPre.size();
+    if(ds == 0) return 0;
+
+    // shift update points to the current pre values
+    final int[] pts = new int[ds];
+    for(int u = 0; u < ds; ++u) {
+      int p = distPre.get(u);
+      for(int v = u + 1; v < ds; ++v) {
+        final int a = distPre.get(v), s = distShift.get(v);
+        if(p >= a - s) p += s;
+        // point was deleted by this update
+        else if(p >= a) p = a;
+      }
+      pts[u] = p;
+    }
+    Arrays.sort(pts);
+    distPre.reset();
+    distShift.reset();
+    distMin = Integer.MAX_VALUE;
+
+    final int[] pres = new int[IO.MAXHEIGHT];
+    final int[] ends = new int[IO.MAXHEIGHT];
+    int l = 0, n = 0;
+    for(int p = 0; p < meta.size; ++n) {
+      final int k = kind(p), s = size(p, k);
+      while(l > 0 && ends[l - 1] <= p) --l;
+      if(l > 0 && k != ATTR && k != DOC) {
+        final int d = p - pres[l - 1];
+        if(distance(p, k) != d) dist(p, k, d);
+      }
+      // descend if an update point is located inside the subtree
+      int i = Arrays.binarySearch(pts, p + 1);
+      if(i < 0) i = -i - 1;
+      if(s > 1 && i < ds && pts[i] < p + s) {
+        pres[l] = p;
+        ends[l++] = p + s;
+        ++p;
+      } else {
+        p += s;
+      }
+    }
+    return n;
   }
 
   /**
@@ -904,6 +1068,10 @@ public abstract class Data {
    * @param pre insert position
    */
   public final void insert(final int pre) {
+    if(idmap != null) {
+      idmap.insert(pre, b[12] << 24 | (b[13] & 0xFF) << 16 |
+          (b[14] & 0xFF) << 8 | b[15] & 0xFF, bp >>> IO.NODEPOWER);
+    }
     table.insert(pre, buffer());
   }
 
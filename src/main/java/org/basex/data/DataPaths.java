@@ -1,11 +1,19 @@
 package org.basex.data;
 
 import static org.basex.util.Token.*;
+import java.io.File;
+import java.io.IOException;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
 import org.basex.util.Array;
 import org.basex.util.IntList;
+import org.basex.util.Util;
 
 /**
  * This class organizes data references used by queries.
+ * The pre values of the document nodes and the order of the document paths
+ * are stored in a database file, so that they need not be recomputed if
+ * the database is opened again.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
@@ -13,18 +21,71 @@ import org.basex.util.IntList;
 final class DataPaths {
   /** Pre values of document nodes. */
   int[] docs;
-  /** Sorted document paths. */
+  /** Sorted document paths (entries are created on demand). */
   byte[][] paths;
   /** Mapping between document paths and pre values. */
   int[] order;
+  /** File with the stored references ({@code null} if nothing is stored). */
+  private File file;
+  /** Indicates if the references have been changed since they were stored. */
+  private boolean dirty;
 
   /**
    * Invalidates the paths.
    */
-  void update() {
+  synchronized void update() {
     docs = null;
     paths = null;
     order = null;
+    dirty = false;
+    // stored references are outdated
+    if(file != null) {
+      file.delete();
+      file = null;
+    }
+  }
+
+  /**
+   * Reads the stored references from the specified file, if it exists.
+   * @param f input file
+   */
+  synchronized void read(final File f) {
+    if(!f.exists()) return;
+    try {
+      final DataInput in = new DataInput(f);
+      try {
+        final int[] d = in.readNums();
+        final int[] o = in.readNums();
+        docs = d;
+        if(o.length != 0) {
+          order = o;
+          paths = new byte[o.length][];
+        }
+        file = f;
+      } finally {
+        in.close();
+      }
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Writes the references to the specified file if they have been changed.
+   * @param f output file
+   * @throws IOException I/O exception
+   */
+  synchronized void write(final File f) throws IOException {
+    if(!dirty) return;
+    final DataOutput out = new DataOutput(f);
+    try {
+      out.writeNums(docs);
+      out.writeNums(order != null ? order : new int[0]);
+    } finally {
+      out.close();
+    }
+    file = f;
+    dirty = false;
   }
 
   /**
@@ -33,12 +94,13 @@ final class DataPaths {
    * A single dummy node is returned if the database is empty.
    * @return document nodes
    */
-  int[] doc(final Data data) {
+  synchronized int[] doc(final Data data) {
     if(docs == null) {
       final IntList il = new IntList();
       final int is = data.meta.size;
       for(int i = 0; i < is; i += data.size(i, Data.DOC)) il.add(i);
       docs = il.toArray();
+      dirty = true;
     }
     return docs;
   }
@@ -49,7 +111,7 @@ final class DataPaths {
    * @param data data reference
    * @return root nodes
    */
-  int[] doc(final String path, final Data data) {
+  synchronized int[] doc(final String path, final Data data) {
     // no documents: return empty list
     if(data.empty()) return new int[] {};
 
@@ -59,16 +121,15 @@ final class DataPaths {
 
     // initialize and sort document paths
     final int ds = docs.length;
-    final byte[] slash = token("/");
-    if(paths == null) {
+    if(order == null) {
       paths = new byte[ds][];
-      for(int d = 0; d < ds; d++) {
-        paths[d] = concat(slash, lc(data.text(docs[d], true)));
-      }
+      for(int d = 0; d < ds; d++) paths[d] = name(docs[d], data);
       order = Array.createOrder(paths, false, true);
+      dirty = true;
     }
 
     // exact path: remove redundant slashes and switch to lower case
+    final byte[] slash = token("/");
     final String np = path.contains("//") ? path.replaceAll("/+", "/") : path;
     final byte[] exact = lc(concat(slash, token(np)));
     // root path
@@ -76,8 +137,9 @@ final class DataPaths {
 
     // relevant paths: start from the first hit and return all subsequent hits
     final IntList il = new IntList();
-    for(int p = find(exact); p < paths.length; p++) {
-      if(!eq(paths[p], exact) && !startsWith(paths[p], start)) break;
+    for(int p = find(exact, data); p < paths.length; p++) {
+      final byte[] pt = path(p, data);
+      if(!eq(pt, exact) && !startsWith(pt, start)) break;
       il.add(docs[order[p]]);
     }
     return il.sort().toArray();
@@ -86,17 +148,18 @@ final class DataPaths {
   /**
    * Returns the first position matching the specified path.
    * @param v value to be found
+   * @param data data reference
    * @return position or negative insertion value - 1
    */
-  private int find(final byte[] v) {
+  private int find(final byte[] v, final Data data) {
     // binary search
     int l = 0, h = order.length - 1;
     while(l <= h) {
       int m = l + h >>> 1;
-      final int c = diff(paths[m], v);
+      final int c = diff(path(m, data), v);
       if(c == 0) {
         // find first entry
-        while(m > 0 && eq(paths[m - 1], v)) --m;
+        while(m > 0 && eq(path(m - 1, data), v)) --m;
         return m;
       }
       if(c < 0) l = m + 1;
@@ -104,4 +167,25 @@ final class DataPaths {
     }
     return l;
   }
+
+  /**
+   * Returns the document path at the specified sort position.
+   * @param p sort position
+   * @param data data reference
+   * @return path
+   */
+  private byte[] path(final int p, final Data data) {
+    if(paths[p] == null) paths[p] = name(docs[order[p]], data);
+    return paths[p];
+  }
+
+  /**
+   * Returns the normalized path of the specified document node.
+   * @param pre pre value of the document node
+   * @param data data reference
+   * @return path
+   */
+  private static byte[] name(final int pre, final Data data) {
+    return concat(token("/"), lc(data.text(pre, true)));
+  }
 }
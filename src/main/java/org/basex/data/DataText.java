@@ -13,9 +13,9 @@ public interface DataText {
 
   /** Database version; if it's modified, old database instances can't
    * be parsed anymore. */
-  String STORAGE = "5.91";
+  String STORAGE = "6.6";
   /** Index version; if it's modified, old indexes can't be parsed anymore. */
-  String ISTORAGE = "5.91";
+  String ISTORAGE = "6.6";
 
   /** Database version. */
   String DBSTR = "STORAGE";
@@ -65,6 +65,14 @@ public interface DataText {
   String DBSCTYPE = "FTSCTYPE";
   /** Up-to-date flag. */
   String DBUTD = "UPTODATE";
+  /** Table compression. */
+  String DBTBLCOMP = "TBLCOMP";
+  /** Table columns. */
+  String DBTBLCOLS = "TBLCOLS";
+  /** Dictionary-encoded values. */
+  String DBVALDICT = "VALDICT";
+  /** Text codec. */
+  String DBCODEC = "CODEC";
   /** Last (highest) id. */
   String DBLID = "LASTID";
   /** Permissions. */
@@ -74,8 +82,8 @@ public interface DataText {
   String DBTAGS = "TAGS";
   /** Attributes. */
   String DBATTS = "ATTS";
-  /** Path summary. */
-  String DBPATH = "PATH";
+  /** Serialized path summary, which is parsed on demand. */
+  String DBPATHS = "PATHS";
   /** Tags. */
   String DBNS = "NS";
 
@@ -243,6 +251,24 @@ public interface DataText {
   String DATATXT = "txt";
   /** Database - Attribute value index. */
   String DATAATV = "atv";
+  /** Database - Text dictionary. */
+  String DATATXTDICT = "dtxt";
+  /** Database - Attribute value dictionary. */
+  String DATAATVDICT = "datv";
+  /** Database - Free extents of the text file. */
+  String DATATXTFREE = "ftxt";
+  /** Database - Free extents of the attribute value file. */
+  String DATAATVFREE = "fatv";
+  /** Database - ID/PRE mapping. */
+  String DATAIDP = "idp";
+  /** Database - Pre values and path order of document nodes. */
+  String DATADOCS = "docs";
+  /** Database - Redo log. */
+  String DATALOG = "log";
+  /** Database - Text codec. */
+  String DATATXTCODEC = "ctxt";
+  /** Database - Attribute value codec. */
+  String DATAATVCODEC = "catv";
   /** Database - Full-text index. */
   String DATAFTX = "ftx";
   /** Database - Stopword list. */
@@ -1,20 +1,30 @@
 package org.basex.data;
 
 import static org.basex.data.DataText.*;
+import java.io.File;
 import java.io.IOException;
+import org.basex.build.BuildException;
+import org.basex.build.BuildText;
 import org.basex.core.Prop;
+import org.basex.core.Text;
 import org.basex.index.FTIndex;
 import org.basex.index.Index;
 import org.basex.index.IndexToken.IndexType;
 import org.basex.index.Names;
 import org.basex.index.DiskValues;
+import org.basex.io.ArrayOutput;
 import org.basex.io.DataAccess;
 import org.basex.io.DataInput;
 import org.basex.io.DataOutput;
+import org.basex.io.FreeSpace;
 import org.basex.io.IO;
+import org.basex.io.RedoLog;
+import org.basex.io.TableColumnAccess;
+import org.basex.io.TableDirectAccess;
 import org.basex.io.TableDiskAccess;
 import org.basex.io.TableMemAccess;
-import org.basex.util.Compress;
+import org.basex.util.Num;
+import org.basex.util.TextCodec;
 import org.basex.util.Token;
 import org.basex.util.Util;
 
@@ -32,8 +42,20 @@ public final class DiskData extends Data {
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
-  /** Text compressor. */
-  private final Compress comp;
+  /** Text dictionary (loaded on demand). */
+  private TextDictionary txtdict;
+  /** Attribute value dictionary. */
+  private TextDictionary atvdict;
+  /** Free extents of the text file (loaded on demand). */
+  private FreeSpace txtfree;
+  /** Free extents of the attribute value file. */
+  private FreeSpace atvfree;
+  /** Text codec. */
+  private TextCodec txtcodec;
+  /** Attribute value codec. */
+  private TextCodec atvcodec;
+  /** Redo log ({@code null} if updates are directly written to disk). */
+  private RedoLog log;
 
   /**
    * Default constructor.
@@ -43,7 +65,14 @@ public final class DiskData extends Data {
    */
   public DiskData(final String db, final Prop pr) throws IOException {
     meta = new MetaData(db, pr);
-    comp = new Compress();
+    // replay updates that have been logged, but not written to disk; the
+    // auxiliary files may be outdated, and they will be recreated on demand
+    if(RedoLog.recover(meta.file(DATALOG))) {
+      for(final String f : new String[] { DATATXTDICT, DATAATVDICT,
+          DATATXTFREE, DATAATVFREE, DATAIDP, DATADOCS }) {
+        meta.file(f).delete();
+      }
+    }
 
     final int cats = pr.num(Prop.CATEGORIES);
     final DataInput in = new DataInput(meta.file(DATAINFO));
@@ -55,12 +84,13 @@ public final class DiskData extends Data {
         if(k.isEmpty()) break;
         if(k.equals(DBTAGS))      tags = new Names(in, cats);
         else if(k.equals(DBATTS)) atts = new Names(in, cats);
-        else if(k.equals(DBPATH)) pthindex = new PathSummary(in);
+        else if(k.equals(DBPATHS)) pthindex = new PathSummary(in.readBytes());
         else if(k.equals(DBNS))   ns   = new Namespaces(in);
       }
 
       // open data and indexes..
       init();
+      meta.paths.read(meta.file(DATADOCS));
       if(meta.textindex) txtindex = new DiskValues(this, true);
       if(meta.attrindex) atvindex = new DiskValues(this, false);
       if(meta.ftindex)   ftxindex = FTIndex.get(this, meta.wildcards);
@@ -83,7 +113,6 @@ public final class DiskData extends Data {
   public DiskData(final MetaData md, final Names nm, final Names at,
       final PathSummary ps, final Namespaces n) throws IOException {
 
-    comp = new Compress();
     meta = md;
     tags = nm;
     atts = at;
@@ -91,53 +120,291 @@ public final class DiskData extends Data {
     ns = n;
     init();
     write();
+    // ids and pre values of a new database are identical
+    idmap = new IdPreMap(meta.lastid);
   }
 
   @Override
   public void init() throws IOException {
     // table main memory mode..
-    table = meta.prop.is(Prop.TABLEMEM) ? new TableMemAccess(meta, DATATBL) :
-      new TableDiskAccess(meta, DATATBL);
+    table = meta.tablecols ? new TableColumnAccess(meta, DATATBL) :
+      !meta.prop.is(Prop.TABLEMEM) ? new TableDiskAccess(meta, DATATBL) :
+      meta.prop.is(Prop.TABLEDIRECT) ? new TableDirectAccess(meta, DATATBL) :
+      new TableMemAccess(meta, DATATBL);
+    final boolean wal = meta.prop.is(Prop.WAL);
+    if(wal && !table.keep()) {
+      table.close();
+      throw new BuildException(Text.NOWAL);
+    }
     texts = new DataAccess(meta.file(DATATXT));
     values = new DataAccess(meta.file(DATAATV));
+    txtcodec = meta.codec(true);
+    atvcodec = meta.codec(false);
+    if(wal) {
+      // modified blocks must not be written before they have been logged
+      texts.keep();
+      values.keep();
+      log = new RedoLog(meta.file(DATALOG));
+    }
     super.init();
   }
 
+  /**
+   * Returns the dictionary for texts or attribute values. The dictionary is
+   * only needed for updates, so it is loaded when it is requested first.
+   * @param text text/attribute flag
+   * @return dictionary, or {@code null} if values are not dictionary-encoded
+   */
+  private synchronized TextDictionary dictionary(final boolean text) {
+    if(!meta.valuedict) return null;
+    TextDictionary td = text ? txtdict : atvdict;
+    if(td != null) return td;
+
+    td = new TextDictionary();
+    final File file = meta.file(text ? DATATXTDICT : DATAATVDICT);
+    if(file.exists()) {
+      try {
+        final DataInput in = new DataInput(file);
+        try {
+          for(int s = in.readNum(); s > 0; --s) {
+            final long r = in.read5();
+            td.read(txt(r, text), r);
+          }
+        } finally {
+          in.close();
+        }
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+    if(text) txtdict = td;
+    else atvdict = td;
+    return td;
+  }
+
+  /**
+   * Returns the free extents of the text or attribute value file.
+   * The extents are only needed for updates, so they are loaded when they
+   * are requested first.
+   * @param text text/attribute flag
+   * @return free extents
+   */
+  synchronized FreeSpace free(final boolean text) {
+    FreeSpace fs = text ? txtfree : atvfree;
+    if(fs != null) return fs;
+
+    fs = new FreeSpace();
+    final File file = meta.file(text ? DATATXTFREE : DATAATVFREE);
+    if(file.exists()) {
+      try {
+        final DataInput in = new DataInput(file);
+        try {
+          fs = new FreeSpace(in);
+        } finally {
+          in.close();
+        }
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+    free(text, fs);
+    return fs;
+  }
+
+  /**
+   * Assigns new free extents for the text or attribute value file.
+   * @param text text/attribute flag
+   * @param fs free extents
+   */
+  synchronized void free(final boolean text, final FreeSpace fs) {
+    if(text) txtfree = fs;
+    else atvfree = fs;
+  }
+
+  @Override
+  protected IdPreMap idPreMap() {
+    final File file = meta.file(DATAIDP);
+    if(file.exists()) {
+      try {
+        final DataInput in = new DataInput(file);
+        try {
+          return new IdPreMap(in);
+        } finally {
+          in.close();
+        }
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+    return super.idPreMap();
+  }
+
+  /**
+   * Returns the text or attribute value file.
+   * @param text text/attribute flag
+   * @return file access
+   */
+  DataAccess access(final boolean text) {
+    return text ? texts : values;
+  }
+
+  /**
+   * Writes the dictionaries, free extents, the ID/PRE mapping, the
+   * document references and the value index updates to disk.
+   * @throws IOException I/O exception
+   */
+  private void writeDicts() throws IOException {
+    if(txtindex instanceof DiskValues) ((DiskValues) txtindex).write();
+    if(atvindex instanceof DiskValues) ((DiskValues) atvindex).write();
+    if(ftxindex instanceof FTIndex) ((FTIndex) ftxindex).write();
+    if(idmap != null) idmap.write(meta.file(DATAIDP));
+    if(txtdict != null) txtdict.write(meta.file(DATATXTDICT));
+    if(atvdict != null) atvdict.write(meta.file(DATAATVDICT));
+    if(txtfree != null) txtfree.write(meta.file(DATATXTFREE));
+    if(atvfree != null) atvfree.write(meta.file(DATAATVFREE));
+    meta.paths.write(meta.file(DATADOCS));
+  }
+
   /**
    * Writes all meta data to disk.
    * @throws IOException I/O exception
    */
   private void write() throws IOException {
     final DataOutput out = new DataOutput(meta.file(DATAINFO));
+    write(out);
+    out.close();
+  }
+
+  /**
+   * Writes all meta data to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
     meta.write(out);
     out.writeString(DBTAGS);
     tags.write(out);
     out.writeString(DBATTS);
     atts.write(out);
-    out.writeString(DBPATH);
-    pthindex.write(out);
+    out.writeString(DBPATHS);
+    out.writeToken(pthindex.serialize());
     out.writeString(DBNS);
     ns.write(out);
     out.write(0);
-    out.close();
   }
 
   @Override
-  public synchronized void flush() {
+  public void flush() {
+    try {
+      // the log is synchronized outside the lock, so that concurrent commits
+      // can be synchronized at once
+      final long pos = commit();
+      if(pos != 0) {
+        log.sync(pos);
+        if(log.size() > RedoLog.LIMIT) writeBack();
+      }
+      merge();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
+  /**
+   * Commits all updates. If a redo log is used, the modified blocks and the
+   * meta data are appended to the log, and the database files are updated
+   * after the log has been synchronized and exceeds its maximum size.
+   * Otherwise, the updates are directly written to the database files.
+   * @return log position to be synchronized, or {@code 0}
+   * @throws IOException I/O exception
+   */
+  private synchronized long commit() throws IOException {
+    updateDists();
+    if(log == null) {
+      checkpoint();
+      return 0;
+    }
+    final RedoLog.Record rec = new RedoLog.Record();
+    table.log(rec);
+    texts.log(rec, DATATXT);
+    values.log(rec, DATAATV);
+    if(txtindex instanceof DiskValues) ((DiskValues) txtindex).log(rec);
+    if(atvindex instanceof DiskValues) ((DiskValues) atvindex).log(rec);
+    if(ftxindex instanceof FTIndex) ((FTIndex) ftxindex).log(rec);
+    final ArrayOutput ao = new ArrayOutput();
+    write(new DataOutput(ao));
+    rec.file(DATAINFO, ao.toArray());
+    meta.dirty = false;
+    return log.append(rec);
+  }
+
+  /**
+   * Merges the updates of the value and full-text indexes with the index
+   * files if the number of updated nodes exceeds the specified limit.
+   * The merge is done after the updates have been committed.
+   * @throws IOException I/O exception
+   */
+  private synchronized void merge() throws IOException {
+    final int limit = meta.prop.num(Prop.INDEXMERGE);
+    if(txtindex instanceof DiskValues && ((DiskValues) txtindex).merge(limit))
+      txtindex = new DiskValues(this, true);
+    if(atvindex instanceof DiskValues && ((DiskValues) atvindex).merge(limit))
+      atvindex = new DiskValues(this, false);
+    if(ftxindex instanceof FTIndex) {
+      final FTIndex ftx = ((FTIndex) ftxindex).merge(limit);
+      if(ftx != null) ftxindex = ftx;
+    }
+  }
+
+  /**
+   * Checks if committed updates have not been written to the database files.
+   * @return result of check
+   */
+  public synchronized boolean pending() {
+    return log != null && log.size() != 0;
+  }
+
+  /**
+   * Writes committed updates to the database files. This method is called
+   * by the background checkpointer.
+   * @return {@code true} if updates have been written
+   */
+  public synchronized boolean writeBack() {
+    if(!pending()) return false;
     try {
-      table.flush();
-      texts.flush();
-      values.flush();
-      write();
-      meta.dirty = false;
+      checkpoint();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    return true;
+  }
+
+  /**
+   * Writes all modified data to the database files and empties the log.
+   * @throws IOException I/O exception
+   */
+  private void checkpoint() throws IOException {
+    table.flush();
+    texts.flush();
+    values.flush();
+    writeDicts();
+    write();
+    meta.dirty = false;
+    if(log != null) log.reset();
   }
 
   @Override
   protected synchronized void cls() throws IOException {
-    if(meta.dirty) flush();
+    if(log != null) {
+      // log remaining updates before they are written to the database files
+      final long pos = commit();
+      log.sync(pos);
+      checkpoint();
+      log.close();
+      log = null;
+    } else {
+      if(meta.dirty) flush();
+      writeDicts();
+    }
     table.close();
     texts.close();
     values.close();
@@ -197,8 +464,9 @@ public final class DiskData extends Data {
   public int textLen(final int pre, final boolean text) {
     final long o = textOff(pre);
     if(num(o)) return Token.numDigits((int) o);
+    if(inl(o)) return (int) (o >>> 32) & 0x07;
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final int l = da.readNum(o & IO.OFFDICT - 1);
     // compressed: next number contains number of compressed bytes
     return cpr(o) ? da.readNum() : l;
   }
@@ -210,8 +478,24 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long o, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(o & IO.OFFCOMP - 1);
-    return cpr(o) ? comp.unpack(txt) : txt;
+    if(inl(o)) {
+      final byte[] txt = new byte[(int) (o >>> 32) & 0x07];
+      for(int i = 0; i < txt.length; ++i) txt[i] = (byte) (o >>> 24 - (i << 3));
+      return txt;
+    }
+    final byte[] txt = (text ? texts : values).readToken(o & IO.OFFDICT - 1);
+    return cpr(o) ? (text ? txtcodec : atvcodec).unpack(txt) : txt;
+  }
+
+  @Override
+  public boolean sameText(final int pre1, final int pre2, final boolean text) {
+    final long o1 = textOff(pre1), o2 = textOff(pre2);
+    if(o1 == o2) return true;
+    // numbers, inlined texts and dictionary entries are unique
+    if(num(o1) && num(o2) || inl(o1) && inl(o2) || dict(o1) && dict(o2)) {
+      return false;
+    }
+    return Token.eq(text(pre1, text), text(pre2, text));
   }
 
   /**
@@ -220,7 +504,7 @@ public final class DiskData extends Data {
    * @return result of check
    */
   private static boolean num(final long o) {
-    return (o & IO.OFFNUM) != 0;
+    return (o & IO.OFFINL) == IO.OFFNUM;
   }
 
   /**
@@ -229,49 +513,191 @@ public final class DiskData extends Data {
    * @return result of check
    */
   private static boolean cpr(final long o) {
-    return (o & IO.OFFCOMP) != 0;
+    return (o & IO.OFFINL) == IO.OFFCOMP;
+  }
+
+  /**
+   * Returns true if the specified value contains an inlined text.
+   * @param o offset
+   * @return result of check
+   */
+  private static boolean inl(final long o) {
+    return (o & IO.OFFINL) == IO.OFFINL;
+  }
+
+  /**
+   * Returns the inlined representation of the specified text.
+   * Integers are inlined as numbers, other short texts as bytes.
+   * @param txt text
+   * @return inlined text, or {@code -1} if the text is too long
+   */
+  public static long inline(final byte[] txt) {
+    final long n = Token.toSimpleInt(txt);
+    if(n != Integer.MIN_VALUE) return n | IO.OFFNUM;
+    final int tl = txt.length;
+    if(tl > IO.MAXINL) return -1;
+    long v = IO.OFFINL | (long) tl << 32;
+    for(int i = 0; i < tl; ++i) v |= (txt[i] & 0xFFL) << 24 - (i << 3);
+    return v;
+  }
+
+  /**
+   * Returns true if the specified value references a dictionary entry.
+   * @param o offset
+   * @return result of check
+   */
+  private static boolean dict(final long o) {
+    return (o & IO.OFFDICT) != 0;
   }
 
   // UPDATE OPERATIONS ========================================================
   @Override
-  protected void text(final int pre, final byte[] val, final boolean txt) {
-    final long v = Token.toSimpleInt(val);
-    if(v != Integer.MIN_VALUE) {
-      textOff(pre, v | IO.OFFNUM);
-    } else {
-      final DataAccess da = txt ? texts : values;
-      final byte[] pack = comp.pack(val);
-
-      // old entry
-      final long old = textOff(pre);
-      // old offset
-      long o = old & IO.OFFCOMP - 1;
-
-      if(!num(old)) {
-        // handle non-numeric entry
-        final int len = da.readNum(o);
-        if(da.pos() + len == da.length()) {
-          // set new file length if entry is placed last
-          da.length(da.pos() + pack.length);
-        } else if(pack.length > len) {
-          // otherwise, if new text is longer than the old, append text
-          o = da.length();
-        }
-      } else {
-        // text is numeric: append text at the end
-        o = da.length();
+  protected void updateIndexes(final int pre, final int s, final boolean add) {
+    final DiskValues txt = values(true), atv = values(false);
+    final FTIndex ftx = fulltext();
+    for(int p = pre; p < pre + s; ++p) {
+      final int k = kind(p);
+      if(ftx != null && k == TEXT) {
+        if(add) ftx.add(text(p, true), id(p));
+        else ftx.remove(id(p));
       }
+      final DiskValues dv = k == TEXT ? txt : k == ATTR ? atv : null;
+      if(dv == null) continue;
+      if(!add) dv.remove(id(p));
+      else if(textLen(p, k == TEXT) <= Token.MAXLEN)
+        dv.add(text(p, k == TEXT), id(p));
+    }
+  }
 
-      da.writeBytes(o, pack);
-      textOff(pre, o | (pack == val ? 0 : IO.OFFCOMP));
+  /**
+   * Returns the full-text index and registers a shift of pre values.
+   * If the index cannot be updated, it is invalidated.
+   * @return index, or {@code null}
+   */
+  private FTIndex fulltext() {
+    if(!meta.ftindex) return null;
+    if(ftxindex instanceof FTIndex && ((FTIndex) ftxindex).updatable()) {
+      final FTIndex ftx = (FTIndex) ftxindex;
+      ftx.shift();
+      return ftx;
     }
+    meta.ftindex = false;
+    return null;
+  }
+
+  /**
+   * Returns the text or attribute value index and registers a shift of pre
+   * values. If the index cannot be updated, it is invalidated.
+   * @param text text/attribute flag
+   * @return index, or {@code null}
+   */
+  private DiskValues values(final boolean text) {
+    if(!(text ? meta.textindex : meta.attrindex)) return null;
+    final Index index = text ? txtindex : atvindex;
+    if(index instanceof DiskValues && ((DiskValues) index).updatable()) {
+      final DiskValues dv = (DiskValues) index;
+      dv.shift();
+      return dv;
+    }
+    if(text) meta.textindex = false;
+    else meta.attrindex = false;
+    return null;
   }
 
+  @Override
+  protected void text(final int pre, final byte[] val, final boolean txt) {
+    // old entry
+    final long old = textOff(pre);
+    final TextDictionary td = dictionary(txt);
+    long v = inline(val);
+    if(v == -1 && td != null) v = td.get(val);
+    if(v != -1) {
+      // value is numeric, inlined or shared: release old entry
+      release(old, txt, 0);
+      textOff(pre, v);
+      return;
+    }
+
+    final DataAccess da = txt ? texts : values;
+    final byte[] pack = (txt ? txtcodec : atvcodec).pack(val);
+    final int size = Num.len(pack.length) + pack.length;
+    // overwrite old entry or find new extent
+    long o = release(old, txt, size);
+    if(o == -1) o = offset(da, free(txt), size);
+
+    da.writeBytes(o, pack);
+    o |= pack == val ? 0 : IO.OFFCOMP;
+    if(td != null && td.accept(val)) {
+      // the entry is now shared and will not be overwritten anymore
+      o |= IO.OFFDICT;
+      td.add(val, o);
+    }
+    textOff(pre, o);
+  }
+
+  /**
+   * Releases the bytes of an old entry that are not needed anymore.
+   * @param old old text reference
+   * @param txt text/attribute flag
+   * @param size size of the new entry, or {@code 0}
+   * @return old offset if it can be used for the new entry, or {@code -1}
+   */
+  private long release(final long old, final boolean txt, final int size) {
+    // numeric, inlined and shared entries have no bytes of their own
+    if(num(old) || inl(old) || dict(old)) return -1;
+
+    final DataAccess da = txt ? texts : values;
+    final FreeSpace fs = free(txt);
+    final long o = old & IO.OFFDICT - 1;
+    final int len = da.readNum(o);
+    final long end = da.pos() + len;
+    if(end == da.length()) {
+      // set new file length if entry is placed last
+      da.length(o + size);
+      return size == 0 ? -1 : o;
+    }
+    if(size != 0 && o + size <= end) {
+      // new entry fits: release the remaining bytes
+      fs.add(o + size, (int) (end - o - size));
+      return o;
+    }
+    fs.add(o, (int) (end - o));
+    return -1;
+  }
+
+
   @Override
   protected long index(final byte[] txt, final int pre, final boolean text) {
+    final long v = inline(txt);
+    if(v != -1) return v;
+    final TextDictionary td = dictionary(text);
+    final long ref = td != null ? td.get(txt) : -1;
+    if(ref != -1) return ref;
+
     final DataAccess da = text ? texts : values;
-    final long off = da.length();
+    final long off = offset(da, free(text), Num.len(txt.length) + txt.length);
     da.writeBytes(off, txt);
-    return off;
+    if(td == null || !td.accept(txt)) return off;
+    td.add(txt, off | IO.OFFDICT);
+    return off | IO.OFFDICT;
+  }
+
+  /**
+   * Returns the offset for a new entry. A free extent is reused if possible;
+   * otherwise, the entry is appended to the file.
+   * @param da file access
+   * @param fs free extents
+   * @param size entry size
+   * @return offset
+   */
+  private long offset(final DataAccess da, final FreeSpace fs,
+      final int size) {
+    final long o = fs.get(size);
+    if(o != -1) return o;
+    // appended entries must not reach the flag bits of the text reference
+    final long l = da.length();
+    if(l >= IO.OFFDICT) throw Util.notexpected(
+        Util.info(BuildText.LIMITRANGE, meta.name));
+    return l;
   }
 }
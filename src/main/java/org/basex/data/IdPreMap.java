@@ -1,246 +1,269 @@
 package org.basex.data;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
 import org.basex.util.IntList;
 
 /**
- * ID -> PRE mapping.
+ * ID -> PRE mapping. The mapping is represented by runs of nodes with
+ * consecutive ids and pre values. The runs are sorted by their first ids, so
+ * that the pre value of an id can be found via binary search. Inserts and
+ * deletes split, shift or remove existing runs; ids of deleted nodes are
+ * not found anymore.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Dimitar Popov
- * [DP] support deleted IDs
  */
 public class IdPreMap {
-  /** Base ID value. */
-  private final int baseid;
-  /** PRE values of the inserted/deleted IDs. */
-  private final IntListExt pres;
-  /** Inserted ID values. */
-  private final IntListExt ids;
-  /** Increments showing how the PRE values have been modified. */
-  private final IntListExt incs;
-  /** ID values for the PRE, before inserting/deleting a record. */
-  private final IntListExt oids;
+  /** First ids of the runs (sorted). */
+  private int[] ids;
+  /** First pre values of the runs. */
+  private int[] pres;
+  /** Sizes of the runs. */
+  private int[] sizes;
+  /** Number of runs. */
+  private int runs;
+  /** Modified flag. */
+  private boolean dirty;
 
   /**
-   * Constructor.
+   * Constructor, creating an identity mapping.
    * @param id last inserted ID
    */
   public IdPreMap(final int id) {
-    baseid = id;
+    this(new int[] { 0 }, new int[] { 0 }, new int[] { id + 1 });
+    runs = id < 0 ? 0 : 1;
+  }
+
+  /**
+   * Constructor, reading the mapping from the specified input.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  IdPreMap(final DataInput in) throws IOException {
+    this(in.readNums(), in.readNums(), in.readNums());
+    dirty = false;
+  }
+
+  /**
+   * Constructor, creating the mapping from the ids of the specified table.
+   * @param data data reference
+   */
+  IdPreMap(final Data data) {
+    final IntList il = new IntList(), pl = new IntList(), sl = new IntList();
+    for(int pre = 0, last = -2; pre < data.meta.size; ++pre) {
+      final int id = data.id(pre);
+      if(id == last + 1) {
+        sl.set(sl.get(sl.size() - 1) + 1, sl.size() - 1);
+      } else {
+        il.add(id);
+        pl.add(pre);
+        sl.add(1);
+      }
+      last = id;
+    }
+    // sort runs by their first ids
+    runs = il.size();
+    final long[] keys = new long[runs];
+    for(int r = 0; r < runs; ++r) keys[r] = (long) il.get(r) << 32 | r;
+    Arrays.sort(keys);
+    ids = new int[runs];
+    pres = new int[runs];
+    sizes = new int[runs];
+    for(int r = 0; r < runs; ++r) {
+      final int k = (int) keys[r];
+      ids[r] = il.get(k);
+      pres[r] = pl.get(k);
+      sizes[r] = sl.get(k);
+    }
+    dirty = true;
+  }
 
-    pres = new IntListExt(5);
-    ids = new IntListExt(5);
-    incs = new IntListExt(5);
-    oids = new IntListExt(5);
+  /**
+   * Constructor, specifying the runs.
+   * @param i first ids
+   * @param p first pre values
+   * @param s sizes
+   */
+  private IdPreMap(final int[] i, final int[] p, final int[] s) {
+    ids = i;
+    pres = p;
+    sizes = s;
+    runs = i.length;
+    dirty = true;
   }
 
   /**
    * Find the PRE value of a given ID.
    * @param id ID
-   * @return PRE
+   * @return PRE, or {@code -1} if the ID does not exist
    */
   public int pre(final int id) {
-    if(id < pres.get(0) || pres.size() == 0) return id;
-    if(id > baseid) return pres.get(ids.indexOf(id));
-    final int i = oids.sortedLastIndexOf(id);
-    return id + incs.get(i < 0 ? -i - 2 : i);
+    final int r = run(id);
+    return r == -1 ? -1 : pres[r] + id - ids[r];
   }
 
   /**
-   * Insert new record.
+   * Insert new records.
    * @param pre record PRE
-   * @param id record ID
+   * @param id ID of the first record; the following records have
+   *   consecutive IDs
    * @param c number of inserted records
    */
   public void insert(final int pre, final int id, final int c) {
-    int i = 0;
-    int inc = c;
-    int oid = pre;
-
-    if(pres.size() > 0) {
-      i = pres.sortedIndexOf(pre);
-      if(i < 0) {
-        i = -i - 1;
-        if(i != 0) {
-          oid = pre - incs.get(i - 1);
-          inc += incs.get(i - 1);
-        }
-      } else if(i > 0) {
-        oid = oids.get(i);
-        inc += incs.get(i - 1);
-      }
-      pres.add(pre, i);
-      incs.add(inc, i);
-      ids.add(id, i);
-      oids.add(oid, i);
-      for(int k = pres.size() - 1; k > i; --k) {
-        pres.inc(k, c);
-        incs.inc(k, c);
+    final int rs = runs;
+    for(int r = 0; r < rs; ++r) {
+      final int p = pres[r];
+      if(p >= pre) {
+        pres[r] += c;
+      } else if(p + sizes[r] > pre) {
+        // split run
+        final int s = pre - p;
+        add(ids[r] + s, pre + c, sizes[r] - s);
+        sizes[r] = s;
       }
+    }
+    // extend the preceding run if the ids and pre values are consecutive
+    final int r = run(id - 1);
+    if(r != -1 && ids[r] + sizes[r] == id && pres[r] + sizes[r] == pre) {
+      sizes[r] += c;
     } else {
-      pres.set(pre, i);
-      incs.set(inc, i);
-      ids.set(id, i);
-      oids.set(oid, i);
+      add(id, pre, c);
     }
+    sort();
   }
 
   /**
-   * Delete a record.
+   * Delete records.
    * @param pre record PRE
-   * @param id deleted record ID
-   * @param c number of deleted records
+   * @param id ID of the first deleted record
+   * @param c negative number of deleted records
    */
   public void delete(final int pre, final int id, final int c) {
-    int i = 0;
-    int inc = c;
-    int oid = pre;
-
-    if(pres.size() > 0) {
-      i = pres.sortedIndexOf(pre);
-      if(i < 0) {
-        i = -i - 1;
-        // the next entry will be the same after the correction:
-        if(i < pres.size() && pres.get(i) + c == pre) {
-          // re-use the next record:
-          pres.inc(i, c);
-          incs.inc(i, c);
+    final int end = pre - c, rs = runs;
+    int n = 0;
+    for(int r = 0; r < rs; ++r) {
+      int i = ids[r], p = pres[r], s = sizes[r];
+      final int e = p + s;
+      if(p >= end) {
+        // shift following run
+        p += c;
+      } else if(e > pre) {
+        if(p < pre) {
+          // keep first part, add remaining part as new run
+          s = pre - p;
+          if(e > end) add(i + end - p, pre, e - end);
         } else {
-          if(i != 0) {
-            oid = pre - incs.get(i - 1);
-            inc += incs.get(i - 1);
-          }
-          pres.add(pre, i);
-          incs.add(inc, i);
-          ids.add(id, i);
-          oids.add(oid, i);
+          // keep remaining part
+          i += end - p;
+          p = pre;
+          s = e - end;
         }
-      } else {
-        // the next entry will be the same after the correction:
-        if(i + 1 < pres.size() && pres.get(i + 1) + c == pre) {
-          pres.remove(i);
-          incs.remove(i);
-          ids.remove(i);
-          oids.remove(i);
-
-          pres.inc(i, c);
-        }
-        incs.inc(i, c);
       }
-      // apply the correction to all subsequent records:
-      for(int k = pres.size() - 1; k > i; --k) {
-        pres.inc(k, c);
-        incs.inc(k, c);
-      }
-    } else {
-      pres.set(pre, i);
-      incs.set(inc, i);
-      ids.set(id, i);
-      oids.set(oid, i);
+      if(s <= 0) continue;
+      ids[n] = i;
+      pres[n] = p;
+      sizes[n++] = s;
     }
-  }
-
-  @Override
-  public String toString() {
-    final StringBuilder b = new StringBuilder();
-
-    b.append("pres, ids, incs, oids");
-    for(int i = 0; i < pres.size(); i++) {
-      b.append('\n');
-      b.append(pres.get(i));
-      b.append(", ");
-      b.append(ids.get(i));
-      b.append(", ");
-      b.append(incs.get(i));
-      b.append(", ");
-      b.append(oids.get(i));
+    // move runs that have been added by splits
+    for(int r = rs; r < runs; ++r) {
+      ids[n] = ids[r];
+      pres[n] = pres[r];
+      sizes[n++] = sizes[r];
     }
-
-    return b.toString();
-  }
-}
-
-/**
- * This is a simple container for int values.
- *
- * @author BaseX Team 2005-11, BSD License
- * @author Dimitar Popov
- */
-class IntListExt extends IntList {
-
-  /**
-   * Constructor, specifying an initial array capacity.
-   * @param c array capacity
-   */
-  public IntListExt(final int c) {
-    super(c);
+    runs = n;
+    sort();
   }
 
   /**
-   * Insert an element at the specified index position.
-   * @param e element to insert
-   * @param i index where to insert the element
+   * Returns the index of the run containing the specified id.
+   * @param id id
+   * @return index, or {@code -1} if the id does not exist
    */
-  public void add(final int e, final int i) {
-    if(size == list.length) list = Arrays.copyOf(list, newSize());
-    if(i < size) System.arraycopy(list, i, list, i + 1, size - i);
-    ++size;
-    list[i] = e;
+  private int run(final int id) {
+    int l = 0, h = runs - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      if(ids[m] <= id) l = m + 1;
+      else h = m - 1;
+    }
+    final int r = l - 1;
+    return r >= 0 && id - ids[r] < sizes[r] ? r : -1;
   }
 
   /**
-   * Remove an element from the specified index position.
-   * @param i index from where to remove the element
-   * @return the removed element
+   * Adds a run at the end of the arrays.
+   * @param i first id
+   * @param p first pre value
+   * @param s size
    */
-  public int remove(final int i) {
-    final int e = list[i];
-    if(i < --size) System.arraycopy(list, i + 1, list, i, size - i);
-    return e;
+  private void add(final int i, final int p, final int s) {
+    if(runs == ids.length) {
+      final int n = Math.max(8, runs << 1);
+      ids = Arrays.copyOf(ids, n);
+      pres = Arrays.copyOf(pres, n);
+      sizes = Arrays.copyOf(sizes, n);
+    }
+    ids[runs] = i;
+    pres[runs] = p;
+    sizes[runs++] = s;
   }
 
   /**
-   * Binary search for a key in a list. If there are several hits the last one
-   * is returned.
-   * @param e key to search for
-   * @return index of the found hit or where the key ought to be inserted
+   * Restores the order of the runs after runs have been added at the end.
    */
-  public int sortedLastIndexOf(final int e) {
-    int i = this.sortedIndexOf(e);
-    if(i >= 0) {
-      while(++i < size && list[i] == e);
-      return i - 1;
+  private void sort() {
+    for(int r = 1; r < runs; ++r) {
+      final int i = ids[r];
+      if(i > ids[r - 1]) continue;
+      final int p = pres[r], s = sizes[r];
+      final int n = -Arrays.binarySearch(ids, 0, r, i) - 1;
+      System.arraycopy(ids, n, ids, n + 1, r - n);
+      System.arraycopy(pres, n, pres, n + 1, r - n);
+      System.arraycopy(sizes, n, sizes, n + 1, r - n);
+      ids[n] = i;
+      pres[n] = p;
+      sizes[n] = s;
     }
-    return i;
+    dirty = true;
   }
 
   /**
-   * Search for a key in the list.
-   * @param e key to search for
-   * @return index of the found hit or -1 if the key is not found
+   * Writes the mapping to the specified file if it has been modified.
+   * @param file output file
+   * @throws IOException I/O exception
    */
-  public int indexOf(final int e) {
-    for(int i = 0; i < size; ++i) if(list[i] == e) return i;
-    return -1;
+  synchronized void write(final File file) throws IOException {
+    if(!dirty) return;
+    final DataOutput out = new DataOutput(file);
+    try {
+      out.writeNums(Arrays.copyOf(ids, runs));
+      out.writeNums(Arrays.copyOf(pres, runs));
+      out.writeNums(Arrays.copyOf(sizes, runs));
+    } finally {
+      out.close();
+    }
+    dirty = false;
   }
 
   /**
-   * Increment the value of the element at the specified index.
-   * @param i index of the element
-   * @param c increment value
+   * Returns the number of runs.
+   * @return number of runs
    */
-  public void inc(final int i, final int c) {
-    list[i] += c;
+  public int runs() {
+    return runs;
   }
 
-  /**
-   * Increment the values within an interval.
-   * @param from start index (inclusive)
-   * @param to end index (exclusive)
-   * @param c increment value
-   */
-  public void inc(final int from, final int to, final int c) {
-    for(int i = from; i < to; ++i) list[i] += c;
+  @Override
+  public String toString() {
+    final StringBuilder b = new StringBuilder("ids, pres, sizes");
+    for(int r = 0; r < runs; ++r) {
+      b.append('\n').append(ids[r]).append(", ").append(pres[r]);
+      b.append(", ").append(sizes[r]);
+    }
+    return b.toString();
   }
 }
@@ -55,7 +55,9 @@ public final class MemData extends Data {
   }
 
   @Override
-  public void flush() { }
+  public void flush() {
+    updateDists();
+  }
 
   @Override
   protected void cls() { }
@@ -86,6 +88,12 @@ public final class MemData extends Data {
     return text(pre, text).length;
   }
 
+  @Override
+  public boolean sameText(final int pre1, final int pre2, final boolean text) {
+    // identical values are indexed only once
+    return textOff(pre1) == textOff(pre2);
+  }
+
   // UPDATE OPERATIONS ========================================================
 
   @Override
@@ -13,6 +13,9 @@ import org.basex.core.Users;
 import org.basex.io.DataInput;
 import org.basex.io.DataOutput;
 import org.basex.io.IO;
+import org.basex.util.Compress;
+import org.basex.util.SymbolCompress;
+import org.basex.util.TextCodec;
 import org.basex.util.Util;
 import org.basex.util.ft.Language;
 
@@ -55,6 +58,14 @@ public final class MetaData {
   public boolean ftindex;
   /** Flag for creating a path summary. */
   public boolean pathindex = true;
+  /** Flag for compressed table blocks. */
+  public boolean tablecomp;
+  /** Flag for storing the table in separate columns. */
+  public boolean tablecols;
+  /** Flag for dictionary-encoded texts and attribute values. */
+  public boolean valuedict;
+  /** Codec for texts and attribute values (empty for the default codec). */
+  public String textcodec = "";
 
   /** Flag for wildcard indexing. */
   public boolean wildcards;
@@ -98,6 +109,10 @@ public final class MetaData {
     chop = prop.is(Prop.CHOP);
     entity = prop.is(Prop.ENTITY);
     pathindex = prop.is(Prop.PATHINDEX);
+    tablecomp = prop.is(Prop.TABLECOMP);
+    tablecols = prop.is(Prop.TABLECOLS);
+    valuedict = prop.is(Prop.VALUEDICT);
+    textcodec = prop.get(Prop.TEXTCODEC);
     wildcards = prop.is(Prop.WILDCARDS);
     stemming = prop.is(Prop.STEMMING);
     diacritics = prop.is(Prop.DIACRITICS);
@@ -165,6 +180,25 @@ public final class MetaData {
     return file(name, fn, prop);
   }
 
+  /**
+   * Returns the codec for texts or attribute values. A trained symbol table
+   * is read from disk if it exists.
+   * @param text text/attribute flag
+   * @return codec
+   * @throws IOException I/O exception
+   */
+  public TextCodec codec(final boolean text) throws IOException {
+    if(!textcodec.equals(SymbolCompress.NAME)) return new Compress();
+    final File f = file(text ? DATATXTCODEC : DATAATVCODEC);
+    if(!f.exists()) return new SymbolCompress();
+    final DataInput in = new DataInput(f);
+    try {
+      return new SymbolCompress(in);
+    } finally {
+      in.close();
+    }
+  }
+
   /**
    * Adds the a random temporary name for the current database.
    * @return random name
@@ -189,16 +223,13 @@ public final class MetaData {
   }
 
   /**
-   * Notifies the meta structures of an update and invalidates the indexes.
+   * Notifies the meta structures of an update. The value and full-text
+   * indexes are updated by the {@link Data} instance.
    */
   void update() {
     time = System.currentTimeMillis();
     uptodate = false;
     dirty = true;
-    // reset of flags should be skipped as soon as id/pre mapping is supported
-    textindex = false;
-    attrindex = false;
-    ftindex = false;
     paths.update();
   }
 
@@ -209,6 +240,10 @@ public final class MetaData {
    */
   public void read(final DataInput in) throws IOException {
     String storage = "", istorage = "";
+    tablecomp = false;
+    tablecols = false;
+    valuedict = false;
+    textcodec = "";
     while(true) {
       final String k = string(in.readBytes());
       if(k.isEmpty()) break;
@@ -243,6 +278,10 @@ public final class MetaData {
       else if(k.equals(DBTIME))   time       = toLong(v);
       else if(k.equals(DBUTD))    uptodate   = toBool(v);
       else if(k.equals(DBLID))    lastid     = toInt(v);
+      else if(k.equals(DBTBLCOMP)) tablecomp = toBool(v);
+      else if(k.equals(DBTBLCOLS)) tablecols = toBool(v);
+      else if(k.equals(DBVALDICT)) valuedict = toBool(v);
+      else if(k.equals(DBCODEC))   textcodec = v;
     }
     if(!storage.equals(STORAGE)) throw new BuildException(DBUPDATE, storage);
     if(!istorage.equals(ISTORAGE)) {
@@ -291,6 +330,10 @@ public final class MetaData {
     writeInfo(out, DBTIME,   time);
     writeInfo(out, DBUTD,    uptodate);
     writeInfo(out, DBLID,    lastid);
+    writeInfo(out, DBTBLCOMP, tablecomp);
+    writeInfo(out, DBTBLCOLS, tablecols);
+    writeInfo(out, DBVALDICT, valuedict);
+    writeInfo(out, DBCODEC,   textcodec);
     out.writeString(DBPERM);
     users.write(out);
     out.write(0);
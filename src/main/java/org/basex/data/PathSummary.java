@@ -2,11 +2,13 @@ package org.basex.data;
 
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import org.basex.index.Index;
 import org.basex.index.IndexIterator;
 import org.basex.index.IndexToken;
+import org.basex.io.ArrayOutput;
 import org.basex.io.DataInput;
 import org.basex.io.DataOutput;
 import org.basex.io.IO;
@@ -16,7 +18,8 @@ import org.basex.util.Util;
 
 /**
  * This class stores the path summary of a database.
- * It contains all unique location paths.
+ * It contains all unique location paths. If a database is opened, the summary
+ * is kept in its serialized form until it is requested first.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
@@ -25,7 +28,9 @@ public final class PathSummary implements Index {
   /** Parent stack for building the summary. */
   private PathNode[] stack;
   /** Root node. */
-  public PathNode root;
+  private PathNode root;
+  /** Serialized summary ({@code null} if the summary has been parsed). */
+  private byte[] raw;
 
   /**
    * Default constructor.
@@ -38,18 +43,36 @@ public final class PathSummary implements Index {
    * Initializes the data structures. This method is called if a new path
    * summary is built.
    */
-  public void init() {
+  public synchronized void init() {
     stack = new PathNode[IO.MAXHEIGHT];
     root = null;
+    raw = null;
   }
 
   /**
-   * Constructor, specifying an input file.
-   * @param in input stream
-   * @throws IOException I/O exception
+   * Constructor, specifying the serialized summary, which will be parsed
+   * when it is requested first.
+   * @param r serialized summary
    */
-  PathSummary(final DataInput in) throws IOException {
-    if(in.readBool()) root = new PathNode(in, null);
+  PathSummary(final byte[] r) {
+    raw = r;
+  }
+
+  /**
+   * Returns the root node. The serialized summary is parsed if necessary.
+   * @return root node, or {@code null}
+   */
+  private synchronized PathNode node() {
+    if(raw != null) {
+      try {
+        final DataInput in = new DataInput(new ByteArrayInputStream(raw));
+        if(in.readBool()) root = new PathNode(in, null);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+      raw = null;
+    }
+    return root;
   }
 
   // Path Summary creation ====================================================
@@ -75,8 +98,23 @@ public final class PathSummary implements Index {
    * @throws IOException I/O exception
    */
   void write(final DataOutput out) throws IOException {
-    out.writeBool(root != null);
-    if(root != null) root.finish(out);
+    final PathNode r = node();
+    out.writeBool(r != null);
+    if(r != null) r.finish(out);
+  }
+
+  /**
+   * Returns the serialized summary.
+   * @return serialized summary
+   * @throws IOException I/O exception
+   */
+  byte[] serialize() throws IOException {
+    synchronized(this) {
+      if(raw != null) return raw;
+    }
+    final ArrayOutput ao = new ArrayOutput();
+    write(new DataOutput(ao));
+    return ao.toArray();
   }
 
   // Path Summary traversal ===================================================
@@ -117,7 +155,7 @@ public final class PathSummary implements Index {
    */
   public ArrayList<PathNode> root() {
     final ArrayList<PathNode> out = new ArrayList<PathNode>();
-    out.add(root);
+    out.add(node());
     return out;
   }
 
@@ -209,7 +247,7 @@ public final class PathSummary implements Index {
    * @return info
    */
   byte[] info(final Data data) {
-    return chop(root.info(data, 0), 1 << 13);
+    return chop(node().info(data, 0), 1 << 13);
   }
 
   /**
@@ -220,7 +258,7 @@ public final class PathSummary implements Index {
    */
   public void plan(final Data data, final Serializer ser) throws IOException {
     ser.openElement(PATH);
-    root.plan(data, ser);
+    node().plan(data, ser);
     ser.closeElement();
   }
 
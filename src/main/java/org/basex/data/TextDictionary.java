@@ -0,0 +1,108 @@
+package org.basex.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.basex.io.DataOutput;
+import org.basex.util.Token;
+import org.basex.util.TokenSet;
+
+/**
+ * This class references texts or attribute values that are stored only once
+ * in the database. Only short and recurring values are added, and the number
+ * of entries is limited, as dictionary encoding pays off for values with a
+ * low cardinality (e.g. status codes or enumerated attribute values).
+ * As each value is stored only once, two values are equal if they have
+ * the same dictionary reference.
+ *
+ * Only the text references are stored on disk; the values are stored in the
+ * text and attribute value files.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TextDictionary {
+  /** Maximum length of a dictionary entry. */
+  private static final int MAXLEN = 64;
+  /** Maximum number of dictionary entries. */
+  private static final int MAXSIZE = 1 << 16;
+  /** Number of bits of the candidate table. */
+  private static final int BITS = 14;
+
+  /** Dictionary values. */
+  private final TokenSet values = new TokenSet();
+  /** Text references. */
+  private long[] refs = new long[1];
+  /** Hash values of recently found values (created on demand). */
+  private int[] seen;
+  /** Number of entries that have been written to disk. */
+  private int written = 1;
+
+  /**
+   * Returns the text reference of the specified value.
+   * @param val value
+   * @return text reference, or {@code -1} if the value is not found
+   */
+  public synchronized long get(final byte[] val) {
+    if(val.length > MAXLEN) return -1;
+    final int id = values.id(val);
+    return id == 0 ? -1 : refs[id];
+  }
+
+  /**
+   * Checks if the specified value will be added to the dictionary.
+   * A value is accepted if it has been checked before, i.e., when it occurs
+   * for the second time. Hash collisions may lead to false positives.
+   * @param val value
+   * @return result of check
+   */
+  public synchronized boolean accept(final byte[] val) {
+    if(val.length > MAXLEN || values.size() > MAXSIZE) return false;
+    if(seen == null) seen = new int[1 << BITS];
+    final int h = Token.hash(val) | 1;
+    final int i = h * 0x9E3779B1 >>> 32 - BITS;
+    if(seen[i] == h) return true;
+    seen[i] = h;
+    return false;
+  }
+
+  /**
+   * Adds a value and its text reference.
+   * @param val value
+   * @param ref text reference
+   */
+  public synchronized void add(final byte[] val, final long ref) {
+    final int id = Math.abs(values.add(val));
+    if(id >= refs.length) refs = Arrays.copyOf(refs, id << 1);
+    refs[id] = ref;
+  }
+
+  /**
+   * Adds a value that has been read from disk.
+   * @param val value
+   * @param ref text reference
+   */
+  synchronized void read(final byte[] val, final long ref) {
+    add(val, ref);
+    written = values.size();
+  }
+
+  /**
+   * Writes the text references to the specified file if new entries
+   * have been added.
+   * @param file output file
+   * @throws IOException I/O exception
+   */
+  public synchronized void write(final File file) throws IOException {
+    final int s = values.size();
+    if(s == written) return;
+    final DataOutput out = new DataOutput(file);
+    try {
+      out.writeNum(s - 1);
+      for(int i = 1; i < s; ++i) out.write5(refs[i]);
+    } finally {
+      out.close();
+    }
+    written = s;
+  }
+}
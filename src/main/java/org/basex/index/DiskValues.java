@@ -3,18 +3,32 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
+import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import org.basex.data.Data;
+import org.basex.io.ArrayOutput;
 import org.basex.io.DataAccess;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
+import org.basex.io.RedoLog;
 import org.basex.util.IntList;
+import org.basex.util.IntMap;
 import org.basex.util.Num;
 import org.basex.util.Performance;
 import org.basex.util.TokenBuilder;
+import org.basex.util.TokenObjMap;
 
 /**
  * This class provides access to attribute values and text contents
  * stored on disk.
  *
+ * Indexes with an id file can be updated: the keys of updated nodes are
+ * kept in main memory and merged with the index entries when the index is
+ * accessed. The index entries contain the pre values at build time, which
+ * are mapped to the current pre values via the node ids.
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
@@ -29,10 +43,32 @@ public final class DiskValues implements Index {
   private final boolean text;
   /** Values file. */
   private final Data data;
+  /** File prefix. */
+  private final String pref;
   /** Cache tokens. */
   private final IndexCache cache = new IndexCache();
-  /** Cached texts. Increases used memory, but speeds up repeated queries. */
+  /** Sorted keys ({@code null} if the index does not contain the keys). */
+  private final ValueKeys keys;
+  /** Numeric keys ({@code null} if the index does not contain them). */
+  private final ValueNumbers nums;
+  /** Cached texts, if the index does not contain the keys. */
   private final byte[][] ctext;
+  /** First pre values of all id runs at build time
+   * ({@code null} if the index cannot be updated). */
+  private final int[] bpres;
+  /** First ids of all id runs at build time. */
+  private final int[] bids;
+  /** Ids of updated nodes and their current keys
+   * ({@code null}: the node is not indexed anymore). */
+  private final IntMap<byte[]> nodes = new IntMap<byte[]>();
+  /** Ids of updated nodes, grouped by the keys they were added to. */
+  private final TokenObjMap<IntList> added = new TokenObjMap<IntList>();
+  /** Flag for updates since the index was built. */
+  private boolean updated;
+  /** Flag for updates that have not been written to disk. */
+  private boolean dirty;
+  /** Flag for updates that have not been logged. */
+  private boolean unlogged;
 
   /**
    * Constructor, initializing the index structure.
@@ -48,17 +84,53 @@ public final class DiskValues implements Index {
    * Constructor, initializing the index structure.
    * @param d data reference
    * @param txt value type (texts/attributes)
-   * @param pref file prefix
+   * @param p file prefix
    * @throws IOException IO Exception
    */
-  DiskValues(final Data d, final boolean txt, final String pref)
+  DiskValues(final Data d, final boolean txt, final String p)
       throws IOException {
     data = d;
     text = txt;
-    idxl = new DataAccess(d.meta.file(pref + 'l'));
-    idxr = new DataAccess(d.meta.file(pref + 'r'));
+    pref = p;
+    idxl = new DataAccess(d.meta.file(p + 'l'));
+    idxr = new DataAccess(d.meta.file(p + 'r'));
     size = idxl.read4();
-    ctext = new byte[size][];
+    final File kf = d.meta.file(p + 'k');
+    keys = kf.exists() ? new ValueKeys(kf) : null;
+    final File nf = d.meta.file(p + 'n');
+    nums = nf.exists() ? new ValueNumbers(nf) : null;
+    ctext = keys == null ? new byte[size][] : null;
+
+    final File idf = d.meta.file(p + 'i');
+    if(keys != null && nums != null && idf.exists()) {
+      final DataInput in = new DataInput(idf);
+      try {
+        bpres = in.readNums();
+        bids = in.readNums();
+      } finally {
+        in.close();
+      }
+      // read updates that have not been merged yet
+      final File uf = d.meta.file(p + 'u');
+      if(uf.exists()) {
+        final DataInput ui = new DataInput(uf);
+        try {
+          for(int n = ui.readNum(); n > 0; --n) {
+            final int id = ui.readNum();
+            if(ui.readBool()) add(ui.readBytes(), id);
+            else nodes.add(id, null);
+          }
+        } finally {
+          ui.close();
+        }
+        updated = true;
+        dirty = false;
+        unlogged = false;
+      }
+    } else {
+      bpres = null;
+      bids = null;
+    }
   }
 
   @Override
@@ -70,7 +142,7 @@ public final class DiskValues implements Index {
     final IndexStats stats = new IndexStats(data);
     for(int m = 0; m < size; ++m) {
       final int oc = idxl.readNum(idxr.read5(m * 5L));
-      if(stats.adding(oc)) stats.add(data.text(idxl.readNum(), text));
+      if(stats.adding(oc)) stats.add(key(m, idxl.readNum()));
     }
     stats.print(tb);
     return tb.finish();
@@ -80,26 +152,30 @@ public final class DiskValues implements Index {
   public IndexIterator ids(final IndexToken tok) {
     if(tok instanceof RangeToken) return idRange((RangeToken) tok);
 
-    final int id = cache.id(tok.get());
-    if(id > 0) return iter(cache.size(id), cache.pointer(id));
+    final byte[] key = tok.get();
+    final int id = cache.id(key);
+    if(id > 0) return iter(key, cache.size(id), cache.pointer(id));
 
-    final long pos = get(tok.get());
-    return pos == 0 ? IndexIterator.EMPTY : iter(idxl.readNum(pos), idxl.pos());
+    final long pos = get(key);
+    if(pos != 0) return iter(key, idxl.readNum(pos), idxl.pos());
+    return updated ? iter(key, 0, 0) : IndexIterator.EMPTY;
   }
 
   @Override
   public int nrIDs(final IndexToken it) {
     if(it instanceof RangeToken) return idRange((RangeToken) it).size();
     final byte[] tok = it.get();
+    final IntList ids = added.get(tok);
+    final int upd = ids == null ? 0 : ids.size();
     final int id = cache.id(tok);
-    if(id > 0) return cache.size(id);
+    if(id > 0) return cache.size(id) + upd;
 
     final long pos = get(tok);
-    if(pos == 0) return 0;
+    if(pos == 0) return upd;
     final int numPre =  idxl.readNum(pos);
     cache.add(it.get(), numPre, pos + Num.len(numPre));
 
-    return numPre;
+    return numPre + upd;
   }
 
   /**
@@ -115,19 +191,88 @@ public final class DiskValues implements Index {
 
   /**
    * Iterator method.
+   * @param key key
    * @param s number of pre values
    * @param ps offset
    * @return iterator
    */
-  private IndexIterator iter(final int s, final long ps) {
-    final IntList ids = new IntList(s);
+  private IndexIterator iter(final byte[] key, final int s, final long ps) {
+    final IntList pres = new IntList(s);
+    pres(s, ps, pres);
+    return iter(updates(key, pres) ? sort(pres) : pres);
+  }
+
+  /**
+   * Adds the current pre values of the index entries of a key.
+   * @param s number of pre values
+   * @param ps offset
+   * @param pres pre values
+   */
+  private void pres(final int s, final long ps, final IntList pres) {
     long p = ps;
     for(int l = 0, v = 0; l < s; ++l) {
       v += idxl.readNum(p);
       p = idxl.pos();
-      ids.add(v);
+      if(!updated) {
+        pres.add(v);
+      } else {
+        // skip updated and deleted nodes
+        final int id = id(v);
+        if(nodes.id(id) != 0) continue;
+        final int pre = data.pre(id);
+        if(pre != -1) pres.add(pre);
+      }
+    }
+  }
+
+  /**
+   * Adds the current pre values of the updated nodes with the specified key.
+   * @param key key
+   * @param pres pre values
+   * @return {@code true} if the key has been updated
+   */
+  private boolean updates(final byte[] key, final IntList pres) {
+    final IntList ids = added.get(key);
+    if(ids == null) return false;
+    for(int i = 0; i < ids.size(); ++i) {
+      final int id = ids.get(i);
+      final byte[] k = nodes.get(id);
+      if(k == null || !eq(k, key)) continue;
+      final int pre = data.pre(id);
+      if(pre != -1) pres.add(pre);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the id of a node that has been indexed with the specified pre
+   * value.
+   * @param pre pre value at build time
+   * @return id
+   */
+  private int id(final int pre) {
+    int l = 0, h = bpres.length - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      if(bpres[m] <= pre) l = m + 1;
+      else h = m - 1;
+    }
+    return bids[h] + pre - bpres[h];
+  }
+
+  /**
+   * Sorts the specified pre values and removes duplicates.
+   * @param pres pre values
+   * @return sorted pre values
+   */
+  private static IntList sort(final IntList pres) {
+    pres.sort();
+    final IntList il = new IntList(pres.size());
+    for(int i = 0; i < pres.size(); ++i) {
+      final int pre = pres.get(i);
+      if(i == 0 || pre != pres.get(i - 1)) il.add(pre);
     }
-    return iter(ids);
+    return il;
   }
 
   /**
@@ -136,27 +281,47 @@ public final class DiskValues implements Index {
    * @return results
    */
   private IndexIterator idRange(final RangeToken tok) {
+    final IntList ids = new IntList();
     final double min = tok.min;
     final double max = tok.max;
 
+    if(nums != null) {
+      // numeric keys: only visit the keys in the specified range
+      final IntList ks = nums.keys(tok);
+      for(int k = 0; k < ks.size(); ++k) {
+        final int i = ks.get(k);
+        final long pos = idxr.read5(i * 5L);
+        pres(idxl.readNum(pos), idxl.pos(), ids);
+      }
+      // add updated nodes
+      for(int k = 1; k <= added.size(); ++k) {
+        final byte[] key = added.key(k);
+        final double v = toDouble(key);
+        if((tok.mni ? v >= min : v > min) && (tok.mxi ? v <= max : v < max))
+          updates(key, ids);
+      }
+      return iter(sort(ids));
+    }
+
     // check if min and max are positive integers with the same number of digits
     final int len = max > 0 && (long) max == max ? token(max).length : 0;
     final boolean simple = len != 0 && min > 0 && (long) min == min &&
       token(min).length == len;
 
-    final IntList ids = new IntList();
     for(int l = 0; l < size; ++l) {
       final int ds = idxl.readNum(idxr.read5(l * 5L));
       int pre = idxl.readNum();
-      final double v = data.textDbl(pre, text);
+      final byte[] key = keys != null ? keys.key(l) : null;
+      final double v = key != null ? toDouble(key) : data.textDbl(pre, text);
 
-      if(v >= min && v <= max) {
+      if((tok.mni ? v >= min : v > min) && (tok.mxi ? v <= max : v < max)) {
         // value is in range
         for(int d = 0; d < ds; ++d) {
           ids.add(pre);
           pre += idxl.readNum();
         }
-      } else if(simple && v > max && data.textLen(pre, text) == len) {
+      } else if(simple && v > max && (key != null ? key.length :
+          data.textLen(pre, text)) == len) {
         // if limits are integers, if min, max and current value have the same
         // string length, and if current value is larger than max, test can be
         // skipped, as all remaining values will be bigger
@@ -191,18 +356,16 @@ public final class DiskValues implements Index {
    * @return id offset
    */
   private long get(final byte[] key) {
+    if(keys != null) {
+      final int i = keys.index(key);
+      return i == -1 ? 0 : idxr.read5(i * 5L);
+    }
     int l = 0, h = size - 1;
     while(l <= h) {
       final int m = l + h >>> 1;
       final long pos = idxr.read5(m * 5L);
       idxl.readNum(pos);
-      final int pre = idxl.readNum();
-      byte[] txt = ctext[m];
-      if(ctext[m] == null) {
-        txt = data.text(pre, text);
-        ctext[m] = txt;
-      }
-      final int d = diff(txt, key);
+      final int d = diff(key(m, idxl.readNum()), key);
       if(d == 0) return pos;
       if(d < 0) l = m + 1;
       else h = m - 1;
@@ -210,9 +373,209 @@ public final class DiskValues implements Index {
     return 0;
   }
 
+  /**
+   * Returns the key with the specified index. If the index does not contain
+   * the keys, the key is retrieved via the first pre value.
+   * @param i index of the key
+   * @param pre first pre value of the key
+   * @return key
+   */
+  private byte[] key(final int i, final int pre) {
+    if(keys != null) return keys.key(i);
+    byte[] txt = ctext[i];
+    if(txt == null) {
+      txt = data.text(pre, text);
+      ctext[i] = txt;
+    }
+    return txt;
+  }
+
+  // UPDATES ==================================================================
+
+  /**
+   * Checks if the index can be updated. Indexes that have been created by
+   * older versions cannot be updated.
+   * @return result of check
+   */
+  public boolean updatable() {
+    return bpres != null;
+  }
+
+  /**
+   * Registers a shift of pre values.
+   */
+  public synchronized void shift() {
+    updated = true;
+    dirty = true;
+    unlogged = true;
+  }
+
+  /**
+   * Indexes the key of an inserted or updated node.
+   * @param key key
+   * @param id node id
+   */
+  public synchronized void add(final byte[] key, final int id) {
+    nodes.add(id, key);
+    IntList ids = added.get(key);
+    if(ids == null) {
+      ids = new IntList(1);
+      added.add(key, ids);
+    }
+    ids.add(id);
+    shift();
+  }
+
+  /**
+   * Removes the key of an updated node.
+   * @param id node id
+   */
+  public synchronized void remove(final int id) {
+    nodes.add(id, null);
+    shift();
+  }
+
+  /**
+   * Writes the updates to disk.
+   * @throws IOException I/O exception
+   */
+  public synchronized void write() throws IOException {
+    if(!dirty) return;
+    final DataOutput out = new DataOutput(data.meta.file(pref + 'u'));
+    write(out);
+    out.close();
+    dirty = false;
+  }
+
+  /**
+   * Adds the updates to the specified log record.
+   * @param rec log record
+   * @throws IOException I/O exception
+   */
+  public synchronized void log(final RedoLog.Record rec) throws IOException {
+    if(!unlogged) return;
+    final ArrayOutput ao = new ArrayOutput();
+    write(new DataOutput(ao));
+    rec.file(pref + 'u', ao.toArray());
+    unlogged = false;
+  }
+
+  /**
+   * Writes the updates to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    final int ns = nodes.size();
+    out.writeNum(ns);
+    for(int n = 1; n <= ns; ++n) {
+      final int id = nodes.key(n);
+      final byte[] key = nodes.get(id);
+      out.writeNum(id);
+      out.writeBool(key != null);
+      if(key != null) out.writeToken(key);
+    }
+  }
+
+  /**
+   * Merges the updates into new index files if the number of updated nodes
+   * exceeds the specified limit. If the files are replaced, the index is
+   * closed and needs to be reopened.
+   * @param limit maximum number of updated nodes
+   * @return {@code true} if the index files have been replaced
+   * @throws IOException I/O exception
+   */
+  public synchronized boolean merge(final int limit) throws IOException {
+    if(!updated || nodes.size() <= limit) return false;
+
+    final String tmp = pref + '_';
+    final DataOutput outL = new DataOutput(data.meta.file(tmp + 'l'));
+    final DataOutput outR = new DataOutput(data.meta.file(tmp + 'r'));
+    final ValueKeys.Writer outK = new ValueKeys.Writer(
+        data.meta.file(tmp + 'k'));
+    final ValueNumbers.Writer outN = new ValueNumbers.Writer(
+        data.meta.file(tmp + 'n'));
+    outL.write4(0);
+
+    // merge the existing and the updated keys in ascending order
+    final byte[][] ks = added.keys();
+    Arrays.sort(ks, new Comparator<byte[]>() {
+      @Override
+      public int compare(final byte[] k1, final byte[] k2) {
+        return diff(k1, k2);
+      }
+    });
+    int sz = 0;
+    for(int i = 0, u = 0; i < size || u < ks.length;) {
+      final int d = i == size ? 1 : u == ks.length ? -1 :
+        diff(keys.key(i), ks[u]);
+      final byte[] key = d <= 0 ? keys.key(i) : ks[u];
+      IntList pres = new IntList();
+      if(d <= 0) {
+        final long pos = idxr.read5(i++ * 5L);
+        pres(idxl.readNum(pos), idxl.pos(), pres);
+      }
+      if(d >= 0 && updates(ks[u++], pres)) pres = sort(pres);
+      if(pres.size() == 0) continue;
+
+      outR.write5(outL.size());
+      outK.add(key);
+      outN.add(key);
+      outL.writeNum(pres.size());
+      for(int p = 0, o = 0; p < pres.size(); ++p) {
+        outL.writeNum(pres.get(p) - o);
+        o = pres.get(p);
+      }
+      ++sz;
+    }
+    outK.close();
+    outN.close();
+    outR.close();
+    outL.close();
+    final DataAccess da = new DataAccess(data.meta.file(tmp + 'l'));
+    da.writeInt(sz);
+    da.close();
+    ids(data, data.meta.file(tmp + 'i'));
+
+    // replace the index files
+    close();
+    for(final char c : new char[] { 'l', 'r', 'k', 'n', 'i' }) {
+      final File f = data.meta.file(pref + c);
+      if(!f.delete() || !data.meta.file(tmp + c).renameTo(f))
+        throw new IOException("Could not replace " + f);
+    }
+    data.meta.file(pref + 'u').delete();
+    return true;
+  }
+
+  /**
+   * Writes the runs of consecutive pre values and ids of the specified
+   * database, which are needed to map the indexed pre values to node ids.
+   * @param d data reference
+   * @param file id file
+   * @throws IOException I/O exception
+   */
+  static void ids(final Data d, final File file) throws IOException {
+    final IntList pl = new IntList(1), il = new IntList(1);
+    for(int pre = 0, last = -2; pre < d.meta.size; ++pre) {
+      final int id = d.id(pre);
+      if(id != last + 1) {
+        pl.add(pre);
+        il.add(id);
+      }
+      last = id;
+    }
+    final DataOutput out = new DataOutput(file);
+    out.writeNums(pl.toArray());
+    out.writeNums(il.toArray());
+    out.close();
+  }
+
   @Override
   public synchronized void close() throws IOException {
     idxl.close();
     idxr.close();
+    if(keys != null) keys.close();
+    if(nums != null) nums.close();
   }
 }
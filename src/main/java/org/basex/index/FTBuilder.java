@@ -4,6 +4,11 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.basex.core.Prop;
 import org.basex.core.cmd.DropDB;
 import org.basex.data.Data;
@@ -13,6 +18,8 @@ import org.basex.util.IntList;
 import org.basex.util.Num;
 import org.basex.util.Performance;
 import org.basex.util.TokenBuilder;
+import org.basex.util.TokenList;
+import org.basex.util.TokenSet;
 import org.basex.util.ft.FTFlag;
 import org.basex.util.ft.FTLexer;
 import org.basex.util.ft.FTOpt;
@@ -28,6 +35,8 @@ import org.basex.util.Util;
  * @author Christian Gruen
  */
 public abstract class FTBuilder extends IndexBuilder {
+  /** Number of pre values that are tokenized by a worker thread at once. */
+  private static final int CHUNK = 1 << 12;
   /** Word parser. */
   protected final FTLexer lex;
   /** Current lexer position. */
@@ -38,6 +47,8 @@ public abstract class FTBuilder extends IndexBuilder {
   protected long ntok;
   /** Number of cached index structures. */
   protected int csize;
+  /** Prefix of the written index files. */
+  protected String pref = DATAFTX;
 
   /** Document units (all document or text nodes in a document). */
   private final IntList unit = new IntList();
@@ -55,6 +66,11 @@ public abstract class FTBuilder extends IndexBuilder {
   private int token;
   /** Current frequency. */
   private int fc;
+  /** Index to be merged with its updates ({@code null}: the texts of the
+   * database are tokenized). */
+  private FTIndex src;
+  /** Tokens that have been merged. */
+  private TokenSet merged;
 
   /**
    * Returns a new full-text index builder.
@@ -63,29 +79,48 @@ public abstract class FTBuilder extends IndexBuilder {
    * @throws IOException IOException
    */
   public static FTBuilder get(final Data d) throws IOException {
-    return d.meta.wildcards ? new FTTrieBuilder(d) : new FTFuzzyBuilder(d);
+    return get(d, false);
+  }
+
+  /**
+   * Returns a new full-text index builder.
+   * @param d data reference
+   * @param rebuild adopt the options and stop words of the existing index
+   * @return index builder
+   * @throws IOException IOException
+   */
+  static FTBuilder get(final Data d, final boolean rebuild)
+      throws IOException {
+    return d.meta.wildcards ? new FTTrieBuilder(d, rebuild) :
+      new FTFuzzyBuilder(d, rebuild);
   }
 
   /**
    * Constructor.
    * @param d data reference
+   * @param rebuild adopt the options and stop words of the existing index
    * @throws IOException IOException
    */
-  protected FTBuilder(final Data d) throws IOException {
+  protected FTBuilder(final Data d, final boolean rebuild) throws IOException {
     super(d);
 
-    final Prop prop = d.meta.prop;
-    final FTOpt opt = new FTOpt();
-    opt.set(FTFlag.DC, prop.is(Prop.DIACRITICS));
-    opt.set(FTFlag.CS, prop.is(Prop.CASESENS));
-    opt.set(FTFlag.ST, prop.is(Prop.STEMMING));
-    opt.sw = new StopWords(d, prop.get(Prop.STOPWORDS));
-
-    final String lang = prop.get(Prop.LANGUAGE);
-    opt.ln = Language.get(lang);
-    if(!Language.supported(opt.ln, prop.is(Prop.STEMMING)) ||
-        !lang.isEmpty() && opt.ln == null)
-      throw new IOException(Util.info(LANGWHICH, lang));
+    final FTOpt opt;
+    if(rebuild) {
+      opt = options(d);
+    } else {
+      final Prop prop = d.meta.prop;
+      opt = new FTOpt();
+      opt.set(FTFlag.DC, prop.is(Prop.DIACRITICS));
+      opt.set(FTFlag.CS, prop.is(Prop.CASESENS));
+      opt.set(FTFlag.ST, prop.is(Prop.STEMMING));
+      opt.sw = new StopWords(d, prop.get(Prop.STOPWORDS));
+
+      final String lang = prop.get(Prop.LANGUAGE);
+      opt.ln = Language.get(lang);
+      if(!Language.supported(opt.ln, prop.is(Prop.STEMMING)) ||
+          !lang.isEmpty() && opt.ln == null)
+        throw new IOException(Util.info(LANGWHICH, lang));
+    }
 
     scm = d.meta.scoring;
     max = -1;
@@ -93,42 +128,103 @@ public abstract class FTBuilder extends IndexBuilder {
     lex = new FTLexer(opt);
   }
 
+  /**
+   * Returns the tokenizer options of an existing full-text index.
+   * @param d data reference
+   * @return options
+   */
+  static FTOpt options(final Data d) {
+    final FTOpt opt = new FTOpt();
+    opt.set(FTFlag.DC, d.meta.diacritics);
+    opt.set(FTFlag.CS, d.meta.casesens);
+    opt.set(FTFlag.ST, d.meta.stemming);
+    opt.ln = d.meta.language;
+    opt.sw = new StopWords();
+    opt.sw.comp(d);
+    return opt;
+  }
+
+  /**
+   * Merges the entries of an existing index with the tokens of its updated
+   * nodes, and writes the new index files with the specified prefix.
+   * @param ftx index to be merged
+   * @param p file prefix
+   * @throws IOException IO exception
+   */
+  final void merge(final FTIndex ftx, final String p) throws IOException {
+    src = ftx;
+    pref = p;
+    index();
+  }
+
+  /**
+   * Indexes a token of a merged index. The specified pre and pos values are
+   * merged with the entries of the updated nodes.
+   * @param tok token
+   * @param vals current pre and pos values, sorted by pre values
+   * @throws IOException IO exception
+   */
+  final void add(final byte[] tok, final IntList vals) throws IOException {
+    merged.add(tok);
+    final IntList upd = src.updates().vals(tok);
+    for(int v = 0, u = 0; v < vals.size() || u < upd.size();) {
+      // updated nodes are not contained in the index entries
+      final boolean o = u == upd.size() ||
+        v < vals.size() && vals.get(v) < upd.get(u);
+      final IntList il = o ? vals : upd;
+      final int i = o ? v : u;
+      if((ntok & 0xFFFF) == 0) check();
+      pre = il.get(i);
+      pos = il.get(i + 1);
+      token(tok);
+      if(o) v += 2;
+      else u += 2;
+    }
+  }
+
   /**
    * Extracts and indexes words from the specified data reference.
    * @throws IOException IO exception
    */
   protected final void index() throws IOException {
-    // delete old index
-    abort();
+    // delete old index, or the temporary files of a previous merge
+    if(src == null) abort();
+    else DropDB.drop(data.meta.name, pref + ".*" + IO.BASEXSUFFIX,
+        data.meta.prop);
 
     final Performance perf = Util.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
-
-      final int k = data.kind(pre);
-      if(k != Data.TEXT) {
-        if(scm == 1 && k == Data.DOC) unit.add(pre);
-        continue;
+    if(src != null) {
+      // index the entries of the existing index and the remaining updates
+      merged = new TokenSet();
+      src.entries(this);
+      for(final byte[] tok : src.updates().tokens()) {
+        if(merged.id(tok) == 0) add(tok, new IntList());
       }
-      if(scm == 2) unit.add(pre);
-
-      pos = -1;
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
-      while(lex.hasNext()) {
-        final byte[] tok = lex.nextToken();
-        ++pos;
-        // skip too long and stopword tokens
-        if(tok.length <= MAXLEN && (sw.size() == 0 || sw.id(tok) == 0)) {
-          // check if main memory is exhausted
-          if((ntok++ & 0xFFF) == 0 && scm == 0 && memFull()) {
-            // currently no frequency support for tfidf based scoring
-            writeIndex(csize++);
-            Performance.gc(2);
+    } else if(threads > 1) {
+      parallel();
+    } else {
+      for(pre = 0; pre < size; ++pre) {
+        if((pre & 0xFFFF) == 0) check();
+
+        final int k = data.kind(pre);
+        if(k != Data.TEXT) {
+          if(scm == 1 && k == Data.DOC) unit.add(pre);
+          continue;
+        }
+        if(scm == 2) unit.add(pre);
+
+        pos = -1;
+        final StopWords sw = lex.ftOpt().sw;
+        lex.init(data.text(pre, true));
+        while(lex.hasNext()) {
+          final byte[] tok = lex.nextToken();
+          ++pos;
+          // skip too long and stopword tokens
+          if(tok.length <= MAXLEN && (sw.size() == 0 || sw.id(tok) == 0)) {
+            token(tok);
           }
-          index(tok);
         }
       }
     }
@@ -144,6 +240,8 @@ public abstract class FTBuilder extends IndexBuilder {
     // write tokens
     token = 0;
     write();
+    // updates are only supported if no scores are stored
+    if(scm == 0) DiskValues.ids(data, data.meta.file(pref + 'i'));
 
     // set meta data
     if(scm > 0) {
@@ -156,6 +254,90 @@ public abstract class FTBuilder extends IndexBuilder {
     Util.gc(perf);
   }
 
+  /**
+   * Tokenizes the texts in parallel. The tokens of each chunk are indexed
+   * in the order of their pre values.
+   * @throws IOException IO exception
+   */
+  private void parallel() throws IOException {
+    final ExecutorService es = Executors.newFixedThreadPool(threads);
+    try {
+      final int chunks = (size + CHUNK - 1) / CHUNK;
+      final ArrayList<Future<Chunk>> tasks = new ArrayList<Future<Chunk>>();
+      for(int c = 0; c < chunks; ++c) {
+        // limit the number of chunks that are tokenized in advance
+        final int max = Math.min(chunks, c + (threads << 1));
+        while(tasks.size() < max) tasks.add(es.submit(chunk(tasks.size())));
+
+        final Chunk ch = result(tasks.get(c));
+        tasks.set(c, null);
+        check();
+        for(int u = 0; u < ch.units.size(); ++u) unit.add(ch.units.get(u));
+        for(int t = 0; t < ch.toks.size(); ++t) {
+          pre = ch.pres.get(t);
+          pos = ch.poss.get(t);
+          token(ch.toks.get(t));
+        }
+      }
+    } finally {
+      finish(es);
+    }
+  }
+
+  /**
+   * Returns a task for tokenizing a chunk of the database.
+   * @param c chunk number
+   * @return task
+   */
+  private Callable<Chunk> chunk(final int c) {
+    return new Callable<Chunk>() {
+      @Override
+      public Chunk call() {
+        final Chunk ch = new Chunk();
+        final FTLexer lx = new FTLexer(lex.ftOpt());
+        final StopWords sw = lx.ftOpt().sw;
+        final int e = Math.min(size, (c + 1) * CHUNK);
+        for(int p = c * CHUNK; p < e; ++p) {
+          final int k = data.kind(p);
+          if(k != Data.TEXT) {
+            if(scm == 1 && k == Data.DOC) ch.units.add(p);
+            continue;
+          }
+          if(scm == 2) ch.units.add(p);
+
+          int ps = -1;
+          lx.init(data.text(p, true));
+          while(lx.hasNext()) {
+            final byte[] tok = lx.nextToken();
+            ++ps;
+            // skip too long and stopword tokens
+            if(tok.length <= MAXLEN && (sw.size() == 0 || sw.id(tok) == 0)) {
+              ch.toks.add(tok);
+              ch.pres.add(p);
+              ch.poss.add(ps);
+            }
+          }
+        }
+        return ch;
+      }
+    };
+  }
+
+  /**
+   * Indexes a token for the current pre value and position.
+   * @param tok token
+   * @throws IOException IO exception
+   */
+  private void token(final byte[] tok) throws IOException {
+    // check if main memory is exhausted
+    if((ntok++ & 0xFFF) == 0 && scm == 0 && memFull()) {
+      // currently no frequency support for tfidf based scoring
+      writeIndex(csize++);
+      Performance.gc(2);
+    }
+    index(tok);
+  }
+
   /**
    * Calculates the tf-idf data for a single token.
    * @param vpre pre values for a token
@@ -317,4 +499,16 @@ public abstract class FTBuilder extends IndexBuilder {
   public final String det() {
     return INDEXFTX;
   }
+
+  /** Tokens of a chunk of the database. */
+  private static final class Chunk {
+    /** Document units. */
+    final IntList units = new IntList();
+    /** Tokens. */
+    final TokenList toks = new TokenList();
+    /** Pre values of the tokens. */
+    final IntList pres = new IntList();
+    /** Positions of the tokens. */
+    final IntList poss = new IntList();
+  }
 }
@@ -82,9 +82,8 @@ final class FTFuzzy extends FTIndex {
   }
 
   @Override
-  public synchronized int nrIDs(final IndexToken ind) {
+  int size(final FTLexer lex) {
     // skip result count for queries which stretch over multiple index entries
-    final FTLexer lex = (FTLexer) ind;
     if(lex.ftOpt().is(FZ)) return Math.max(1, data.meta.size / 10);
 
     final byte[] tok = lex.get();
@@ -103,8 +102,7 @@ final class FTFuzzy extends FTIndex {
   }
 
   @Override
-  public synchronized IndexIterator ids(final IndexToken ind) {
-    final FTLexer lex = (FTLexer) ind;
+  FTIndexIterator iter(final FTLexer lex) {
     final byte[] tok = lex.get();
 
     // support fuzzy search
@@ -124,6 +122,20 @@ final class FTFuzzy extends FTIndex {
     return iter(cache.pointer(id), cache.size(id), inZ, false);
   }
 
+  @Override
+  void entries(final FTBuilder fb) throws IOException {
+    for(int l = 0; l < tp.length - 1; ++l) {
+      int p = tp[l];
+      if(p == -1) continue;
+      int i = l + 1;
+      int r = -1;
+      do r = tp[i++]; while(r == -1);
+      for(; p < r; p += l + ENTRY) {
+        fb.add(inY.readBytes(p, l), vals(pointer(p, l), size(p, l), inZ));
+      }
+    }
+  }
+
   @Override
   public byte[] info() {
     final TokenBuilder tb = new TokenBuilder();
@@ -228,7 +240,8 @@ final class FTFuzzy extends FTIndex {
    * @param f fast evaluation
    * @return int[][] data
    */
-  private IndexIterator fuzzy(final byte[] tok, final int k, final boolean f) {
+  private FTIndexIterator fuzzy(final byte[] tok, final int k,
+      final boolean f) {
     FTIndexIterator it = FTIndexIterator.EMP;
     final int tl = tok.length;
     final int e = Math.min(tp.length, tl + k);
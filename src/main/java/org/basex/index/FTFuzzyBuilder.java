@@ -30,10 +30,12 @@ final class FTFuzzyBuilder extends FTBuilder {
   /**
    * Constructor.
    * @param d data reference
+   * @param rebuild adopt the options and stop words of the existing index
    * @throws IOException IOException
    */
-  protected FTFuzzyBuilder(final Data d) throws IOException {
-    super(d);
+  protected FTFuzzyBuilder(final Data d, final boolean rebuild)
+      throws IOException {
+    super(d, rebuild);
   }
 
   @Override
@@ -70,9 +72,9 @@ final class FTFuzzyBuilder extends FTBuilder {
     if(!merge) return;
 
     // merges temporary index files
-    final DataOutput outX = new DataOutput(data.meta.file(DATAFTX + 'x'));
-    final DataOutput outY = new DataOutput(data.meta.file(DATAFTX + 'y'));
-    final DataOutput outZ = new DataOutput(data.meta.file(DATAFTX + 'z'));
+    final DataOutput outX = new DataOutput(data.meta.file(pref + 'x'));
+    final DataOutput outY = new DataOutput(data.meta.file(pref + 'y'));
+    final DataOutput outZ = new DataOutput(data.meta.file(pref + 'z'));
     final IntList ind = new IntList();
 
     // open all temporary sorted lists
@@ -140,7 +142,7 @@ final class FTFuzzyBuilder extends FTBuilder {
 
   @Override
   protected void writeIndex(final int cs) throws IOException {
-    final String s = DATAFTX + (merge ? cs : "");
+    final String s = merge ? DATAFTX + cs : pref;
     final DataOutput outX = new DataOutput(data.meta.file(s + 'x'));
     final DataOutput outY = new DataOutput(data.meta.file(s + 'y'));
     final DataOutput outZ = new DataOutput(data.meta.file(s + 'z'));
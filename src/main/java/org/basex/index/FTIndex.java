@@ -1,14 +1,23 @@
 package org.basex.index;
 
+import static org.basex.data.DataText.*;
+import static org.basex.util.ft.FTFlag.*;
+import java.io.File;
 import java.io.IOException;
 import org.basex.data.Data;
 import org.basex.data.FTMatches;
 import org.basex.io.DataAccess;
+import org.basex.io.RedoLog;
 import org.basex.util.IntList;
+import org.basex.util.ft.FTLexer;
 
 /**
  * This abstract class defines methods for the available full-text indexes.
  *
+ * Indexes without scores can be updated: the tokens of updated text nodes
+ * are kept in main memory, and the index entries are merged with them when
+ * the index is accessed.
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
@@ -23,6 +32,8 @@ public abstract class FTIndex implements Index {
   final double max;
   /** Minimum scoring value. */
   final double min;
+  /** Updates ({@code null} if the index cannot be updated). */
+  private final FTUpdates upd;
 
   /**
    * Returns a new full-text index instance.
@@ -39,14 +50,57 @@ public abstract class FTIndex implements Index {
   /**
    * Constructor.
    * @param d data reference
+   * @throws IOException IO Exception
    */
-  FTIndex(final Data d) {
+  FTIndex(final Data d) throws IOException {
     data = d;
     scm = d.meta.scoring;
     max = Math.log(data.meta.maxscore + 1);
     min = Math.log(data.meta.minscore - 1);
+    upd = scm == 0 && d.meta.file(DATAFTX + 'i').exists() ?
+        new FTUpdates(d, DATAFTX) : null;
+  }
+
+  @Override
+  public final synchronized int nrIDs(final IndexToken ind) {
+    final FTLexer lex = (FTLexer) ind;
+    final int s = size(lex);
+    return upd == null || lex.ftOpt().is(FZ) || lex.ftOpt().is(WC) ? s :
+      s + upd.size(lex.get());
+  }
+
+  @Override
+  public final synchronized IndexIterator ids(final IndexToken ind) {
+    final FTLexer lex = (FTLexer) ind;
+    final FTIndexIterator it = iter(lex);
+    if(upd == null || !upd.updated()) return it;
+    final IntList vals = upd.vals(lex);
+    return vals.size() == 0 ? it :
+      FTIndexIterator.union(it, iter(vals, vals.size() >> 1, false));
   }
 
+  /**
+   * Returns the number of index entries for the specified token.
+   * @param lex query token
+   * @return number of entries
+   */
+  abstract int size(final FTLexer lex);
+
+  /**
+   * Returns an iterator for the index entries of the specified token.
+   * @param lex query token
+   * @return iterator
+   */
+  abstract FTIndexIterator iter(final FTLexer lex);
+
+  /**
+   * Passes all tokens of the index and the current pre and pos values of
+   * their entries to the specified builder.
+   * @param fb index builder
+   * @throws IOException I/O exception
+   */
+  abstract void entries(final FTBuilder fb) throws IOException;
+
   /**
    * Returns an iterator for an index entry.
    * @param p pointer on data
@@ -57,6 +111,19 @@ public abstract class FTIndex implements Index {
    */
   final synchronized FTIndexIterator iter(final long p, final int s,
       final DataAccess da, final boolean fast) {
+    return iter(vals(p, s, da), s, fast);
+  }
+
+  /**
+   * Returns the values of an index entry. If the index has been updated,
+   * the pre values are mapped to the current pre values.
+   * @param p pointer on data
+   * @param s number of pre/pos entries
+   * @param da data source
+   * @return score, pre and pos values
+   */
+  final synchronized IntList vals(final long p, final int s,
+      final DataAccess da) {
 
     // cache results
     da.cursor(p);
@@ -76,7 +143,18 @@ public abstract class FTIndex implements Index {
         vals.add(da.readNum());
       }
     }
+    return upd == null || !upd.updated() ? vals : upd.map(vals);
+  }
 
+  /**
+   * Returns an iterator for the specified index entries.
+   * @param vals score, pre and pos values
+   * @param s number of pre/pos entries
+   * @param fast fast evaluation
+   * @return iterator
+   */
+  private FTIndexIterator iter(final IntList vals, final int s,
+      final boolean fast) {
     return new FTIndexIterator() {
       final FTMatches all = new FTMatches(toknum);
       int c, pre, lpre;
@@ -128,4 +206,95 @@ public abstract class FTIndex implements Index {
       }
     };
   }
+
+  // UPDATES ==================================================================
+
+  /**
+   * Checks if the index can be updated. Indexes that store scores or have
+   * been created by older versions cannot be updated.
+   * @return result of check
+   */
+  public final boolean updatable() {
+    return upd != null;
+  }
+
+  /**
+   * Registers a shift of pre values.
+   */
+  public final synchronized void shift() {
+    upd.shift();
+  }
+
+  /**
+   * Indexes the tokens of an inserted or updated text node.
+   * @param text text
+   * @param id node id
+   */
+  public final synchronized void add(final byte[] text, final int id) {
+    upd.add(text, id);
+  }
+
+  /**
+   * Removes the tokens of an updated text node.
+   * @param id node id
+   */
+  public final synchronized void remove(final int id) {
+    upd.remove(id);
+  }
+
+  /**
+   * Writes the updates to disk.
+   * @throws IOException I/O exception
+   */
+  public final synchronized void write() throws IOException {
+    if(upd != null) upd.write();
+  }
+
+  /**
+   * Adds the updates to the specified log record.
+   * @param rec log record
+   * @throws IOException I/O exception
+   */
+  public final synchronized void log(final RedoLog.Record rec)
+      throws IOException {
+    if(upd != null) upd.log(rec);
+  }
+
+  /**
+   * Returns the updates of the index.
+   * @return updates
+   */
+  final FTUpdates updates() {
+    return upd;
+  }
+
+  /**
+   * Merges the updates with the index files if the number of updated nodes
+   * exceeds the specified limit. The entries of the index files and the
+   * tokens of the updated nodes are written to temporary files, so the
+   * texts of the database need not be tokenized again. The existing index
+   * is closed and replaced.
+   * @param limit maximum number of updated nodes
+   * @return new index, or {@code null}
+   * @throws IOException I/O exception
+   */
+  public final synchronized FTIndex merge(final int limit)
+      throws IOException {
+    if(upd == null || upd.size() <= limit) return null;
+
+    final String tmp = DATAFTX + '_';
+    FTBuilder.get(data, true).merge(this, tmp);
+
+    // replace the index files
+    close();
+    for(final char c : new char[] { 'a', 'b', 'c', 'x', 'y', 'z', 'i' }) {
+      final File t = data.meta.file(tmp + c);
+      if(!t.exists()) continue;
+      final File f = data.meta.file(DATAFTX + c);
+      if(f.exists() && !f.delete() || !t.renameTo(f))
+        throw new IOException("Could not replace " + f);
+    }
+    data.meta.file(DATAFTX + 'u').delete();
+    return get(data, data.meta.wildcards);
+  }
 }
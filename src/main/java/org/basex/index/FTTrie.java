@@ -69,9 +69,8 @@ final class FTTrie extends FTIndex {
   }
 
   @Override
-  public synchronized int nrIDs(final IndexToken ind) {
+  int size(final FTLexer lex) {
     // skip result count for queries which stretch over multiple index entries
-    final FTLexer lex = (FTLexer) ind;
     if(lex.ftOpt().is(FZ) || lex.ftOpt().is(WC))
       return Math.max(1, data.meta.size / 10);
 
@@ -91,8 +90,7 @@ final class FTTrie extends FTIndex {
   }
 
   @Override
-  public synchronized IndexIterator ids(final IndexToken ind) {
-    final FTLexer lex = (FTLexer) ind;
+  FTIndexIterator iter(final FTLexer lex) {
     final byte[] token = lex.get();
 
     // support fuzzy search
@@ -206,6 +204,33 @@ final class FTTrie extends FTIndex {
     for(int i = ne[0] + 1; i < ne.length - 1; i += 2) addOccs(nt, ne[i], st);
   }
 
+  @Override
+  void entries(final FTBuilder fb) throws IOException {
+    entries(EMPTY, 0, fb);
+  }
+
+  /**
+   * Called by {@link #entries(FTBuilder)}. Passes the tokens of the
+   * specified node and its descendants to the builder.
+   * @param token current token
+   * @param id on node array (in main memory)
+   * @param fb index builder
+   * @throws IOException I/O exception
+   */
+  private void entries(final byte[] token, final int id, final FTBuilder fb)
+      throws IOException {
+    final int[] ne = entry(id);
+    final long p = currID;
+    byte[] nt = token;
+    if(id > 0) {
+      nt = Arrays.copyOf(token, token.length + ne[0]);
+      for(int i = 0; i < ne[0]; ++i) nt[token.length + i] = (byte) ne[i + 1];
+      final int size = ne[ne.length - 1];
+      if(size > 0) fb.add(nt, vals(p, size, inB));
+    }
+    for(int i = ne[0] + 1; i < ne.length - 1; i += 2) entries(nt, ne[i], fb);
+  }
+
   /**
    * Reads a node entry from disk.
    * @param id on node array (in main memory)
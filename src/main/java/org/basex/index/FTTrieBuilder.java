@@ -40,10 +40,12 @@ final class FTTrieBuilder extends FTBuilder {
   /**
    * Constructor.
    * @param d data reference
+   * @param rebuild adopt the options and stop words of the existing index
    * @throws IOException IOException
    */
-  protected FTTrieBuilder(final Data d) throws IOException {
-    super(d);
+  protected FTTrieBuilder(final Data d, final boolean rebuild)
+      throws IOException {
+    super(d, rebuild);
   }
 
   @Override
@@ -77,8 +79,8 @@ final class FTTrieBuilder extends FTBuilder {
 
     // merges temporary index files
     writeIndex(csize++);
-    final DataOutput outB = new DataOutput(data.meta.file(DATAFTX + 'b'));
-    final DataOutput outT = new DataOutput(data.meta.file(DATAFTX + 't'));
+    final DataOutput outB = new DataOutput(data.meta.file(pref + 'b'));
+    final DataOutput outT = new DataOutput(data.meta.file(pref + 't'));
     final IntList ind = new IntList();
 
     // open all temporary sorted lists
@@ -132,7 +134,7 @@ final class FTTrieBuilder extends FTBuilder {
     if(scm == 0) hash.init();
     else hash.initIter();
 
-    final DataOutput outB = new DataOutput(data.meta.file(DATAFTX + 'b'));
+    final DataOutput outB = new DataOutput(data.meta.file(pref + 'b'));
     while(hash.more()) {
       final int p = hash.next();
       final byte[] tok = hash.key();
@@ -148,8 +150,8 @@ final class FTTrieBuilder extends FTBuilder {
     final TokenList tokens = index.tokens;
     final IntArrayList next = index.next;
 
-    final DataOutput outA = new DataOutput(data.meta.file(DATAFTX + 'a'));
-    final DataOutput outC = new DataOutput(data.meta.file(DATAFTX + 'c'));
+    final DataOutput outA = new DataOutput(data.meta.file(pref + 'a'));
+    final DataOutput outC = new DataOutput(data.meta.file(pref + 'c'));
 
     // write root node (token length and bytes)
     outA.write1(1);
@@ -185,9 +187,9 @@ final class FTTrieBuilder extends FTBuilder {
    * @throws IOException I/O exception
    */
   private void writeSplitTrie(final IntList roots) throws IOException {
-    final DataOutput outA = new DataOutput(data.meta.file(DATAFTX + 'a'));
-    final DataOutput outC = new DataOutput(data.meta.file(DATAFTX + 'c'));
-    final DataAccess outT = new DataAccess(data.meta.file(DATAFTX + 't'));
+    final DataOutput outA = new DataOutput(data.meta.file(pref + 'a'));
+    final DataOutput outC = new DataOutput(data.meta.file(pref + 'c'));
+    final DataAccess outT = new DataAccess(data.meta.file(pref + 't'));
     final int[] root = new int[roots.size()];
     int rp = 0;
 
@@ -234,14 +236,14 @@ final class FTTrieBuilder extends FTBuilder {
 
     // finally update root node
     final RandomAccessFile tmp =
-      new RandomAccessFile(data.meta.file(DATAFTX + 'a'), "rw");
+      new RandomAccessFile(data.meta.file(pref + 'a'), "rw");
     tmp.seek(2);
     for(final int r : root) {
       tmp.writeInt(r);
       tmp.seek(tmp.getFilePointer() + 1);
     }
     tmp.close();
-    DropDB.drop(data.meta.name, DATAFTX + 't' + IO.BASEXSUFFIX,
+    DropDB.drop(data.meta.name, pref + 't' + IO.BASEXSUFFIX,
         data.meta.prop);
   }
 
@@ -314,7 +316,7 @@ final class FTTrieBuilder extends FTBuilder {
    */
   @Override
   protected void writeIndex(final int cs) throws IOException {
-    final String f = DATAFTX + (merge ? cs : "");
+    final String f = merge ? DATAFTX + cs : pref;
     final DataOutput outA = new DataOutput(data.meta.file(f + 'a'));
     final DataOutput outB = new DataOutput(data.meta.file(f + 'b'));
 
@@ -0,0 +1,361 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+import static org.basex.util.ft.FTFlag.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.basex.core.Prop;
+import org.basex.data.Data;
+import org.basex.io.ArrayOutput;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
+import org.basex.io.RedoLog;
+import org.basex.util.IntList;
+import org.basex.util.IntMap;
+import org.basex.util.Levenshtein;
+import org.basex.util.TokenObjMap;
+import org.basex.util.ft.FTLexer;
+import org.basex.util.ft.FTOpt;
+import org.basex.util.ft.StopWords;
+
+/**
+ * This class contains the updates of a full-text index. The texts of
+ * updated nodes are tokenized and kept in main memory, and the entries
+ * of the index files are mapped to the current pre values via the node ids.
+ *
+ * The updates are stored in file <b>u</b>:
+ * {@code [n, id1, b1, t1, ...]}: number of updated nodes, followed by the
+ * node ids, a flag for indexed nodes and their texts.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class FTUpdates {
+  /** Data reference. */
+  private final Data data;
+  /** File prefix. */
+  private final String pref;
+  /** Lexer for the texts of updated nodes. */
+  private final FTLexer lex;
+  /** First pre values of all id runs at build time. */
+  private final int[] bpres;
+  /** First ids of all id runs at build time. */
+  private final int[] bids;
+  /** Ids of updated nodes and their current texts
+   * ({@code null}: the node is not indexed anymore). */
+  private final IntMap<byte[]> nodes = new IntMap<byte[]>();
+  /** Ids and token positions of updated nodes, grouped by tokens. */
+  private final TokenObjMap<IntList> tokens = new TokenObjMap<IntList>();
+  /** Levenshtein reference. */
+  private final Levenshtein ls = new Levenshtein();
+  /** Flag for updates since the index was built. */
+  private boolean updated;
+  /** Flag for updates that have not been written to disk. */
+  private boolean dirty;
+  /** Flag for updates that have not been logged. */
+  private boolean unlogged;
+
+  /**
+   * Constructor, reading the id runs and the updates that have not been
+   * merged yet.
+   * @param d data reference
+   * @param p file prefix
+   * @throws IOException I/O exception
+   */
+  FTUpdates(final Data d, final String p) throws IOException {
+    data = d;
+    pref = p;
+    lex = new FTLexer(FTBuilder.options(d));
+
+    final DataInput in = new DataInput(d.meta.file(p + 'i'));
+    try {
+      bpres = in.readNums();
+      bids = in.readNums();
+    } finally {
+      in.close();
+    }
+
+    final File uf = d.meta.file(p + 'u');
+    if(!uf.exists()) return;
+    final DataInput ui = new DataInput(uf);
+    try {
+      for(int n = ui.readNum(); n > 0; --n) {
+        final int id = ui.readNum();
+        if(ui.readBool()) add(ui.readBytes(), id);
+        else remove(id);
+      }
+    } finally {
+      ui.close();
+    }
+    updated = true;
+    dirty = false;
+    unlogged = false;
+  }
+
+  /**
+   * Checks if the index has been updated since it was built.
+   * @return result of check
+   */
+  boolean updated() {
+    return updated;
+  }
+
+  /**
+   * Returns the number of updated nodes.
+   * @return number of nodes
+   */
+  int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Registers a shift of pre values.
+   */
+  void shift() {
+    updated = true;
+    dirty = true;
+    unlogged = true;
+  }
+
+  /**
+   * Indexes the tokens of an inserted or updated text node.
+   * @param text text
+   * @param id node id
+   */
+  void add(final byte[] text, final int id) {
+    remove(id);
+    nodes.add(id, text);
+    int pos = -1;
+    final StopWords sw = lex.ftOpt().sw;
+    lex.init(text);
+    while(lex.hasNext()) {
+      final byte[] tok = lex.nextToken();
+      ++pos;
+      if(tok.length > MAXLEN || sw.size() != 0 && sw.id(tok) != 0) continue;
+      IntList il = tokens.get(tok);
+      if(il == null) {
+        il = new IntList(2);
+        tokens.add(tok, il);
+      }
+      il.add(id);
+      il.add(pos);
+    }
+  }
+
+  /**
+   * Removes the tokens of an updated text node. The node is marked as
+   * removed, so that the entries of the index files will be skipped.
+   * @param id node id
+   */
+  void remove(final int id) {
+    final byte[] text = nodes.get(id);
+    if(text != null) {
+      lex.init(text);
+      while(lex.hasNext()) {
+        final byte[] tok = lex.nextToken();
+        final IntList il = tokens.get(tok);
+        if(il == null) continue;
+        final IntList nl = new IntList(il.size());
+        for(int i = 0; i < il.size(); i += 2) {
+          if(il.get(i) == id) continue;
+          nl.add(il.get(i));
+          nl.add(il.get(i + 1));
+        }
+        tokens.add(tok, nl);
+      }
+    }
+    nodes.add(id, null);
+    shift();
+  }
+
+  /**
+   * Maps the pre values of the specified index entries to the current pre
+   * values. Entries of updated and deleted nodes are skipped.
+   * @param vals pre and pos values at build time
+   * @return current pre and pos values
+   */
+  IntList map(final IntList vals) {
+    final IntList il = new IntList(vals.size());
+    for(int v = 0; v < vals.size(); v += 2) {
+      final int id = id(vals.get(v));
+      if(nodes.id(id) != 0) continue;
+      final int pre = data.pre(id);
+      if(pre == -1) continue;
+      il.add(pre);
+      il.add(vals.get(v + 1));
+    }
+    return il;
+  }
+
+  /**
+   * Returns the current pre and pos values of the updated nodes that match
+   * the specified query token, sorted by pre values.
+   * @param ind query token
+   * @return pre and pos values
+   */
+  IntList vals(final FTLexer ind) {
+    final byte[] tok = ind.get();
+    final FTOpt opt = ind.ftOpt();
+    if(!opt.is(FZ) && (!opt.is(WC) || indexOf(tok, '.') == -1))
+      return vals(tok);
+
+    // scan all tokens for fuzzy and wildcard queries
+    final Pattern pt = opt.is(FZ) ? null : pattern(tok);
+    final int err = data.meta.prop.num(Prop.LSERROR);
+    long[] vals = new long[0];
+    int vs = 0;
+    for(int t = 1; t <= tokens.size(); ++t) {
+      final byte[] key = tokens.key(t);
+      if(pt == null ? ls.similar(key, tok, err) :
+        pt.matcher(string(key)).matches()) {
+        vals = add(tokens.get(key), vals, vs);
+        vs += tokens.get(key).size() >> 1;
+      }
+    }
+    return sort(vals, vs);
+  }
+
+  /**
+   * Returns the current pre and pos values of the updated nodes that contain
+   * the specified token, sorted by pre values.
+   * @param tok token
+   * @return pre and pos values
+   */
+  IntList vals(final byte[] tok) {
+    final IntList il = tokens.get(tok);
+    return il == null ? new IntList() :
+      sort(add(il, new long[0], 0), il.size() >> 1);
+  }
+
+  /**
+   * Returns the tokens of the updated nodes.
+   * @return tokens
+   */
+  byte[][] tokens() {
+    return tokens.keys();
+  }
+
+  /**
+   * Sorts the specified pre and pos values and skips deleted nodes.
+   * @param vals array with pre and pos values
+   * @param vs number of array entries
+   * @return pre and pos values
+   */
+  private static IntList sort(final long[] vals, final int vs) {
+    Arrays.sort(vals, 0, vs);
+    final IntList il = new IntList(vs << 1);
+    for(int v = 0; v < vs; ++v) {
+      final long l = vals[v];
+      if(l < 0) continue;
+      il.add((int) (l >>> 32));
+      il.add((int) l);
+    }
+    return il;
+  }
+
+  /**
+   * Returns the number of index entries of the updated nodes for the
+   * specified token.
+   * @param tok token
+   * @return number of entries
+   */
+  int size(final byte[] tok) {
+    final IntList il = tokens.get(tok);
+    return il == null ? 0 : il.size() >> 1;
+  }
+
+  /**
+   * Adds the current pre and pos values of the specified id and pos values
+   * to an array.
+   * @param il id and pos values
+   * @param vals array
+   * @param vs number of array entries
+   * @return array
+   */
+  private long[] add(final IntList il, final long[] vals, final int vs) {
+    final int s = il.size() >> 1;
+    final long[] v = vs + s > vals.length ?
+        Arrays.copyOf(vals, Math.max(vs + s, vals.length << 1)) : vals;
+    for(int i = 0; i < s; ++i) {
+      // deleted nodes are marked with a negative value and skipped
+      final int pre = data.pre(il.get(i << 1));
+      v[vs + i] = pre == -1 ? -1 : (long) pre << 32 | il.get((i << 1) + 1);
+    }
+    return v;
+  }
+
+  /**
+   * Returns a pattern for the specified wildcard token, or a pattern that
+   * matches no tokens if the token is invalid.
+   * @param tok wildcard token
+   * @return pattern
+   */
+  private static Pattern pattern(final byte[] tok) {
+    try {
+      return Pattern.compile(string(tok));
+    } catch(final PatternSyntaxException ex) {
+      return Pattern.compile("\\b\\B");
+    }
+  }
+
+  /**
+   * Returns the id of a node that has been indexed with the specified pre
+   * value.
+   * @param pre pre value at build time
+   * @return id
+   */
+  private int id(final int pre) {
+    int l = 0, h = bpres.length - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      if(bpres[m] <= pre) l = m + 1;
+      else h = m - 1;
+    }
+    return bids[h] + pre - bpres[h];
+  }
+
+  /**
+   * Writes the updates to disk.
+   * @throws IOException I/O exception
+   */
+  void write() throws IOException {
+    if(!dirty) return;
+    final DataOutput out = new DataOutput(data.meta.file(pref + 'u'));
+    write(out);
+    out.close();
+    dirty = false;
+  }
+
+  /**
+   * Adds the updates to the specified log record.
+   * @param rec log record
+   * @throws IOException I/O exception
+   */
+  void log(final RedoLog.Record rec) throws IOException {
+    if(!unlogged) return;
+    final ArrayOutput ao = new ArrayOutput();
+    write(new DataOutput(ao));
+    rec.file(pref + 'u', ao.toArray());
+    unlogged = false;
+  }
+
+  /**
+   * Writes the updates to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    final int ns = nodes.size();
+    out.writeNum(ns);
+    for(int n = 1; n <= ns; ++n) {
+      final int id = nodes.key(n);
+      final byte[] text = nodes.get(id);
+      out.writeNum(id);
+      out.writeBool(text != null);
+      if(text != null) out.writeToken(text);
+    }
+  }
+}
@@ -2,7 +2,12 @@ package org.basex.index;
 
 import static org.basex.core.Text.*;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.basex.core.Progress;
+import org.basex.core.Prop;
 import org.basex.data.Data;
 import org.basex.util.Performance;
 import org.basex.util.Util;
@@ -23,6 +28,8 @@ public abstract class IndexBuilder extends Progress {
   protected int pre;
   /** Merge flag. */
   protected boolean merge;
+  /** Number of threads. */
+  protected final int threads;
 
   /** Runtime for memory consumption. */
   private final Runtime rt = Runtime.getRuntime();
@@ -53,7 +60,7 @@ public abstract class IndexBuilder extends Progress {
    * @throws IOException I/O exception
    */
   protected final boolean memFull() throws IOException {
-    final boolean full = rt.totalMemory() - rt.freeMemory() >= maxMem;
+    final boolean full = memLow();
     if(full) {
       if(cc >= 0) throw new IOException(PROCMEM + PROCMEMCREATE);
       if(Util.debug) Util.err("!");
@@ -65,6 +72,25 @@ public abstract class IndexBuilder extends Progress {
     return full;
   }
 
+  /**
+   * Checks if the memory limit for index building has been reached.
+   * In contrast to {@link #memFull}, this method can be called by several
+   * threads.
+   * @return result of check
+   */
+  protected final boolean memLow() {
+    return rt.totalMemory() - rt.freeMemory() >= maxMem;
+  }
+
+  /**
+   * Adds the specified number of indexed nodes to the progress.
+   * This method is called by worker threads.
+   * @param n number of nodes
+   */
+  protected final synchronized void progress(final int n) {
+    pre += n;
+  }
+
   /**
    * Constructor.
    * @param d reference
@@ -72,10 +98,56 @@ public abstract class IndexBuilder extends Progress {
   protected IndexBuilder(final Data d) {
     data = d;
     size = data.meta.size;
+    threads = Math.max(1, Math.min(threads(d.meta.prop), size >> 12));
     if(rt.totalMemory() - rt.freeMemory() >= rt.maxMemory() >> 1)
       Performance.gc(2);
   }
 
+  /**
+   * Returns the number of threads for building indexes.
+   * @param prop properties
+   * @return number of threads
+   */
+  public static int threads(final Prop prop) {
+    final int t = prop.num(Prop.INDEXTHREADS);
+    return t > 0 ? t : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Cancels the queued tasks of the specified executor and waits until
+   * the running tasks have finished.
+   * @param es executor service
+   */
+  static void finish(final ExecutorService es) {
+    es.shutdownNow();
+    try {
+      es.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Waits for the result of a task and passes on its exceptions.
+   * @param <T> result type
+   * @param task task
+   * @return result
+   * @throws IOException I/O exception
+   */
+  public static <T> T result(final Future<T> task) throws IOException {
+    try {
+      return task.get();
+    } catch(final InterruptedException ex) {
+      throw new IOException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw new IOException(th);
+    }
+  }
+
   @Override
   public final String tit() {
     return PROGINDEX;
@@ -13,8 +13,12 @@ public final class RangeToken implements IndexToken {
   public final IndexType ind;
   /** Minimum value. */
   public final double min;
+  /** Include minimum value. */
+  public final boolean mni;
   /** Maximum value. */
   public final double max;
+  /** Include maximum value. */
+  public final boolean mxi;
 
   /**
    * Constructor.
@@ -23,9 +27,24 @@ public final class RangeToken implements IndexToken {
    * @param mx maximum value
    */
   public RangeToken(final boolean i, final double mn, final double mx) {
+    this(i, mn, true, mx, true);
+  }
+
+  /**
+   * Constructor.
+   * @param i index type
+   * @param mn minimum value
+   * @param in include minimum value
+   * @param mx maximum value
+   * @param ix include maximum value
+   */
+  public RangeToken(final boolean i, final double mn, final boolean in,
+      final double mx, final boolean ix) {
     ind = i ? IndexType.TEXT : IndexType.ATTRIBUTE;
     min = mn;
+    mni = in;
     max = mx;
+    mxi = ix;
   }
 
   @Override
@@ -4,6 +4,11 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.basex.core.cmd.DropDB;
 import org.basex.data.Data;
 import org.basex.io.DataAccess;
@@ -27,12 +32,23 @@ import org.basex.util.Util;
  *   [size0, pre1, pre2, ...]. The number of index keys is stored in the first 4
  *   bytes of the file.</li>
  * <li> {@code DATATXT/ATV + 'r'}: contains 5-byte references to the id lists
- *   for all keys. To save space, the keys itself are not stored in the index
- *   structure. Instead, they can be found by following the id references to
- *   the main table.
- * </li>
+ *   for all keys.</li>
+ * <li> {@code DATATXT/ATV + 'k'}: contains the sorted keys in front-coded
+ *   blocks, followed by a block directory (see {@link ValueKeys}). Older
+ *   indexes do not contain this file; their keys are found by following the
+ *   id references to the main table.</li>
+ * <li> {@code DATATXT/ATV + 'n'}: contains all keys that can be converted to
+ *   numbers, sorted by their numeric value (see {@link ValueNumbers}).</li>
+ * <li> {@code DATATXT/ATV + 'i'}: contains the runs of consecutive pre values
+ *   and node ids at build time, which allow updates of the index.</li>
+ * <li> {@code DATATXT/ATV + 'u'}: contains the keys of updated nodes that have
+ *   not been merged with the index yet (see {@link DiskValues}).</li>
  * </ul>
  *
+ * If several threads are used, the pre values are partitioned into chunks.
+ * The chunks are indexed in parallel and written to disk as sorted runs,
+ * which are finally merged.
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
@@ -65,35 +81,45 @@ public final class ValueBuilder extends IndexBuilder {
     final String f = text ? DATATXT : DATAATV;
     final int k = text ? Data.TEXT : Data.ATTR;
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(memFull()) {
-          write(f + csize++, false);
-          index = new ValueTree();
-          Performance.gc(2);
+    IntList runs = null;
+    if(threads > 1) {
+      runs = index(f, k);
+    } else {
+      for(pre = 0; pre < size; ++pre) {
+        if((pre & 0x0FFF) == 0) {
+          check();
+          // check if main memory is exhausted
+          if(memFull()) {
+            write(f + csize++, index, false);
+            index = new ValueTree();
+            Performance.gc(2);
+          }
         }
+        // skip too long tokens
+        if(data.kind(pre) == k && data.textLen(pre, text) <= MAXLEN)
+          index.index(data.text(pre, text), pre);
       }
-      // skip too long tokens
-      if(data.kind(pre) == k && data.textLen(pre, text) <= MAXLEN)
-        index.index(data.text(pre, text), pre);
     }
 
-    if(csize == 0) {
-      write(f, true);
+    if(runs == null && csize != 0) {
+      write(f + csize, index, false);
+      runs = new IntList();
+      for(int r = 0; r <= csize; ++r) runs.add(r);
+    }
+
+    if(runs == null || runs.size() == 0) {
+      write(f, index, true);
     } else {
-      write(f + csize, false);
       index = null;
       Performance.gc(1);
-      ++csize;
 
-      final int sz = merge();
+      final int sz = merge(runs);
       final DataAccess outL = new DataAccess(data.meta.file(f + 'l'));
       outL.writeInt(sz);
       outL.close();
     }
 
+    DiskValues.ids(data, data.meta.file(f + 'i'));
     if(text) data.meta.textindex = true;
     else data.meta.attrindex = true;
 
@@ -101,19 +127,110 @@ public final class ValueBuilder extends IndexBuilder {
     return new DiskValues(data, text);
   }
 
+  /**
+   * Indexes the database in parallel.
+   * @param f file prefix
+   * @param k node kind
+   * @return ids of the written runs, sorted by their pre values
+   * @throws IOException I/O exception
+   */
+  private IntList index(final String f, final int k) throws IOException {
+    merge = true;
+    final ExecutorService es = Executors.newFixedThreadPool(threads);
+    try {
+      final ArrayList<Future<IntList>> tasks =
+        new ArrayList<Future<IntList>>();
+      final int cs = (size + threads - 1) / threads;
+      for(int c = 0; c < size; c += cs) {
+        final int s = c, e = Math.min(size, c + cs);
+        tasks.add(es.submit(new Callable<IntList>() {
+          @Override
+          public IntList call() throws IOException {
+            return index(f, k, s, e);
+          }
+        }));
+      }
+      final IntList runs = new IntList();
+      for(final Future<IntList> task : tasks) {
+        final IntList il = result(task);
+        for(int r = 0; r < il.size(); ++r) runs.add(il.get(r));
+      }
+      return runs;
+    } finally {
+      finish(es);
+    }
+  }
+
+  /**
+   * Indexes the specified chunk of the database. This method is called by
+   * worker threads.
+   * @param f file prefix
+   * @param k node kind
+   * @param s first pre value
+   * @param e pre value after the last pre value
+   * @return ids of the written runs
+   * @throws IOException I/O exception
+   */
+  private IntList index(final String f, final int k, final int s,
+      final int e) throws IOException {
+
+    final IntList runs = new IntList();
+    ValueTree tree = new ValueTree();
+    for(int p = s; p < e; ++p) {
+      if((p & 0x0FFF) == 0 && p != s) {
+        checkStop();
+        progress(0x1000);
+        // check if main memory is exhausted
+        if(memLow() && tree.size() != 0) {
+          runs.add(write(f, tree));
+          tree = new ValueTree();
+          Performance.gc(2);
+        }
+      }
+      // skip too long tokens
+      if(data.kind(p) == k && data.textLen(p, text) <= MAXLEN)
+        tree.index(data.text(p, text), p);
+    }
+    if(tree.size() != 0) runs.add(write(f, tree));
+    return runs;
+  }
+
+  /**
+   * Writes a value tree to disk as a new run.
+   * @param f file prefix
+   * @param tree value tree
+   * @return run id
+   * @throws IOException I/O exception
+   */
+  private int write(final String f, final ValueTree tree) throws IOException {
+    final int r;
+    synchronized(this) {
+      r = csize++;
+    }
+    write(f + r, tree, false);
+    return r;
+  }
+
   /**
    * Merges cached index files.
+   * @param runs ids of the cached index files, sorted by their pre values
    * @return returns number of indexed tokens
    * @throws IOException I/O exception
    */
-  private int merge() throws IOException {
+  private int merge(final IntList runs) throws IOException {
     final String f = text ? DATATXT : DATAATV;
     final DataOutput outL = new DataOutput(data.meta.file(f + 'l'));
     final DataOutput outR = new DataOutput(data.meta.file(f + 'r'));
+    final ValueKeys.Writer outK = new ValueKeys.Writer(data.meta.file(f + 'k'));
+    final ValueNumbers.Writer outN =
+      new ValueNumbers.Writer(data.meta.file(f + 'n'));
     outL.write4(0);
 
-    final ValueMerge[] vm = new ValueMerge[csize];
-    for(int i = 0; i < csize; ++i) vm[i] = new ValueMerge(data, text, i);
+    final int rs = runs.size();
+    final ValueMerge[] vm = new ValueMerge[rs];
+    for(int i = 0; i < rs; ++i) {
+      vm[i] = new ValueMerge(data, text, runs.get(i));
+    }
 
     int min;
     int sz = 0;
@@ -125,7 +242,7 @@ public final class ValueBuilder extends IndexBuilder {
       outR.write5(outL.size());
       min = 0;
       ml.reset();
-      for(int i = 0; i < csize; ++i) {
+      for(int i = 0; i < rs; ++i) {
         if(min == i || vm[i].pre.length == 0) continue;
         final int d = diff(vm[min].token, vm[i].token);
         if(d > 0 || vm[min].pre.length == 0) {
@@ -137,6 +254,8 @@ public final class ValueBuilder extends IndexBuilder {
         }
       }
 
+      outK.add(vm[min].token);
+      outN.add(vm[min].token);
       final int ms = ml.size();
       if(ms == 0) {
         write(outL, vm[min].pre);
@@ -174,6 +293,8 @@ public final class ValueBuilder extends IndexBuilder {
         write(outL, tmp);
       }
     }
+    outK.close();
+    outN.close();
     outR.close();
     outL.close();
     return sz;
@@ -207,26 +328,34 @@ public final class ValueBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current value tree to disk.
+   * Writes a value tree to disk.
    * @param name name
+   * @param tree value tree
    * @param all writes the complete tree
    * @throws IOException I/O exception
    */
-  private void write(final String name, final boolean all) throws IOException {
+  private void write(final String name, final ValueTree tree,
+      final boolean all) throws IOException {
     // write positions and references
     final DataOutput outL = new DataOutput(data.meta.file(name + 'l'));
     final DataOutput outR = new DataOutput(data.meta.file(name + 'r'));
-    outL.write4(index.size());
+    final ValueKeys.Writer outK = all ?
+        new ValueKeys.Writer(data.meta.file(name + 'k')) : null;
+    final ValueNumbers.Writer outN = all ?
+        new ValueNumbers.Writer(data.meta.file(name + 'n')) : null;
+    outL.write4(tree.size());
 
-    index.init();
-    while(index.more()) {
+    tree.init();
+    while(tree.more()) {
       outR.write5(outL.size());
-      final int i = index.next();
-      final byte[] pres = index.pres.get(i);
+      final int i = tree.next();
+      final byte[] pres = tree.pres.get(i);
       final int is = Num.size(pres);
 
       if(all) {
         // write final structure to disk
+        outK.add(tree.tokens.get(i));
+        outN.add(tree.tokens.get(i));
         int v = 0;
         for(int ip = 4; ip < is; ip += Num.len(pres, ip)) ++v;
         outL.writeNum(v);
@@ -250,12 +379,16 @@ public final class ValueBuilder extends IndexBuilder {
     }
     outL.close();
     outR.close();
+    if(all) {
+      outK.close();
+      outN.close();
+    }
 
     // temporarily write texts
     if(!all) {
       final DataOutput outT = new DataOutput(data.meta.file(name + 't'));
-      index.init();
-      while(index.more()) outT.writeToken(index.tokens.get(index.next()));
+      tree.init();
+      while(tree.more()) outT.writeToken(tree.tokens.get(tree.next()));
       outT.close();
     }
   }
@@ -0,0 +1,235 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+import java.io.File;
+import java.io.IOException;
+import org.basex.io.DataAccess;
+import org.basex.io.DataOutput;
+import org.basex.io.IO;
+import org.basex.util.IntList;
+import org.basex.util.Num;
+import org.basex.util.TokenList;
+
+/**
+ * This class provides access to the sorted keys of a value index.
+ *
+ * The keys are stored in blocks of {@link IO#BLOCKSIZE} bytes. The first key
+ * of a block is stored completely, and all other keys are front-coded:
+ * [length of common prefix, suffix]. The first key and the index of the first
+ * key of each block are stored in a directory at the end of the file, followed
+ * by the 5-byte offset of the directory. The directory is kept in main memory,
+ * so a key lookup reads a single block.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class ValueKeys {
+  /** Key file. */
+  private final DataAccess da;
+  /** First keys of all blocks. */
+  private final byte[][] firsts;
+  /** Indexes of the first keys of all blocks. */
+  private final int[] starts;
+  /** Number of keys. */
+  private final int size;
+  /** Currently decoded block ({@code -1}: no block). */
+  private int block = -1;
+  /** Keys of the currently decoded block. */
+  private byte[][] keys;
+
+  /**
+   * Constructor.
+   * @param file key file
+   * @throws IOException I/O exception
+   */
+  ValueKeys(final File file) throws IOException {
+    da = new DataAccess(file);
+    final long dir = da.read5(da.length() - 5);
+    size = da.readNum(dir);
+    final int bs = da.readNum();
+    firsts = new byte[bs][];
+    starts = new int[bs];
+    for(int b = 0; b < bs; ++b) {
+      firsts[b] = da.readToken();
+      starts[b] = da.readNum();
+    }
+  }
+
+  /**
+   * Returns the index of the specified key, or {@code -1}.
+   * @param key key to be found
+   * @return index
+   */
+  synchronized int index(final byte[] key) {
+    // find the last block with a first key that is smaller or equal
+    int l = 0, h = firsts.length - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      final int d = diff(firsts[m], key);
+      if(d == 0) return starts[m];
+      if(d < 0) l = m + 1;
+      else h = m - 1;
+    }
+    if(h < 0) return -1;
+
+    final byte[][] ks = keys(h);
+    l = 1;
+    h = ks.length - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      final int d = diff(ks[m], key);
+      if(d == 0) return starts[block] + m;
+      if(d < 0) l = m + 1;
+      else h = m - 1;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the key with the specified index.
+   * @param i index
+   * @return key
+   */
+  synchronized byte[] key(final int i) {
+    int b = block;
+    if(b == -1 || i < starts[b] || i - starts[b] >= keys.length) {
+      // find the block containing the key
+      int l = 0, h = starts.length - 1;
+      while(l <= h) {
+        final int m = l + h >>> 1;
+        if(starts[m] <= i) l = m + 1;
+        else h = m - 1;
+      }
+      b = h;
+    }
+    return keys(b)[i - starts[b]];
+  }
+
+  /**
+   * Returns the number of keys.
+   * @return number of keys
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the decoded keys of the specified block.
+   * @param b block
+   * @return keys
+   */
+  private byte[][] keys(final int b) {
+    if(b == block) return keys;
+
+    final int n = (b + 1 < starts.length ? starts[b + 1] : size) - starts[b];
+    final byte[] data = da.readBytes((long) b * IO.BLOCKSIZE, IO.BLOCKSIZE);
+    final byte[][] ks = new byte[n][];
+    byte[] last = EMPTY;
+    for(int k = 0, p = 0; k < n; ++k) {
+      int pre = 0;
+      if(k != 0) {
+        pre = Num.read(data, p);
+        p += Num.len(data, p);
+      }
+      final int l = Num.read(data, p);
+      p += Num.len(data, p);
+      final byte[] key = new byte[pre + l];
+      System.arraycopy(last, 0, key, 0, pre);
+      System.arraycopy(data, p, key, pre, l);
+      p += l;
+      ks[k] = key;
+      last = key;
+    }
+    keys = ks;
+    block = b;
+    return ks;
+  }
+
+  /**
+   * Closes the key file.
+   * @throws IOException I/O exception
+   */
+  synchronized void close() throws IOException {
+    da.close();
+  }
+
+  /**
+   * This class writes sorted keys to a key file.
+   */
+  static final class Writer {
+    /** Output stream. */
+    private final DataOutput out;
+    /** First keys of all blocks. */
+    private final TokenList firsts = new TokenList();
+    /** Indexes of the first keys of all blocks. */
+    private final IntList starts = new IntList();
+    /** Last key. */
+    private byte[] last;
+    /** Number of written keys. */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param file key file
+     * @throws IOException I/O exception
+     */
+    Writer(final File file) throws IOException {
+      out = new DataOutput(file);
+    }
+
+    /**
+     * Adds a key. Keys must be added in ascending order.
+     * @param key key
+     * @throws IOException I/O exception
+     */
+    void add(final byte[] key) throws IOException {
+      int pre = 0;
+      if(last != null) {
+        final int ml = Math.min(last.length, key.length);
+        while(pre < ml && last[pre] == key[pre]) ++pre;
+        final int l = key.length - pre;
+        final long rest = IO.BLOCKSIZE - out.size() % IO.BLOCKSIZE;
+        if(rest < Num.len(pre) + Num.len(l) + l) {
+          pad();
+          pre = 0;
+        }
+      }
+      if(out.size() % IO.BLOCKSIZE == 0) {
+        // start new block
+        firsts.add(key);
+        starts.add(size);
+        out.writeToken(key);
+      } else {
+        out.writeNum(pre);
+        out.writeToken(substring(key, pre));
+      }
+      last = key;
+      ++size;
+    }
+
+    /**
+     * Writes the directory and closes the key file.
+     * @throws IOException I/O exception
+     */
+    void close() throws IOException {
+      pad();
+      final long dir = out.size();
+      out.writeNum(size);
+      out.writeNum(firsts.size());
+      for(int b = 0; b < firsts.size(); ++b) {
+        out.writeToken(firsts.get(b));
+        out.writeNum(starts.get(b));
+      }
+      out.write5(dir);
+      out.close();
+    }
+
+    /**
+     * Fills the current block with zero bytes.
+     * @throws IOException I/O exception
+     */
+    private void pad() throws IOException {
+      while(out.size() % IO.BLOCKSIZE != 0) out.write(0);
+    }
+  }
+}
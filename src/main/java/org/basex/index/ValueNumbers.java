@@ -0,0 +1,136 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.basex.io.DataAccess;
+import org.basex.io.DataOutput;
+import org.basex.util.Array;
+import org.basex.util.IntList;
+
+/**
+ * This class provides access to the numeric keys of a value index.
+ *
+ * All keys that can be converted to numbers are stored in a file, sorted by
+ * their numeric value. Each entry consists of the 8-byte value and the
+ * 4-byte index of the key, which references the id list of the key.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class ValueNumbers {
+  /** Size of an entry. */
+  private static final int ENTRY = 12;
+  /** Number file. */
+  private final DataAccess da;
+  /** Number of entries. */
+  private final int size;
+
+  /**
+   * Constructor.
+   * @param file number file
+   * @throws IOException I/O exception
+   */
+  ValueNumbers(final File file) throws IOException {
+    da = new DataAccess(file);
+    size = (int) (da.length() / ENTRY);
+  }
+
+  /**
+   * Returns the indexes of all keys in the specified range.
+   * @param tok range token
+   * @return key indexes
+   */
+  synchronized IntList keys(final RangeToken tok) {
+    // find the first entry in the range
+    int l = 0, h = size - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      final double v = value(m);
+      if(v < tok.min || !tok.mni && v == tok.min) l = m + 1;
+      else h = m - 1;
+    }
+    // add all entries until the maximum is exceeded
+    final IntList il = new IntList();
+    for(int i = l; i < size; ++i) {
+      final double v = value(i);
+      if(v > tok.max || !tok.mxi && v == tok.max) break;
+      il.add(da.read4());
+    }
+    return il;
+  }
+
+  /**
+   * Returns the value of the specified entry and moves the cursor to the
+   * key index.
+   * @param i entry
+   * @return value
+   */
+  private double value(final int i) {
+    final long hi = da.read4((long) i * ENTRY);
+    return Double.longBitsToDouble(hi << 32 | da.read4() & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Closes the number file.
+   * @throws IOException I/O exception
+   */
+  synchronized void close() throws IOException {
+    da.close();
+  }
+
+  /**
+   * This class collects the numeric keys of an index and writes them to
+   * a number file.
+   */
+  static final class Writer {
+    /** Number file. */
+    private final File file;
+    /** Numeric values. */
+    private double[] values = new double[8];
+    /** Key indexes. */
+    private final IntList keys = new IntList();
+    /** Number of added keys. */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param f number file
+     */
+    Writer(final File f) {
+      file = f;
+    }
+
+    /**
+     * Adds a key if it can be converted to a number.
+     * @param key key
+     */
+    void add(final byte[] key) {
+      final double v = toDouble(key);
+      if(!Double.isNaN(v)) {
+        final int s = keys.size();
+        if(s == values.length) values = Arrays.copyOf(values, s << 1);
+        values[s] = v;
+        keys.add(size);
+      }
+      ++size;
+    }
+
+    /**
+     * Sorts the numbers and writes them to disk.
+     * @throws IOException I/O exception
+     */
+    void close() throws IOException {
+      final int s = keys.size();
+      final double[] v = Arrays.copyOf(values, s);
+      final int[] order = Array.createOrder(v, true);
+      final DataOutput out = new DataOutput(file);
+      for(int i = 0; i < s; ++i) {
+        out.write8(Double.doubleToRawLongBits(v[i]));
+        out.write4(keys.get(order[i]));
+      }
+      out.close();
+    }
+  }
+}
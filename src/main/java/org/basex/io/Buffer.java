@@ -13,4 +13,19 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Flag for buffers that have been logged, but not written to disk. */
+  boolean logged;
+
+  /** Buffer manager the block belongs to. */
+  Buffers owner;
+  /** Number of pins; pinned buffers will not be evicted. */
+  int pins;
+  /** Latch for buffers that are currently read or written. */
+  boolean io;
+  /** Flag for buffers in the queue of frequently accessed blocks. */
+  boolean hot;
+  /** Previous buffer in the replacement queue. */
+  Buffer prev;
+  /** Next buffer in the replacement queue. */
+  Buffer next;
 }
@@ -0,0 +1,518 @@
+package org.basex.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import org.basex.core.Prop;
+import org.basex.util.Util;
+
+/**
+ * This class organizes a server-wide pool of file buffers.
+ * Buffers are identified by their {@link Buffers} instance and their position.
+ * The 2Q replacement strategy is applied: blocks that are read for the
+ * first time are added to a FIFO queue, and blocks that are requested again
+ * after having been evicted from that queue are added to an LRU queue.
+ * This way, sequential scans will not evict frequently accessed blocks.
+ *
+ * Blocks are read and written outside the monitor of the pool. While a block
+ * is transferred, its buffer is latched, and requests for the same block wait
+ * until the transfer has been finished.
+ *
+ * Modified buffers of files with a redo log are not evicted before they have
+ * been logged (no-steal), because the log cannot undo uncommitted changes.
+ * If all unpinned buffers are modified, the pool grows beyond its size, and
+ * surplus buffers are evicted after the next commit.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPool {
+  /** Global buffer pool. */
+  static final BufferPool POOL = new BufferPool();
+
+  /** Head of the FIFO queue for blocks that have been accessed once. */
+  private final Buffer in = new Buffer();
+  /** Head of the LRU queue for frequently accessed blocks. */
+  private final Buffer hot = new Buffer();
+
+  /** Ids of recently evicted blocks. */
+  private final HashSet<Long> ghosts = new HashSet<Long>();
+  /** Ids of recently evicted blocks, in the order of eviction (ring buffer). */
+  private long[] gids = new long[0];
+  /** Start of the ring buffer. */
+  private int gstart;
+  /** Number of ghost entries. */
+  private int gsize;
+
+  /** Number of blocks to be prefetched by sequential reads. */
+  private int ahead = (Integer) Prop.READAHEAD[1];
+  /** Maximum number of buffers. */
+  private int max;
+  /** Number of allocated buffers. */
+  private int size;
+  /** Number of buffers in the FIFO queue. */
+  private int insize;
+
+  /** Number of buffer hits. */
+  private long hits;
+  /** Number of buffer misses. */
+  private long misses;
+  /** Number of prefetched buffers. */
+  private long prefetched;
+  /** Number of evicted buffers. */
+  private long evictions;
+  /** Number of buffers that have been logged, but not written to disk. */
+  private int logged;
+
+  /**
+   * Constructor.
+   */
+  private BufferPool() {
+    in.prev = in;
+    in.next = in;
+    hot.prev = hot;
+    hot.next = hot;
+    resize((Integer) Prop.BUFFERPOOL[1]);
+  }
+
+  /**
+   * Sets the size of the buffer pool. If the pool is shrunk, surplus buffers
+   * will be evicted on subsequent requests.
+   * @param mb size in megabytes
+   */
+  public static void size(final int mb) {
+    POOL.resize(mb);
+  }
+
+  /**
+   * Sets the number of blocks that will be prefetched if blocks
+   * are read sequentially.
+   * @param n number of blocks ({@code 0}: no read-ahead)
+   */
+  public static void readAhead(final int n) {
+    final BufferPool bp = POOL;
+    synchronized(bp) {
+      bp.ahead = Math.max(0, n);
+    }
+  }
+
+  /**
+   * Returns the number of blocks that will be prefetched if blocks
+   * are read sequentially. The number is limited to a quarter of the pool.
+   * @return number of blocks
+   */
+  synchronized int ahead() {
+    return Math.min(ahead, max >>> 2);
+  }
+
+  /**
+   * Returns the pool statistics: buffer size in bytes, maximum number of
+   * buffers, number of allocated buffers, hits, misses, prefetched blocks,
+   * evictions, and the number of logged buffers that have not been written
+   * to disk.
+   * @return statistics
+   */
+  public static long[] stats() {
+    final BufferPool bp = POOL;
+    synchronized(bp) {
+      return new long[] { IO.BLOCKSIZE, bp.max, bp.size,
+          bp.hits, bp.misses, bp.prefetched, bp.evictions, bp.logged };
+    }
+  }
+
+  /**
+   * Returns the number of buffers that have been logged, but not written
+   * to disk.
+   * @return number of buffers
+   */
+  public static int logged() {
+    final BufferPool bp = POOL;
+    synchronized(bp) {
+      return bp.logged;
+    }
+  }
+
+  /**
+   * Returns a cached and pinned buffer, or {@code null}.
+   * @param o buffer manager
+   * @param p buffer position
+   * @return buffer or {@code null}
+   */
+  synchronized Buffer find(final Buffers o, final long p) {
+    Buffer b;
+    // wait until the block has been read or written by another thread
+    while((b = o.map.get(p)) != null && b.io) await();
+    if(b == null) return null;
+    ++hits;
+    // frequently accessed blocks are moved to the head of the LRU queue
+    if(b.hot) {
+      unlink(b);
+      link(b, hot);
+    }
+    ++b.pins;
+    return b;
+  }
+
+  /**
+   * Allocates, pins and latches a buffer for a block that has not been
+   * cached yet. The contents of the block must be assigned by the caller,
+   * who then releases the latch via {@link #loaded}.
+   * If the pool is full, a buffer is evicted. If it is dirty, its contents
+   * are written to disk without locking the pool.
+   * @param o buffer manager
+   * @param p buffer position
+   * @return buffer, or {@code null} if the block has been cached by another
+   *   thread in the meantime
+   */
+  Buffer alloc(final Buffers o, final long p) {
+    while(true) {
+      final Buffer v;
+      synchronized(this) {
+        if(o.map.containsKey(p)) return null;
+        // drop surplus buffers if the pool has been shrunk
+        while(size > max) {
+          final Buffer s = victim();
+          if(s == null || s.dirty || s.logged) break;
+          unlink(s);
+          evict(s);
+          --size;
+        }
+        v = size < max ? null : victim();
+        if(v == null || !v.dirty && !v.logged) return assign(v, o, p);
+        latch(v);
+        unlink(v);
+      }
+      // write the evicted block outside the lock
+      try {
+        v.owner.write(v);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+      synchronized(this) {
+        unlatch(v);
+        evict(v);
+        --size;
+      }
+    }
+  }
+
+  /**
+   * Registers a requested block that was not cached, and the number of
+   * blocks that have been prefetched along with it.
+   * @param n number of prefetched blocks
+   */
+  synchronized void missed(final int n) {
+    ++misses;
+    prefetched += n;
+  }
+
+  /**
+   * Releases the latch of a buffer whose contents have been read.
+   * @param b buffer
+   */
+  synchronized void loaded(final Buffer b) {
+    unlatch(b);
+  }
+
+  /**
+   * Copies the contents of a cached buffer to the specified array.
+   * @param o buffer manager
+   * @param p buffer position
+   * @param d target array
+   * @return {@code false} if the buffer is not cached
+   */
+  synchronized boolean copy(final Buffers o, final long p, final byte[] d) {
+    final Buffer b = find(o, p);
+    if(b == null) return false;
+    System.arraycopy(b.data, 0, d, 0, d.length);
+    --b.pins;
+    return true;
+  }
+
+  /**
+   * Checks if the specified block is cached.
+   * @param o buffer manager
+   * @param p buffer position
+   * @return result of check
+   */
+  synchronized boolean cached(final Buffers o, final long p) {
+    return o.map.containsKey(p);
+  }
+
+  /**
+   * Adds a block that has been read from disk to the pool,
+   * unless it has been cached by another thread in the meantime.
+   * @param o buffer manager
+   * @param p buffer position
+   * @param d block contents
+   */
+  void add(final Buffers o, final long p, final byte[] d) {
+    final Buffer b = alloc(o, p);
+    if(b == null) return;
+    System.arraycopy(d, 0, b.data, 0, d.length);
+    loaded(b);
+    unpin(b);
+  }
+
+  /**
+   * Unpins a buffer.
+   * @param b buffer
+   */
+  synchronized void unpin(final Buffer b) {
+    --b.pins;
+  }
+
+  /**
+   * Writes all dirty buffers of the specified buffer manager to disk.
+   * The buffers are latched and written without locking the pool.
+   * @param o buffer manager
+   * @throws IOException I/O exception
+   */
+  void flush(final Buffers o) throws IOException {
+    final ArrayList<Buffer> dirty = new ArrayList<Buffer>();
+    synchronized(this) {
+      idle(o);
+      for(final Buffer b : o.map.values()) {
+        if(!b.dirty && !b.logged) continue;
+        latch(b);
+        dirty.add(b);
+      }
+    }
+    try {
+      for(final Buffer b : dirty) o.write(b);
+    } finally {
+      synchronized(this) {
+        for(final Buffer b : dirty) unlatch(b);
+      }
+    }
+  }
+
+  /**
+   * Adds all dirty buffers of the specified buffer manager to a log record.
+   * @param o buffer manager
+   * @param rec log record
+   * @param name file name
+   * @throws IOException I/O exception
+   */
+  synchronized void log(final Buffers o, final RedoLog.Record rec,
+      final String name) throws IOException {
+    idle(o);
+    for(final Buffer b : o.map.values()) {
+      if(!b.dirty) continue;
+      rec.block(name, b.pos * o.unit, b.data);
+      if(!b.logged) ++logged;
+      b.dirty = false;
+      b.logged = true;
+    }
+  }
+
+  /**
+   * Notifies the pool that a logged buffer has been written to disk.
+   */
+  synchronized void written() {
+    --logged;
+  }
+
+  /**
+   * Removes all buffers of the specified buffer manager from the pool.
+   * @param o buffer manager
+   */
+  synchronized void release(final Buffers o) {
+    idle(o);
+    final Iterator<Buffer> it = o.map.values().iterator();
+    while(it.hasNext()) {
+      remove(it.next());
+      it.remove();
+    }
+  }
+
+  /**
+   * Returns the id of a block, which is stored in the ghost queue.
+   * Ids of different blocks may only collide if more than 2^31 files have
+   * been opened, which would only affect the replacement order.
+   * @param o buffer manager
+   * @param p buffer position
+   * @return id
+   */
+  static long id(final Buffers o, final long p) {
+    return (long) o.id << 32 | p * o.unit / IO.BLOCKSIZE & 0xFFFFFFFFL;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Sets the size of the buffer pool.
+   * @param mb size in megabytes
+   */
+  private synchronized void resize(final int mb) {
+    final int m = Math.max(8, (int) Math.min(Integer.MAX_VALUE,
+        ((long) mb << 20) / IO.BLOCKSIZE));
+    if(m == max) return;
+    max = m;
+    // the ghost queue remembers as many blocks as fit into half of the pool
+    ghosts.clear();
+    gids = new long[m >>> 1];
+    gstart = 0;
+    gsize = 0;
+  }
+
+  /**
+   * Chooses an unpinned buffer to be evicted. Buffers from the FIFO queue
+   * will be chosen if the queue occupies more than a quarter of the pool.
+   * @return buffer, or {@code null} if all buffers are pinned
+   */
+  private Buffer victim() {
+    final boolean fifo = insize > max >>> 2;
+    Buffer b = victim(fifo ? in : hot);
+    if(b == null) b = victim(fifo ? hot : in);
+    return b;
+  }
+
+  /**
+   * Returns the least recently added unpinned buffer from the specified queue.
+   * Modified buffers that must be logged first are skipped.
+   * @param q queue
+   * @return buffer, or {@code null}
+   */
+  private static Buffer victim(final Buffer q) {
+    // latched buffers are pinned as well
+    for(Buffer b = q.prev; b != q; b = b.prev) {
+      if(b.pins == 0 && !(b.dirty && b.owner.keep)) return b;
+    }
+    return null;
+  }
+
+  /**
+   * Assigns a clean victim or a new buffer to a block, and pins and
+   * latches it.
+   * @param v clean victim, or {@code null}
+   * @param o buffer manager
+   * @param p buffer position
+   * @return buffer
+   */
+  private Buffer assign(final Buffer v, final Buffers o, final long p) {
+    Buffer b = v;
+    if(b == null) {
+      b = new Buffer();
+      ++size;
+    } else {
+      unlink(b);
+      evict(b);
+    }
+    b.owner = o;
+    b.pos = p;
+    b.pins = 1;
+    // blocks that have been evicted before are considered to be frequent
+    b.hot = ghosts.remove(id(o, p));
+    link(b, b.hot ? hot : in);
+    o.map.put(p, b);
+    latch(b);
+    return b;
+  }
+
+  /**
+   * Removes an unlinked buffer from the map of its buffer manager.
+   * The ids of blocks evicted from the FIFO queue are remembered.
+   * @param b buffer
+   */
+  private void evict(final Buffer b) {
+    final Buffers o = b.owner;
+    o.map.remove(b.pos);
+    if(!b.hot && gids.length != 0) {
+      // add id to ghost queue; remove oldest entry if queue is full
+      if(gsize == gids.length) {
+        ghosts.remove(gids[gstart]);
+        gstart = (gstart + 1) % gids.length;
+        --gsize;
+      }
+      final long id = id(o, b.pos);
+      gids[(gstart + gsize++) % gids.length] = id;
+      ghosts.add(id);
+    }
+    if(b.logged) --logged;
+    b.owner = null;
+    b.dirty = false;
+    b.logged = false;
+    ++evictions;
+  }
+
+  /**
+   * Pins and latches a buffer, which will then be read or written without
+   * locking the pool.
+   * @param b buffer
+   */
+  private void latch(final Buffer b) {
+    b.io = true;
+    ++b.pins;
+    ++b.owner.io;
+  }
+
+  /**
+   * Releases the latch of a buffer and wakes up waiting threads.
+   * @param b buffer
+   */
+  private void unlatch(final Buffer b) {
+    b.io = false;
+    --b.pins;
+    --b.owner.io;
+    notifyAll();
+  }
+
+  /**
+   * Waits until no buffers of the specified buffer manager are latched.
+   * @param o buffer manager
+   */
+  private void idle(final Buffers o) {
+    while(o.io != 0) await();
+  }
+
+  /**
+   * Waits until a latch has been released.
+   */
+  private void await() {
+    try {
+      wait();
+    } catch(final InterruptedException ex) {
+      Util.stack(ex);
+    }
+  }
+
+  /**
+   * Removes a buffer from the pool without writing it to disk.
+   * @param b buffer
+   */
+  private void remove(final Buffer b) {
+    unlink(b);
+    if(b.logged) --logged;
+    b.owner = null;
+    b.dirty = false;
+    b.logged = false;
+    --size;
+  }
+
+  /**
+   * Adds a buffer to the head of the specified queue.
+   * @param b buffer
+   * @param q queue
+   */
+  private void link(final Buffer b, final Buffer q) {
+    b.prev = q;
+    b.next = q.next;
+    q.next.prev = b;
+    q.next = b;
+    if(q == in) ++insize;
+  }
+
+  /**
+   * Removes a buffer from its queue.
+   * @param b buffer
+   */
+  private void unlink(final Buffer b) {
+    b.prev.next = b.next;
+    b.next.prev = b.prev;
+    b.prev = null;
+    b.next = null;
+    if(!b.hot) --insize;
+  }
+}
@@ -1,53 +1,187 @@
 package org.basex.io;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class manages the buffers of a single file. The buffers are
+ * taken from the global {@link BufferPool}; the current buffer is pinned
+ * and will not be evicted. Disk access can be customized by overwriting
+ * {@link #load} and {@link #write}.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
-final class Buffers {
-  /** Number of buffers (must be 2 ^ n). */
-  private static final int BUFFERS = 4;
-  /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
-  /** Current buffer offset. */
-  private int c;
+class Buffers {
+  /** Counter for the ids of buffer managers. */
+  private static final AtomicInteger IDS = new AtomicInteger();
+  /** Cached buffers, indexed by their position. */
+  final HashMap<Long, Buffer> map = new HashMap<Long, Buffer>();
+  /** Id of the buffer manager. */
+  final int id = IDS.incrementAndGet();
+  /** Number of latched buffers (guarded by the {@link BufferPool}). */
+  int io;
+  /** File the buffers belong to. */
+  final RandomAccessFile file;
+  /** Factor for converting buffer positions to file offsets. */
+  final int unit;
+  /** Current buffer. */
+  private Buffer current;
+  /** Flag for keeping modified buffers in the pool until they have been
+   * logged (no-steal). */
+  volatile boolean keep;
 
   /**
    * Constructor.
+   * @param f file the buffers belong to
+   * @param u factor for converting buffer positions to file offsets
    */
-  Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+  Buffers(final RandomAccessFile f, final int u) {
+    file = f;
+    unit = u;
   }
 
   /**
-   * Returns all buffers.
-   * @return buffers
+   * Returns the current buffer.
+   * @return current buffer
    */
-  Buffer[] all() {
-    return buf;
+  Buffer current() {
+    return current;
   }
 
   /**
-   * Returns the current buffer.
-   * @return current buffer
+   * Chooses and pins the current buffer. If the block is not cached, a new
+   * buffer is allocated, and its contents are read from disk.
+   * @param p buffer position
+   * @param read read the contents of a block that is not cached
+   * @throws IOException I/O exception
    */
-  Buffer current() {
-    return buf[c];
+  void cursor(final long p, final boolean read) throws IOException {
+    final Buffer c = current;
+    if(c != null && c.pos == p) return;
+    final BufferPool bp = BufferPool.POOL;
+    Buffer b;
+    while((b = bp.find(this, p)) == null) {
+      b = bp.alloc(this, p);
+      if(b == null) continue;
+      bp.missed(0);
+      // the new buffer is latched until its contents have been read
+      try {
+        if(read) load(p, b.data);
+      } finally {
+        bp.loaded(b);
+      }
+      break;
+    }
+    if(c != null) bp.unpin(c);
+    current = b;
+  }
+
+  /**
+   * Copies the contents of the specified block to the specified array.
+   * If the block is not cached, it is read from disk without locking the pool,
+   * so that concurrent readers are not blocked, and then added to the pool.
+   * @param p buffer position
+   * @param d target array
+   * @throws IOException I/O exception
+   */
+  void read(final long p, final byte[] d) throws IOException {
+    read(p, d, 0);
+  }
+
+  /**
+   * Copies the contents of the specified block to the specified array.
+   * If the block is not cached, it is read from disk together with the
+   * specified number of blocks that follow it in the file, and all blocks
+   * are added to the pool. Prefetching stops at the first cached block.
+   * @param p buffer position
+   * @param d target array
+   * @param n maximum number of following blocks to be prefetched
+   * @throws IOException I/O exception
+   */
+  void read(final long p, final byte[] d, final int n) throws IOException {
+    final BufferPool bp = BufferPool.POOL;
+    if(bp.copy(this, p, d)) return;
+    final int step = IO.BLOCKSIZE / unit;
+    int c = 0;
+    while(c < n && !bp.cached(this, p + (c + 1) * step)) ++c;
+    bp.missed(c);
+    if(c == 0) {
+      load(p, d);
+      bp.add(this, p, d);
+      return;
+    }
+    // read all blocks with a single disk access
+    final byte[] all = new byte[(c + 1) * IO.BLOCKSIZE];
+    load(p, all);
+    System.arraycopy(all, 0, d, 0, IO.BLOCKSIZE);
+    bp.add(this, p, d);
+    final byte[] b = new byte[IO.BLOCKSIZE];
+    for(int i = 1; i <= c; ++i) {
+      System.arraycopy(all, i * IO.BLOCKSIZE, b, 0, IO.BLOCKSIZE);
+      bp.add(this, p + i * step, b);
+    }
+  }
+
+  /**
+   * Reads the specified block from disk. A positional read is performed,
+   * as blocks may be read by several threads. If the target array is larger
+   * than a block, the following blocks of the file are read as well.
+   * @param p buffer position
+   * @param d target array
+   * @throws IOException I/O exception
+   */
+  void load(final long p, final byte[] d) throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(d);
+    final FileChannel fc = file.getChannel();
+    final long fp = p * unit;
+    while(bb.hasRemaining() && fc.read(bb, fp + bb.position()) > 0);
+  }
+
+  /**
+   * Writes the specified buffer to disk and resets the dirty flag.
+   * A positional write is performed, as buffers may be written by other
+   * threads when they are evicted from the pool.
+   * @param b buffer to be written
+   * @throws IOException I/O exception
+   */
+  void write(final Buffer b) throws IOException {
+    file.getChannel().write(ByteBuffer.wrap(b.data), b.pos * unit);
+    if(b.logged) BufferPool.POOL.written();
+    b.dirty = false;
+    b.logged = false;
+  }
+
+  /**
+   * Writes all dirty buffers to disk.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    BufferPool.POOL.flush(this);
+  }
+
+  /**
+   * Adds all dirty buffers to the specified log record. The buffers will be
+   * written to disk when they are evicted or flushed.
+   * @param rec log record
+   * @param name file name
+   * @throws IOException I/O exception
+   */
+  void log(final RedoLog.Record rec, final String name) throws IOException {
+    BufferPool.POOL.log(this, rec, name);
   }
 
   /**
-   * Chooses a buffer and sets the offset.
-   * @param p buffer pointer
-   * @return true if cursor has changed
+   * Writes all dirty buffers to disk and returns all buffers to the pool.
+   * @throws IOException I/O exception
    */
-  boolean cursor(final long p) {
-    final int o = c;
-    do {
-      if(buf[c].pos == p) return false;
-    } while((c = c + 1 & BUFFERS - 1) != o);
-    c = o + 1 & BUFFERS - 1;
-    return true;
+  void close() throws IOException {
+    flush();
+    BufferPool.POOL.release(this);
+    current = null;
   }
 }
@@ -0,0 +1,187 @@
+package org.basex.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class manages the buffers of a compressed table file.
+ * The buffers contain decompressed blocks, which are packed with
+ * {@link TableCompress} when they are written to disk. The packed blocks
+ * are stored in slots of variable size; a directory references the file
+ * offset and length of each block. If a packed block exceeds its slot,
+ * it is moved to a free slot or appended to the end of the file.
+ * Free slots are derived from the directory when the file is opened.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class CompressedBuffers extends Buffers {
+  /** Slot size power. */
+  private static final int SLOT = 6;
+  /** Codec. */
+  private final TableCompress comp = new TableCompress();
+  /** Temporary array for packed blocks. */
+  private final byte[] packed = new byte[IO.BLOCKSIZE];
+  /** File offsets of all blocks ({@code -1}: block has not been written). */
+  private long[] offs;
+  /** Packed lengths of all blocks ({@link IO#BLOCKSIZE}: uncompressed). */
+  private int[] lens;
+  /** Free slots, ordered by their file offsets (offset, size). */
+  private final TreeMap<Long, Integer> free = new TreeMap<Long, Integer>();
+  /** End of file. */
+  private long end;
+  /** Dirty flag. */
+  boolean dirty;
+
+  /**
+   * Constructor.
+   * @param f file the buffers belong to
+   * @param in input stream with the block directory
+   * @throws IOException I/O exception
+   */
+  CompressedBuffers(final RandomAccessFile f, final DataInput in)
+      throws IOException {
+    super(f, IO.BLOCKSIZE);
+    offs = in.readLongs();
+    lens = in.readNums();
+
+    // gaps between the used slots are free
+    final TreeMap<Long, Integer> used = new TreeMap<Long, Integer>();
+    for(int b = 0; b < offs.length; ++b) {
+      if(offs[b] != -1) used.put(offs[b], slot(lens[b]));
+    }
+    for(final Map.Entry<Long, Integer> e : used.entrySet()) {
+      final long o = e.getKey();
+      if(o > end) free.put(end, (int) (o - end));
+      end = o + e.getValue();
+    }
+  }
+
+  /**
+   * Writes the block directory.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  synchronized void write(final DataOutput out) throws IOException {
+    out.writeLongs(offs);
+    out.writeNums(lens);
+    dirty = false;
+  }
+
+  @Override
+  void load(final long p, final byte[] d) throws IOException {
+    // packed blocks have different sizes: read several blocks one by one
+    final int n = d.length / IO.BLOCKSIZE;
+    if(n > 1) {
+      final byte[] b = new byte[IO.BLOCKSIZE];
+      for(int i = 0; i < n; ++i) {
+        load(p + i, b);
+        System.arraycopy(b, 0, d, i * IO.BLOCKSIZE, IO.BLOCKSIZE);
+      }
+      return;
+    }
+
+    final long o;
+    final int l;
+    synchronized(this) {
+      if(p >= offs.length || offs[(int) p] == -1) {
+        Arrays.fill(d, (byte) 0);
+        return;
+      }
+      o = offs[(int) p];
+      l = lens[(int) p];
+    }
+    final byte[] b = l == IO.BLOCKSIZE ? d : new byte[l];
+    final ByteBuffer bb = ByteBuffer.wrap(b);
+    final FileChannel fc = file.getChannel();
+    while(bb.hasRemaining() && fc.read(bb, o + bb.position()) > 0);
+    if(b != d) comp.unpack(b, l, d);
+  }
+
+  @Override
+  synchronized void write(final Buffer b) throws IOException {
+    final int p = (int) b.pos;
+    if(p >= offs.length) {
+      final int s = Math.max(p + 1, offs.length << 1);
+      final int o = offs.length;
+      offs = Arrays.copyOf(offs, s);
+      lens = Arrays.copyOf(lens, s);
+      Arrays.fill(offs, o, s, -1);
+    }
+
+    int l = comp.pack(b.data, packed);
+    final byte[] data = l == -1 ? b.data : packed;
+    if(l == -1) l = IO.BLOCKSIZE;
+
+    // reuse slot if it is large enough; otherwise, release it
+    final int s = slot(l);
+    long o = offs[p];
+    if(o != -1) {
+      final int os = slot(lens[p]);
+      if(s <= os) {
+        if(s < os) release(o + s, os - s);
+      } else {
+        release(o, os);
+        o = -1;
+      }
+    }
+    if(o == -1) o = alloc(s);
+    file.getChannel().write(ByteBuffer.wrap(data, 0, l), o);
+    offs[p] = o;
+    lens[p] = l;
+    b.dirty = false;
+    dirty = true;
+  }
+
+  /**
+   * Returns the offset of a free slot with the specified size.
+   * @param s slot size
+   * @return file offset
+   */
+  private long alloc(final int s) {
+    for(final Map.Entry<Long, Integer> e : free.entrySet()) {
+      final int fs = e.getValue();
+      if(fs < s) continue;
+      final long o = e.getKey();
+      free.remove(o);
+      if(fs > s) free.put(o + s, fs - s);
+      return o;
+    }
+    final long o = end;
+    end += s;
+    return o;
+  }
+
+  /**
+   * Releases a slot and merges it with adjacent free slots.
+   * @param off file offset
+   * @param s slot size
+   */
+  private void release(final long off, final int s) {
+    long o = off;
+    long e = off + s;
+    final Map.Entry<Long, Integer> prev = free.floorEntry(o);
+    if(prev != null && prev.getKey() + prev.getValue() == o) {
+      o = prev.getKey();
+      free.remove(o);
+    }
+    final Integer next = free.remove(e);
+    if(next != null) e += next;
+    if(e == end) end = o;
+    else free.put(o, (int) (e - o));
+  }
+
+  /**
+   * Returns the slot size for a packed block.
+   * @param l length of packed block
+   * @return slot size
+   */
+  static int slot(final int l) {
+    return (l + (1 << SLOT) - 1) >>> SLOT << SLOT;
+  }
+}
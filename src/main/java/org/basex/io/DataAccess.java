@@ -8,18 +8,30 @@ import org.basex.util.Util;
 
 /**
  * This class allows positional read and write access to a database file.
+ * Read operations are not synchronized: each thread reads the file with its
+ * own cursor and a private copy of the current block. Write operations
+ * are performed in the shared buffers and invalidate all read cursors.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
 public final class DataAccess {
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
   /** Reference to the data input stream. */
   private final RandomAccessFile file;
+  /** Read cursors of all threads. */
+  private final ThreadLocal<Reader> readers = new ThreadLocal<Reader>() {
+    @Override
+    protected Reader initialValue() {
+      return new Reader();
+    }
+  };
+  /** Modification counter; invalidates the read cursors. */
+  private volatile int mod;
   /** File length. */
   private long len;
-  /** Offset. */
+  /** Write offset. */
   private int off;
 
   /**
@@ -29,8 +41,9 @@ public final class DataAccess {
    */
   public DataAccess(final File f) throws IOException {
     file = new RandomAccessFile(f, "rw");
+    bm = new Buffers(file, 1);
     len = file.length();
-    cursor(0);
+    wcursor(0);
   }
 
   /**
@@ -38,7 +51,28 @@ public final class DataAccess {
    * @throws IOException I/O exception
    */
   public synchronized void flush() throws IOException {
-    for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+    bm.flush();
+  }
+
+  /**
+   * Keeps modified blocks in memory until they have been added to a log
+   * record via {@link #log}.
+   */
+  public void keep() {
+    bm.keep = true;
+  }
+
+  /**
+   * Adds the modified blocks and the file length to the specified log record.
+   * The blocks will be written to disk when they are flushed.
+   * @param rec log record
+   * @param name file name
+   * @throws IOException I/O exception
+   */
+  public synchronized void log(final RedoLog.Record rec, final String name)
+      throws IOException {
+    bm.log(rec, name);
+    rec.length(name, len);
   }
 
   /**
@@ -46,17 +80,18 @@ public final class DataAccess {
    * @throws IOException I/O exception
    */
   public synchronized void close() throws IOException {
-    flush();
+    bm.close();
     file.setLength(len);
     file.close();
   }
 
   /**
-   * Returns the current file position.
+   * Returns the current file position of the read cursor.
    * @return text as byte array
    */
   public long pos() {
-    return bm.current().pos + off;
+    final Reader r = readers.get();
+    return r.pos + r.off;
   }
 
   /**
@@ -87,16 +122,17 @@ public final class DataAccess {
    * Reads a byte value.
    * @return integer value
    */
-  public synchronized byte read1() {
-    return (byte) read();
+  public byte read1() {
+    return (byte) read(reader());
   }
 
   /**
    * Reads an integer value.
    * @return integer value
    */
-  public synchronized int read4() {
-    return (read() << 24) + (read() << 16) + (read() << 8) + read();
+  public int read4() {
+    final Reader r = reader();
+    return (read(r) << 24) + (read(r) << 16) + (read(r) << 8) + read(r);
   }
 
   /**
@@ -104,7 +140,7 @@ public final class DataAccess {
    * @param p position
    * @return integer value
    */
-  public synchronized int read4(final long p) {
+  public int read4(final long p) {
     cursor(p);
     return read4();
   }
@@ -114,7 +150,7 @@ public final class DataAccess {
    * @param p position
    * @return long value
    */
-  public synchronized long read5(final long p) {
+  public long read5(final long p) {
     cursor(p);
     return read5();
   }
@@ -123,9 +159,10 @@ public final class DataAccess {
    * Reads a 5-byte value.
    * @return long value
    */
-  public synchronized long read5() {
-    return ((long) read() << 32) + ((long) read() << 24) +
-      (read() << 16) + (read() << 8) + read();
+  public long read5() {
+    final Reader r = reader();
+    return ((long) read(r) << 32) + ((long) read(r) << 24) +
+      (read(r) << 16) + (read(r) << 8) + read(r);
   }
 
   /**
@@ -133,7 +170,7 @@ public final class DataAccess {
    * @param p text position
    * @return read num
    */
-  public synchronized int readNum(final long p) {
+  public int readNum(final long p) {
     cursor(p);
     return readNum();
   }
@@ -143,7 +180,7 @@ public final class DataAccess {
    * @param p text position
    * @return text as byte array
    */
-  public synchronized byte[] readToken(final long p) {
+  public byte[] readToken(final long p) {
     cursor(p);
     return readToken();
   }
@@ -152,25 +189,25 @@ public final class DataAccess {
    * Reads the next token from disk.
    * @return text as byte array
    */
-  public synchronized byte[] readToken() {
-    int l = readNum();
-    int ll = IO.BLOCKSIZE - off;
+  public byte[] readToken() {
+    final Reader r = reader();
+    int l = readNum(r);
+    int ll = IO.BLOCKSIZE - r.off;
     final byte[] b = new byte[l];
-    Buffer bf = bm.current();
 
-    System.arraycopy(bf.data, off, b, 0, Math.min(l, ll));
+    System.arraycopy(r.data, r.off, b, 0, Math.min(l, ll));
     if(l > ll) {
       l -= ll;
       while(l > IO.BLOCKSIZE) {
-        bf = next();
-        System.arraycopy(bf.data, 0, b, ll, IO.BLOCKSIZE);
+        next(r);
+        System.arraycopy(r.data, 0, b, ll, IO.BLOCKSIZE);
         ll += IO.BLOCKSIZE;
         l -= IO.BLOCKSIZE;
       }
-      bf = next();
-      System.arraycopy(bf.data, 0, b, ll, l);
+      next(r);
+      System.arraycopy(r.data, 0, b, ll, l);
     }
-    off += l;
+    r.off += l;
     return b;
   }
 
@@ -180,7 +217,7 @@ public final class DataAccess {
    * @param l length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final long p, final int l) {
+  public byte[] readBytes(final long p, final int l) {
     cursor(p);
     return readBytes(l);
   }
@@ -190,9 +227,10 @@ public final class DataAccess {
    * @param l length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final int l) {
+  public byte[] readBytes(final int l) {
+    final Reader r = reader();
     final byte[] b = new byte[l];
-    for(int i = 0; i < b.length; ++i) b[i] = (byte) read();
+    for(int i = 0; i < b.length; ++i) b[i] = (byte) read(r);
     return b;
   }
 
@@ -201,61 +239,133 @@ public final class DataAccess {
    * @param p write position
    * @param v byte array to be appended
    */
-  public void writeBytes(final long p, final byte[] v) {
-    cursor(p);
+  public synchronized void writeBytes(final long p, final byte[] v) {
+    wcursor(p);
     writeNum(v.length);
     for(final byte b : v) write(b);
+    ++mod;
   }
 
   /**
-   * Sets the disk cursor.
+   * Sets the read cursor of the current thread.
    * @param p read position
-   * @return buffer
    */
-  public Buffer cursor(final long p) {
-    off = (int) (p & IO.BLOCKSIZE - 1);
+  public void cursor(final long p) {
+    final Reader r = readers.get();
+    final int o = (int) (p & IO.BLOCKSIZE - 1);
+    final long bp = p - o;
+    if(r.mod != mod || r.pos != bp) block(r, bp);
+    r.off = o;
+  }
 
-    final boolean ch = bm.cursor(p - off);
-    final Buffer bf = bm.current();
-    if(ch) {
-      try {
-        if(bf.dirty) writeBlock(bf);
-        bf.pos = p - off;
-        file.seek(bf.pos);
-        file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
-      } catch(final IOException ex) {
-        Util.stack(ex);
-      }
+  /**
+   * Reads the next compressed number and returns it as integer.
+   * @return next integer
+   */
+  public int readNum() {
+    return readNum(reader());
+  }
+
+  /**
+   * Writes an integer value to the specified output stream.
+   * @param v value to be written
+   */
+  public synchronized void writeInt(final int v) {
+    write(v >>> 24);
+    write(v >>> 16);
+    write(v >>>  8);
+    write(v);
+    ++mod;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the read cursor of the current thread. If the file has been
+   * modified, the current block is reread.
+   * @return read cursor
+   */
+  private Reader reader() {
+    final Reader r = readers.get();
+    if(r.mod != mod) {
+      final int o = r.off;
+      block(r, r.pos);
+      r.off = o;
+    }
+    return r;
+  }
+
+  /**
+   * Reads a block into the specified read cursor.
+   * @param r read cursor
+   * @param p block position
+   */
+  private void block(final Reader r, final long p) {
+    // prefetch following blocks if the file is read sequentially
+    if(p != r.pos) r.seq = p == r.pos + IO.BLOCKSIZE ? r.seq + 1 : 0;
+    final int n = r.seq == 0 ? 0 : (int) Math.min(BufferPool.POOL.ahead(),
+        (len - p - 1) / IO.BLOCKSIZE);
+    r.mod = mod;
+    r.pos = p;
+    r.off = 0;
+    try {
+      bm.read(p, r.data, n);
+    } catch(final IOException ex) {
+      Util.stack(ex);
     }
-    return bf;
   }
 
   /**
    * Reads the next compressed number and returns it as integer.
+   * @param r read cursor
    * @return next integer
    */
-  public synchronized int readNum() {
-    final int v = read();
+  private int readNum(final Reader r) {
+    final int v = read(r);
     switch(v & 0xC0) {
     case 0:
       return v;
     case 0x40:
-      return (v - 0x40 << 8) + read();
+      return (v - 0x40 << 8) + read(r);
     case 0x80:
-      return (v - 0x80 << 24) + (read() << 16) + (read() << 8) + read();
+      return (v - 0x80 << 24) + (read(r) << 16) + (read(r) << 8) + read(r);
     default:
-      return (read() << 24) + (read() << 16) + (read() << 8) + read();
+      return (read(r) << 24) + (read(r) << 16) + (read(r) << 8) + read(r);
     }
   }
 
   /**
-   * Writes the specified block to disk.
-   * @param bf buffer to write
-   * @throws IOException I/O exception
+   * Reads the next byte.
+   * @param r read cursor
+   * @return next byte
    */
-  private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos);
-    file.write(bf.data);
+  private int read(final Reader r) {
+    if(r.off == IO.BLOCKSIZE) next(r);
+    return r.data[r.off++] & 0xFF;
+  }
+
+  /**
+   * Moves the read cursor to the next block.
+   * @param r read cursor
+   */
+  private void next(final Reader r) {
+    block(r, r.pos + IO.BLOCKSIZE);
+  }
+
+  /**
+   * Sets the write cursor.
+   * @param p write position
+   * @return buffer
+   */
+  private Buffer wcursor(final long p) {
+    off = (int) (p & IO.BLOCKSIZE - 1);
+
+    try {
+      bm.cursor(p - off, true);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    return bm.current();
   }
 
   /**
@@ -275,43 +385,29 @@ public final class DataAccess {
     }
   }
 
-  /**
-   * Reads the next byte.
-   * @return next byte
-   */
-  private int read() {
-    final Buffer bf = off == IO.BLOCKSIZE ? next() : bm.current();
-    return bf.data[off++] & 0xFF;
-  }
-
   /**
    * Writes the next byte.
    * @param b byte to be written
    */
   private void write(final int b) {
-    final Buffer bf = off == IO.BLOCKSIZE ? next() : bm.current();
+    final Buffer bf = off == IO.BLOCKSIZE ?
+        wcursor(bm.current().pos + IO.BLOCKSIZE) : bm.current();
     bf.data[off++] = (byte) b;
     len = Math.max(len, bf.pos + off);
     bf.dirty = true;
   }
 
-  /**
-   * Writes an integer value to the specified output stream.
-   * @param v value to be written
-   */
-  public void writeInt(final int v) {
-    write(v >>> 24);
-    write(v >>> 16);
-    write(v >>>  8);
-    write(v);
-  }
-
-  /**
-   * Returns the next block.
-   * @return buffer
-   */
-  private Buffer next() {
-    off = 0;
-    return cursor(bm.current().pos + IO.BLOCKSIZE);
+  /** Read cursor of a single thread. */
+  private static final class Reader {
+    /** Copy of the current block. */
+    final byte[] data = new byte[IO.BLOCKSIZE];
+    /** File offset of the current block. */
+    long pos;
+    /** Offset in the current block. */
+    int off;
+    /** Number of blocks that have been read in sequential order. */
+    int seq;
+    /** Modification counter at the time the block was read. */
+    int mod = -1;
   }
 }
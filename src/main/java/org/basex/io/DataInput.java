@@ -3,6 +3,7 @@ package org.basex.io;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import org.basex.util.Token;
 
 /**
@@ -22,6 +23,15 @@ public final class DataInput extends BufferInput {
     super(file);
   }
 
+  /**
+   * Constructor.
+   * @param is input stream
+   * @throws IOException IO Exception
+   */
+  public DataInput(final InputStream is) throws IOException {
+    super(is);
+  }
+
   /**
    * Reads a boolean value from the input stream.
    * @return boolean value
@@ -126,6 +136,16 @@ public final class DataInput extends BufferInput {
     return array;
   }
 
+  /**
+   * Reads a 5-byte value from the input stream.
+   * @return read value
+   * @throws IOException IO Exception
+   */
+  public long read5() throws IOException {
+    return ((long) (read() & 255) << 32) + ((long) (read() & 255) << 24)
+        + ((read() & 255) << 16) + ((read() & 255) << 8) + (read() & 255);
+  }
+
   /**
    * Read a long value from the input stream.
    * @return read value
@@ -0,0 +1,260 @@
+package org.basex.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class organizes the unused extents of a {@link DataAccess} file, which
+ * result from updated values. Adjacent extents are merged. For finding
+ * extents of a given size, the extents are additionally grouped in free lists
+ * by size classes (powers of two). Entries of these lists are removed lazily,
+ * i.e., when they are found to be outdated. If an extent is reused, the
+ * remaining bytes are added to the lists again.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class FreeSpace {
+  /** Minimum extent size; shorter entries are inlined in the table. */
+  private static final int MIN = IO.MAXINL + 2;
+  /** Number of entries that are checked in the list of a size class. */
+  private static final int CHECK = 8;
+
+  /** Free extents, sorted by offsets. */
+  private final TreeMap<Long, Integer> extents = new TreeMap<Long, Integer>();
+  /** Extent offsets, grouped by size classes. */
+  private final long[][] offs = new long[32][];
+  /** Extent sizes. */
+  private final int[][] sizes = new int[32][];
+  /** Number of list entries in each size class. */
+  private final int[] counts = new int[32];
+  /** Total number of list entries. */
+  private int entries;
+  /** Total number of free bytes. */
+  private long free;
+  /** Modified flag. */
+  private boolean dirty;
+
+  /**
+   * Constructor.
+   */
+  public FreeSpace() { }
+
+  /**
+   * Constructor, reading the free extents from the specified input.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  public FreeSpace(final DataInput in) throws IOException {
+    for(int s = in.readNum(); s > 0; --s) add(in.read5(), in.readNum());
+    dirty = false;
+  }
+
+  /**
+   * Adds an extent and merges it with adjacent extents.
+   * @param off offset
+   * @param size size
+   */
+  public synchronized void add(final long off, final int size) {
+    if(size <= 0) return;
+    long o = off;
+    long s = size;
+    final Map.Entry<Long, Integer> prev = extents.floorEntry(o);
+    if(prev != null && prev.getKey() + prev.getValue() == o) {
+      o = prev.getKey();
+      s += prev.getValue();
+      remove(o);
+    }
+    final Integer next = extents.get(off + size);
+    if(next != null) {
+      s += next;
+      remove(off + size);
+    }
+    // merged extents are limited to the integer range
+    if(s > Integer.MAX_VALUE) {
+      put(o, Integer.MAX_VALUE);
+      add(o + Integer.MAX_VALUE, (int) (s - Integer.MAX_VALUE));
+    } else {
+      put(o, (int) s);
+    }
+  }
+
+  /**
+   * Returns the offset of an extent with the specified size and removes it
+   * from the free extents.
+   * @param size size
+   * @return offset, or {@code -1} if no extent was found
+   */
+  public synchronized long get(final int size) {
+    final int c = sizeClass(size);
+    // check the last entries in the list of the matching size class
+    for(int i = counts[c] - 1, m = i - CHECK; i >= 0 && i > m; --i) {
+      if(!valid(c, i)) {
+        delete(c, i);
+      } else if(sizes[c][i] >= size) {
+        return use(c, i, size);
+      }
+    }
+    // all extents of the larger classes are large enough
+    for(int cc = c + 1; cc < counts.length; ++cc) {
+      while(counts[cc] != 0) {
+        final int i = counts[cc] - 1;
+        if(valid(cc, i)) return use(cc, i, size);
+        delete(cc, i);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Removes all extents, or parts of extents, beyond the specified offset.
+   * @param end end offset
+   */
+  public synchronized void trim(final long end) {
+    final Map.Entry<Long, Integer> prev = extents.lowerEntry(end);
+    final Iterator<Map.Entry<Long, Integer>> it =
+      extents.tailMap(end).entrySet().iterator();
+    while(it.hasNext()) {
+      free -= it.next().getValue();
+      it.remove();
+    }
+    if(prev != null && prev.getKey() + prev.getValue() > end) {
+      remove(prev.getKey());
+      put(prev.getKey(), (int) (end - prev.getKey()));
+    }
+    dirty = true;
+  }
+
+  /**
+   * Returns the total number of free bytes.
+   * @return number of bytes
+   */
+  public synchronized long free() {
+    return free;
+  }
+
+  /**
+   * Writes the free extents to the specified file if they have been modified.
+   * @param file output file
+   * @throws IOException I/O exception
+   */
+  public synchronized void write(final File file) throws IOException {
+    if(!dirty) return;
+    final DataOutput out = new DataOutput(file);
+    try {
+      out.writeNum(extents.size());
+      for(final Map.Entry<Long, Integer> e : extents.entrySet()) {
+        out.write5(e.getKey());
+        out.writeNum(e.getValue());
+      }
+    } finally {
+      out.close();
+    }
+    dirty = false;
+  }
+
+  /**
+   * Adds an extent to the map and the free lists.
+   * @param off offset
+   * @param size size
+   */
+  private void put(final long off, final int size) {
+    extents.put(off, size);
+    free += size;
+    dirty = true;
+    // extents that are too small to be reused are not added to the lists
+    if(size >= MIN) list(off, size);
+    // drop outdated list entries if they prevail
+    if(entries > 64 + (extents.size() << 1)) {
+      Arrays.fill(counts, 0);
+      entries = 0;
+      for(final Map.Entry<Long, Integer> e : extents.entrySet()) {
+        if(e.getValue() >= MIN) list(e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Adds an extent to the free lists.
+   * @param off offset
+   * @param size size
+   */
+  private void list(final long off, final int size) {
+    final int c = sizeClass(size);
+    final int n = counts[c];
+    if(offs[c] == null) {
+      offs[c] = new long[8];
+      sizes[c] = new int[8];
+    } else if(n == offs[c].length) {
+      offs[c] = Arrays.copyOf(offs[c], n << 1);
+      sizes[c] = Arrays.copyOf(sizes[c], n << 1);
+    }
+    offs[c][n] = off;
+    sizes[c][n] = size;
+    counts[c]++;
+    entries++;
+  }
+
+  /**
+   * Removes an extent from the map. The entry in the free lists will be
+   * removed when it is accessed next.
+   * @param off offset
+   */
+  private void remove(final long off) {
+    free -= extents.remove(off);
+    dirty = true;
+  }
+
+  /**
+   * Uses the specified list entry for a new entry and adds the remaining
+   * bytes to the free extents.
+   * @param c size class
+   * @param i list index
+   * @param size requested size
+   * @return offset
+   */
+  private long use(final int c, final int i, final int size) {
+    final long o = offs[c][i];
+    final int s = sizes[c][i];
+    delete(c, i);
+    remove(o);
+    if(s > size) put(o + size, s - size);
+    return o;
+  }
+
+  /**
+   * Checks if the specified list entry still references a free extent.
+   * @param c size class
+   * @param i list index
+   * @return result of check
+   */
+  private boolean valid(final int c, final int i) {
+    final Integer s = extents.get(offs[c][i]);
+    return s != null && s == sizes[c][i];
+  }
+
+  /**
+   * Deletes an entry from the free lists.
+   * @param c size class
+   * @param i list index
+   */
+  private void delete(final int c, final int i) {
+    final int n = --counts[c];
+    entries--;
+    offs[c][i] = offs[c][n];
+    sizes[c][i] = sizes[c][n];
+  }
+
+  /**
+   * Returns the size class of the specified size.
+   * @param size size
+   * @return size class
+   */
+  private static int sizeClass(final int size) {
+    return 31 - Integer.numberOfLeadingZeros(size);
+  }
+}
@@ -55,6 +55,12 @@ public abstract class IO {
   public static final long OFFNUM = 0x8000000000L;
   /** Offset for compressing texts (see bit layout in {@link Data} class). */
   public static final long OFFCOMP = 0x4000000000L;
+  /** Offset for dictionary texts (see bit layout in {@link Data} class). */
+  public static final long OFFDICT = 0x2000000000L;
+  /** Offset for inlining short texts (see bit layout in {@link Data} class). */
+  public static final long OFFINL = OFFNUM | OFFCOMP;
+  /** Maximum length of inlined texts. */
+  public static final int MAXINL = 4;
 
   /** File path and name. */
   protected String path;
@@ -0,0 +1,303 @@
+package org.basex.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import org.basex.util.Token;
+
+/**
+ * This class represents the redo log of a database. If an update is
+ * committed, the modified blocks and meta data files are appended to the log
+ * as a single record, and the log is synchronized with the disk. The database
+ * files themselves are written later, when the log is checkpointed.
+ * If several commits are performed at the same time, the log will only be
+ * synchronized once.
+ *
+ * If a database is opened, committed records that have not been written to
+ * the database files are replayed by {@link #recover}. Records that have not
+ * been completely written are ignored.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class RedoLog {
+  /** Log size after which the database files are updated. */
+  public static final long LIMIT = 1L << 26;
+  /** Entry type: block of a file. */
+  private static final int BLOCK = 0;
+  /** Entry type: length of a file. */
+  private static final int LENGTH = 1;
+  /** Entry type: contents of a file. */
+  private static final int FILE = 2;
+
+  /** Log file. */
+  private final File file;
+  /** File channel. */
+  private final RandomAccessFile raf;
+  /** Lock for synchronizing the log with the disk. */
+  private final Object sync = new Object();
+  /** Size of the log. */
+  private long size;
+  /** Size of the log that has been synchronized with the disk. */
+  private long synced;
+  /** Number of synchronizations. */
+  private long syncs;
+
+  /**
+   * Constructor.
+   * @param f log file
+   * @throws IOException I/O exception
+   */
+  public RedoLog(final File f) throws IOException {
+    file = f;
+    raf = new RandomAccessFile(f, "rw");
+    size = raf.length();
+    synced = size;
+  }
+
+  /**
+   * Appends a record to the log.
+   * @param rec record
+   * @return log position, which must be passed on to {@link #sync}
+   * @throws IOException I/O exception
+   */
+  public synchronized long append(final Record rec) throws IOException {
+    final byte[] data = rec.finish();
+    final CRC32 crc = new CRC32();
+    crc.update(data);
+    final ByteBuffer bb = ByteBuffer.allocate(data.length + 8);
+    bb.putInt(data.length).putInt((int) crc.getValue()).put(data).flip();
+    final FileChannel fc = raf.getChannel();
+    while(bb.hasRemaining()) size += fc.write(bb, size);
+    return size;
+  }
+
+  /**
+   * Synchronizes the log with the disk, up to the specified position.
+   * If another thread is currently synchronizing the log, this thread waits
+   * and checks if its records have been synchronized in the meantime.
+   * @param pos log position
+   * @throws IOException I/O exception
+   */
+  public void sync(final long pos) throws IOException {
+    synchronized(sync) {
+      if(synced >= pos) return;
+      final long s;
+      synchronized(this) { s = size; }
+      raf.getChannel().force(false);
+      synced = s;
+      ++syncs;
+    }
+  }
+
+  /**
+   * Returns the number of times the log has been synchronized with the disk.
+   * @return number of synchronizations
+   */
+  public long syncs() {
+    synchronized(sync) {
+      return syncs;
+    }
+  }
+
+  /**
+   * Returns the size of the log.
+   * @return size
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Synchronizes all database files with the disk and empties the log.
+   * Must be called after the database files have been updated.
+   * @throws IOException I/O exception
+   */
+  public void reset() throws IOException {
+    synchronized(sync) {
+      synchronized(this) {
+        final File[] files = file.getParentFile().listFiles();
+        if(files != null) {
+          for(final File f : files) if(!f.equals(file)) sync(f);
+        }
+        raf.setLength(0);
+        raf.getChannel().force(false);
+        size = 0;
+        synced = 0;
+      }
+    }
+  }
+
+  /**
+   * Closes and deletes the log. Must be called after {@link #reset}.
+   * @throws IOException I/O exception
+   */
+  public synchronized void close() throws IOException {
+    raf.close();
+    file.delete();
+  }
+
+  /**
+   * Replays all complete records of the specified log file and deletes
+   * the log.
+   * @param f log file
+   * @return {@code true} if records have been replayed
+   * @throws IOException I/O exception
+   */
+  public static boolean recover(final File f) throws IOException {
+    if(!f.exists()) return false;
+    final File dir = f.getParentFile();
+    boolean replayed = false;
+    final RandomAccessFile in = new RandomAccessFile(f, "r");
+    try {
+      final long len = in.length();
+      for(long p = 0; p + 8 <= len;) {
+        in.seek(p);
+        final int l = in.readInt();
+        final int c = in.readInt();
+        if(l < 0 || p + 8 + l > len) break;
+        final byte[] data = new byte[l];
+        in.readFully(data);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        if((int) crc.getValue() != c) break;
+        replay(data, dir);
+        replayed = true;
+        p += 8 + l;
+      }
+    } finally {
+      in.close();
+    }
+    if(replayed) {
+      final File[] files = dir.listFiles();
+      if(files != null) {
+        for(final File fl : files) if(!fl.equals(f)) sync(fl);
+      }
+    }
+    f.delete();
+    return replayed;
+  }
+
+  /**
+   * Writes the entries of a log record to the database files.
+   * @param data record data
+   * @param dir database directory
+   * @throws IOException I/O exception
+   */
+  private static void replay(final byte[] data, final File dir)
+      throws IOException {
+
+    final DataInput in = new DataInput(new ByteArrayInputStream(data));
+    for(int e = in.readNum(); e > 0; --e) {
+      final int type = in.readNum();
+      final File f = new File(dir, Token.string(in.readBytes()) +
+          IO.BASEXSUFFIX);
+      final RandomAccessFile raf = new RandomAccessFile(f, "rw");
+      try {
+        if(type == FILE) {
+          final byte[] b = in.readBytes();
+          raf.setLength(b.length);
+          raf.write(b);
+        } else if(type == LENGTH) {
+          raf.setLength(in.read8());
+        } else {
+          raf.seek(in.read8());
+          raf.write(in.readBytes());
+        }
+      } finally {
+        raf.close();
+      }
+    }
+  }
+
+  /**
+   * Synchronizes the specified file with the disk.
+   * @param f file
+   * @throws IOException I/O exception
+   */
+  private static void sync(final File f) throws IOException {
+    if(!f.isFile()) return;
+    final RandomAccessFile raf = new RandomAccessFile(f, "rw");
+    try {
+      raf.getChannel().force(true);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /** Log record, containing the entries of a single commit. */
+  public static final class Record {
+    /** Entries. */
+    private final ArrayOutput out = new ArrayOutput();
+    /** Output stream for the entries. */
+    private final DataOutput entries = new DataOutput(out);
+    /** Number of entries. */
+    private int size;
+
+    /**
+     * Adds a block of a database file.
+     * @param name file name (without suffix)
+     * @param off file offset
+     * @param data block contents
+     * @throws IOException I/O exception
+     */
+    public void block(final String name, final long off, final byte[] data)
+        throws IOException {
+      entry(BLOCK, name);
+      entries.write8(off);
+      entries.writeToken(data);
+    }
+
+    /**
+     * Adds the length of a database file.
+     * @param name file name (without suffix)
+     * @param len file length
+     * @throws IOException I/O exception
+     */
+    public void length(final String name, final long len) throws IOException {
+      entry(LENGTH, name);
+      entries.write8(len);
+    }
+
+    /**
+     * Adds the contents of a database file.
+     * @param name file name (without suffix)
+     * @param data file contents
+     * @throws IOException I/O exception
+     */
+    public void file(final String name, final byte[] data)
+        throws IOException {
+      entry(FILE, name);
+      entries.writeToken(data);
+    }
+
+    /**
+     * Returns the contents of the record.
+     * @return record contents
+     * @throws IOException I/O exception
+     */
+    byte[] finish() throws IOException {
+      final ArrayOutput ao = new ArrayOutput();
+      final DataOutput o = new DataOutput(ao);
+      o.writeNum(size);
+      o.writeBytes(out.toArray());
+      return ao.toArray();
+    }
+
+    /**
+     * Writes the header of an entry.
+     * @param type entry type
+     * @param name file name
+     * @throws IOException I/O exception
+     */
+    private void entry(final int type, final String name) throws IOException {
+      entries.writeNum(type);
+      entries.writeString(name);
+      ++size;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.basex.io;
 
 import java.io.IOException;
 import org.basex.data.MetaData;
+import org.basex.util.Util;
 
 /**
  * This abstract class defines the methods for accessing the
@@ -40,6 +41,26 @@ public abstract class TableAccess {
    */
   public abstract void close() throws IOException;
 
+  /**
+   * Keeps modified entries in memory until they have been added to a log
+   * record via {@link #log}.
+   * @return {@code false} if the modifications of this table cannot be logged
+   */
+  public boolean keep() {
+    return false;
+  }
+
+  /**
+   * Adds the modified entries to the specified log record.
+   * They will be written to disk when the table is flushed.
+   * @param rec log record
+   * @throws IOException I/O exception
+   */
+  @SuppressWarnings("unused")
+  public void log(final RedoLog.Record rec) throws IOException {
+    throw Util.notexpected();
+  }
+
   /**
    * Reads a byte value and returns it as an integer value.
    * @param p pre value
@@ -0,0 +1,185 @@
+package org.basex.io;
+
+import java.io.IOException;
+import org.basex.data.MetaData;
+
+/**
+ * This class stores the table on disk in separate column files.
+ * The 16 bytes of a table entry are split into three columns:
+ * <ul>
+ * <li>bytes 0-7: kind, name, text reference or namespace uri and
+ *   distance</li>
+ * <li>bytes 8-11: size or distance</li>
+ * <li>bytes 12-15: id</li>
+ * </ul>
+ * The column boundaries are aligned with the fields of all node kinds
+ * (see {@link org.basex.data.Data}), so that no field is split across
+ * columns. Each column is stored in its own {@link TableDiskAccess}
+ * instance. Most read operations only touch a single column.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableColumnAccess extends TableAccess {
+  /** Entry offsets of the columns. */
+  static final int[] OFFSETS = { 0, 8, 12 };
+  /** Powers of the column entry sizes. */
+  static final int[] POWERS = { 3, 2, 2 };
+  /** Column tables. */
+  private final TableDiskAccess[] cols = new TableDiskAccess[OFFSETS.length];
+
+  /**
+   * Constructor.
+   * @param md meta data
+   * @param pf file prefix
+   * @throws IOException I/O exception
+   */
+  public TableColumnAccess(final MetaData md, final String pf)
+      throws IOException {
+    super(md, pf);
+    for(int c = 0; c < cols.length; ++c) {
+      cols[c] = new TableDiskAccess(md, file(pf, c), POWERS[c]);
+    }
+  }
+
+  /**
+   * Returns the name of a column file.
+   * @param pf file prefix
+   * @param c column
+   * @return file name
+   */
+  static String file(final String pf, final int c) {
+    return pf + c;
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    for(final TableDiskAccess t : cols) t.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    for(final TableDiskAccess t : cols) t.close();
+  }
+
+  @Override
+  public boolean keep() {
+    for(final TableDiskAccess t : cols) if(!t.keep()) return false;
+    return true;
+  }
+
+  @Override
+  public synchronized void log(final RedoLog.Record rec) throws IOException {
+    for(final TableDiskAccess t : cols) t.log(rec);
+  }
+
+  @Override
+  public int read1(final int p, final int o) {
+    final int c = col(o);
+    return cols[c].read1(p, o - OFFSETS[c]);
+  }
+
+  @Override
+  public int read2(final int p, final int o) {
+    final int c = col(o);
+    return cols[c].read2(p, o - OFFSETS[c]);
+  }
+
+  @Override
+  public int read4(final int p, final int o) {
+    final int c = col(o);
+    return cols[c].read4(p, o - OFFSETS[c]);
+  }
+
+  @Override
+  public long read5(final int p, final int o) {
+    final int c = col(o);
+    return cols[c].read5(p, o - OFFSETS[c]);
+  }
+
+  @Override
+  public synchronized void write1(final int p, final int o, final int v) {
+    final int c = col(o);
+    cols[c].write1(p, o - OFFSETS[c], v);
+  }
+
+  @Override
+  public synchronized void write2(final int p, final int o, final int v) {
+    final int c = col(o);
+    cols[c].write2(p, o - OFFSETS[c], v);
+  }
+
+  @Override
+  public synchronized void write4(final int p, final int o, final int v) {
+    final int c = col(o);
+    cols[c].write4(p, o - OFFSETS[c], v);
+  }
+
+  @Override
+  public synchronized void write5(final int p, final int o, final long v) {
+    final int c = col(o);
+    cols[c].write5(p, o - OFFSETS[c], v);
+  }
+
+  @Override
+  public synchronized void replace(final int pre, final byte[] entries,
+      final int sub) {
+    // each column updates the table size
+    final int size = meta.size;
+    for(int c = 0; c < cols.length; ++c) {
+      meta.size = size;
+      cols[c].replace(pre, column(entries, c), sub);
+    }
+  }
+
+  @Override
+  public synchronized void delete(final int pre, final int nr) {
+    final int size = meta.size;
+    for(final TableDiskAccess t : cols) {
+      meta.size = size;
+      t.delete(pre, nr);
+    }
+  }
+
+  @Override
+  public synchronized void insert(final int pre, final byte[] entries) {
+    final int size = meta.size;
+    for(int c = 0; c < cols.length; ++c) {
+      meta.size = size;
+      cols[c].insert(pre, column(entries, c));
+    }
+  }
+
+  @Override
+  public synchronized void set(final int pre, final byte[] entries) {
+    for(int c = 0; c < cols.length; ++c) cols[c].set(pre, column(entries, c));
+  }
+
+  /**
+   * Returns the column of the specified entry offset.
+   * @param o offset
+   * @return column
+   */
+  private static int col(final int o) {
+    int c = OFFSETS.length - 1;
+    while(OFFSETS[c] > o) --c;
+    return c;
+  }
+
+  /**
+   * Extracts the bytes of a column from the specified entries.
+   * @param entries table entries
+   * @param c column
+   * @return column entries
+   */
+  private static byte[] column(final byte[] entries, final int c) {
+    final int s = 1 << POWERS[c];
+    final int nr = entries.length >>> IO.NODEPOWER;
+    final byte[] col = new byte[nr * s];
+    for(int i = 0; i < nr; ++i) {
+      final int o = (i << IO.NODEPOWER) + OFFSETS[c];
+      System.arraycopy(entries, o, col, i * s, s);
+    }
+    return col;
+  }
+}
@@ -0,0 +1,49 @@
+package org.basex.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import org.basex.data.MetaData;
+
+/**
+ * This class allows a blockwise output of a database table that is
+ * split into columns. See {@link TableColumnAccess} for the column layout.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableColumnOutput extends OutputStream {
+  /** Column outputs. */
+  private final TableOutput[] cols;
+  /** Column of each entry offset. */
+  private final TableOutput[] out = new TableOutput[1 << IO.NODEPOWER];
+  /** Offset inside the current entry. */
+  private int off;
+
+  /**
+   * Initializes the output.
+   * @param md meta data
+   * @param fn file prefix
+   * @throws IOException I/O exception
+   */
+  public TableColumnOutput(final MetaData md, final String fn)
+      throws IOException {
+    final int[] offs = TableColumnAccess.OFFSETS;
+    cols = new TableOutput[offs.length];
+    for(int c = 0; c < offs.length; ++c) {
+      cols[c] = new TableOutput(md, TableColumnAccess.file(fn, c),
+          TableColumnAccess.POWERS[c]);
+      for(int o = offs[c]; o < out.length; ++o) out[o] = cols[c];
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    out[off].write(b);
+    off = off + 1 & out.length - 1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for(final TableOutput t : cols) t.close();
+  }
+}
@@ -0,0 +1,167 @@
+package org.basex.io;
+
+import java.util.Arrays;
+
+/**
+ * This class compresses and decompresses blocks of the database table.
+ * As all table entries have a fixed size, each 4-byte word is first
+ * replaced with its difference to the corresponding word of the preceding
+ * entry, which turns ascending values (ids, text offsets) and recurring
+ * values (names, distances) into repeated byte sequences. The result is then
+ * packed with a simple LZ77 variant.
+ *
+ * The packed format consists of sequences. Each sequence starts with a token
+ * byte, containing the number of literals (bits 7-4) and the match length
+ * minus 4 (bits 3-0). If a value is 15, additional bytes are added until a
+ * byte smaller than 255 is found. The literals follow the token, and the
+ * match offset (2 bytes) and additional match length bytes follow the
+ * literals. The last sequence contains only literals.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class TableCompress {
+  /** Number of hash bits. */
+  private static final int HASH = 12;
+  /** Minimum match length. */
+  private static final int MIN = 4;
+  /** Entry size. */
+  private static final int ENTRY = 1 << IO.NODEPOWER;
+
+  /** Hash table, storing the last input positions. */
+  private final int[] table = new int[1 << HASH];
+  /** Temporary block with word differences. */
+  private final byte[] delta = new byte[IO.BLOCKSIZE];
+
+  /**
+   * Compresses a block.
+   * @param in block to be compressed
+   * @param out output array (must have the size of a block)
+   * @return number of packed bytes, or {@code -1} if the block could not be
+   * compressed
+   */
+  int pack(final byte[] in, final byte[] out) {
+    final byte[] d = delta;
+    final int len = in.length;
+    System.arraycopy(in, 0, d, 0, ENTRY);
+    for(int i = ENTRY; i < len; i += 4) {
+      put(d, i, get(in, i) - get(in, i - ENTRY));
+    }
+
+    final int[] tb = table;
+    Arrays.fill(tb, -1);
+    final int max = out.length - 1;
+    int ip = 0, an = 0, op = 0;
+    while(ip + MIN <= len) {
+      final int seq = get(d, ip);
+      final int h = seq * -1640531535 >>> 32 - HASH;
+      final int ref = tb[h];
+      tb[h] = ip;
+      if(ref < 0 || ip - ref > 0xFFFF || get(d, ref) != seq) {
+        ++ip;
+        continue;
+      }
+      int ml = MIN;
+      while(ip + ml < len && d[ref + ml] == d[ip + ml]) ++ml;
+
+      // write token, literals, offset and match length
+      final int ll = ip - an;
+      if(op + ll + ll / 255 + ml / 255 + 5 > max) return -1;
+      final int tp = op++;
+      op = length(out, op, ll);
+      System.arraycopy(d, an, out, op, ll);
+      op += ll;
+      out[op++] = (byte) (ip - ref >>> 8);
+      out[op++] = (byte) (ip - ref);
+      op = length(out, op, ml - MIN);
+      out[tp] = (byte) (Math.min(ll, 15) << 4 | Math.min(ml - MIN, 15));
+      ip += ml;
+      an = ip;
+    }
+
+    // write remaining literals
+    final int ll = len - an;
+    if(op + ll + ll / 255 + 2 > max) return -1;
+    out[op++] = (byte) (Math.min(ll, 15) << 4);
+    op = length(out, op, ll);
+    System.arraycopy(d, an, out, op, ll);
+    return op + ll;
+  }
+
+  /**
+   * Decompresses a block.
+   * @param in packed bytes
+   * @param l number of packed bytes
+   * @param out output array (must have the size of a block)
+   */
+  void unpack(final byte[] in, final int l, final byte[] out) {
+    int ip = 0, op = 0;
+    while(ip < l) {
+      final int t = in[ip++] & 0xFF;
+      int ll = t >>> 4;
+      if(ll == 15) {
+        int b;
+        do ll += b = in[ip++] & 0xFF; while(b == 255);
+      }
+      System.arraycopy(in, ip, out, op, ll);
+      ip += ll;
+      op += ll;
+      if(ip >= l) break;
+
+      final int off = (in[ip++] & 0xFF) << 8 | in[ip++] & 0xFF;
+      int ml = t & 0x0F;
+      if(ml == 15) {
+        int b;
+        do ml += b = in[ip++] & 0xFF; while(b == 255);
+      }
+      // copy byte by byte, as source and target may overlap
+      for(int m = ml + MIN, r = op - off; m > 0; --m) out[op++] = out[r++];
+    }
+
+    // restore original words
+    for(int i = ENTRY; i < out.length; i += 4) {
+      put(out, i, get(out, i) + get(out, i - ENTRY));
+    }
+  }
+
+  /**
+   * Writes the additional bytes of a sequence length.
+   * @param out output array
+   * @param o output offset
+   * @param l length
+   * @return new output offset
+   */
+  private static int length(final byte[] out, final int o, final int l) {
+    int op = o;
+    if(l >= 15) {
+      int r = l - 15;
+      for(; r >= 255; r -= 255) out[op++] = (byte) 255;
+      out[op++] = (byte) r;
+    }
+    return op;
+  }
+
+  /**
+   * Returns the word at the specified position.
+   * @param b byte array
+   * @param i position
+   * @return word
+   */
+  private static int get(final byte[] b, final int i) {
+    return (b[i] & 0xFF) << 24 | (b[i + 1] & 0xFF) << 16 |
+      (b[i + 2] & 0xFF) << 8 | b[i + 3] & 0xFF;
+  }
+
+  /**
+   * Writes a word to the specified position.
+   * @param b byte array
+   * @param i position
+   * @param v word
+   */
+  private static void put(final byte[] b, final int i, final int v) {
+    b[i] = (byte) (v >>> 24);
+    b[i + 1] = (byte) (v >>> 16);
+    b[i + 2] = (byte) (v >>> 8);
+    b[i + 3] = (byte) v;
+  }
+}
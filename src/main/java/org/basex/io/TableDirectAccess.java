@@ -0,0 +1,260 @@
+package org.basex.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.basex.data.MetaData;
+
+/**
+ * This class allows main memory access to the database table representation.
+ * In contrast to {@link TableMemAccess}, the table is stored in direct byte
+ * buffers outside the Java heap. The buffers are split into chunks of a fixed
+ * size, so that heap usage and garbage collection times are independent of
+ * the table size. The available memory is limited by the
+ * {@code -XX:MaxDirectMemorySize} flag of the Java VM.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableDirectAccess extends TableAccess {
+  /** Power of the number of entries per chunk. */
+  private static final int CHUNKPOWER = 16;
+  /** Number of entries per chunk. */
+  private static final int CHUNK = 1 << CHUNKPOWER;
+  /** Chunks. */
+  private ByteBuffer[] chunks = new ByteBuffer[0];
+
+  /**
+   * Reads the table into direct buffers.
+   * @param md meta data
+   * @param pf filename
+   * @throws IOException IO Exception
+   */
+  public TableDirectAccess(final MetaData md, final String pf)
+      throws IOException {
+    super(md, pf);
+    capacity(md.size);
+
+    // read index info
+    final DataInput in = new DataInput(md.file(pf + 'i'));
+    in.readNum(); in.readNum();
+    final int[] firstPres = in.readNums();
+    final int[] blocks = in.readNums();
+
+    // read blocks
+    final RandomAccessFile f = new RandomAccessFile(md.file(pf), "r");
+    Buffers bm = new Buffers(f, IO.BLOCKSIZE);
+    if(md.tablecomp) {
+      in.readLongs(in.readNum());
+      bm = new CompressedBuffers(f, in);
+    }
+    in.close();
+
+    final byte[] array = new byte[IO.BLOCKSIZE];
+    for(int c = 0; c < firstPres.length; ++c) {
+      final int fp = firstPres[c];
+      final int np = c + 1 == firstPres.length ? md.size : firstPres[c + 1];
+      bm.load(blocks[c], array);
+      copy(array, fp, np - fp);
+    }
+    f.close();
+  }
+
+  @Override
+  public void flush() { }
+
+  @Override
+  public void close() throws IOException {
+    if(dirty && pref != null) {
+      // the table output writes the blocks and the index
+      final DataOutput out = new DataOutput(new TableOutput(meta, pref));
+      for(int a = 0; a < meta.size; ++a) {
+        final ByteBuffer bb = chunks[a >>> CHUNKPOWER];
+        final int o = (a & CHUNK - 1) << IO.NODEPOWER;
+        out.write8(bb.getLong(o));
+        out.write8(bb.getLong(o + 8));
+      }
+      out.close();
+      dirty = false;
+    }
+  }
+
+  @Override
+  public int read1(final int p, final int o) {
+    return chunks[p >>> CHUNKPOWER].get(off(p, o)) & 0xFF;
+  }
+
+  @Override
+  public int read2(final int p, final int o) {
+    return chunks[p >>> CHUNKPOWER].getShort(off(p, o)) & 0xFFFF;
+  }
+
+  @Override
+  public int read4(final int p, final int o) {
+    return chunks[p >>> CHUNKPOWER].getInt(off(p, o));
+  }
+
+  @Override
+  public long read5(final int p, final int o) {
+    final ByteBuffer bb = chunks[p >>> CHUNKPOWER];
+    final int i = off(p, o);
+    return (long) (bb.get(i) & 0xFF) << 32 | bb.getInt(i + 1) & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void write1(final int p, final int o, final int v) {
+    dirty = true;
+    chunks[p >>> CHUNKPOWER].put(off(p, o), (byte) v);
+  }
+
+  @Override
+  public void write2(final int p, final int o, final int v) {
+    dirty = true;
+    chunks[p >>> CHUNKPOWER].putShort(off(p, o), (short) v);
+  }
+
+  @Override
+  public void write4(final int p, final int o, final int v) {
+    dirty = true;
+    chunks[p >>> CHUNKPOWER].putInt(off(p, o), v);
+  }
+
+  @Override
+  public void write5(final int p, final int o, final long v) {
+    dirty = true;
+    final ByteBuffer bb = chunks[p >>> CHUNKPOWER];
+    final int i = off(p, o);
+    bb.put(i, (byte) (v >>> 32));
+    bb.putInt(i + 1, (int) v);
+  }
+
+  @Override
+  public void replace(final int pre, final byte[] entries, final int sub) {
+    final int nsize = entries.length >>> IO.NODEPOWER;
+    final int diff = sub - nsize;
+    final int max = pre + nsize - Math.abs(diff);
+    copy(entries, pre, max - pre);
+    dirty = true;
+
+    // handle the remaining entries if the two subtrees are of different size
+    // case1: new subtree bigger than old one, insert remaining new nodes
+    if(diff < 0) {
+      final int off = max - pre << IO.NODEPOWER;
+      insert(max, Arrays.copyOfRange(entries, off, entries.length));
+    } else if(diff > 0) {
+      // case2: old subtree bigger than new one, delete remaining old nodes
+      delete(max, diff);
+    }
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    move(pre + nr, pre);
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    final int nr = entries.length >>> IO.NODEPOWER;
+    move(pre, pre + nr);
+    copy(entries, pre, nr);
+  }
+
+  @Override
+  public void set(final int pre, final byte[] entries) {
+    dirty = true;
+    copy(entries, pre, entries.length >>> IO.NODEPOWER);
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the byte offset of the specified entry inside its chunk.
+   * @param p pre value
+   * @param o offset
+   * @return offset
+   */
+  private static int off(final int p, final int o) {
+    return ((p & CHUNK - 1) << IO.NODEPOWER) + o;
+  }
+
+  /**
+   * Ensures that the chunks can hold the specified number of entries.
+   * @param s number of entries
+   */
+  private void capacity(final int s) {
+    final int c = chunks.length;
+    final int n = s + CHUNK - 1 >>> CHUNKPOWER;
+    if(n <= c) return;
+    chunks = Arrays.copyOf(chunks, Math.max(n, c + (c >> 1)));
+    for(int i = c; i < chunks.length; ++i) {
+      chunks[i] = ByteBuffer.allocateDirect(CHUNK << IO.NODEPOWER);
+    }
+  }
+
+  /**
+   * Copies entries from the specified array to the table.
+   * @param entries entries
+   * @param pre first pre value
+   * @param nr number of entries
+   */
+  private void copy(final byte[] entries, final int pre, final int nr) {
+    for(int a = 0; a < nr;) {
+      final int p = pre + a;
+      final int n = Math.min(nr - a, CHUNK - (p & CHUNK - 1));
+      final ByteBuffer bb = chunks[p >>> CHUNKPOWER].duplicate();
+      bb.position(off(p, 0));
+      bb.put(entries, a << IO.NODEPOWER, n << IO.NODEPOWER);
+      a += n;
+    }
+  }
+
+  /**
+   * Moves the entries starting from the specified position.
+   * @param op source position
+   * @param np destination position
+   */
+  private void move(final int op, final int np) {
+    dirty = true;
+    final int l = meta.size - op;
+    capacity(np + l);
+
+    // copy segments that do not cross chunk boundaries; start at the end
+    // of the moved range if the entries are shifted to the right
+    final byte[] tmp = new byte[Math.min(l, CHUNK) << IO.NODEPOWER];
+    final boolean right = np > op;
+    for(int r = l; r > 0;) {
+      final int s, d, n;
+      if(right) {
+        final int se = op + r, de = np + r;
+        n = Math.min(r, Math.min(rest(se), rest(de)));
+        s = se - n;
+        d = de - n;
+      } else {
+        s = op + l - r;
+        d = np + l - r;
+        n = Math.min(r, Math.min(CHUNK - (s & CHUNK - 1),
+            CHUNK - (d & CHUNK - 1)));
+      }
+      final ByteBuffer src = chunks[s >>> CHUNKPOWER].duplicate();
+      src.position(off(s, 0));
+      src.get(tmp, 0, n << IO.NODEPOWER);
+      final ByteBuffer dst = chunks[d >>> CHUNKPOWER].duplicate();
+      dst.position(off(d, 0));
+      dst.put(tmp, 0, n << IO.NODEPOWER);
+      r -= n;
+    }
+    meta.size += np - op;
+  }
+
+  /**
+   * Returns the number of entries in the chunk before the specified
+   * (exclusive) end position.
+   * @param e end position
+   * @return number of entries
+   */
+  private static int rest(final int e) {
+    final int i = e & CHUNK - 1;
+    return i == 0 ? CHUNK : i;
+  }
+}
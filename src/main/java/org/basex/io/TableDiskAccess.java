@@ -2,26 +2,40 @@ package org.basex.io;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
+import org.basex.core.Prop;
 import org.basex.data.MetaData;
 import org.basex.util.Array;
 import org.basex.util.BitArray;
+import org.basex.util.IntList;
 import org.basex.util.Util;
 
 /**
  * This class stores the table on disk and reads it block-wise.
+ * If {@link Prop#TABLEMAP} is enabled, entries are read directly from
+ * a memory-mapped view of the table file as long as no updates are pending.
+ * If {@link MetaData#tablecomp} is set, the blocks are stored in compressed
+ * form, and the buffers contain the decompressed blocks.
+ * Read operations are not synchronized: each thread reads the table with its
+ * own cursor and a private copy of the current block. Write operations
+ * are performed in the shared buffers and invalidate all read cursors.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class TableDiskAccess extends TableAccess {
-  /** Max entries per block. */
-  static final int ENTRIES = IO.BLOCKSIZE >>> IO.NODEPOWER;
+  /** Power of the size of a mapped file chunk (multiple of block size). */
+  private static final int CHUNKPOWER = 30;
 
+  /** Power of the entry size. */
+  private final int power;
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
   /** Current buffer. */
   private Buffer bf;
 
@@ -47,6 +61,24 @@ public final class TableDiskAccess extends TableAccess {
   /** Index of the current block number in the {@link #pages} array. */
   private int index = -1;
 
+  /** Flag for an index that has been logged, but not written to disk. */
+  private boolean logged;
+
+  /** Memory-mapped file chunks (optional). */
+  private MappedByteBuffer[] map;
+  /** Flag for reading entries from the mapped chunks. */
+  private boolean mapped;
+
+  /** Read cursors of all threads. */
+  private final ThreadLocal<Reader> readers = new ThreadLocal<Reader>() {
+    @Override
+    protected Reader initialValue() {
+      return new Reader();
+    }
+  };
+  /** Modification counter; invalidates the read cursors. */
+  private volatile int mod;
+
   /**
    * Constructor.
    * @param md meta data
@@ -55,8 +87,21 @@ public final class TableDiskAccess extends TableAccess {
    */
   public TableDiskAccess(final MetaData md, final String pf)
       throws IOException {
+    this(md, pf, IO.NODEPOWER);
+  }
+
+  /**
+   * Constructor, specifying the size of the table entries.
+   * @param md meta data
+   * @param pf file prefix
+   * @param pw power of the entry size
+   * @throws IOException I/O exception
+   */
+  TableDiskAccess(final MetaData md, final String pf, final int pw)
+      throws IOException {
 
     super(md, pf);
+    power = pw;
 
     // read meta and index data
     final DataInput in = new DataInput(meta.file(pf + 'i'));
@@ -75,63 +120,101 @@ public final class TableDiskAccess extends TableAccess {
     } else {
       pagemap = new BitArray(in.readLongs(psize), allBlocks);
     }
-    in.close();
 
     // initialize data file
     data = new RandomAccessFile(meta.file(pf), "rw");
+    bm = md.tablecomp ? new CompressedBuffers(data, in) :
+      new Buffers(data, IO.BLOCKSIZE);
+    in.close();
     readBlock(0);
+    // compressed blocks cannot be read from the mapped file
+    if(md.prop.is(Prop.TABLEMAP) && !md.tablecomp) map();
   }
 
   @Override
   public synchronized void flush() throws IOException {
-    for(final Buffer b : bm.all())
-      if(b.dirty) writeBlock(b);
+    bm.flush();
 
-    if(!dirty) return;
+    if(map != null && !mapped) map();
+
+    final CompressedBuffers cb = bm instanceof CompressedBuffers ?
+        (CompressedBuffers) bm : null;
+    if(!dirty && !logged && (cb == null || !cb.dirty)) return;
     final DataOutput out = new DataOutput(meta.file(pref + 'i'));
+    write(out);
+    if(cb != null) cb.write(out);
+    out.close();
+    dirty = false;
+    logged = false;
+  }
+
+  @Override
+  public boolean keep() {
+    // compressed blocks are not written in place
+    if(bm instanceof CompressedBuffers) return false;
+    bm.keep = true;
+    return true;
+  }
+
+  @Override
+  public synchronized void log(final RedoLog.Record rec) throws IOException {
+    bm.log(rec, pref);
+    if(!dirty) return;
+    final ArrayOutput ao = new ArrayOutput();
+    write(new DataOutput(ao));
+    rec.file(pref + 'i', ao.toArray());
+    dirty = false;
+    logged = true;
+  }
+
+  /**
+   * Writes the block index.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
     out.writeNum(allBlocks);
     out.writeNum(blocks);
     out.writeNums(fpres);
     out.writeNums(pages);
     out.writeLongs(pagemap.toArray());
-    out.close();
-    dirty = false;
   }
 
   @Override
   public synchronized void close() throws IOException {
+    map = null;
+    mapped = false;
+    ++mod;
     flush();
+    bm.close();
     data.close();
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    final Reader r = reader(pre);
+    return r.buf.get(r.off + (pre - r.fpre << power) + off) & 0xFF;
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    final Reader r = reader(pre);
+    return r.buf.getShort(r.off + (pre - r.fpre << power) + off) &
+      0xFFFF;
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    final Reader r = reader(pre);
+    return r.buf.getInt(r.off + (pre - r.fpre << power) + off);
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    final Reader r = reader(pre);
+    final ByteBuffer b = r.buf;
+    final int o = r.off + (pre - r.fpre << power) + off;
+    return (long) (b.get(o) & 0xFF) << 32 | b.getInt(o + 1) & 0xFFFFFFFFL;
   }
 
   @Override
@@ -139,7 +222,7 @@ public final class TableDiskAccess extends TableAccess {
     final int o = off + cursor(pre);
     final byte[] b = bf.data;
     b[o] = (byte) v;
-    bf.dirty = true;
+    modified(o, 1);
   }
 
   @Override
@@ -148,7 +231,7 @@ public final class TableDiskAccess extends TableAccess {
     final byte[] b = bf.data;
     b[o] = (byte) (v >>> 8);
     b[o + 1] = (byte) v;
-    bf.dirty = true;
+    modified(o, 2);
   }
 
   @Override
@@ -159,7 +242,7 @@ public final class TableDiskAccess extends TableAccess {
     b[o + 1] = (byte) (v >>> 16);
     b[o + 2] = (byte) (v >>> 8);
     b[o + 3] = (byte) v;
-    bf.dirty = true;
+    modified(o, 4);
   }
 
   @Override
@@ -171,12 +254,13 @@ public final class TableDiskAccess extends TableAccess {
     b[o + 2] = (byte) (v >>> 16);
     b[o + 3] = (byte) (v >>> 8);
     b[o + 4] = (byte) v;
-    bf.dirty = true;
+    modified(o, 5);
   }
 
   @Override
   public void replace(final int pre, final byte[] entries, final int sub) {
-    final int nsize = entries.length >>> IO.NODEPOWER;
+    ++mod;
+    final int nsize = entries.length >>> power;
     final int rpre = pre + nsize;
     int off = 0;
     final int diff = sub - nsize;
@@ -184,7 +268,7 @@ public final class TableDiskAccess extends TableAccess {
     for(int i = pre; i < max; i++) {
       final int o = cursor(pre);
       final byte[] b = bf.data;
-      for(int j = 0; j < 16; j++) b[o + j] = entries[off++];
+      for(int j = 0; j < 1 << power; j++) b[o + j] = entries[off++];
     }
     bf.dirty = true;
 
@@ -204,6 +288,7 @@ public final class TableDiskAccess extends TableAccess {
   public void delete(final int first, final int nr) {
     // mark index as dirty and get first block
     dirty = true;
+    ++mod;
     cursor(first);
 
     // some useful variables to make code more readable
@@ -272,16 +357,17 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public void insert(final int pre, final byte[] entries) {
     if(entries.length == 0) return;
+    ++mod;
 
     // go to the block and find the offset within the block where the new
     // records will be inserted:
-    final int split = cursor(pre - 1) + (1 << IO.NODEPOWER);
+    final int split = cursor(pre - 1) + (1 << power);
 
     // number of records to be inserted:
-    final int nr = entries.length >>> IO.NODEPOWER;
+    final int nr = entries.length >>> power;
 
     // number of bytes occupied by old records in the current block:
-    final int nold = npre - fpre << IO.NODEPOWER;
+    final int nold = npre - fpre << power;
     // number of bytes occupied by old records which will be moved at the end:
     final int moved = nold - split;
 
@@ -300,67 +386,81 @@ public final class TableDiskAccess extends TableAccess {
       return;
     }
 
-    // append old entries at the end of the new entries:
-    // [DP] the following can be optimized to avoid copying arrays:
-    final byte[] all = new byte[entries.length + moved];
-    System.arraycopy(entries, 0, all, 0, entries.length);
-    System.arraycopy(bf.data, split, all, entries.length, moved);
-
-    // fill in the current block with new entries:
-    // number of bytes which can fit in the first block:
-    int n = bf.data.length - split;
-    if(n > 0) {
-      System.arraycopy(all, 0, bf.data, split, n);
+    // entries are appended to the block: insert them at the beginning of
+    // the next block if it has enough space left
+    if(moved == 0 && index + 1 < blocks && (occupiedSpace(index + 1) << power) +
+        entries.length <= IO.BLOCKSIZE) {
+      readBlock(index + 1);
+      final int o = npre - fpre << power;
+      System.arraycopy(bf.data, 0, bf.data, entries.length, o);
+      System.arraycopy(entries, 0, bf.data, 0, entries.length);
       bf.dirty = true;
+
+      // increment first pre-values of blocks after the modified block:
+      for(int i = index + 1; i < blocks; ++i) fpres[i] += nr;
+      npre += nr;
+      meta.size += nr;
+      dirty = true;
+      return;
     }
 
-    int neededBlocks = (all.length - n) / IO.BLOCKSIZE;
-    // number of bytes which don't fill one block completely:
-    final int remain = (all.length - n) % IO.BLOCKSIZE;
-
-    if(remain > 0) {
-      // check if the last entries can fit in the block after the current one:
-      if(index + 1 < blocks) {
-        final int o = occupiedSpace(index + 1) << IO.NODEPOWER;
-        if(remain <= IO.BLOCKSIZE - o) {
-          // copy the last records:
-          readBlock(index + 1);
-          System.arraycopy(bf.data, 0, bf.data, remain, o);
-          System.arraycopy(all, all.length - remain, bf.data, 0, remain);
-          bf.dirty = true;
-          // reduce the pre value, since it will be later incremented with nr:
-          fpres[index] -= remain >>> IO.NODEPOWER;
-          // go back to the previous block
-          readBlock(index - 1);
-        } else {
-          // there is not enough space in the block - allocate a new one:
-          ++neededBlocks;
-        }
-      } else {
-        // this is the last block - allocate a new one:
-        ++neededBlocks;
+    // overflow: the current block is filled with the new entries, and
+    // the remaining entries are written to new blocks. The old entries
+    // after the split position are moved to the next block if it has enough
+    // space left, or to a new block. Subsequent inserts at the same position
+    // can then be performed inside the block.
+    final int el = entries.length;
+    final int next = index + 1 < blocks ? occupiedSpace(index + 1) << power :
+      IO.BLOCKSIZE;
+    final int first = Math.min(split + el, IO.BLOCKSIZE);
+    final IntList sizes = new IntList();
+    int rem = split + el - first;
+    for(; rem > IO.BLOCKSIZE; rem -= IO.BLOCKSIZE) sizes.add(IO.BLOCKSIZE);
+    boolean spill = false;
+    if(rem > 0 && rem + moved <= IO.BLOCKSIZE) {
+      sizes.add(rem + moved);
+    } else {
+      if(rem > 0) sizes.add(rem);
+      if(moved > 0) {
+        spill = moved + next <= IO.BLOCKSIZE;
+        if(!spill) sizes.add(moved);
       }
     }
 
-    // number of new blocks (number of needed block - number of empty blocks):
-    final int newBlocks = neededBlocks - (allBlocks - blocks);
+    // save the old entries after the split position and fill the block
+    final byte[] tail = Arrays.copyOfRange(bf.data, split, nold);
+    int p = first - split;
+    copy(entries, tail, 0, bf.data, split, p);
+    bf.dirty = true;
 
-    // extend fpres and pages, if new blocks will be allocated:
-    if(newBlocks > 0) {
-      fpres = Arrays.copyOf(fpres, fpres.length + newBlocks);
-      pages = Arrays.copyOf(pages, pages.length + newBlocks);
+    // make place in the index for the new blocks
+    final int add = sizes.size();
+    if(blocks + add > fpres.length) {
+      fpres = Arrays.copyOf(fpres, blocks + add);
+      pages = Arrays.copyOf(pages, blocks + add);
     }
+    Array.move(fpres, index + 1, add, blocks - index - 1);
+    Array.move(pages, index + 1, add, blocks - index - 1);
 
-    // make place for the blocks where the new entries will be written:
-    Array.move(fpres, index + 1, neededBlocks, blocks - index - 1);
-    Array.move(pages, index + 1, neededBlocks, blocks - index - 1);
-
-    // write the all remaining entries:
-    while(neededBlocks-- > 0) {
+    // write the remaining entries to new blocks
+    int size = first;
+    for(int b = 0; b < add; ++b) {
       getFreeBlock();
-      n += write(all, n);
-      fpres[index] = fpres[index - 1] + ENTRIES;
+      final int l = sizes.get(b);
+      copy(entries, tail, p, bf.data, 0, l);
+      p += l;
+      fpres[index] = fpres[index - 1] + (size >>> power);
       pages[index] = (int) bf.pos;
+      size = l;
+    }
+
+    // move the old entries to the beginning of the next block
+    if(spill) {
+      fpres[index + 1] = fpres[index] + (size >>> power);
+      readBlock(index + 1);
+      System.arraycopy(bf.data, 0, bf.data, moved, next);
+      System.arraycopy(tail, 0, bf.data, 0, moved);
+      bf.dirty = true;
     }
 
     // increment first pre-values of blocks after the last modified block:
@@ -378,10 +478,11 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public void set(final int pre, final byte[] entries) {
     dirty = true;
-    final int nr = entries.length >>> IO.NODEPOWER;
-    for(int l = 0, i = pre; i < pre + nr; ++i, l += 1 << IO.NODEPOWER) {
+    ++mod;
+    final int nr = entries.length >>> power;
+    for(int l = 0, i = pre; i < pre + nr; ++i, l += 1 << power) {
       final int o = cursor(pre);
-      System.arraycopy(entries, l, bf.data, o, 1 << IO.NODEPOWER);
+      System.arraycopy(entries, l, bf.data, o, 1 << power);
     }
   }
 
@@ -394,28 +495,139 @@ public final class TableDiskAccess extends TableAccess {
    * @return offset of the entry in currentBlock
    */
   private int cursor(final int pre) {
-    int fp = fpre;
-    int np = npre;
-
-    if(pre < fp || pre >= np) {
-      final int last = blocks - 1;
-      int l = 0;
-      int h = last;
-      int m = index;
-      while(l <= h) {
-        if(pre < fp) h = m - 1;
-        else if(pre >= np) l = m + 1;
-        else break;
-        m = h + l >>> 1;
-        fp = fpres[m];
-        np = m == last ? meta.size : fpres[m + 1];
+    // entries will be modified: read them from the buffers until next flush
+    if(mapped) {
+      mapped = false;
+      ++mod;
+    }
+    if(pre < fpre || pre >= npre) readBlock(find(pre, index, fpre, npre));
+    return pre - fpre << power;
+  }
+
+  /**
+   * Returns the read cursor of the current thread, pointing to the block
+   * containing the entry for that pre.
+   * @param pre pre of the entry to search for
+   * @return read cursor
+   */
+  private Reader reader(final int pre) {
+    final Reader r = readers.get();
+    final int m = mod;
+    if(r.mod != m) {
+      r.mod = m;
+      r.index = -1;
+      r.fpre = -1;
+      r.npre = -1;
+    }
+    if(pre < r.fpre || pre >= r.npre) {
+      final int i = find(pre, r.index, r.fpre, r.npre);
+      final long p = pages[i];
+      if(mapped) {
+        final long fp = p * IO.BLOCKSIZE;
+        r.buf = chunk(fp);
+        r.off = coff(fp);
+      } else {
+        // prefetch following blocks if the table is read sequentially
+        r.seq = i == r.index + 1 ? r.seq + 1 : 0;
+        int n = 0;
+        if(r.seq != 0) {
+          final int max = Math.min(BufferPool.POOL.ahead(), blocks - i - 1);
+          while(n < max && pages[i + n + 1] == p + n + 1) ++n;
+        }
+        try {
+          bm.read(p, r.data, n);
+        } catch(final IOException ex) {
+          Util.stack(ex);
+        }
+        r.buf = r.block;
+        r.off = 0;
       }
-      if(l > h) Util.notexpected("Data Access out of bounds [pre:" + pre +
-          ", indexSize:" + blocks + ", access:" + l + " > " + h + "]");
+      r.index = i;
+      r.fpre = fpres[i];
+      r.npre = i + 1 >= blocks ? meta.size : fpres[i + 1];
+    }
+    return r;
+  }
+
+  /**
+   * Marks the current buffer as dirty and invalidates all read cursors.
+   * The cursor of the current thread is updated if it points to the same block.
+   * @param o offset of the modified bytes
+   * @param l number of modified bytes
+   */
+  private void modified(final int o, final int l) {
+    bf.dirty = true;
+    final Reader r = readers.get();
+    final boolean same = r.mod == mod && r.index == index && r.buf == r.block;
+    ++mod;
+    if(same) {
+      System.arraycopy(bf.data, o, r.data, o, l);
+      r.mod = mod;
+    }
+  }
 
-      readBlock(m);
+  /**
+   * Returns the index of the block containing the entry for that pre.
+   * @param pre pre of the entry to search for
+   * @param i index of the block to start from
+   * @param f first pre value of the start block
+   * @param n first pre value of the block following the start block
+   * @return block index
+   */
+  private int find(final int pre, final int i, final int f, final int n) {
+    final int last = blocks - 1;
+    int l = 0;
+    int h = last;
+    int m = i;
+    int fp = f;
+    int np = n;
+    while(l <= h) {
+      if(pre < fp) h = m - 1;
+      else if(pre >= np) l = m + 1;
+      else break;
+      m = h + l >>> 1;
+      fp = fpres[m];
+      np = m == last ? meta.size : fpres[m + 1];
     }
-    return pre - fpre << IO.NODEPOWER;
+    if(l > h) Util.notexpected("Data Access out of bounds [pre:" + pre +
+        ", indexSize:" + blocks + ", access:" + l + " > " + h + "]");
+    return m;
+  }
+
+  /**
+   * Maps the table file into memory. Files exceeding the maximum size of a
+   * mapped buffer are split into several chunks.
+   * @throws IOException I/O exception
+   */
+  private void map() throws IOException {
+    final FileChannel fc = data.getChannel();
+    final long len = fc.size();
+    final long cs = 1L << CHUNKPOWER;
+    map = new MappedByteBuffer[(int) ((len + cs - 1) / cs)];
+    for(int c = 0; c < map.length; ++c) {
+      final long p = c * cs;
+      map[c] = fc.map(FileChannel.MapMode.READ_ONLY, p, Math.min(cs, len - p));
+    }
+    mapped = true;
+    ++mod;
+  }
+
+  /**
+   * Returns the mapped chunk for the specified file offset.
+   * @param p file offset
+   * @return chunk
+   */
+  private MappedByteBuffer chunk(final long p) {
+    return map[(int) (p >>> CHUNKPOWER)];
+  }
+
+  /**
+   * Returns the offset of the specified file offset in its mapped chunk.
+   * @param p file offset
+   * @return chunk offset
+   */
+  private static int coff(final long p) {
+    return (int) p & (1 << CHUNKPOWER) - 1;
   }
 
   /**
@@ -427,30 +639,12 @@ public final class TableDiskAccess extends TableAccess {
     fpre = fpres[i];
     npre = i + 1 >= blocks ? meta.size : fpres[i + 1];
 
-    final int b = pages[i];
-    final boolean ch = bm.cursor(b);
-    bf = bm.current();
-    if(ch) {
-      try {
-        if(bf.dirty) writeBlock(bf);
-        bf.pos = b;
-        data.seek(bf.pos * IO.BLOCKSIZE);
-        data.readFully(bf.data);
-      } catch(final IOException ex) {
-        Util.stack(ex);
-      }
+    try {
+      bm.cursor(pages[i], true);
+    } catch(final IOException ex) {
+      Util.stack(ex);
     }
-  }
-
-  /**
-   * Writes the specified block to disk and resets the dirty flag.
-   * @param buf buffer to write
-   * @throws IOException I/O exception
-   */
-  private void writeBlock(final Buffer buf) throws IOException {
-    data.seek(buf.pos * IO.BLOCKSIZE);
-    data.write(buf.data);
-    buf.dirty = false;
+    bf = bm.current();
   }
 
   /**
@@ -475,46 +669,44 @@ public final class TableDiskAccess extends TableAccess {
    */
   private void copy(final byte[] s, final int sp, final byte[] d,
       final int dp, final int l) {
-    System.arraycopy(s, sp << IO.NODEPOWER, d, dp << IO.NODEPOWER,
-        l << IO.NODEPOWER);
+    System.arraycopy(s, sp << power, d, dp << power, l << power);
     bf.dirty = true;
   }
 
   /**
-   * Fill the current buffer with bytes from the specified array from the
-   * specified offset.
-   * @param s source array
-   * @param o offset from the beginning of the array
-   * @return number of written bytes
+   * Copies bytes from the sequence of new entries and old entries, which
+   * will be placed after the new entries.
+   * @param entries new entries
+   * @param tail old entries
+   * @param p start position in the sequence
+   * @param d destination array
+   * @param dp destination position
+   * @param l number of bytes to copy
    */
-  private int write(final byte[] s, final int o) {
-    final int len = Math.min(bf.data.length, s.length - o);
-    System.arraycopy(s, o, bf.data, 0, len);
-    bf.dirty = true;
-    return len;
+  private static void copy(final byte[] entries, final byte[] tail,
+      final int p, final byte[] d, final int dp, final int l) {
+    final int el = entries.length, c = Math.max(0, Math.min(l, el - p));
+    if(c > 0) System.arraycopy(entries, p, d, dp, c);
+    if(l > c) System.arraycopy(tail, p + c - el, d, dp + c, l - c);
   }
 
-  /** Free the current buffer. */
-  private void flushCurrentBuffer() {
+  /** Move the cursor to a free block (either new or existing empty one). */
+  private void getFreeBlock() {
+    // find an empty block; its old contents need not be read, and the
+    // previous block remains in the buffer pool
+    final int p = pagemap.nextClearBit(0);
     try {
-      if(bf.dirty) writeBlock(bf);
+      bm.cursor(p, false);
     } catch(final IOException ex) {
       Util.stack(ex);
     }
-  }
-
-  /** Move the cursor to a free block (either new or existing empty one). */
-  private void getFreeBlock() {
-    flushCurrentBuffer();
-
-    // find an empty block:
-    bf.pos = pagemap.nextClearBit(0);
+    bf = bm.current();
 
     // if block number is bigger than the total number of blocks, it's a new:
-    if(bf.pos >= allBlocks) allBlocks = (int) bf.pos + 1;
+    if(p >= allBlocks) allBlocks = p + 1;
 
     bf.dirty = true;
-    pagemap.set(bf.pos);
+    pagemap.set(p);
     ++blocks;
     ++index;
   }
@@ -528,6 +720,28 @@ public final class TableDiskAccess extends TableAccess {
     return (i + 1 < blocks ? fpres[i + 1] : meta.size) - fpres[i];
   }
 
+  /** Read cursor of a single thread. */
+  private static final class Reader {
+    /** Copy of the current block. */
+    final byte[] data = new byte[IO.BLOCKSIZE];
+    /** Byte buffer view on the block copy. */
+    final ByteBuffer block = ByteBuffer.wrap(data);
+    /** Buffer containing the current block (block copy or mapped chunk). */
+    ByteBuffer buf;
+    /** Offset of the current block in the buffer. */
+    int off;
+    /** Index of the current block in the {@link #pages} array. */
+    int index = -1;
+    /** Pre value of the first entry in the current block. */
+    int fpre = -1;
+    /** First pre value of the next block. */
+    int npre = -1;
+    /** Number of blocks that have been read in sequential order. */
+    int seq;
+    /** Modification counter at the time the block was read. */
+    int mod = -1;
+  }
+
   // TEST METHODS =============================================================
 
   /**
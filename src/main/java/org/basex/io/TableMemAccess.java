@@ -43,16 +43,21 @@ public final class TableMemAccess extends TableAccess {
     in.readNum(); in.readNum();
     final int[] firstPres = in.readNums();
     final int[] blocks = in.readNums();
-    in.close();
 
     // read blocks
     final RandomAccessFile f = new RandomAccessFile(md.file(pf), "r");
+    Buffers bm = new Buffers(f, IO.BLOCKSIZE);
+    if(md.tablecomp) {
+      in.readLongs(in.readNum());
+      bm = new CompressedBuffers(f, in);
+    }
+    in.close();
+
     final byte[] array = new byte[IO.BLOCKSIZE];
     int np = 0, c = 0, l = 0;
     for(int i = 0; i != md.size; ++i) {
       while(i == np) {
-        f.seek((long) blocks[c++] * IO.BLOCKSIZE);
-        f.readFully(array);
+        bm.load(blocks[c++], array);
         np = c == firstPres.length ? Integer.MAX_VALUE : firstPres[c];
         l = 0;
       }
@@ -68,30 +73,11 @@ public final class TableMemAccess extends TableAccess {
   @Override
   public void close() throws IOException {
     if(dirty && pref != null) {
-      DataOutput out = new DataOutput(meta.file(pref + 'i'));
-
-      final int ent = TableDiskAccess.ENTRIES;
-      final int blocks = (meta.size + ent - 1) / ent;
-
-      out.writeNum(blocks);
-      out.writeNum(blocks);
-      out.writeNum(meta.size);
-
-      final int[] array = new int[blocks];
-      for(int b = 0, c = 0; b < blocks; ++b, c += ent) array[b] = c;
-      out.writeNums(array);
-      for(int b = 0; b < blocks; ++b) array[b] = b;
-      out.writeNums(array);
-      out.close();
-      out = new DataOutput(meta.file(pref));
-      final byte[] data = new byte[IO.BLOCKSIZE];
-      int a = 0;
-      for(int b = 0; b < blocks; ++b) {
-        for(int p = 0; p < IO.BLOCKSIZE && a < meta.size; p += 16, ++a) {
-          copy(buf1[a], data, p);
-          copy(buf2[a], data, p + 8);
-        }
-        out.writeBytes(data);
+      // the table output writes the blocks and the index
+      final DataOutput out = new DataOutput(new TableOutput(meta, pref));
+      for(int a = 0; a < meta.size; ++a) {
+        out.write8(buf1[a]);
+        out.write8(buf2[a]);
       }
       out.close();
       dirty = false;
@@ -235,21 +221,4 @@ public final class TableMemAccess extends TableAccess {
        (v[i + 4] & 0xFFL) << 24 | (v[i + 5] & 0xFFL) << 16 |
        (v[i + 6] & 0xFFL) <<  8 | v[i + 7] & 0xFFL;
   }
-
-  /**
-   * Copies a long value to the specified byte array.
-   * @param v long value
-   * @param a array
-   * @param p position
-   */
-  private void copy(final long v, final byte[] a, final int p) {
-    a[p    ] = (byte) (v >> 56);
-    a[p + 1] = (byte) (v >> 48);
-    a[p + 2] = (byte) (v >> 40);
-    a[p + 3] = (byte) (v >> 32);
-    a[p + 4] = (byte) (v >> 24);
-    a[p + 5] = (byte) (v >> 16);
-    a[p + 6] = (byte) (v >>  8);
-    a[p + 7] = (byte) v;
-  }
 }
@@ -3,11 +3,14 @@ package org.basex.io;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
+
 import org.basex.data.MetaData;
 import org.basex.util.IntList;
 
 /**
  * This class allows a blockwise output of the database table.
+ * If {@link MetaData#tablecomp} is set, the blocks will be compressed.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
@@ -20,6 +23,12 @@ public final class TableOutput extends OutputStream {
   private final IntList firstPres = new IntList();
   /** Index entries. */
   private final IntList blocks = new IntList();
+  /** Codec for compressed blocks ({@code null} if table is not compressed). */
+  private final TableCompress comp;
+  /** Temporary array for compressed blocks. */
+  private byte[] packed;
+  /** Lengths of compressed blocks. */
+  private final IntList lens = new IntList();
 
   /** The underlying output stream. */
   private final OutputStream os;
@@ -27,6 +36,8 @@ public final class TableOutput extends OutputStream {
   private final MetaData meta;
   /** Current filename. */
   private final String file;
+  /** Power of the entry size. */
+  private final int power;
 
   /** Position inside buffer. */
   private int pos;
@@ -43,9 +54,24 @@ public final class TableOutput extends OutputStream {
    * @throws IOException I/O exception
    */
   public TableOutput(final MetaData md, final String fn) throws IOException {
+    this(md, fn, IO.NODEPOWER);
+  }
+
+  /**
+   * Initializes the output, specifying the size of the table entries.
+   * @param md meta data
+   * @param fn the file to be written to
+   * @param pw power of the entry size
+   * @throws IOException I/O exception
+   */
+  TableOutput(final MetaData md, final String fn, final int pw)
+      throws IOException {
     os = new FileOutputStream(md.file(fn));
     meta = md;
     file = fn;
+    power = pw;
+    comp = md.tablecomp ? new TableCompress() : null;
+    if(comp != null) packed = new byte[IO.BLOCKSIZE];
   }
 
   @Override
@@ -57,10 +83,22 @@ public final class TableOutput extends OutputStream {
   @Override
   public void flush() throws IOException {
     if(pos == 0) return;
-    os.write(buffer);
+    if(comp != null) {
+      int l = comp.pack(buffer, packed);
+      if(l == -1) {
+        l = IO.BLOCKSIZE;
+        System.arraycopy(buffer, 0, packed, 0, l);
+      }
+      final int s = CompressedBuffers.slot(l);
+      Arrays.fill(packed, l, s, (byte) 0);
+      os.write(packed, 0, s);
+      lens.add(l);
+    } else {
+      os.write(buffer);
+    }
     firstPres.add(fpre);
     blocks.add(bcount++);
-    fpre += pos >>> IO.NODEPOWER;
+    fpre += pos >>> power;
     pos = 0;
   }
 
@@ -76,6 +114,16 @@ public final class TableOutput extends OutputStream {
       dt.writeNum(bcount);
       dt.writeNums(firstPres.toArray());
       dt.writeNums(blocks.toArray());
+      if(comp != null) {
+        // no page map; block directory
+        final long[] offs = new long[bcount];
+        for(int b = 1; b < bcount; ++b) {
+          offs[b] = offs[b - 1] + CompressedBuffers.slot(lens.get(b - 1));
+        }
+        dt.writeNum(0);
+        dt.writeLongs(offs);
+        dt.writeNums(lens.toArray());
+      }
     } finally {
       if(dt != null) try { dt.close(); } catch(final IOException ex) { }
     }
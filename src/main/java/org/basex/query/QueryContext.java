@@ -145,6 +145,8 @@ public final class QueryContext extends Progress {
   /** Counter for variable IDs. */
   public int varIDs;
 
+  /** Databases accessed by the query ({@code null}: not statically known). */
+  private StringList dbs = new StringList();
   /** List of modules. */
   final StringList modules = new StringList();
   /** List of loaded modules. */
@@ -200,6 +202,31 @@ public final class QueryContext extends Progress {
     new QueryParser(q, this).parse(base(), Uri.EMPTY);
   }
 
+  /**
+   * Adds a database that is accessed by the query.
+   * @param name name of the database, or {@code null} if the database is
+   *   not statically known
+   */
+  public void database(final String name) {
+    if(dbs == null) return;
+    if(name == null) dbs = null;
+    else if(!dbs.contains(name)) dbs.add(name);
+  }
+
+  /**
+   * Returns the names of the databases that are accessed by the parsed
+   * query, including the database of the initial context set.
+   * @return names, or {@code null} if the databases are not statically known
+   */
+  public StringList databases() {
+    if(dbs == null) return null;
+    final StringList sl = new StringList();
+    for(final String db : dbs) sl.add(db);
+    if(nodes != null && !sl.contains(nodes.data.meta.name))
+      sl.add(nodes.data.meta.name);
+    return sl;
+  }
+
   /**
    * Compiles and optimizes the expression.
    * @throws QueryException query exception
@@ -309,6 +336,8 @@ public final class QueryContext extends Progress {
       final Value v = value(root);
 
       if(updating) {
+        // wait for concurrent readers before the updates are applied
+        context.exclusive();
         updates.apply(this);
         if(context.data != null) context.update();
       }
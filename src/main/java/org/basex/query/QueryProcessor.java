@@ -23,6 +23,7 @@ import org.basex.query.item.Types;
 import org.basex.query.item.Value;
 import org.basex.query.iter.Iter;
 import org.basex.query.util.Var;
+import org.basex.util.StringList;
 import static org.basex.util.Token.*;
 
 /**
@@ -288,6 +289,17 @@ public final class QueryProcessor extends Progress {
     return false;
   }
 
+  /**
+   * Returns the names of the databases that are accessed by the query,
+   * including the database of the initial context set.
+   * @return names, or {@code null} if the databases are not statically known
+   * @throws QueryException query exception
+   */
+  public StringList databases() throws QueryException {
+    parse();
+    return ctx.databases();
+  }
+
   /**
    * Removes comments from the specified string.
    * @param qu query string
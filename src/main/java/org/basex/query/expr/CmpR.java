@@ -139,14 +139,15 @@ public final class CmpR extends Single {
     // check which index applies
     final boolean text = s.test.type == NodeType.TXT && ic.data.meta.textindex;
     final boolean attr = s.test.type == NodeType.ATT && ic.data.meta.attrindex;
-    if(!text && !attr || !mni || !mxi) return false;
+    if(!text && !attr) return false;
 
     final StatsKey key = key(ic, text);
     if(key == null) return false;
 
     // estimate costs for range access; all values out of range: no results
-    rt = new RangeToken(text, Math.max(min, key.min), Math.min(max, key.max));
-    ic.costs = rt.min > rt.max || rt.max < key.min || rt.min > key.max ? 0 :
+    final double mn = Math.max(min, key.min), mx = Math.min(max, key.max);
+    rt = new RangeToken(text, mn, mni || mn != min, mx, mxi || mx != max);
+    ic.costs = mn > mx || mn == mx && !(rt.mni && rt.mxi) ? 0 :
       Math.max(1, ic.data.meta.size / 5);
 
     // use index if costs are zero, or if min/max is not infinite
@@ -233,6 +233,13 @@ public final class FNDb extends Fun {
     };
   }
 
+  @Override
+  public void databases(final QueryContext ctx) {
+    if(def == FunDef.OPEN) database(ctx, true);
+    else if(def == FunDef.OPENID || def == FunDef.OPENPRE) ctx.database(
+        expr[0] instanceof Str ? string(((Str) expr[0]).atom()) : null);
+  }
+
   @Override
   public boolean uses(final Use u) {
     return u == Use.CTX && (def == FunDef.TEXT || def == FunDef.ATTR ||
@@ -356,6 +356,12 @@ public final class FNGen extends Fun {
       new SerializerProp(tb.toString());
   }
 
+  @Override
+  public void databases(final QueryContext ctx) {
+    if(def == FunDef.DOC || def == FunDef.DOCAVL) database(ctx, false);
+    else if(def == FunDef.COLL && expr.length != 0) database(ctx, true);
+  }
+
   @Override
   public boolean uses(final Use u) {
     return u == Use.UPD && def == FunDef.PUT || u == Use.X30 && (
@@ -9,6 +9,7 @@ import org.basex.query.expr.Expr;
 import org.basex.query.item.Bln;
 import org.basex.query.item.Item;
 import org.basex.query.item.ANode;
+import org.basex.query.item.DBNode;
 import org.basex.query.item.NodeType;
 import org.basex.query.item.QNm;
 import org.basex.query.item.SeqType;
@@ -259,7 +260,7 @@ public final class FNSimple extends Fun {
           // compare string values
           if((t1 == NodeType.TXT || t1 == NodeType.ATT ||
               t1 == NodeType.COM || t1 == NodeType.PI) &&
-              !Token.eq(s1.atom(), s2.atom())) return false;
+              !eq(s1, s2)) return false;
 
           // compare elements
           if(t1 == NodeType.ELM) {
@@ -274,7 +275,7 @@ public final class FNSimple extends Fun {
               boolean f = false;
               for(ANode a2; (a2 = att2.next()) != null;) {
                 if(a1.qname().eq(a2.qname())) {
-                  f = Token.eq(a1.atom(), a2.atom());
+                  f = eq(a1, a2);
                   break;
                 }
               }
@@ -294,4 +295,21 @@ public final class FNSimple extends Fun {
       } while(!chld.isEmpty());
     }
   }
+
+  /**
+   * Compares the string values of two nodes without children.
+   * Database nodes are compared via their text references if possible.
+   * @param n1 first node
+   * @param n2 second node
+   * @return result of check
+   */
+  private static boolean eq(final ANode n1, final ANode n2) {
+    if(n1 instanceof DBNode && n2 instanceof DBNode) {
+      final DBNode d1 = (DBNode) n1, d2 = (DBNode) n2;
+      if(d1.data == d2.data) {
+        return d1.data.sameText(d1.pre, d2.pre, n1.type != NodeType.ATT);
+      }
+    }
+    return Token.eq(n1.atom(), n2.atom());
+  }
 }
@@ -340,6 +340,12 @@ public final class FNUtil extends Fun {
     return new Hex(res);
   }
 
+  @Override
+  public void databases(final QueryContext ctx) {
+    // evaluated queries may access arbitrary databases
+    if(def == FunDef.EVAL || def == FunDef.RUN) ctx.database(null);
+  }
+
   @Override
   public boolean uses(final Use u) {
     return u == Use.CTX && (def == FunDef.MB || def == FunDef.MS
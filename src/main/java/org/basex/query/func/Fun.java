@@ -3,6 +3,7 @@ package org.basex.query.func;
 import static org.basex.query.QueryTokens.*;
 import java.io.IOException;
 import org.basex.data.Serializer;
+import org.basex.io.IO;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.expr.Arr;
@@ -58,6 +59,32 @@ public abstract class Fun extends Arr {
     return this;
   }
 
+  /**
+   * Adds the names of the databases that are accessed by this function
+   * to the query context. Called by the parser.
+   * @param ctx query context
+   */
+  public void databases(final QueryContext ctx) {
+  }
+
+  /**
+   * Adds the database referenced by the first argument to the query
+   * context. If the argument is no string literal, the database is
+   * not statically known.
+   * @param ctx query context
+   * @param path the name is followed by an optional document path
+   */
+  protected final void database(final QueryContext ctx, final boolean path) {
+    if(!(expr[0] instanceof Str)) {
+      ctx.database(null);
+      return;
+    }
+    String name = Token.string(((Str) expr[0]).atom());
+    final int s = name.indexOf('/');
+    if(path && s != -1) name = name.substring(0, s);
+    ctx.database(IO.get(name).dbname());
+  }
+
   /**
    * Atomizes the specified item.
    * @param it input item
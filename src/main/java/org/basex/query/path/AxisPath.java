@@ -110,12 +110,12 @@ public class AxisPath extends Path {
 
     // retrieve data reference
     final Data data = ctx.data();
-    if(data != null && data.meta.uptodate && ctx.value.type == NodeType.DOC) {
+    if(data != null && ctx.value.type == NodeType.DOC) {
       Expr e = this;
-      // check index access
+      // check index access (value indexes are kept up-to-date with updates)
       if(root != null && !uses(Use.POS)) e = index(ctx, data);
       // check children path rewriting
-      if(e == this) e = children(ctx, data);
+      if(e == this && data.meta.uptodate) e = children(ctx, data);
       // return optimized expression
       if(e != this) return e.comp(ctx);
     }
@@ -104,6 +104,8 @@ public final class Functions extends ExprInfo {
       final Class<?> cls = Reflect.find(java.substring(0, i));
       if(cls == null) qp.error(FUNCJAVA, java);
       final String mth = java.substring(i + 1);
+      // Java functions may access arbitrary databases
+      ctx.database(null);
       return TypedFunc.java(new FunJava(qp.input(), cls, mth, args));
     }
 
@@ -111,6 +113,7 @@ public final class Functions extends ExprInfo {
     final Fun fun = FNIndex.get().get(ln, uri, args, qp);
     if(fun != null) {
       ctx.updating |= fun.def == FunDef.PUT;
+      fun.databases(ctx);
       return new TypedFunc(fun, fun.def.type(args.length));
     }
 
@@ -39,8 +39,8 @@ final class QueryProcess extends Progress {
 
   /** Serializer. */
   private XMLSerializer xml;
-  /** Monitored flag. */
-  private boolean monitored;
+  /** Thread that registered the query ({@code null}: not monitored). */
+  private Thread owner;
   /** Iterator. */
   private Iter iter;
   /** Closed. */
@@ -86,8 +86,8 @@ final class QueryProcess extends Progress {
    * @throws QueryException query exception
    */
   void init() throws IOException, QueryException {
-    monitored = true;
-    ctx.register(qp.ctx.updating);
+    owner = Thread.currentThread();
+    ctx.register(qp.ctx.updating, true, qp.ctx.databases());
     xml = qp.getSerializer(out);
     iter = qp.iter();
   }
@@ -134,7 +134,8 @@ final class QueryProcess extends Progress {
     if(xml != null && !forced) xml.close();
     qp.stopTimeout();
     qp.close();
-    if(monitored) ctx.unregister(qp.ctx.updating);
+    // the query may be closed by another session
+    if(owner != null) ctx.unregister(qp.ctx.updating, owner);
     initInfo();
     closed = true;
   }
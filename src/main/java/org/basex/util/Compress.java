@@ -1,153 +1,97 @@
 package org.basex.util;
 
+import java.util.Arrays;
+
 /**
  * This class compresses and decompresses tokens. It is inspired by the
  * Huffman coding, but was simplified to speed up processing.
+ * Characters are packed and unpacked via precomputed code tables.
+ * The methods of this class are thread-safe.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
-public final class Compress {
-  /** Byte list. */
-  private final ByteList bl = new ByteList();
-  /** Temporary value, or current position. */
-  private int c;
-  /** Offset. */
-  private int o;
+public final class Compress implements TextCodec {
+  /** Codes for packing data (first mapping): bits (15-4), length (3-0). */
+  private static final int[] CODES1 = new int[256];
+  /** Codes for packing data (second mapping). */
+  private static final int[] CODES2 = new int[256];
+  /** Decoding table (first mapping), indexed by the next 12 bits:
+   * character (bits 7-0), code length (bits 11-8). */
+  private static final short[] DECODE1 = new short[1 << 12];
+  /** Decoding table (second mapping). */
+  private static final short[] DECODE2 = new short[1 << 12];
 
-  /**
-   * Compresses the specified text.
-   * @param txt text to be packed
-   * @return packed text
-   */
+  @Override
   public byte[] pack(final byte[] txt) {
-    // initialize compression
-    final int tl = txt.length;
-    bl.reset();
-    Num.write(bl.list, tl, 0);
-    bl.size = Num.len(tl);
-    c = 0;
-    o = 0;
-
-    // write packer version bit (0)
-    push(0, 1);
+    // packed text must be shorter than the original text
+    final int tl = txt.length, max = tl - 1;
+    int p = Num.len(tl);
+    if(p >= max) return txt;
 
-    // relate upper with lower case and write mapping bit
+    // relate upper with lower case and choose mapping
     int lc = 0;
     for(final byte b : txt) lc += b >= 'A' && b <= 'Z' ? -1 : 1;
-    final byte[] pack = lc >= 0 ? PACK1 : PACK2;
-    push(lc >= 0 ? 1 : 0, 1);
+    final int[] codes = lc >= 0 ? CODES1 : CODES2;
 
-    // compress all characters
-    for(int t = 0; t < tl; t++) {
-      int b = txt[t];
-      if(b >= 0) b = pack[b];
-      if(b >= 0x00 && b < 0x08) { // 1 xxx
-        push(1 | b << 1, 4);
-      } else if(b >= 0x08 && b < 0x10) { // 01 xxx
-        push(2 | b << 2, 5);
-      } else if(b >= 0x10 && b < 0x20) { // 001 xxxx
-        push(4 | b << 3, 7);
-      } else if(b >= 0x20 && b < 0x40) { // 0001 xxxxx
-        push(8 | b << 4, 9);
-      } else { // 0000 xxxxxxxx
-        push(b << 4, 12);
+    final byte[] out = new byte[max];
+    Num.write(out, tl, 0);
+    // write packer version bit (0) and mapping bit
+    long acc = lc >= 0 ? 2 : 0;
+    int n = 2;
+    for(final byte b : txt) {
+      final int c = codes[b & 0xFF];
+      acc |= (long) (c >>> 4) << n;
+      n += c & 0x0F;
+      while(n >= 8) {
+        if(p == max) return txt;
+        out[p++] = (byte) acc;
+        acc >>>= 8;
+        n -= 8;
       }
     }
-    if(o != 0) bl.add(c);
-    return bl.size() < tl ? bl.toArray() : txt;
-  }
-
-  /**
-   * Pushes bits to the byte cache.
-   * @param b value to be pushed.
-   * @param s number of bits
-   */
-  private void push(final int b, final int s) {
-    int bb = b, oo = o, cc = c;
-    for(int i = 0; i < s; i++) {
-      cc |= (bb & 1) << oo;
-      bb >>= 1;
-      if(++oo == 8) {
-        bl.add(cc);
-        oo = 0;
-        cc = 0;
-      }
+    if(n != 0) {
+      if(p == max) return txt;
+      out[p++] = (byte) acc;
     }
-    o = oo;
-    c = cc;
+    return p == max ? out : Arrays.copyOf(out, p);
   }
 
-  /**
-   * Decompresses the specified text.
-   * @param txt text to be unpacked
-   * @return unpacked text
-   */
-  public synchronized byte[] unpack(final byte[] txt) {
-    // initialize decompression
-    bl.list = txt;
-    bl.size = txt.length;
-    c = Num.len(txt, 0);
-    o = 0;
+  @Override
+  public byte[] unpack(final byte[] txt) {
+    final int tl = txt.length;
+    final int l = Num.read(txt, 0);
+    int p = Num.len(txt, 0);
 
-    // read packer bit
-    pull();
-    // choose mapping
-    final byte[] unpack = pull() ? UNPACK1 : UNPACK2;
+    long acc = 0;
+    int n = 0;
+    while(n <= 56 && p < tl) {
+      acc |= (long) (txt[p++] & 0xFF) << n;
+      n += 8;
+    }
+    // skip packer bit and choose mapping
+    final short[] dec = (acc & 2) != 0 ? DECODE1 : DECODE2;
+    acc >>>= 2;
+    n -= 2;
 
     // decompress all characters
-    final int l = Num.read(txt, 0);
     final byte[] res = new byte[l];
     for(int r = 0; r < l; r++) {
-      int b = 0;
-      if(pull()) { // 1 xxx
-        b = pull(3);
-      } else if(pull()) { // 01 xxx
-        b = pull(3) | 0x08;
-      } else if(pull()) { // 001 xxxx
-        b = pull(4) | 0x10;
-      } else if(pull()) { // 0001 xxxxx
-        b = pull(5) | 0x20;
-      } else { // 0000 xxxxxxxx
-        b = pull(8);
+      if(n < 12) {
+        while(n <= 56 && p < tl) {
+          acc |= (long) (txt[p++] & 0xFF) << n;
+          n += 8;
+        }
       }
-      res[r] = (byte) (b >= 128 ? b : unpack[b]);
+      final int d = dec[(int) acc & 0xFFF];
+      res[r] = (byte) d;
+      final int cl = d >>> 8;
+      acc >>>= cl;
+      n -= cl;
     }
     return res;
   }
 
-  /**
-   * Pulls the specified number of bit and returns the result.
-   * @param s number of bytes
-   * @return result
-   */
-  private int pull(final int s) {
-    int oo = o, cc = c, x = 0;
-    for(int i = 0; i < s; i++) {
-      if((bl.list[cc] & 1 << oo) != 0) x |= 1 << i;
-      if(++oo == 8) {
-        oo = 0;
-        cc++;
-      }
-    }
-    o = oo;
-    c = cc;
-    return x;
-  }
-
-  /**
-   * Pulls a single bit.
-   * @return result
-   */
-  private boolean pull() {
-    final boolean b = (bl.list[c] & 1 << o) != 0;
-    if(++o == 8) {
-      o = 0;
-      c++;
-    }
-    return b;
-  }
-
   /** First mapping for unpacking data. */
   private static final byte[] UNPACK1 = {
     0x20, 0x61, 0x65, 0x6E, 0x69, 0x6F, 0x72, 0x73, // encode via 1 xxx
@@ -187,5 +131,56 @@ public final class Compress {
       PACK1[b1] = (byte) p;
       PACK2[b2] = (byte) p;
     }
+    for(int c = 0; c < 256; c++) {
+      CODES1[c] = code(c < 128 ? PACK1[c] : c);
+      CODES2[c] = code(c < 128 ? PACK2[c] : c);
+    }
+    for(int d = 0; d < DECODE1.length; d++) {
+      final int b, l;
+      if((d & 1) != 0) { // 1 xxx
+        b = d >>> 1 & 0x07;
+        l = 4;
+      } else if((d & 2) != 0) { // 01 xxx
+        b = d >>> 2 & 0x07 | 0x08;
+        l = 5;
+      } else if((d & 4) != 0) { // 001 xxxx
+        b = d >>> 3 & 0x0F | 0x10;
+        l = 7;
+      } else if((d & 8) != 0) { // 0001 xxxxx
+        b = d >>> 4 & 0x1F | 0x20;
+        l = 9;
+      } else { // 0000 xxxxxxxx
+        b = d >>> 4 & 0xFF;
+        l = 12;
+      }
+      DECODE1[d] = (short) (l << 8 | (b >= 128 ? b : UNPACK1[b] & 0xFF));
+      DECODE2[d] = (short) (l << 8 | (b >= 128 ? b : UNPACK2[b] & 0xFF));
+    }
+  }
+
+  /**
+   * Returns the code for the specified mapped character.
+   * @param b mapped character
+   * @return code bits (15-4) and length (3-0)
+   */
+  private static int code(final int b) {
+    final int c, l;
+    if(b < 0x08) { // 1 xxx
+      c = 1 | b << 1;
+      l = 4;
+    } else if(b < 0x10) { // 01 xxx
+      c = 2 | b << 2;
+      l = 5;
+    } else if(b < 0x20) { // 001 xxxx
+      c = 4 | b << 3;
+      l = 7;
+    } else if(b < 0x40) { // 0001 xxxxx
+      c = 8 | b << 4;
+      l = 9;
+    } else { // 0000 xxxxxxxx
+      c = b << 4;
+      l = 12;
+    }
+    return (c & (1 << l) - 1) << 4 | l;
   }
 }
@@ -0,0 +1,253 @@
+package org.basex.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
+
+/**
+ * This class compresses and decompresses tokens with a static table of up to
+ * 255 symbols, which are 1 to 8 bytes long. Each symbol is replaced by a
+ * one-byte code; bytes that are not covered by the table are escaped.
+ * The approach is based on FSST (Fast Static Symbol Table) compression.
+ *
+ * The symbol table is trained on a sample of the first texts that are
+ * passed on to {@link #pack}. As long as the table has not been trained,
+ * all texts are returned uncompressed.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class SymbolCompress implements TextCodec {
+  /** Codec name. */
+  public static final String NAME = "symbols";
+  /** Escape code. */
+  private static final int ESC = 255;
+  /** Maximum symbol length. */
+  private static final int MAXLEN = 8;
+  /** Size of the training sample. */
+  private static final int SAMPLE = 1 << 16;
+  /** Number of training rounds. */
+  private static final int ROUNDS = 5;
+
+  /** Symbols ({@code null} if the table has not been trained yet). */
+  private volatile byte[][] symbols;
+  /** Symbol codes, indexed by the first byte and sorted by descending length. */
+  private int[][] index;
+  /** Training sample. */
+  private TokenList sample = new TokenList();
+  /** Size of the training sample. */
+  private int ssize;
+
+  /**
+   * Constructor for an untrained codec.
+   */
+  public SymbolCompress() { }
+
+  /**
+   * Constructor, reading the symbol table from the specified input.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  public SymbolCompress(final DataInput in) throws IOException {
+    final byte[][] syms = in.readBytesArray();
+    index = index(syms);
+    symbols = syms;
+  }
+
+  /**
+   * Writes the symbol table to the specified output.
+   * If the table has not been trained yet, the current sample is used.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  public synchronized void write(final DataOutput out) throws IOException {
+    train();
+    out.writeTokens(symbols);
+  }
+
+  @Override
+  public byte[] pack(final byte[] txt) {
+    final byte[][] syms = symbols;
+    if(syms == null) return sample(txt);
+
+    // packed text must be shorter than the original text
+    final int tl = txt.length, max = tl - 1;
+    int p = Num.len(tl);
+    if(p >= max) return txt;
+
+    final byte[] out = new byte[max];
+    Num.write(out, tl, 0);
+    for(int t = 0; t < tl;) {
+      final int c = find(syms, index, txt, t);
+      if(c == ESC) {
+        if(p + 1 >= max) return txt;
+        out[p++] = (byte) ESC;
+        out[p++] = txt[t++];
+      } else {
+        if(p == max) return txt;
+        out[p++] = (byte) c;
+        t += syms[c].length;
+      }
+    }
+    return p == max ? out : Arrays.copyOf(out, p);
+  }
+
+  @Override
+  public byte[] unpack(final byte[] txt) {
+    final byte[][] syms = symbols;
+    final int tl = txt.length;
+    final byte[] res = new byte[Num.read(txt, 0)];
+    for(int p = Num.len(txt, 0), r = 0; p < tl;) {
+      final int c = txt[p++] & 0xFF;
+      if(c == ESC) {
+        res[r++] = txt[p++];
+      } else {
+        final byte[] s = syms[c];
+        System.arraycopy(s, 0, res, r, s.length);
+        r += s.length;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Returns the code of the longest symbol at the specified position.
+   * @param syms symbols
+   * @param ind index
+   * @param txt text
+   * @param t position
+   * @return code, or {@link #ESC} if no symbol was found
+   */
+  private static int find(final byte[][] syms, final int[][] ind,
+      final byte[] txt, final int t) {
+    final int[] codes = ind[txt[t] & 0xFF];
+    if(codes != null) {
+      final int tl = txt.length - t;
+      for(final int c : codes) {
+        final byte[] s = syms[c];
+        final int sl = s.length;
+        if(sl > tl) continue;
+        int i = 1;
+        while(i < sl && s[i] == txt[t + i]) i++;
+        if(i == sl) return c;
+      }
+    }
+    return ESC;
+  }
+
+  /**
+   * Adds a text to the training sample, and trains the codec if the sample
+   * is large enough.
+   * @param txt text
+   * @return original text
+   */
+  private synchronized byte[] sample(final byte[] txt) {
+    if(symbols == null) {
+      sample.add(txt);
+      ssize += txt.length;
+      if(ssize >= SAMPLE) train();
+    }
+    return txt;
+  }
+
+  /**
+   * Creates a symbol table from the current sample if the codec has not been
+   * trained yet. In each round, the sample is encoded with the current table,
+   * and the symbols and concatenated symbol pairs with the highest gain are
+   * chosen as the next table.
+   */
+  public synchronized void train() {
+    if(symbols != null) return;
+    byte[][] syms = {};
+    for(int r = 0; r < ROUNDS; r++) {
+      final int[][] ind = index(syms);
+      final TokenSet cands = new TokenSet();
+      int[] gains = new int[8];
+      for(final byte[] txt : sample) {
+        byte[] prev = null;
+        for(int t = 0; t < txt.length;) {
+          final int c = find(syms, ind, txt, t);
+          final byte[] cur = c == ESC ? new byte[] { txt[t] } : syms[c];
+          t += cur.length;
+          gains = count(cands, gains, cur);
+          if(prev != null && prev.length + cur.length <= MAXLEN) {
+            gains = count(cands, gains, Token.concat(prev, cur));
+          }
+          prev = cur;
+        }
+      }
+      syms = best(cands, gains);
+    }
+    index = index(syms);
+    symbols = syms;
+    sample = null;
+  }
+
+  /**
+   * Counts a candidate symbol.
+   * @param cands candidates
+   * @param gains gains
+   * @param sym candidate
+   * @return gains (resized if necessary)
+   */
+  private static int[] count(final TokenSet cands, final int[] gains,
+      final byte[] sym) {
+    final int id = Math.abs(cands.add(sym));
+    final int[] g = id < gains.length ? gains : Arrays.copyOf(gains, id << 1);
+    g[id] += sym.length;
+    return g;
+  }
+
+  /**
+   * Returns the candidates with the highest gains.
+   * @param cands candidates
+   * @param gains gains
+   * @return symbols
+   */
+  private static byte[][] best(final TokenSet cands, final int[] gains) {
+    final int s = cands.size() - 1;
+    final Integer[] ids = new Integer[s];
+    for(int i = 0; i < s; i++) ids[i] = i + 1;
+    Arrays.sort(ids, new Comparator<Integer>() {
+      @Override
+      public int compare(final Integer i1, final Integer i2) {
+        return gains[i2] - gains[i1];
+      }
+    });
+    final byte[][] syms = new byte[Math.min(s, ESC)][];
+    for(int i = 0; i < syms.length; i++) syms[i] = cands.key(ids[i]);
+    return syms;
+  }
+
+  /**
+   * Creates the index for the specified symbols.
+   * @param syms symbols
+   * @return index
+   */
+  private static int[][] index(final byte[][] syms) {
+    final IntList[] il = new IntList[256];
+    for(int c = 0; c < syms.length; c++) {
+      final int b = syms[c][0] & 0xFF;
+      if(il[b] == null) il[b] = new IntList();
+      il[b].add(c);
+    }
+    final int[][] ind = new int[256][];
+    for(int b = 0; b < ind.length; b++) {
+      if(il[b] == null) continue;
+      ind[b] = il[b].toArray();
+      // sort codes by descending symbol length
+      final Integer[] codes = new Integer[ind[b].length];
+      for(int c = 0; c < codes.length; c++) codes[c] = ind[b][c];
+      Arrays.sort(codes, new Comparator<Integer>() {
+        @Override
+        public int compare(final Integer c1, final Integer c2) {
+          return syms[c2].length - syms[c1].length;
+        }
+      });
+      for(int c = 0; c < codes.length; c++) ind[b][c] = codes[c];
+    }
+    return ind;
+  }
+}
@@ -0,0 +1,24 @@
+package org.basex.util;
+
+/**
+ * This interface defines methods for compressing texts and attribute values.
+ * Implementations must be thread-safe.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public interface TextCodec {
+  /**
+   * Compresses the specified text.
+   * @param txt text to be packed
+   * @return packed text, or the original text if it cannot be compressed
+   */
+  byte[] pack(final byte[] txt);
+
+  /**
+   * Decompresses the specified text.
+   * @param txt text to be unpacked
+   * @return unpacked text
+   */
+  byte[] unpack(final byte[] txt);
+}
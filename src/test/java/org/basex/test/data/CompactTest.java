@@ -0,0 +1,117 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.Compact;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the reuse of free space in the text and attribute value
+ * files, and the compaction of these files.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class CompactTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/xmark.xml";
+  /** Test database name. */
+  private static final String NAME = Util.name(CompactTest.class);
+  /** Query for comparing the database contents. */
+  private static final String QUERY =
+    "string-join((//text(), for $a in //@* return string($a)), ',')";
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    // file lengths are measured after the database has been closed
+    context.prop.set(Prop.KEEPWARM, 0);
+    new CreateDB(NAME, FILE).execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Alternately replaces values with longer and shorter values.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void reuse() throws BaseXException {
+    update("'longer value with a few more characters'");
+    final long len = length();
+    for(int i = 0; i < 5; ++i) {
+      update("'short value'");
+      update("'longer value with a few more characters'");
+    }
+    assertTrue(length() <= len);
+  }
+
+  /**
+   * Compacts the database files.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void compact() throws BaseXException {
+    final long len = length();
+    update("concat($t, $t, $t)");
+    new XQuery("delete nodes //text()[position() mod 2 = 0]").
+      execute(context);
+    final String exp = new XQuery(QUERY).execute(context);
+    final long upd = length();
+    assertTrue(upd > len);
+
+    new Compact().execute(context);
+    assertEquals(exp, new XQuery(QUERY).execute(context));
+    assertTrue(length() < upd);
+    assertEquals(exp, new XQuery(QUERY).execute(context));
+    update("concat($t, 'x')");
+  }
+
+  /**
+   * Replaces all texts of the database.
+   * @param val expression for the new value
+   * @throws BaseXException database exception
+   */
+  private void update(final String val) throws BaseXException {
+    new XQuery("for $t in //text() return replace value of node $t with " +
+        val).execute(context);
+  }
+
+  /**
+   * Returns the length of the text file.
+   * @return length
+   * @throws BaseXException database exception
+   */
+  private long length() throws BaseXException {
+    final File file = context.data.meta.file(DATATXT);
+    new Close().execute(context);
+    final long len = file.length();
+    new Open(NAME).execute(context);
+    return len;
+  }
+}
@@ -0,0 +1,97 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import org.basex.core.BaseXException;
+import org.basex.core.Prop;
+import org.basex.data.Data;
+import org.basex.io.BufferPool;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * This class tests concurrent reads from the same database.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ConcurrentReadTest extends TableTest {
+  /** Number of reading threads. */
+  private static final int THREADS = 8;
+  /** Number of nodes per range. */
+  private static final int RANGE = 1000;
+  /** Number of passes per thread. */
+  private static final int PASSES = 3;
+
+  /**
+   * Resets the buffer pool.
+   */
+  @After
+  public void resetPool() {
+    BufferPool.size((Integer) Prop.BUFFERPOOL[1]);
+  }
+
+  /**
+   * Reads interleaved node ranges with several threads and compares the
+   * results with those of a single-threaded read.
+   * @throws Exception exception
+   */
+  @Test
+  public void read() throws Exception {
+    // create a table that exceeds the buffer pool
+    create(doc(50000));
+    BufferPool.size(1);
+    reopen();
+
+    final String[] exp = nodes();
+    final Reader[] readers = new Reader[THREADS];
+    for(int t = 0; t < THREADS; ++t) readers[t] = new Reader(context.data, t);
+    for(final Reader r : readers) r.start();
+    for(final Reader r : readers) r.join();
+    for(final Reader r : readers) {
+      if(r.error != null) throw r.error;
+      for(int p = 0; p < exp.length; ++p) {
+        if(r.res[p] != null) assertEquals(exp[p], r.res[p]);
+      }
+    }
+  }
+
+  /** Thread reading every {@link #THREADS}th node range. */
+  private static final class Reader extends Thread {
+    /** Data reference. */
+    private final Data data;
+    /** Thread number. */
+    private final int nr;
+    /** Results (only assigned for the nodes that have been read). */
+    final String[] res;
+    /** Error. */
+    Exception error;
+
+    /**
+     * Constructor.
+     * @param d data reference
+     * @param n thread number
+     */
+    Reader(final Data d, final int n) {
+      data = d;
+      nr = n;
+      res = new String[d.meta.size];
+    }
+
+    @Override
+    public void run() {
+      try {
+        for(int i = 0; i < PASSES; ++i) {
+          Arrays.fill(res, null);
+          for(int r = nr * RANGE; r < res.length; r += THREADS * RANGE) {
+            final int e = Math.min(r + RANGE, res.length);
+            for(int p = r; p < e; ++p) res[p] = node(data, p);
+          }
+        }
+      } catch(final Exception ex) {
+        error = ex;
+      }
+    }
+  }
+}
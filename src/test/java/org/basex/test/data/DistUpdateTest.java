@@ -0,0 +1,147 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.data.MemData;
+import org.basex.io.IO;
+import org.basex.query.QueryException;
+import org.basex.query.QueryProcessor;
+import org.basex.query.item.ANode;
+import org.basex.query.util.DataBuilder;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the lazy update of distance values.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class DistUpdateTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/xmark.xml";
+  /** Test database name. */
+  private static final String NAME = Util.name(DistUpdateTest.class);
+  /** Number of updates. */
+  private static final int UPDATES = 3000;
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Deletes and inserts nodes at random positions, and checks the parent
+   * references before and after the pending updates have been applied.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void random() throws QueryException {
+    final Data data = context.data;
+    final QueryProcessor qp = new QueryProcessor("<a><b c='d'/>e</a>",
+        context);
+    final MemData md = new MemData(data);
+    new DataBuilder(md).build((ANode) qp.value());
+
+    final Random rnd = new Random(0);
+    for(int u = 0; u < UPDATES; ++u) {
+      final int pre = 2 + rnd.nextInt(data.meta.size - 2);
+      final int k = data.kind(pre);
+      if(data.size(pre, k) == 1) {
+        data.delete(pre);
+      } else if(k == Data.ELEM) {
+        data.insert(pre + data.attSize(pre, k), pre, md);
+      }
+      if(u % 500 == 0) check(data);
+    }
+    check(data);
+    data.flush();
+    check(data);
+  }
+
+  /**
+   * Deletes many nodes in a single query.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void query() throws BaseXException {
+    new XQuery("delete nodes //text()[position() mod 2 = 0]").
+      execute(context);
+    new XQuery("for $i in //item return insert node <a/> into $i").
+      execute(context);
+    check(context.data);
+  }
+
+  /**
+   * Inserts and deletes nodes in a few subtrees, and checks that only the
+   * siblings of the ancestors of the update points are visited when the
+   * pending updates are applied.
+   * @throws Exception exception
+   */
+  @Test
+  public void touched() throws Exception {
+    // 1000 elements with 20 children each
+    final StringBuilder sb = new StringBuilder("<a>");
+    for(int c = 0; c < 1000; ++c) {
+      sb.append("<c>");
+      for(int d = 0; d < 20; ++d) sb.append("<d/>");
+      sb.append("</c>");
+    }
+    new CreateDB(NAME, sb.append("</a>").toString()).execute(context);
+    final Data data = context.data;
+    final MemData md = new MemData(data);
+    new DataBuilder(md).build((ANode) new QueryProcessor("<x/>",
+        context).value());
+
+    for(int c = 100; c < 1000; c += 100) {
+      // insert node as last child of c, delete first child
+      final int par = 2 + c * 21;
+      data.insert(par + data.size(par, Data.ELEM), par, md);
+      data.delete(par + 1);
+    }
+    final int n = data.updateDists();
+    assertTrue(n + " visited nodes", n < 1000 + 9 * 21 + 10);
+    check(data);
+  }
+
+  /**
+   * Compares the parent references of all nodes with the node sizes.
+   * @param data data reference
+   */
+  private static void check(final Data data) {
+    final int[] pres = new int[IO.MAXHEIGHT];
+    final int[] ends = new int[IO.MAXHEIGHT];
+    int l = 0;
+    for(int p = 0; p < data.meta.size; ++p) {
+      final int k = data.kind(p);
+      while(l > 0 && ends[l - 1] <= p) --l;
+      assertEquals(l == 0 ? -1 : pres[l - 1], data.parent(p, k));
+      pres[l] = p;
+      ends[l++] = p + data.size(p, k);
+    }
+  }
+}
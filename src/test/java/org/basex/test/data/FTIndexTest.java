@@ -0,0 +1,158 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.Commands.CmdIndex;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.CreateIndex;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.XMLSerializer;
+import org.basex.index.IndexToken.IndexType;
+import org.basex.io.ArrayOutput;
+import org.basex.query.QueryProcessor;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * This class tests updates of the full-text index.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class FTIndexTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(FTIndexTest.class);
+  /** Number of elements. */
+  private static final int SIZE = 1000;
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.FTINDEX, false);
+    context.prop.set(Prop.WILDCARDS, false);
+  }
+
+  /**
+   * Updates the fuzzy index.
+   * @throws Exception exception
+   */
+  @Test
+  public void fuzzy() throws Exception {
+    updates(false);
+  }
+
+  /**
+   * Updates the trie index.
+   * @throws Exception exception
+   */
+  @Test
+  public void trie() throws Exception {
+    updates(true);
+  }
+
+  /**
+   * Updates texts and looks them up in the full-text index.
+   * @param wc wildcards flag
+   * @throws Exception exception
+   */
+  private void updates(final boolean wc) throws Exception {
+    context.prop.set(Prop.FTINDEX, true);
+    context.prop.set(Prop.WILDCARDS, wc);
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < SIZE; ++i) {
+      sb.append("<a>text" + i + " number " + i + "</a>");
+    }
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(context);
+    assertTrue(context.data.meta.file(DATAFTX + 'i').exists());
+
+    // databases must be reopened from disk
+    context.prop.set(Prop.KEEPWARM, 0);
+    query("insert node <a>text5 nouveau</a> into /xml");
+    query("replace value of node //a[text() contains text 'text7']/text() " +
+        "with 'text8 number 7'");
+    query("delete node //a[text() contains text 'text9']");
+    check();
+
+    // updates are stored on disk
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertTrue(context.data.meta.ftindex);
+    assertTrue(context.data.meta.file(DATAFTX + 'u').exists());
+    check();
+
+    // updates are merged with the index files
+    context.prop.set(Prop.INDEXMERGE, 0);
+    query("insert node <a>new</a> into /xml");
+    assertFalse(context.data.meta.file(DATAFTX + 'u').exists());
+    index("count(//a[text() contains text 'new'])", "1");
+    check();
+
+    // merged index equals a rebuilt index
+    final String info = Token.string(context.data.info(IndexType.FULLTEXT));
+    new CreateIndex(CmdIndex.FULLTEXT).execute(context);
+    assertEquals(
+        Token.string(context.data.info(IndexType.FULLTEXT)), info);
+    check();
+  }
+
+  /**
+   * Checks the results of the updates.
+   * @throws Exception exception
+   */
+  private void check() throws Exception {
+    index("count(//a[text() contains text 'text5'])", "2");
+    index("//a[text() contains text 'text5' ftand 'nouveau']/text()",
+        "text5 nouveau");
+    index("count(//a[text() contains text " + (context.data.meta.wildcards ?
+        "'nouv.*' using wildcards" : "'nuoveau' using fuzzy") + "])", "1");
+    assertEquals("0", query("count(//a[text() contains text 'text7'])"));
+    index("string-join(//a[text() contains text 'text8']/text(), '|')",
+        "text8 number 7|text8 number 8");
+    index("count(//a[text() contains text 'text8 number 7'])", "1");
+    assertEquals("0", query("count(//a[text() contains text 'text9'])"));
+    index("count(//a[text() contains text 'number'])",
+        String.valueOf(SIZE - 1));
+  }
+
+  /**
+   * Checks if the specified query uses the full-text index and returns the
+   * expected result.
+   * @param query query
+   * @param exp expected result
+   * @throws Exception exception
+   */
+  private void index(final String query, final String exp) throws Exception {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    qp.compile();
+    final ArrayOutput ao = new ArrayOutput();
+    qp.plan(new XMLSerializer(ao));
+    qp.close();
+    assertTrue(query, ao.toString().contains("FTIndexAccess"));
+    assertEquals(exp, query(query));
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context);
+  }
+}
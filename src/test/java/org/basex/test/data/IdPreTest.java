@@ -0,0 +1,115 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.util.IntList;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the ID/PRE mapping of a database after updates.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class IdPreTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/xmark.xml";
+  /** Test database name. */
+  private static final String NAME = Util.name(IdPreTest.class);
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Checks the mapping after inserts, deletes and replacements, and after
+   * the database has been reopened.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    check();
+    final IntList deleted = ids("//text()[position() mod 3 = 0]");
+    new XQuery("delete nodes //text()[position() mod 3 = 0]").
+      execute(context);
+    new XQuery("for $i in //item return insert node <a b='c'>d</a> " +
+        "as first into $i").execute(context);
+    new XQuery("for $i in //item/a return replace node $i with <x/>").
+      execute(context);
+    check();
+    for(int i = 0; i < deleted.size(); ++i) {
+      assertEquals(-1, context.data.pre(deleted.get(i)));
+    }
+
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+    assertEquals("x", new XQuery("name(db:open-id('" + NAME + "', " +
+        ids("(//x)[last()]").get(0) + "))").execute(context));
+  }
+
+  /**
+   * Deletes all nodes of a database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void deleteAll() throws BaseXException {
+    context.data.delete(0);
+    assertEquals(1, context.data.meta.size);
+    check();
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+  }
+
+  /**
+   * Returns the ids of the nodes returned by the specified query.
+   * @param query query
+   * @return ids
+   * @throws BaseXException database exception
+   */
+  private IntList ids(final String query) throws BaseXException {
+    final IntList il = new IntList();
+    final String res = new XQuery("for $n in " + query +
+        " return db:node-id($n)").execute(context);
+    for(final String s : res.split(" ")) il.add(Integer.parseInt(s));
+    return il;
+  }
+
+  /**
+   * Checks if the pre values of all node ids are found.
+   */
+  private void check() {
+    final Data data = context.data;
+    for(int p = 0; p < data.meta.size; ++p) {
+      assertEquals(p, data.pre(data.id(p)));
+    }
+  }
+}
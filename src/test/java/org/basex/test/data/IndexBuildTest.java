@@ -0,0 +1,142 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Optimize;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IOFile;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the parallel construction of the value and full-text
+ * indexes.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuildTest {
+  /** Number of threads. */
+  private static final int THREADS = 4;
+  /** Number of elements. */
+  private static final int SIZE = 50000;
+  /** Test database name. */
+  private static final String NAME = Util.name(IndexBuildTest.class);
+  /** Index files. */
+  private static final String[] FILES = {
+    DATATXT + 'l', DATATXT + 'r', DATATXT + 'k', DATATXT + 'n',
+    DATAATV + 'l', DATAATV + 'r', DATAATV + 'k', DATAATV + 'n',
+    DATAFTX + 'x', DATAFTX + 'y', DATAFTX + 'z'
+  };
+  /** Database context. */
+  private final Context context = new Context();
+  /** Input document. */
+  private String doc;
+
+  /**
+   * Creates the input document.
+   */
+  @Before
+  public void setUp() {
+    doc = doc(SIZE);
+    context.prop.set(Prop.FTINDEX, true);
+  }
+
+  /**
+   * Returns an input document with the specified number of elements.
+   * @param size number of elements
+   * @return document
+   */
+  public static String doc(final int size) {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < size; ++i) {
+      sb.append("<a b='" + i % 997 + "'>text" + i % 1009 + " word" + i % 13 +
+          " with " + i + "</a>");
+    }
+    return sb.append("</xml>").toString();
+  }
+
+  /**
+   * Drops the database and resets the properties.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.FTINDEX, false);
+    context.prop.set(Prop.INDEXTHREADS, 1);
+  }
+
+  /**
+   * Checks if the parallel construction creates the same index files.
+   * @throws Exception exception
+   */
+  @Test
+  public void files() throws Exception {
+    create(1);
+    final byte[][] seq = contents();
+    create(THREADS);
+    final byte[][] par = contents();
+    for(int f = 0; f < FILES.length; ++f) {
+      assertTrue(FILES[f], Arrays.equals(seq[f], par[f]));
+    }
+    check();
+    new Optimize().execute(context);
+    check();
+  }
+
+  /**
+   * Looks up texts and attribute values in the indexes.
+   * @throws BaseXException database exception
+   */
+  private void check() throws BaseXException {
+    assertEquals("50", query("count(//a[text() contains text 'text5'])"));
+    assertEquals("51", query("count(//a[@b = '5'])"));
+    assertEquals("1", query("count(//a[text() = 'text5 word5 with 5'])"));
+  }
+
+  /**
+   * Creates the database with the specified number of threads.
+   * @param threads number of threads
+   * @throws BaseXException database exception
+   */
+  private void create(final int threads) throws BaseXException {
+    context.prop.set(Prop.INDEXTHREADS, threads);
+    new CreateDB(NAME, doc).execute(context);
+  }
+
+  /**
+   * Returns the contents of the index files.
+   * @return contents
+   * @throws Exception exception
+   */
+  private byte[][] contents() throws Exception {
+    final byte[][] cont = new byte[FILES.length][];
+    for(int f = 0; f < FILES.length; ++f) {
+      final File file = context.data.meta.file(FILES[f]);
+      assertTrue(file.toString(), file.exists());
+      cont[f] = new IOFile(file).content();
+    }
+    return cont;
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context);
+  }
+}
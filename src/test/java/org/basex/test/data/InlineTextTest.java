@@ -0,0 +1,43 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.junit.Test;
+
+/**
+ * This class tests texts and attribute values that are inlined in the
+ * text references of the table.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class InlineTextTest extends TableTest {
+  /**
+   * Compares inserted short numeric texts with existing ones.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void insertedNumber() throws BaseXException {
+    create("<x><a b='34'>12</a><b/></x>");
+    query("insert node <a b='34'>12</a> into /x/b");
+    assertEquals("true", query("deep-equal((/x/a)[1], (/x/b/a)[1])"));
+    reopen();
+    assertEquals("true", query("deep-equal((/x/a)[1], (/x/b/a)[1])"));
+    assertEquals("2", query("count(//a[. = 12])"));
+  }
+
+  /**
+   * Compares updated short texts with existing ones.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updated() throws BaseXException {
+    create("<x><a>12</a><a>abc</a><a>3</a><a>x</a></x>");
+    query("replace value of node /x/a[3] with '12'");
+    query("replace value of node /x/a[4] with 'abc'");
+    assertEquals("true", query("deep-equal(/x/a[1], /x/a[3])"));
+    assertEquals("true", query("deep-equal(/x/a[2], /x/a[4])"));
+    assertEquals("false", query("deep-equal(/x/a[1], /x/a[2])"));
+  }
+}
@@ -0,0 +1,102 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Set;
+import org.basex.io.BufferPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the prefetching of blocks if database files are
+ * read sequentially.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ReadAheadTest extends TableTest {
+  /** Number of buffer hits of the last scan. */
+  private long hits;
+
+  /**
+   * Constructor.
+   */
+  public ReadAheadTest() {
+    super(Prop.TABLECOMP, Prop.KEEPWARM);
+  }
+
+  /**
+   * Limits the buffer pool, and closes unused databases, so that their
+   * buffers are released.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    BufferPool.size(1);
+    new Set(Prop.KEEPWARM, 0).execute(context);
+  }
+
+  /**
+   * Resets the buffer pool.
+   */
+  @After
+  public void resetPool() {
+    BufferPool.size((Integer) Prop.BUFFERPOOL[1]);
+    BufferPool.readAhead((Integer) Prop.READAHEAD[1]);
+  }
+
+  /**
+   * Compares the results of sequential scans with and without read-ahead.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void scan() throws BaseXException {
+    create(doc(50000));
+    compare();
+  }
+
+  /**
+   * Compares the results of sequential scans of a compressed table
+   * with and without read-ahead.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void compressed() throws BaseXException {
+    new Set(Prop.TABLECOMP, true).execute(context);
+    create(doc(50000));
+    compare();
+  }
+
+  /**
+   * Scans the database with and without read-ahead, and checks that
+   * prefetched blocks are found in the pool.
+   * @throws BaseXException database exception
+   */
+  private void compare() throws BaseXException {
+    final String exp = read(0);
+    final long h = hits;
+    assertEquals(exp, read(16));
+    assertTrue(hits + " > " + h, hits > h);
+  }
+
+  /**
+   * Reopens the database, performs updates, so that all blocks are read
+   * via the buffer pool, and returns the result of a full scan.
+   * @param ahead number of blocks to be prefetched
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private String read(final int ahead) throws BaseXException {
+    BufferPool.readAhead(ahead);
+    reopen();
+    query("insert node <n/> into /*");
+    query("delete node /*/n");
+    final long h = BufferPool.stats()[3];
+    final String res = contents();
+    hits = BufferPool.stats()[3] - h;
+    return res;
+  }
+}
@@ -0,0 +1,275 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+import org.basex.core.BaseXException;
+import org.basex.core.Checkpointer;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.io.BufferPool;
+import org.basex.io.IO;
+import org.basex.io.IOFile;
+import org.basex.io.RedoLog;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the redo log, which is used if {@link Prop#WAL} is set.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class RedoLogTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/xmark.xml";
+  /** Test database name. */
+  private static final String NAME = Util.name(RedoLogTest.class);
+  /** Name of the copied database. */
+  private static final String COPY = NAME + "Copy";
+  /** Query for comparing the database contents. */
+  private static final String QUERY = "concat(count(//node()), string(/))";
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    context.prop.set(Prop.WAL, true);
+    context.prop.set(Prop.CHECKPOINT, Integer.MAX_VALUE);
+    new CreateDB(NAME, FILE).execute(context);
+  }
+
+  /**
+   * Drops the databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new DropDB(COPY).execute(context);
+    BufferPool.size((Integer) Prop.BUFFERPOOL[1]);
+  }
+
+  /**
+   * Checks if committed updates are recovered if the database has not been
+   * closed, and if incomplete records are ignored.
+   * @throws Exception exception
+   */
+  @Test
+  public void recover() throws Exception {
+    update();
+    final String exp = new XQuery(QUERY).execute(context);
+    final File log = context.data.meta.file(DATALOG);
+    assertTrue(log.length() > 0);
+
+    // simulate a crash by copying the files of the opened database,
+    // and add an incomplete record
+    copy();
+    final File clog = new File(context.prop.dbpath(COPY), log.getName());
+    final RandomAccessFile raf = new RandomAccessFile(clog, "rw");
+    raf.seek(raf.length());
+    raf.writeInt(1000);
+    raf.writeInt(0);
+    raf.write(new byte[10]);
+    raf.close();
+
+    final Context ctx = new Context();
+    new Open(COPY).execute(ctx);
+    assertEquals(exp, new XQuery(QUERY).execute(ctx));
+    assertEquals(0, clog.length());
+    new XQuery("delete nodes //text()").execute(ctx);
+    new Close().execute(ctx);
+  }
+
+  /**
+   * Checks if all updates are written to the database files if the database
+   * is closed.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void close() throws BaseXException {
+    update();
+    final String exp = new XQuery(QUERY).execute(context);
+    final File log = context.data.meta.file(DATALOG);
+    // unused databases would otherwise be kept open
+    context.prop.set(Prop.KEEPWARM, 0);
+    new Close().execute(context);
+    assertFalse(log.exists());
+
+    context.prop.set(Prop.WAL, false);
+    new Open(NAME).execute(context);
+    assertEquals(exp, new XQuery(QUERY).execute(context));
+  }
+
+  /**
+   * Checks if logged updates are written to disk in the background.
+   * @throws Exception exception
+   */
+  @Test
+  public void checkpointer() throws Exception {
+    context.prop.set(Prop.CHECKPOINT, 10);
+    final long count = Checkpointer.stats()[0];
+    update();
+    final File log = context.data.meta.file(DATALOG);
+    // statistics are updated after the log has been reset
+    for(int i = 0; i < 500 && (log.length() != 0 ||
+        Checkpointer.stats()[0] == count); ++i) Thread.sleep(10);
+    assertEquals(0, log.length());
+    assertTrue(Checkpointer.stats()[0] > count);
+    context.close();
+  }
+
+  /**
+   * Commits records in parallel and checks if they are all recovered.
+   * In each round, all threads append a record before they synchronize the
+   * log, so that the log is only synchronized once per round.
+   * @throws Exception exception
+   */
+  @Test
+  public void parallel() throws Exception {
+    final File dir = context.prop.dbpath(COPY);
+    dir.mkdirs();
+    final RedoLog log = new RedoLog(new File(dir, DATALOG + IO.BASEXSUFFIX));
+    final Thread[] threads = new Thread[4];
+    final CyclicBarrier barrier = new CyclicBarrier(threads.length);
+    final Exception[] error = new Exception[1];
+    for(int t = 0; t < threads.length; ++t) {
+      final String name = "t" + t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for(int i = 1; i <= 50; ++i) {
+              final RedoLog.Record rec = new RedoLog.Record();
+              rec.file(name, Token.token(i));
+              final long pos = log.append(rec);
+              barrier.await();
+              log.sync(pos);
+            }
+          } catch(final Exception ex) {
+            error[0] = ex;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread t : threads) t.join();
+    if(error[0] != null) throw error[0];
+    assertEquals(50, log.syncs());
+
+    assertTrue(RedoLog.recover(new File(dir, DATALOG + IO.BASEXSUFFIX)));
+    for(int t = 0; t < threads.length; ++t) {
+      final IOFile f = new IOFile(new File(dir, "t" + t + IO.BASEXSUFFIX));
+      assertEquals("50", Token.string(f.content()));
+    }
+  }
+
+  /**
+   * Modifies more blocks than fit into the buffer pool, and checks that no
+   * modified blocks are written to the database files before they have been
+   * logged and checkpointed.
+   * @throws Exception exception
+   */
+  @Test
+  public void noSteal() throws Exception {
+    BufferPool.size(1);
+    new CreateDB(NAME, TableTest.doc(50000)).execute(context);
+    final Data data = context.data;
+    final File tbl = data.meta.file(DATATBL);
+    final byte[] old = new IOFile(tbl).content();
+    assertTrue(old.length > BufferPool.stats()[1] * IO.BLOCKSIZE);
+
+    for(int p = 0; p < data.meta.size; ++p) {
+      final int k = data.kind(p);
+      if(k == Data.ELEM) data.rename(p, k, Token.token("f"), Token.EMPTY);
+    }
+    assertTrue(Arrays.equals(old, new IOFile(tbl).content()));
+    // commit: updates are only logged
+    data.flush();
+    assertTrue(Arrays.equals(old, new IOFile(tbl).content()));
+    assertTrue(data.meta.file(DATALOG).length() > 0);
+
+    // unused databases would otherwise be kept open
+    context.prop.set(Prop.KEEPWARM, 0);
+    new Close().execute(context);
+    assertFalse(Arrays.equals(old, new IOFile(tbl).content()));
+    new Open(NAME).execute(context);
+    assertEquals("0", new XQuery("count(//e)").execute(context));
+  }
+
+  /**
+   * Checks if the committed updates of a column-based table are recovered.
+   * @throws Exception exception
+   */
+  @Test
+  public void columns() throws Exception {
+    context.prop.set(Prop.TABLECOLS, true);
+    new CreateDB(NAME, FILE).execute(context);
+    update();
+    final String exp = new XQuery(QUERY).execute(context);
+    copy();
+
+    final Context ctx = new Context();
+    new Open(COPY).execute(ctx);
+    assertTrue(ctx.data.meta.tablecols);
+    assertEquals(exp, new XQuery(QUERY).execute(ctx));
+    new Close().execute(ctx);
+  }
+
+  /**
+   * Checks that updates of compressed tables are not logged.
+   */
+  @Test
+  public void compressed() {
+    context.prop.set(Prop.TABLECOMP, true);
+    try {
+      new CreateDB(NAME, FILE).execute(context);
+      fail("Compressed table was opened with a redo log.");
+    } catch(final BaseXException ex) {
+      assertNull(context.data);
+    }
+  }
+
+  /**
+   * Performs some updates.
+   * @throws BaseXException database exception
+   */
+  private void update() throws BaseXException {
+    new XQuery("for $i in //item return insert node <a>new</a> into $i").
+      execute(context);
+    new XQuery("delete nodes //text()[position() mod 2 = 0]").
+      execute(context);
+    new XQuery("for $t in //text() return replace value of node $t with " +
+        "concat($t, 'x')").execute(context);
+  }
+
+  /**
+   * Copies the files of the opened database.
+   * @throws IOException I/O exception
+   */
+  private void copy() throws IOException {
+    final File dir = context.prop.dbpath(COPY);
+    dir.mkdirs();
+    for(final File f : context.prop.dbpath(NAME).listFiles()) {
+      new IOFile(new File(dir, f.getName())).write(new IOFile(f).content());
+    }
+  }
+}
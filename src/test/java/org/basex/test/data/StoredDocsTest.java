@@ -0,0 +1,106 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.Delete;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IOFile;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the stored document references of a collection.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class StoredDocsTest {
+  /** Number of documents. */
+  private static final int DOCS = 500;
+  /** Test database name. */
+  private static final String NAME = Util.name(StoredDocsTest.class);
+  /** Input directory. */
+  private static final String DIR = Prop.TMP + NAME;
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Creates the database.
+   * @throws Exception exception
+   */
+  @Before
+  public void setUp() throws Exception {
+    // databases must be reopened from disk
+    context.prop.set(Prop.KEEPWARM, 0);
+    final File dir = new File(DIR);
+    dir.mkdirs();
+    for(int d = 0; d < DOCS; ++d) {
+      new IOFile(new File(dir, d + ".xml")).write(
+          Token.token("<doc id='" + d + "'><a>" + d + "</a></doc>"));
+    }
+    new CreateDB(NAME, DIR).execute(context);
+  }
+
+  /**
+   * Drops the database and deletes the input files.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    final File dir = new File(DIR);
+    for(final File f : dir.listFiles()) f.delete();
+    dir.delete();
+    context.close();
+  }
+
+  /**
+   * Checks if the stored document references are used and invalidated.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void docs() throws BaseXException {
+    final File docs = context.data.meta.file(DATADOCS);
+    assertEquals(String.valueOf(DOCS), count(""));
+    assertEquals("1", count("/7.xml"));
+    new Close().execute(context);
+    assertTrue(docs.exists());
+
+    // stored references are reused
+    new Open(NAME).execute(context);
+    assertEquals(String.valueOf(DOCS), count(""));
+    assertEquals("1", count("/7.xml"));
+    assertEquals("7", new XQuery(
+        "string(collection('" + NAME + "/7.xml')/doc/@id)").execute(context));
+
+    // updates invalidate the stored references
+    new Delete("7.xml").execute(context);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(String.valueOf(DOCS - 1), count(""));
+    assertEquals("0", count("/7.xml"));
+  }
+
+  /**
+   * Returns the number of documents matching the specified path.
+   * @param path path
+   * @return number of documents
+   * @throws BaseXException database exception
+   */
+  private String count(final String path) throws BaseXException {
+    return new XQuery("count(collection('" + NAME + path + "'))").
+      execute(context);
+  }
+}
@@ -0,0 +1,79 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Set;
+import org.basex.data.DataText;
+import org.basex.data.MetaData;
+import org.junit.Test;
+
+/**
+ * This class tests databases with a column-based table.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableColumnTest extends TableTest {
+  /**
+   * Constructor.
+   */
+  public TableColumnTest() {
+    super(Prop.TABLECOLS);
+  }
+
+  /**
+   * Compares the node fields of a column-based and a default database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    create(FILE);
+    final String[] exp = nodes();
+    new Set(Prop.TABLECOLS, true).execute(context);
+    create(FILE);
+    assertTrue(context.data.meta.tablecols);
+    assertArrayEquals(exp, nodes());
+
+    reopen();
+    assertArrayEquals(exp, nodes());
+  }
+
+  /**
+   * Updates a column-based and a default database and compares the
+   * node fields.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updated() throws BaseXException {
+    create(FILE);
+    update();
+    final String[] exp = nodes();
+    new Set(Prop.TABLECOLS, true).execute(context);
+    create(FILE);
+    update();
+    assertArrayEquals(exp, nodes());
+
+    reopen();
+    assertArrayEquals(exp, nodes());
+  }
+
+  /**
+   * Checks the sizes of the column files: the first column stores 8 bytes
+   * per node, the others store 4 bytes.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void columns() throws BaseXException {
+    new Set(Prop.TABLECOLS, true).execute(context);
+    create(FILE);
+    final MetaData md = context.data.meta;
+    assertFalse(md.file(DataText.DATATBL).exists());
+    final long c0 = md.file(DataText.DATATBL + 0).length();
+    final long c1 = md.file(DataText.DATATBL + 1).length();
+    final long c2 = md.file(DataText.DATATBL + 2).length();
+    assertEquals(c1, c2);
+    assertTrue(c0 + " > " + c1, c0 > c1);
+  }
+}
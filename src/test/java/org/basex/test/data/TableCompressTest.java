@@ -0,0 +1,97 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Set;
+import org.basex.data.DataText;
+import org.junit.Test;
+
+/**
+ * This class tests databases with compressed table blocks.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableCompressTest extends TableTest {
+  /**
+   * Constructor.
+   */
+  public TableCompressTest() {
+    super(Prop.TABLECOMP, Prop.TABLEMEM);
+  }
+
+  /**
+   * Compares the contents of a compressed and an uncompressed database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    create(FILE);
+    final String exp = contents();
+    new Set(Prop.TABLECOMP, true).execute(context);
+    create(FILE);
+    assertTrue(context.data.meta.tablecomp);
+    assertEquals(exp, contents());
+
+    // reopen database with main memory table
+    new Set(Prop.TABLEMEM, true).execute(context);
+    reopen();
+    assertEquals(exp, contents());
+  }
+
+  /**
+   * Checks that the compressed table is smaller than the uncompressed one.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void size() throws BaseXException {
+    create(FILE);
+    final long plain = tableSize();
+    new Set(Prop.TABLECOMP, true).execute(context);
+    create(FILE);
+    final long packed = tableSize();
+    assertTrue(packed + " < " + plain, packed < plain);
+  }
+
+  /**
+   * Updates a compressed database and reopens it.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updated() throws BaseXException {
+    new Set(Prop.TABLECOMP, true).execute(context);
+    create(FILE);
+    update();
+    final String exp = contents();
+    reopen();
+    assertEquals(exp, contents());
+  }
+
+  /**
+   * Repeatedly rewrites the same blocks and checks that the size of the
+   * table file is bounded.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void rewrite() throws BaseXException {
+    new Set(Prop.TABLECOMP, true).execute(context);
+    create(FILE);
+    long max = 0;
+    for(int r = 0; r < 20; ++r) {
+      query("for $i in //item return insert node <a>" + r + "</a> into $i");
+      query("delete node //item/a");
+      if(r == 1) max = tableSize();
+    }
+    assertEquals(max, tableSize());
+  }
+
+  /**
+   * Returns the size of the table file of the opened database.
+   * @return file size
+   */
+  private long tableSize() {
+    return context.data.meta.file(DataText.DATATBL).length();
+  }
+}
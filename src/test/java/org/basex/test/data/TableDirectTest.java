@@ -0,0 +1,82 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Set;
+import org.junit.Test;
+
+/**
+ * This class tests databases with a main memory table outside the Java heap.
+ * The test document spans more than two table chunks.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableDirectTest extends TableTest {
+  /** Number of elements of the test document (150001 nodes). */
+  private static final int ELEMS = 50000;
+
+  /**
+   * Constructor.
+   */
+  public TableDirectTest() {
+    super(Prop.TABLEMEM, Prop.TABLEDIRECT);
+  }
+
+  /**
+   * Compares the node fields of an off-heap and a disk-based table.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    create(doc(ELEMS));
+    assertTrue(context.data.meta.size > 2 << 16);
+    final String[] exp = nodes();
+    direct();
+    reopen();
+    assertArrayEquals(exp, nodes());
+  }
+
+  /**
+   * Inserts and deletes nodes across chunk boundaries of an off-heap table
+   * and reopens the database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updated() throws BaseXException {
+    create(doc(ELEMS));
+    updateChunks();
+    final String[] exp = nodes();
+    direct();
+    create(doc(ELEMS));
+    updateChunks();
+    assertArrayEquals(exp, nodes());
+    reopen();
+    assertArrayEquals(exp, nodes());
+  }
+
+  /**
+   * Enables the off-heap table.
+   * @throws BaseXException database exception
+   */
+  private void direct() throws BaseXException {
+    new Set(Prop.TABLEMEM, true).execute(context);
+    new Set(Prop.TABLEDIRECT, true).execute(context);
+  }
+
+  /**
+   * Inserts nodes in front of the first chunk boundary, and deletes and
+   * replaces nodes that span the first and second chunk boundary.
+   * @throws BaseXException database exception
+   */
+  private void updateChunks() throws BaseXException {
+    query("insert node <n>{ for $i in 1 to 500 return <m/> }</n> " +
+        "after /root/e[21800]");
+    query("delete node /root/e[position() = 21820 to 21870]");
+    query("replace node /root/e[43500] with " +
+        "<b>{ /root/e[position() = 43500 to 43800] }</b>");
+    query("delete node /root/e[position() = 43501 to 43800]");
+  }
+}
@@ -0,0 +1,134 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Random;
+import org.basex.build.DiskBuilder;
+import org.basex.build.Parser;
+import org.basex.core.Prop;
+import org.basex.core.cmd.DropDB;
+import org.basex.data.Data;
+import org.basex.io.IO;
+import org.basex.io.TableDiskAccess;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests single-entry inserts into the disk table.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableInsertTest {
+  /** Number of inserts. */
+  private static final int INSERTS = 100000;
+  /** Test file. */
+  private static final String FILE = "etc/xml/xmark.xml";
+  /** Test database name. */
+  private static final String NAME = Util.name(TableInsertTest.class);
+  /** Database properties. */
+  private static final Prop PROP = new Prop(true);
+  /** Table. */
+  private TableDiskAccess tda;
+  /** Data reference. */
+  private Data data;
+  /** Initial table size. */
+  private int size;
+
+  /**
+   * Initializes the test class.
+   */
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    PROP.set(Prop.TEXTINDEX, false);
+    PROP.set(Prop.ATTRINDEX, false);
+  }
+
+  /**
+   * Creates the database.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void setUp() throws IOException {
+    final Parser parser = Parser.xmlParser(IO.get(FILE), PROP, "");
+    data = new DiskBuilder(parser, PROP).build(NAME);
+    size = data.meta.size;
+    data.close();
+    tda = new TableDiskAccess(data.meta, DATATBL);
+  }
+
+  /**
+   * Drops the database.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void tearDown() throws IOException {
+    tda.close();
+    DropDB.drop(NAME, PROP);
+  }
+
+  /**
+   * Inserts entries, each after the previously inserted one.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void sequential() throws IOException {
+    final int start = size >>> 1;
+    for(int i = 0; i < INSERTS; ++i) tda.insert(start + i, entry(size + i));
+    tda.close();
+    tda = new TableDiskAccess(data.meta, DATATBL);
+    assertEquals(size + INSERTS, tda.size());
+    for(int pre = 0; pre < tda.size(); ++pre) {
+      final int id = pre < start ? pre : pre < start + INSERTS ?
+          size + pre - start : pre - INSERTS;
+      assertEquals(id, tda.read4(pre, 12));
+    }
+  }
+
+  /**
+   * Inserts entries at random positions.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void random() throws IOException {
+    final Random rnd = new Random(0);
+    for(int i = 0; i < INSERTS; ++i) {
+      tda.insert(1 + rnd.nextInt(size + i - 1), entry(size + i));
+    }
+    tda.close();
+    tda = new TableDiskAccess(data.meta, DATATBL);
+    assertEquals(size + INSERTS, tda.size());
+    // original entries must be in order, and all new entries must exist
+    final boolean[] found = new boolean[INSERTS];
+    int exp = 0;
+    for(int pre = 0; pre < tda.size(); ++pre) {
+      final int id = tda.read4(pre, 12);
+      if(id < size) {
+        assertEquals(exp++, id);
+      } else {
+        assertFalse(found[id - size]);
+        found[id - size] = true;
+      }
+    }
+    assertEquals(size, exp);
+  }
+
+  /**
+   * Returns a table entry with the specified id.
+   * @param id id
+   * @return entry
+   */
+  public static byte[] entry(final int id) {
+    final byte[] e = new byte[1 << IO.NODEPOWER];
+    e[12] = (byte) (id >>> 24);
+    e[13] = (byte) (id >>> 16);
+    e[14] = (byte) (id >>> 8);
+    e[15] = (byte) id;
+    return e;
+  }
+}
@@ -0,0 +1,73 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Set;
+import org.junit.Test;
+
+/**
+ * This class tests databases with memory-mapped tables.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableMapTest extends TableTest {
+  /** Queries to be compared. */
+  private static final String[] QUERIES = {
+    "count(//*)", "count(//@*)", "//item[@id = 'item7']/name/text()",
+    "sum(//price)", "(//keyword)[last()]/..//text()",
+    "for $p in //person[position() < 10] return $p/name/string()"
+  };
+
+  /**
+   * Constructor.
+   */
+  public TableMapTest() {
+    super(Prop.TABLEMAP);
+  }
+
+  /**
+   * Compares query results of a database with and without a mapped table.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    create(FILE);
+    final String[] exp = results();
+    new Set(Prop.TABLEMAP, true).execute(context);
+    reopen();
+    assertArrayEquals(exp, results());
+  }
+
+  /**
+   * Compares query results after updates, which are first applied to a
+   * mapped table.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updated() throws BaseXException {
+    create(FILE);
+    update();
+    final String[] exp = results();
+    new Set(Prop.TABLEMAP, true).execute(context);
+    create(FILE);
+    update();
+    assertArrayEquals(exp, results());
+    reopen();
+    assertArrayEquals(exp, results());
+  }
+
+  /**
+   * Returns the results of all queries and the database contents.
+   * @return results
+   * @throws BaseXException database exception
+   */
+  private String[] results() throws BaseXException {
+    final String[] res = new String[QUERIES.length + 1];
+    for(int q = 0; q < QUERIES.length; ++q) res[q] = query(QUERIES[q]);
+    res[QUERIES.length] = contents();
+    return res;
+  }
+}
@@ -0,0 +1,139 @@
+package org.basex.test.data;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.After;
+
+/**
+ * This class contains methods for testing databases with different
+ * table storages.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public abstract class TableTest {
+  /** Test file. */
+  protected static final String FILE = "etc/xml/xmark.xml";
+  /** Query for comparing the database contents. */
+  private static final String QUERY =
+    "string-join((for $n in //* return name($n), //text(), " +
+    "for $a in //@* return string($a)), ',')";
+
+  /** Database context. */
+  protected final Context context = new Context();
+  /** Test database name. */
+  protected final String name = Util.name(getClass());
+  /** Options that are reset after each test. */
+  private final Object[][] options;
+
+  /**
+   * Constructor.
+   * @param opts options that are reset after each test
+   */
+  protected TableTest(final Object[]... opts) {
+    options = opts;
+  }
+
+  /**
+   * Drops the database and resets the options.
+   * @throws BaseXException database exception
+   */
+  @After
+  public final void tearDown() throws BaseXException {
+    new DropDB(name).execute(context);
+    for(final Object[] o : options) context.prop.set((String) o[0], o[1]);
+  }
+
+  /**
+   * Creates the database from the specified input.
+   * @param input input
+   * @throws BaseXException database exception
+   */
+  protected final void create(final String input) throws BaseXException {
+    new CreateDB(name, input).execute(context);
+  }
+
+  /**
+   * Returns a document with the specified number of elements. Each element
+   * has an attribute and a text node.
+   * @param elems number of elements
+   * @return document
+   */
+  protected static String doc(final int elems) {
+    final StringBuilder sb = new StringBuilder("<root>");
+    for(int i = 0; i < elems; ++i) {
+      sb.append("<e a='" + i + "'>t" + i + "</e>");
+    }
+    return sb.append("</root>").toString();
+  }
+
+  /**
+   * Closes and reopens the database.
+   * @throws BaseXException database exception
+   */
+  protected final void reopen() throws BaseXException {
+    new Close().execute(context);
+    new Open(name).execute(context);
+  }
+
+  /**
+   * Inserts and deletes nodes.
+   * @throws BaseXException database exception
+   */
+  protected final void update() throws BaseXException {
+    query("for $i in //item return insert node <a>x</a> into $i");
+    query("delete node //item[position() mod 3 = 0]");
+  }
+
+  /**
+   * Returns the names, texts and attribute values of the database.
+   * @return contents
+   * @throws BaseXException database exception
+   */
+  protected final String contents() throws BaseXException {
+    return query(QUERY);
+  }
+
+  /**
+   * Returns string representations of all nodes of the database.
+   * @return nodes
+   */
+  protected final String[] nodes() {
+    final Data data = context.data;
+    final String[] nodes = new String[data.meta.size];
+    for(int p = 0; p < nodes.length; ++p) nodes[p] = node(data, p);
+    return nodes;
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  protected final String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context);
+  }
+
+  /**
+   * Returns a string representation of the specified node.
+   * @param data data reference
+   * @param pre pre value
+   * @return string
+   */
+  protected static String node(final Data data, final int pre) {
+    final int k = data.kind(pre);
+    final byte[] v = k == Data.ELEM || k == Data.DOC ? data.name(pre, k) :
+      data.text(pre, k != Data.ATTR);
+    return k + "/" + data.size(pre, k) + '/' + data.parent(pre, k) + '/' +
+      data.id(pre) + '/' + Token.string(v);
+  }
+}
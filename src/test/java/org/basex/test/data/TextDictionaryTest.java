@@ -0,0 +1,101 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.Set;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests databases with dictionary-encoded values.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TextDictionaryTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(TextDictionaryTest.class);
+  /** Test document. */
+  private static final String DOC = "<x>" +
+    "<a s='accepted'>euros</a><a s='accepted'>dollars</a>" +
+    "<a s='failed'>euros</a><a s='accepted'>euros</a>" +
+    "<a s='failed'>dollars</a><a s='accepted'>euros</a></x>";
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    new Set(Prop.VALUEDICT, true).execute(context);
+    new CreateDB(NAME, DOC).execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.VALUEDICT, false);
+  }
+
+  /**
+   * Compares values.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void compare() throws BaseXException {
+    assertTrue(context.data.meta.valuedict);
+    query("count(//a[@s = 'accepted'])", "4");
+    query("count(//a[. = 'euros'])", "4");
+    query("deep-equal(//a[1], //a[4])", "true");
+    query("deep-equal(//a[1], //a[2])", "false");
+    query("deep-equal(//a[1], //a[3])", "false");
+  }
+
+  /**
+   * Updates values and reopens the database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    query("replace value of node (//a)[1] with 'dollars'", "");
+    query("replace value of node (//@s)[2] with 'failed'", "");
+    query("insert node <a s='accepted'>euros</a> into /x", "");
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    query("string-join(for $a in //a return concat($a/@s, $a), ' ')",
+      "accepteddollars faileddollars failedeuros acceptedeuros " +
+      "faileddollars acceptedeuros acceptedeuros");
+    query("replace value of node (//a)[6] with 'francs'", "");
+    query("deep-equal(//a[2], //a[5])", "true");
+    query("deep-equal(//a[4], //a[7])", "true");
+    query("deep-equal(//a[4], //a[6])", "false");
+    query("count(//a[. = 'euros'])", "3");
+  }
+
+  /**
+   * Runs a query and compares the result.
+   * @param query query
+   * @param exp expected result
+   * @throws BaseXException database exception
+   */
+  private void query(final String query, final String exp)
+      throws BaseXException {
+    assertEquals(exp, new XQuery(query).execute(context));
+  }
+}
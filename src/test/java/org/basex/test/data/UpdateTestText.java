@@ -217,6 +217,25 @@ public final class UpdateTestText extends UpdateTest {
     assertByteArraysEqual(JUNIT, data.text(10, true));
   }
 
+  /**
+   * Tests updateText with short (inlined) and longer texts.
+   */
+  @Test
+  public void testUpdateShortText() {
+    CONTEXT.data.replace(10, Data.TEXT, B);
+    assertByteArraysEqual(B, CONTEXT.data.text(10, true));
+    assertEquals(B.length, CONTEXT.data.textLen(10, true));
+    CONTEXT.data.replace(10, Data.TEXT, JUNIT);
+    CONTEXT.data.replace(12, Data.TEXT, FOO);
+    reload();
+    assertByteArraysEqual(JUNIT, CONTEXT.data.text(10, true));
+    assertByteArraysEqual(FOO, CONTEXT.data.text(12, true));
+    CONTEXT.data.replace(10, Data.TEXT, FOO);
+    reload();
+    assertByteArraysEqual(FOO, CONTEXT.data.text(10, true));
+    assertTrue(CONTEXT.data.sameText(10, 12, true));
+  }
+
   /**
    * Inserts a value in the database.
    * @param par parent node
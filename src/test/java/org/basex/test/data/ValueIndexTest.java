@@ -0,0 +1,204 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.XMLSerializer;
+import org.basex.io.ArrayOutput;
+import org.basex.query.QueryProcessor;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests lookups in the text and attribute value index, the keys
+ * of which are stored in several blocks.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ValueIndexTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(ValueIndexTest.class);
+  /** Number of elements. */
+  private static final int SIZE = 10000;
+  /** Database context. */
+  private final Context context = new Context();
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < SIZE; ++i) {
+      sb.append("<a b='" + i * 3 + "'>text" + i + "</a>");
+    }
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(context);
+    assertTrue(context.data.meta.file(DATATXT + 'k').exists());
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Looks up texts.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void texts() throws BaseXException {
+    for(int i = 0; i < SIZE; i += 7) {
+      assertEquals("1", query("count(//a[text() = 'text" + i + "'])"));
+      assertEquals(String.valueOf(i),
+          query("//a[text() = 'text" + i + "']/@b/data() div 3"));
+    }
+    for(final String s : new String[] { "", "a", "text", "text01", "zzz" }) {
+      assertEquals("0", query("count(//a[text() = '" + s + "'])"));
+    }
+  }
+
+  /**
+   * Looks up attribute values and ranges.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void attributes() throws BaseXException {
+    for(int i = 0; i < SIZE; i += 11) {
+      assertEquals("text" + i, query("//a[@b = '" + i * 3 + "']/text()"));
+      assertEquals("0", query("count(//a[@b = '" + (i * 3 + 1) + "'])"));
+    }
+  }
+
+  /**
+   * Looks up numeric ranges.
+   * @throws Exception exception
+   */
+  @Test
+  public void ranges() throws Exception {
+    assertTrue(context.data.meta.file(DATAATV + 'n').exists());
+    range("count(//a[@b >= 100 and @b <= 200])", "33");
+    range("count(//a[@b > 99 and @b <= 102])", "1");
+    range("count(//a[@b >= 99 and @b < 102])", "1");
+    range("count(//a[@b > 99 and @b < 105])", "1");
+    range("count(//a[@b > 99 and @b < 102])", "0");
+    range("//a[@b >= 29997 and @b < 40000]/text()", "text9999");
+    assertEquals("3", query("count(//a[@b < 9])"));
+  }
+
+  /**
+   * Updates texts and attribute values and looks them up in the index.
+   * @throws Exception exception
+   */
+  @Test
+  public void updates() throws Exception {
+    // databases must be reopened from disk
+    context.prop.set(Prop.KEEPWARM, 0);
+    query("insert node <a b='x'>text5</a> into /xml");
+    query("replace value of node //a[text() = 'text7']/text() with 'text8'");
+    query("replace value of node //a[@b = '3']/@b with 'y'");
+    query("delete node //a[text() = 'text9']");
+    check();
+
+    // updates are stored on disk
+    new Close().execute(context);
+    assertTrue(context.prop.is(Prop.TEXTINDEX));
+    new Open(NAME).execute(context);
+    assertTrue(context.data.meta.textindex && context.data.meta.attrindex);
+    assertTrue(context.data.meta.file(DATATXT + 'u').exists());
+    check();
+
+    // updates are merged with the index files
+    context.prop.set(Prop.INDEXMERGE, 0);
+    query("insert node <a b='z'>new</a> into /xml");
+    assertFalse(context.data.meta.file(DATATXT + 'u').exists());
+    assertFalse(context.data.meta.file(DATAATV + 'u').exists());
+    index("string-join(//a[text() = 'new']/@b, ' ')", "z");
+    index("string-join(//a[@b = 'z']/text(), ' ')", "new");
+    check();
+  }
+
+  /**
+   * Checks the results of the updates.
+   * @throws Exception exception
+   */
+  private void check() throws Exception {
+    index("count(//a[text() = 'text5'])", "2");
+    index("string-join(//a[text() = 'text5']/@b, ' ')", "15 x");
+    assertEquals("0", query("count(//a[text() = 'text7'])"));
+    index("string-join(//a[text() = 'text8']/@b, ' ')", "21 24");
+    index("string-join(//a[text() = 'text10']/@b, ' ')", "30");
+    assertEquals("0", query("count(//a[text() = 'text9'])"));
+    index("string-join(//a[@b = 'y']/text(), ' ')", "text1");
+    assertEquals("0", query("count(//a[@b = '3'])"));
+    assertEquals("0", query("count(//a[@b = '27'])"));
+    index("string-join(//a[@b = '30']/text(), ' ')", "text10");
+    index("string-join(//a[@b = 'x']/text(), ' ')", "text5");
+  }
+
+  /**
+   * Checks if the specified query uses the range index and returns the
+   * expected result.
+   * @param query query
+   * @param exp expected result
+   * @throws Exception exception
+   */
+  private void range(final String query, final String exp) throws Exception {
+    access("RangeAccess", query, exp);
+  }
+
+  /**
+   * Checks if the specified query uses the value index and returns the
+   * expected result.
+   * @param query query
+   * @param exp expected result
+   * @throws Exception exception
+   */
+  private void index(final String query, final String exp) throws Exception {
+    access("IndexAccess", query, exp);
+  }
+
+  /**
+   * Checks if the specified query uses an index and returns the expected
+   * result.
+   * @param access name of the index expression
+   * @param query query
+   * @param exp expected result
+   * @throws Exception exception
+   */
+  private void access(final String access, final String query,
+      final String exp) throws Exception {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    qp.compile();
+    final ArrayOutput ao = new ArrayOutput();
+    qp.plan(new XMLSerializer(ao));
+    qp.close();
+    assertTrue(query, ao.toString().contains(access));
+    assertEquals(exp, query(query));
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context);
+  }
+}
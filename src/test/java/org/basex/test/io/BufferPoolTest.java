@@ -0,0 +1,118 @@
+package org.basex.test.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.basex.core.Prop;
+import org.basex.io.BufferPool;
+import org.basex.io.DataAccess;
+import org.basex.io.IO;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the replacement strategy of the buffer pool.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPoolTest {
+  /** Number of blocks of the test file. */
+  private static final int BLOCKS = 2560;
+  /** Number of frequently accessed blocks. */
+  private static final int HOT = 16;
+  /** Number of blocks read by a scan (more than the pool can hold). */
+  private static final int SCAN = 300;
+  /** Number of scans. */
+  private static final int RUNS = 6;
+  /** Test file. */
+  private static final File FILE =
+    new File(Prop.TMP + Util.name(BufferPoolTest.class));
+  /** File access. */
+  private DataAccess da;
+
+  /**
+   * Creates the test file and limits the pool to 256 buffers.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void setUp() throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(FILE, "rw");
+    final byte[] block = new byte[IO.BLOCKSIZE];
+    for(int b = 0; b < BLOCKS; ++b) {
+      block[2] = (byte) (b >>> 8);
+      block[3] = (byte) b;
+      raf.write(block);
+    }
+    raf.close();
+    BufferPool.size(1);
+    BufferPool.readAhead(0);
+    da = new DataAccess(FILE);
+  }
+
+  /**
+   * Closes and deletes the test file and resets the pool.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void tearDown() throws IOException {
+    da.close();
+    FILE.delete();
+    BufferPool.size((Integer) Prop.BUFFERPOOL[1]);
+    BufferPool.readAhead((Integer) Prop.READAHEAD[1]);
+  }
+
+  /**
+   * Reads a set of blocks between scans that exceed the pool size, and
+   * checks that these blocks are promoted and not evicted by the scans.
+   */
+  @Test
+  public void scan() {
+    int next = HOT + 1;
+    final int[] hits = new int[RUNS];
+    for(int r = 0; r < RUNS; ++r) {
+      for(int h = 1; h <= HOT; ++h) if(read(h)) ++hits[r];
+      for(int s = 0; s < SCAN; ++s) read(next++);
+    }
+    // blocks are promoted if they are requested after having been evicted
+    assertEquals(0, hits[0]);
+    assertEquals(HOT, hits[RUNS - 1]);
+
+    // blocks of the scan are evicted in the order in which they were read
+    assertFalse(read(next - SCAN));
+    assertTrue(read(next - 1));
+  }
+
+  /**
+   * Reads blocks sequentially with read-ahead, and checks that prefetched
+   * blocks are not counted as misses.
+   */
+  @Test
+  public void prefetch() {
+    BufferPool.readAhead(7);
+    final long[] old = BufferPool.stats();
+    for(int b = 0; b < SCAN; ++b) read(b);
+    final long[] st = BufferPool.stats();
+    final long hits = st[3] - old[3], misses = st[4] - old[4];
+    final long pre = st[5] - old[5];
+    assertEquals(SCAN, hits + misses);
+    // all hits result from prefetched blocks
+    assertTrue(hits + " <= " + pre, hits <= pre);
+    assertTrue(misses + " < " + hits, misses < hits);
+  }
+
+  /**
+   * Reads a block and checks if it was cached.
+   * @param b block
+   * @return result of check
+   */
+  private boolean read(final int b) {
+    final long hits = BufferPool.stats()[3];
+    assertEquals(b, da.read4((long) b * IO.BLOCKSIZE));
+    return BufferPool.stats()[3] != hits;
+  }
+}
@@ -0,0 +1,59 @@
+package org.basex.test.performance;
+
+import org.basex.test.util.BitCompress;
+import org.basex.test.util.TextCodecTest;
+import org.basex.util.Compress;
+import org.basex.util.Performance;
+import org.basex.util.SymbolCompress;
+import org.basex.util.TextCodec;
+import org.basex.util.Util;
+
+/**
+ * Compares the performance of the text codecs.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressBenchmark {
+  /** Number of runs. */
+  private static final int RUNS = 5;
+  /** Test texts. */
+  private static byte[][] texts;
+
+  /** Private constructor. */
+  private CompressBenchmark() { }
+
+  /**
+   * Main method.
+   * @param args (ignored) command-line arguments
+   * @throws Exception exception
+   */
+  public static void main(final String[] args) throws Exception {
+    texts = TextCodecTest.texts();
+    Util.outln("Bitwise: " + Performance.getTimer(time(new BitCompress()),
+        RUNS));
+    Util.outln("Tables:  " + Performance.getTimer(time(new Compress()),
+        RUNS));
+
+    final SymbolCompress sym = new SymbolCompress();
+    for(final byte[] t : texts) sym.pack(t);
+    sym.train();
+    Util.outln("Symbols: " + Performance.getTimer(time(sym), RUNS));
+  }
+
+  /**
+   * Packs and unpacks all texts and returns the elapsed time.
+   * @param codec codec
+   * @return time in nano seconds
+   */
+  private static long time(final TextCodec codec) {
+    final Performance p = new Performance();
+    for(int r = 0; r < RUNS; r++) {
+      for(final byte[] t : texts) {
+        final byte[] cpr = codec.pack(t);
+        if(cpr != t) codec.unpack(cpr);
+      }
+    }
+    return p.getTime();
+  }
+}
@@ -0,0 +1,71 @@
+package org.basex.test.performance;
+
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Optimize;
+import org.basex.test.data.IndexBuildTest;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+
+/**
+ * Compares the time needed for building the value and full-text indexes
+ * with one and several threads.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuildBenchmark {
+  /** Number of threads. */
+  private static final int THREADS = 4;
+  /** Number of elements. */
+  private static final int SIZE = 50000;
+  /** Number of runs. */
+  private static final int RUNS = 3;
+  /** Test database name. */
+  private static final String NAME = Util.name(IndexBuildBenchmark.class);
+
+  /** Private constructor. */
+  private IndexBuildBenchmark() { }
+
+  /**
+   * Main method.
+   * @param args (ignored) command-line arguments
+   * @throws Exception exception
+   */
+  public static void main(final String[] args) throws Exception {
+    final Context ctx = new Context();
+    ctx.prop.set(Prop.FTINDEX, true);
+    final String doc = IndexBuildTest.doc(SIZE);
+    final long seq = time(ctx, doc, 1), par = time(ctx, doc, THREADS);
+    Util.outln("1 thread: " + Performance.getTimer(seq, RUNS));
+    Util.outln(THREADS + " threads: " + Performance.getTimer(par, RUNS));
+    Util.outln("Speedup: " + (double) seq / par);
+    new DropDB(NAME).execute(ctx);
+    ctx.close();
+  }
+
+  /**
+   * Measures the time needed for optimizing the database, which rebuilds
+   * all indexes.
+   * @param ctx database context
+   * @param doc input document
+   * @param threads number of threads
+   * @return time in nano seconds
+   * @throws Exception exception
+   */
+  private static long time(final Context ctx, final String doc,
+      final int threads) throws Exception {
+    ctx.prop.set(Prop.INDEXTHREADS, threads);
+    new CreateDB(NAME, doc).execute(ctx);
+    long time = 0;
+    for(int r = 0; r < RUNS; ++r) {
+      Performance.gc(2);
+      final Performance p = new Performance();
+      new Optimize().execute(ctx);
+      time += p.getTime();
+    }
+    return time;
+  }
+}
@@ -0,0 +1,74 @@
+package org.basex.test.performance;
+
+import java.io.File;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IOFile;
+import org.basex.util.Performance;
+import org.basex.util.Token;
+import org.basex.util.Util;
+
+/**
+ * Measures the time and memory needed for opening a collection.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class OpenBenchmark {
+  /** Number of documents. */
+  private static final int DOCS = 500;
+  /** Number of runs. */
+  private static final int RUNS = 10;
+  /** Test database name. */
+  private static final String NAME = Util.name(OpenBenchmark.class);
+  /** Input directory. */
+  private static final String DIR = Prop.TMP + NAME;
+
+  /** Private constructor. */
+  private OpenBenchmark() { }
+
+  /**
+   * Main method.
+   * @param args (ignored) command-line arguments
+   * @throws Exception exception
+   */
+  public static void main(final String[] args) throws Exception {
+    final Context ctx = new Context();
+    // databases must be reopened from disk
+    ctx.prop.set(Prop.KEEPWARM, 0);
+    final File dir = new File(DIR);
+    dir.mkdirs();
+    for(int d = 0; d < DOCS; ++d) {
+      new IOFile(new File(dir, d + ".xml")).write(
+          Token.token("<doc id='" + d + "'><a>" + d + "</a></doc>"));
+    }
+    new CreateDB(NAME, DIR).execute(ctx);
+    new Close().execute(ctx);
+
+    final String query = "count(collection('" + NAME + "'))";
+    long time = 0, mem = 0;
+    for(int r = 0; r < RUNS; ++r) {
+      Performance.gc(2);
+      final long m = Performance.mem();
+      final Performance p = new Performance();
+      new Open(NAME).execute(ctx);
+      time += p.getTime();
+      new XQuery(query).execute(ctx);
+      Performance.gc(2);
+      mem += Performance.mem() - m;
+      new Close().execute(ctx);
+    }
+    Util.outln("Open: " + Performance.getTimer(time, RUNS));
+    Util.outln("Heap: " + Performance.format(Math.max(0, mem / RUNS)));
+
+    new DropDB(NAME).execute(ctx);
+    for(final File f : dir.listFiles()) f.delete();
+    dir.delete();
+    ctx.close();
+  }
+}
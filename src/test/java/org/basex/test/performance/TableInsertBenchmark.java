@@ -0,0 +1,82 @@
+package org.basex.test.performance;
+
+import static org.basex.data.DataText.*;
+
+import java.io.IOException;
+import java.util.Random;
+import org.basex.build.DiskBuilder;
+import org.basex.build.Parser;
+import org.basex.core.Prop;
+import org.basex.core.cmd.DropDB;
+import org.basex.data.Data;
+import org.basex.io.IO;
+import org.basex.io.TableDiskAccess;
+import org.basex.test.data.TableInsertTest;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+
+/**
+ * Measures the time needed for single-entry inserts into the disk table,
+ * and the number of resulting blocks.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TableInsertBenchmark {
+  /** Number of inserts. */
+  private static final int INSERTS = 100000;
+  /** Test file. */
+  private static final String FILE = "etc/xml/xmark.xml";
+  /** Test database name. */
+  private static final String NAME = Util.name(TableInsertBenchmark.class);
+
+  /** Private constructor. */
+  private TableInsertBenchmark() { }
+
+  /**
+   * Main method.
+   * @param args (ignored) command-line arguments
+   * @throws Exception exception
+   */
+  public static void main(final String[] args) throws Exception {
+    final Prop prop = new Prop(true);
+    prop.set(Prop.TEXTINDEX, false);
+    prop.set(Prop.ATTRINDEX, false);
+
+    // inserts entries, each after the previously inserted one
+    TableDiskAccess tda = table(prop);
+    final int size = tda.size(), start = size >>> 1;
+    Performance p = new Performance();
+    for(int i = 0; i < INSERTS; ++i) {
+      tda.insert(start + i, TableInsertTest.entry(size + i));
+    }
+    Util.outln("Sequential: " + p + ", " + tda.blocks() + " blocks");
+    tda.close();
+    DropDB.drop(NAME, prop);
+
+    // inserts entries at random positions
+    tda = table(prop);
+    final Random rnd = new Random(0);
+    p = new Performance();
+    for(int i = 0; i < INSERTS; ++i) {
+      final byte[] e = TableInsertTest.entry(size + i);
+      tda.insert(1 + rnd.nextInt(size + i - 1), e);
+    }
+    Util.outln("Random: " + p + ", " + tda.blocks() + " blocks");
+    tda.close();
+    DropDB.drop(NAME, prop);
+  }
+
+  /**
+   * Creates the database and opens its table.
+   * @param prop database properties
+   * @return table
+   * @throws IOException I/O exception
+   */
+  private static TableDiskAccess table(final Prop prop) throws IOException {
+    final Parser parser = Parser.xmlParser(IO.get(FILE), prop, "");
+    final Data data = new DiskBuilder(parser, prop).build(NAME);
+    data.close();
+    return new TableDiskAccess(data.meta, DATATBL);
+  }
+}
@@ -330,9 +330,11 @@ public class CmdTest {
   public final void optimize() {
     no(new Optimize());
     no(new OptimizeAll());
+    no(new Compact());
     ok(new CreateDB(NAME, FILE));
     ok(new Optimize());
     ok(new OptimizeAll());
+    ok(new Compact());
   }
 
   /** Command test. */
@@ -5,13 +5,17 @@ import java.io.IOException;
 import org.basex.BaseXServer;
 import org.basex.core.BaseXException;
 import org.basex.core.Command;
+import org.basex.core.Context;
 import org.basex.core.cmd.CreateDB;
 import org.basex.core.cmd.DropDB;
 import org.basex.core.cmd.Open;
 import org.basex.core.cmd.XQuery;
+import org.basex.query.QueryException;
+import org.basex.query.QueryProcessor;
 import org.basex.server.ClientSession;
 import org.basex.server.Session;
 import org.basex.util.Performance;
+import org.basex.util.StringList;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -168,6 +172,144 @@ public final class LockingTest {
     }
   }
 
+  /**
+   * Checks if an updating query only blocks readers when its updates
+   * are applied.
+   * @throws Exception exception
+   */
+  @Test
+  public void sharedWriterTest() throws Exception {
+    final Context ctx = server.context;
+    ctx.register(true, true, null);
+
+    // readers are not blocked by a shared writer
+    final Reader r1 = new Reader(ctx, null, 0);
+    r1.start();
+    r1.join(5000);
+    assertFalse(r1.isAlive());
+
+    // the writer waits for active readers before applying its updates
+    final Reader r2 = new Reader(ctx, null, 200);
+    r2.start();
+    while(!r2.registered) Performance.sleep(10);
+    ctx.exclusive();
+    assertTrue(r2.released);
+
+    // new readers are blocked until the writer has finished
+    final Reader r3 = new Reader(ctx, null, 0);
+    r3.start();
+    r3.join(200);
+    assertFalse(r3.registered);
+    ctx.unregister(true);
+    r3.join(5000);
+    assertTrue(r3.released);
+  }
+
+  /**
+   * Checks if processes only lock the databases they access.
+   * @throws Exception exception
+   */
+  @Test
+  public void databaseLockTest() throws Exception {
+    final Context ctx = server.context;
+    final StringList a = list("A"), b = list("B");
+    final Reader r1 = new Reader(ctx, a, 300);
+    r1.start();
+    while(!r1.registered) Performance.sleep(10);
+
+    // the writer waits for the reader of the same database
+    final Thread w = new Thread() {
+      @Override
+      public void run() {
+        ctx.register(true, false, list("A"));
+        ctx.unregister(true);
+      }
+    };
+    w.start();
+    Performance.sleep(50);
+
+    // readers of other databases are not blocked
+    final Reader r2 = new Reader(ctx, b, 0);
+    r2.start();
+    r2.join(5000);
+    assertTrue(r2.released);
+
+    // new readers of the same database do not overtake the waiting writer
+    final Reader r3 = new Reader(ctx, a, 0);
+    r3.start();
+    r3.join(100);
+    assertTrue(w.isAlive());
+    assertFalse(r3.registered);
+    r1.join();
+    w.join(5000);
+    r3.join(5000);
+    assertTrue(r3.released);
+  }
+
+  /**
+   * Checks if the databases accessed by a query are detected.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void queryDatabasesTest() throws QueryException {
+    final Context ctx = new Context();
+    StringList sl = new QueryProcessor(
+        "doc('A'), collection('B/x'), db:open('A'), db:open-id('C', 1)",
+        ctx).databases();
+    assertArrayEquals(new String[] { "A", "B", "C" }, sl.toArray());
+    sl = new QueryProcessor("1 + 1", ctx).databases();
+    assertEquals(0, sl.size());
+    sl = new QueryProcessor("for $d in ('A', 'B') return doc($d)",
+        ctx).databases();
+    assertNull(sl);
+    ctx.close();
+  }
+
+  /**
+   * Checks that processes can only be unregistered by the thread that
+   * registered them.
+   * @throws InterruptedException interrupted exception
+   */
+  @Test
+  public void ownerTest() throws InterruptedException {
+    final Context ctx = new Context();
+    ctx.register(false);
+    final Thread t = Thread.currentThread();
+    final boolean[] failed = new boolean[1];
+    final Thread other = new Thread() {
+      @Override
+      public void run() {
+        try {
+          ctx.unregister(false);
+        } catch(final RuntimeException ex) {
+          failed[0] = true;
+        }
+        ctx.unregister(false, t);
+      }
+    };
+    other.start();
+    other.join();
+    assertTrue(failed[0]);
+    try {
+      ctx.unregister(false);
+      fail("Process was unregistered twice.");
+    } catch(final RuntimeException ex) {
+      // expected
+    }
+    ctx.close();
+  }
+
+  /**
+   * Returns a list with the specified database.
+   * @param db database name
+   * @return list
+   */
+  static StringList list(final String db) {
+    final StringList sl = new StringList();
+    sl.add(db);
+    return sl;
+  }
+
   /** Efficiency test.
    * @throws Exception exception
    */
@@ -240,6 +382,41 @@ public final class LockingTest {
     }
   }
 
+  /** Reading process. */
+  static final class Reader extends Thread {
+    /** Database context. */
+    private final Context ctx;
+    /** Databases to be locked ({@code null}: all databases). */
+    private final StringList dbs;
+    /** Time to hold the lock, in milliseconds. */
+    private final int ms;
+    /** Flag for a registered reader. */
+    volatile boolean registered;
+    /** Flag for a reader that is about to unregister. */
+    volatile boolean released;
+
+    /**
+     * Constructor.
+     * @param c database context
+     * @param db databases to be locked ({@code null}: all databases)
+     * @param m time to hold the lock, in milliseconds
+     */
+    Reader(final Context c, final StringList db, final int m) {
+      ctx = c;
+      dbs = db;
+      ms = m;
+    }
+
+    @Override
+    public void run() {
+      ctx.register(false, false, dbs);
+      registered = true;
+      Performance.sleep(ms);
+      released = true;
+      ctx.unregister(false);
+    }
+  }
+
   /** Single client. */
   static class Client extends Thread {
     /** Client session. */
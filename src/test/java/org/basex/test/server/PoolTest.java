@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import org.basex.BaseXServer;
 import org.basex.core.BaseXException;
 import org.basex.core.Command;
+import org.basex.core.Prop;
 import org.basex.core.cmd.Close;
 import org.basex.core.cmd.CreateDB;
 import org.basex.core.cmd.DropDB;
@@ -83,6 +84,45 @@ public final class PoolTest {
     ok(new DropDB(NAME), session1);
   }
 
+  /** Tests if unused databases are kept open. */
+  @Test
+  public void keepWarm() {
+    server.context.prop.set(Prop.KEEPWARM, 8);
+    ok(new CreateDB(NAME, FILE), session1);
+    ok(new Close(), session1);
+    pins(0, NAME);
+    final long hits = server.context.datas.stats()[0];
+    ok(new Open(NAME), session2);
+    pins(1, NAME);
+    assertEquals(hits + 1, server.context.datas.stats()[0]);
+    ok(new Close(), session2);
+    // unused instance must be closed before the database is dropped
+    ok(new DropDB(NAME), session1);
+    no(new Open(NAME), session1);
+    pins(0, NAME);
+    server.context.prop.set(Prop.KEEPWARM, 0);
+  }
+
+  /**
+   * Tests if unused databases are closed after they have expired.
+   * @throws InterruptedException interrupted exception
+   */
+  @Test
+  public void keepWarmTime() throws InterruptedException {
+    server.context.prop.set(Prop.KEEPWARM, 8);
+    server.context.prop.set(Prop.KEEPWARMTIME, 1);
+    ok(new CreateDB(NAME, FILE), session1);
+    ok(new Close(), session1);
+    assertTrue(server.context.datas.info().contains(NAME));
+    // database is closed by the sweeper, although it is not requested
+    Thread.sleep(3000);
+    assertFalse(server.context.datas.info().contains(NAME));
+    ok(new DropDB(NAME), session1);
+    server.context.prop.set(Prop.KEEPWARM, 0);
+    server.context.prop.set(Prop.KEEPWARMTIME,
+        (Integer) Prop.KEEPWARMTIME[1]);
+  }
+
   /** Stops the server. */
   @AfterClass
   public static void stop() {
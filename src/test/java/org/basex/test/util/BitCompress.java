@@ -0,0 +1,152 @@
+package org.basex.test.util;
+
+import org.basex.util.ByteList;
+import org.basex.util.Compress;
+import org.basex.util.Num;
+import org.basex.util.TextCodec;
+
+/**
+ * Former implementation of the {@link Compress} codec, which processes
+ * texts bit by bit.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class BitCompress implements TextCodec {
+  /** Byte list. */
+  private final ByteList bl = new ByteList();
+  /** Temporary value, or current position. */
+  private int c;
+  /** Offset. */
+  private int o;
+
+  @Override
+  public byte[] pack(final byte[] txt) {
+    final int tl = txt.length;
+    final byte[] len = new byte[Num.len(tl)];
+    Num.write(len, tl, 0);
+    bl.reset();
+    bl.add(len);
+    c = 0;
+    o = 0;
+
+    push(0, 1);
+    int lc = 0;
+    for(final byte b : txt) lc += b >= 'A' && b <= 'Z' ? -1 : 1;
+    final byte[] pack = lc >= 0 ? PACK1 : PACK2;
+    push(lc >= 0 ? 1 : 0, 1);
+
+    for(int t = 0; t < tl; t++) {
+      int b = txt[t];
+      if(b >= 0) b = pack[b];
+      if(b >= 0x00 && b < 0x08) {
+        push(1 | b << 1, 4);
+      } else if(b >= 0x08 && b < 0x10) {
+        push(2 | b << 2, 5);
+      } else if(b >= 0x10 && b < 0x20) {
+        push(4 | b << 3, 7);
+      } else if(b >= 0x20 && b < 0x40) {
+        push(8 | b << 4, 9);
+      } else {
+        push(b << 4, 12);
+      }
+    }
+    if(o != 0) bl.add(c);
+    return bl.size() < tl ? bl.toArray() : txt;
+  }
+
+  /**
+   * Pushes bits to the byte cache.
+   * @param b value to be pushed
+   * @param s number of bits
+   */
+  private void push(final int b, final int s) {
+    int bb = b;
+    for(int i = 0; i < s; i++) {
+      c |= (bb & 1) << o;
+      bb >>= 1;
+      if(++o == 8) {
+        bl.add(c);
+        o = 0;
+        c = 0;
+      }
+    }
+  }
+
+  @Override
+  public byte[] unpack(final byte[] txt) {
+    c = Num.len(txt, 0) << 3;
+    pull(txt, 1);
+    final byte[] unpack = pull(txt, 1) == 1 ? UNPACK1 : UNPACK2;
+
+    final byte[] res = new byte[Num.read(txt, 0)];
+    for(int r = 0; r < res.length; r++) {
+      int b;
+      if(pull(txt, 1) == 1) {
+        b = pull(txt, 3);
+      } else if(pull(txt, 1) == 1) {
+        b = pull(txt, 3) | 0x08;
+      } else if(pull(txt, 1) == 1) {
+        b = pull(txt, 4) | 0x10;
+      } else if(pull(txt, 1) == 1) {
+        b = pull(txt, 5) | 0x20;
+      } else {
+        b = pull(txt, 8);
+      }
+      res[r] = (byte) (b >= 128 ? b : unpack[b]);
+    }
+    return res;
+  }
+
+  /**
+   * Pulls the specified number of bits.
+   * @param txt packed text
+   * @param s number of bits
+   * @return result
+   */
+  private int pull(final byte[] txt, final int s) {
+    int x = 0;
+    for(int i = 0; i < s; i++, c++) {
+      if((txt[c >>> 3] & 1 << (c & 7)) != 0) x |= 1 << i;
+    }
+    return x;
+  }
+
+  /** First mapping for unpacking data. */
+  private static final byte[] UNPACK1 = {
+    0x20, 0x61, 0x65, 0x6E, 0x69, 0x6F, 0x72, 0x73,
+    0x74, 0x6C, 0x75, 0x68, 0x64, 0x63, 0x67, 0x6D,
+    0x70, 0x79, 0x62, 0x6B, 0x66, 0x76, 0x43, 0x53,
+    0x77, 0x4D, 0x41, 0x42, 0x50, 0x7A, 0x2E, 0x0A,
+    0x54, 0x52, 0x4B, 0x4C, 0x47, 0x4E, 0x48, 0x6A,
+    0x45, 0x49, 0x44, 0x46, 0x4A, 0x78, 0x4F, 0x71,
+    0x30, 0x31, 0x32, 0x33, 0x34, 0x35, 0x36, 0x37,
+    0x38, 0x39, 0x3A, 0x2D, 0x27, 0x2C, 0x22, 0x3F,
+    0x56, 0x57, 0x55, 0x5A, 0x59, 0x51, 0x58, 0x09,
+    0x40, 0x28, 0x2F, 0x29, 0x2B, 0x7E, 0x21, 0x23,
+    0x24, 0x25, 0x26, 0x2A, 0x3B, 0x3C, 0x3D, 0x3E,
+    0x5B, 0x5C, 0x5D, 0x5E, 0x5F, 0x60, 0x7B, 0x7C,
+    0x7D, 0x7F, 0x00, 0x01, 0x02, 0x03, 0x04, 0x05,
+    0x06, 0x07, 0x08, 0x0B, 0x0C, 0x0D, 0x0E, 0x0F,
+    0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17,
+    0x18, 0x19, 0x1A, 0x1B, 0x1C, 0x1D, 0x1E, 0x1F
+  };
+  /** First mapping for packing data. */
+  private static final byte[] PACK1 = new byte[UNPACK1.length];
+  /** Second mapping for unpacking data. */
+  private static final byte[] UNPACK2 = new byte[UNPACK1.length];
+  /** Second mapping for packing data. */
+  private static final byte[] PACK2 = new byte[UNPACK2.length];
+
+  // initializes the character mappings
+  static {
+    for(int p = 0; p < UNPACK1.length; p++) {
+      final byte b1 = UNPACK1[p];
+      final byte b2 = (byte) (b1 >= 'A' && b1 <= 'Z' ? b1 + 0x20 :
+        b1 >= 'a' && b1 <= 'z' ? b1 - 0x20 : b1);
+      UNPACK2[p] = b2;
+      PACK1[b1] = (byte) p;
+      PACK2[b2] = (byte) p;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package org.basex.test.util;
+
+import static org.junit.Assert.*;
+import org.basex.core.Context;
+import org.basex.query.QueryProcessor;
+import org.basex.query.item.Item;
+import org.basex.query.iter.Iter;
+import org.basex.util.Compress;
+import org.basex.util.SymbolCompress;
+import org.basex.util.Token;
+import org.basex.util.TokenList;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the {@link Compress} codec with the former bitwise implementation,
+ * and tests the {@link SymbolCompress} codec.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TextCodecTest {
+  /** Test texts. */
+  private static byte[][] texts;
+
+  /**
+   * Initializes the test texts.
+   * @throws Exception exception
+   */
+  @BeforeClass
+  public static void init() throws Exception {
+    texts = texts();
+  }
+
+  /**
+   * Returns the texts and attribute values of the XMark test document.
+   * @return texts
+   * @throws Exception exception
+   */
+  public static byte[][] texts() throws Exception {
+    final Context ctx = new Context();
+    final String query = "let $doc := doc('etc/xml/xmark.xml')" +
+      "for $i in $doc//(@* | text()) return data($i)";
+    final TokenList tl = new TokenList();
+    final QueryProcessor qp = new QueryProcessor(query, ctx);
+    final Iter ir = qp.iter();
+    for(Item it; (it = ir.next()) != null;) tl.add(it.atom(null));
+    qp.close();
+    ctx.close();
+    return tl.toArray();
+  }
+
+  /** Checks that the table-driven codec creates the same output. */
+  @Test
+  public void same() {
+    final Compress comp = new Compress();
+    final BitCompress bit = new BitCompress();
+    for(final byte[] t : texts) {
+      final byte[] cpr = comp.pack(t);
+      assertTrue(Token.eq(bit.pack(t), cpr));
+      if(cpr != t) {
+        assertTrue(Token.eq(t, comp.unpack(cpr)));
+        assertTrue(Token.eq(t, bit.unpack(cpr)));
+      }
+    }
+  }
+
+  /** Tests the symbol table codec. */
+  @Test
+  public void symbols() {
+    final SymbolCompress comp = new SymbolCompress();
+    for(final byte[] t : texts) comp.pack(t);
+    comp.train();
+    final byte[][] cpr = new byte[texts.length][];
+    int tl = 0, cl = 0;
+    for(int t = 0; t < texts.length; t++) {
+      cpr[t] = comp.pack(texts[t]);
+      tl += texts[t].length;
+      cl += cpr[t].length;
+    }
+    for(int t = 0; t < texts.length; t++) {
+      if(cpr[t] != texts[t]) {
+        assertTrue(Token.eq(texts[t], comp.unpack(cpr[t])));
+      }
+    }
+    assertTrue(cl < tl);
+  }
+}